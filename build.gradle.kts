@@ -84,6 +84,14 @@ dependencies {
     }
     annotationProcessor("org.spongepowered:mixin:0.8.5-SNAPSHOT")
 
+    // Embedded database for "/hlog storage h2". Loaded by name at runtime, so it is not relocated.
+    shadowImpl("com.h2database:h2:2.1.214")
+
+    // Game-independent logic. Minecraft already ships Gson, so only the module itself is bundled.
+    shadowImpl(project(":core")) {
+        isTransitive = false
+    }
+
     // If you don't want to log in with your real minecraft account, remove this line
     runtimeOnly("me.djtheredstoner:DevAuth-forge-legacy:1.2.1")
 
@@ -150,3 +158,12 @@ tasks.shadowJar {
 
 tasks.assemble.get().dependsOn(tasks.remapJar)
 
+// Pro Tools automation against the simulated server, without starting the game:
+// ./gradlew protoolsBench --args="[jobs] [latencyTicks] [seed]"
+tasks.register<JavaExec>("protoolsBench") {
+    group = "verification"
+    description = "Benchmarks the Pro Tools automation engine against MockProtoolsServer."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.github.xtimfie.housinglogs.ProtoolsBenchmark")
+}
+
@@ -0,0 +1,38 @@
+plugins {
+    `java-library`
+}
+
+java {
+    toolchain.languageVersion.set(JavaLanguageVersion.of(8))
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    // The version Minecraft 1.8.9 ships, so the mod and the core see the same API.
+    api("com.google.code.gson:gson:2.2.4")
+
+    testImplementation("junit:junit:4.13.2")
+}
+
+tasks.withType(JavaCompile::class) {
+    options.encoding = "UTF-8"
+}
+
+// ./gradlew :core:replay --args="capture.hlcap --repeat 5"
+tasks.register<JavaExec>("replay") {
+    group = "application"
+    description = "Replays a packet capture through the attribution code."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.github.xtimfie.housinglogs.core.CaptureReplay")
+}
+
+// ./gradlew :core:bench --args="--rounds 10"
+tasks.register<JavaExec>("bench") {
+    group = "verification"
+    description = "Times the area index, sound index, player table and event serialisation."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.github.xtimfie.housinglogs.core.CoreBench")
+}
@@ -0,0 +1,97 @@
+package com.github.xtimfie.housinglogs.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable lookup from a block position to the areas containing it, in the order they were added.
+ *
+ * Bounds are kept as parallel int arrays so the per-change scan is a run of integer compares over
+ * contiguous memory; only areas whose bounds match fall through to their {@link AreaShape}.
+ * Rebuild it when the areas change and publish the new instance; readers never lock.
+ */
+public final class AreaIndex<T> {
+    private static final AreaIndex<?> EMPTY = new Builder<Object>().build();
+
+    private final int[] minX, minY, minZ, maxX, maxY, maxZ;
+    private final AreaShape[] shapes;
+    private final Object[] values;
+
+    private AreaIndex(Builder<T> b) {
+        int n = b.size;
+        this.minX = Arrays.copyOf(b.minX, n);
+        this.minY = Arrays.copyOf(b.minY, n);
+        this.minZ = Arrays.copyOf(b.minZ, n);
+        this.maxX = Arrays.copyOf(b.maxX, n);
+        this.maxY = Arrays.copyOf(b.maxY, n);
+        this.maxZ = Arrays.copyOf(b.maxZ, n);
+        this.shapes = Arrays.copyOf(b.shapes, n);
+        this.values = Arrays.copyOf(b.values, n);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> AreaIndex<T> empty() {
+        return (AreaIndex<T>) EMPTY;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return the areas containing the block, or null if there are none
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> matching(int x, int y, int z) {
+        List<T> out = null;
+        for (int i = 0; i < values.length; i++) {
+            if (x < minX[i] || x > maxX[i] || y < minY[i] || y > maxY[i] || z < minZ[i] || z > maxZ[i]) continue;
+            if (shapes[i] != null && !shapes[i].contains(x, y, z)) continue;
+            if (out == null) out = new ArrayList<>(2);
+            out.add((T) values[i]);
+        }
+        return out;
+    }
+
+    public static final class Builder<T> {
+        private int size;
+        private int[] minX = new int[8], minY = new int[8], minZ = new int[8];
+        private int[] maxX = new int[8], maxY = new int[8], maxZ = new int[8];
+        private AreaShape[] shapes = new AreaShape[8];
+        private Object[] values = new Object[8];
+
+        /**
+         * Adds an area by its inclusive bounds; shape may be null for a plain cuboid.
+         */
+        public Builder<T> add(int x1, int y1, int z1, int x2, int y2, int z2, AreaShape shape, T value) {
+            if (size == values.length) grow();
+            minX[size] = Math.min(x1, x2);
+            minY[size] = Math.min(y1, y2);
+            minZ[size] = Math.min(z1, z2);
+            maxX[size] = Math.max(x1, x2);
+            maxY[size] = Math.max(y1, y2);
+            maxZ[size] = Math.max(z1, z2);
+            shapes[size] = shape;
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        public AreaIndex<T> build() {
+            return new AreaIndex<>(this);
+        }
+
+        private void grow() {
+            int n = values.length * 2;
+            minX = Arrays.copyOf(minX, n);
+            minY = Arrays.copyOf(minY, n);
+            minZ = Arrays.copyOf(minZ, n);
+            maxX = Arrays.copyOf(maxX, n);
+            maxY = Arrays.copyOf(maxY, n);
+            maxZ = Arrays.copyOf(maxZ, n);
+            shapes = Arrays.copyOf(shapes, n);
+            values = Arrays.copyOf(values, n);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.github.xtimfie.housinglogs.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A non-cuboid area: boxes and polygon prisms added to or cut from the shape in order, so an
+ * L-shaped plot is two boxes and a public walkway is a cut.
+ *
+ * The shape is compiled once into a membership mask per 16x16x16 chunk section, stored the way
+ * roaring bitmaps store their containers: nothing for sections outside the shape, a shared marker
+ * for sections fully inside, a sorted array of positions for sparse sections and a 4096-bit bitmap
+ * otherwise. The sections sit in an open-addressed table keyed by a primitive long, so
+ * {@link #contains} is a probe plus a bit test whatever the shape looks like, and allocates nothing.
+ * Immutable once built.
+ *
+ * Compiling a large shape takes a while; the mod builds them off the client thread, using
+ * {@link #bounds} and {@link #partsFromJson} to validate and place an area before that.
+ */
+public final class AreaShape {
+    // Arrays hold at most this many positions; above it a 64-long bitmap is smaller.
+    private static final int MAX_ARRAY = 256;
+    private static final Object FULL = new Object();
+    // Bounds larger than this in x/z (4096x4096) are refused; compiling them would stall the game.
+    private static final long MAX_FOOTPRINT = 4096L * 4096L;
+    // No block exists outside the world's height, so bounds are clamped to it.
+    private static final int MIN_Y = 0;
+    private static final int MAX_Y = 255;
+
+    /**
+     * One step of the shape: a box or a prism over a polygon in x/z, added or cut.
+     */
+    public static final class Part {
+        final boolean cut;
+        final int minY;
+        final int maxY;
+        // Box: minX, minZ, maxX, maxZ. Prism: the polygon's x and z, as block coordinates.
+        final int[] xs;
+        final int[] zs;
+        final boolean box;
+
+        private Part(boolean cut, boolean box, int minY, int maxY, int[] xs, int[] zs) {
+            this.cut = cut;
+            this.box = box;
+            this.minY = minY;
+            this.maxY = maxY;
+            this.xs = xs;
+            this.zs = zs;
+        }
+
+        public static Part box(boolean cut, int x1, int y1, int z1, int x2, int y2, int z2) {
+            return new Part(cut, true, Math.min(y1, y2), Math.max(y1, y2),
+                    new int[]{Math.min(x1, x2), Math.max(x1, x2)}, new int[]{Math.min(z1, z2), Math.max(z1, z2)});
+        }
+
+        public static Part prism(boolean cut, int y1, int y2, int[] xs, int[] zs) {
+            if (xs.length < 3 || xs.length != zs.length) throw new IllegalArgumentException("A prism needs at least 3 points.");
+            return new Part(cut, false, Math.min(y1, y2), Math.max(y1, y2), xs.clone(), zs.clone());
+        }
+
+        int minX() {
+            return box ? xs[0] : Arrays.stream(xs).min().getAsInt();
+        }
+
+        int maxX() {
+            return box ? xs[1] : Arrays.stream(xs).max().getAsInt();
+        }
+
+        int minZ() {
+            return box ? zs[0] : Arrays.stream(zs).min().getAsInt();
+        }
+
+        int maxZ() {
+            return box ? zs[1] : Arrays.stream(zs).max().getAsInt();
+        }
+
+        /**
+         * Whether the column at block (x, z) is in the footprint. Prisms test the block's centre, so
+         * a polygon through block corners includes the blocks whose centres are inside it.
+         */
+        boolean covers(int x, int z) {
+            if (box) return x >= xs[0] && x <= xs[1] && z >= zs[0] && z <= zs[1];
+            double px = x + 0.5;
+            double pz = z + 0.5;
+            boolean inside = false;
+            for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+                if ((zs[i] > pz) != (zs[j] > pz)
+                        && px < (double) (xs[j] - xs[i]) * (pz - zs[i]) / (zs[j] - zs[i]) + xs[i]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+
+    private final List<Part> parts;
+    public final int minX, minY, minZ, maxX, maxY, maxZ;
+    // Section key -> FULL, short[] (sorted indices) or long[] (bitmap). Open addressing, linear
+    // probing; a null value marks a free slot.
+    private long[] sectionKeys = new long[16];
+    private Object[] sectionValues = new Object[16];
+    private int sectionCount = 0;
+
+    public AreaShape(List<Part> parts) {
+        int[] b = bounds(parts);
+        this.parts = Collections.unmodifiableList(new ArrayList<>(parts));
+        minX = b[0];
+        minY = b[1];
+        minZ = b[2];
+        maxX = b[3];
+        maxY = b[4];
+        maxZ = b[5];
+        compile();
+    }
+
+    /**
+     * Checks parts the way the constructor does, without compiling them.
+     *
+     * @return the bounds as {minX, minY, minZ, maxX, maxY, maxZ}, y clamped to 0..255
+     * @throws IllegalArgumentException if the parts do not make a valid shape
+     */
+    public static int[] bounds(List<Part> parts) {
+        if (parts.isEmpty() || parts.get(0).cut) throw new IllegalArgumentException("A shape starts with an added part.");
+        int[] b = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        for (Part p : parts) {
+            if (p.cut) continue;
+            b[0] = Math.min(b[0], p.minX());
+            b[1] = Math.min(b[1], p.minY);
+            b[2] = Math.min(b[2], p.minZ());
+            b[3] = Math.max(b[3], p.maxX());
+            b[4] = Math.max(b[4], p.maxY);
+            b[5] = Math.max(b[5], p.maxZ());
+        }
+        if ((long) (b[3] - b[0] + 1) * (b[5] - b[2] + 1) > MAX_FOOTPRINT) throw new IllegalArgumentException("Shape is too large.");
+        b[1] = Math.max(b[1], MIN_Y);
+        b[4] = Math.min(b[4], MAX_Y);
+        if (b[1] > b[4]) throw new IllegalArgumentException("Shape is outside the world's height (y 0-255).");
+        return b;
+    }
+
+    public List<Part> parts() {
+        return parts;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        Object s = section(sectionKey(x >> 4, y >> 4, z >> 4));
+        if (s == null) return false;
+        if (s == FULL) return true;
+        int i = index(x & 15, y & 15, z & 15);
+        if (s instanceof long[]) return (((long[]) s)[i >>> 6] & (1L << i)) != 0;
+        return Arrays.binarySearch((short[]) s, (short) i) >= 0;
+    }
+
+    /**
+     * Number of sections by container kind, for /hlog shape: {full, array, bitmap}.
+     */
+    public int[] sectionStats() {
+        int[] out = new int[3];
+        for (Object s : sectionValues) {
+            if (s != null) out[s == FULL ? 0 : s instanceof short[] ? 1 : 2]++;
+        }
+        return out;
+    }
+
+    private Object section(long key) {
+        int mask = sectionKeys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            Object v = sectionValues[i];
+            if (v == null || sectionKeys[i] == key) return v;
+        }
+    }
+
+    private void putSection(long key, Object value) {
+        // Kept at most half full, so probes stay short and always reach a free slot.
+        if ((sectionCount + 1) * 2 > sectionKeys.length) {
+            long[] keys = sectionKeys;
+            Object[] values = sectionValues;
+            sectionKeys = new long[keys.length * 2];
+            sectionValues = new Object[keys.length * 2];
+            sectionCount = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) putSection(keys[i], values[i]);
+            }
+        }
+        int mask = sectionKeys.length - 1;
+        int i = slot(key, mask);
+        while (sectionValues[i] != null) i = (i + 1) & mask;
+        sectionKeys[i] = key;
+        sectionValues[i] = value;
+        sectionCount++;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Builds the section masks a chunk column at a time: footprints are worked out once per column
+     * and then applied to each section's y range, in part order.
+     */
+    private void compile() {
+        boolean[][] footprints = new boolean[parts.size()][256];
+        for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+            for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                boolean any = false;
+                for (int p = 0; p < parts.size(); p++) {
+                    Part part = parts.get(p);
+                    boolean[] fp = footprints[p];
+                    for (int dz = 0; dz < 16; dz++) {
+                        for (int dx = 0; dx < 16; dx++) {
+                            fp[dz << 4 | dx] = part.covers((cx << 4) + dx, (cz << 4) + dz);
+                            any |= fp[dz << 4 | dx] && !part.cut;
+                        }
+                    }
+                }
+                if (!any) continue;
+                for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+                    long[] bits = new long[64];
+                    for (int p = 0; p < parts.size(); p++) {
+                        Part part = parts.get(p);
+                        int y0 = Math.max(part.minY, sy << 4) - (sy << 4);
+                        int y1 = Math.min(part.maxY, (sy << 4) + 15) - (sy << 4);
+                        if (y0 > y1) continue;
+                        boolean[] fp = footprints[p];
+                        for (int col = 0; col < 256; col++) {
+                            if (!fp[col]) continue;
+                            for (int y = y0; y <= y1; y++) {
+                                int i = y << 8 | col;
+                                if (part.cut) bits[i >>> 6] &= ~(1L << i);
+                                else bits[i >>> 6] |= 1L << i;
+                            }
+                        }
+                    }
+                    Object container = pack(bits);
+                    if (container != null) putSection(sectionKey(cx, sy, cz), container);
+                }
+            }
+        }
+    }
+
+    private static Object pack(long[] bits) {
+        int count = 0;
+        for (long w : bits) count += Long.bitCount(w);
+        if (count == 0) return null;
+        if (count == 4096) return FULL;
+        if (count > MAX_ARRAY) return bits;
+        short[] arr = new short[count];
+        int k = 0;
+        for (int w = 0; w < 64; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                arr[k++] = (short) (w << 6 | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return arr;
+    }
+
+    private static int index(int x, int y, int z) {
+        return y << 8 | z << 4 | x;
+    }
+
+    private static long sectionKey(int cx, int sy, int cz) {
+        return ((long) cx & 0x3FFFFFL) << 42 | ((long) cz & 0x3FFFFFL) << 20 | (sy & 0xFFFFFL);
+    }
+
+    public JsonArray toJson() {
+        return toJson(parts);
+    }
+
+    public static JsonArray toJson(List<Part> parts) {
+        JsonArray arr = new JsonArray();
+        for (Part p : parts) {
+            JsonObject o = new JsonObject();
+            o.addProperty("op", p.cut ? "cut" : "add");
+            if (p.box) {
+                JsonArray box = new JsonArray();
+                for (int v : new int[]{p.xs[0], p.minY, p.zs[0], p.xs[1], p.maxY, p.zs[1]}) box.add(new JsonPrimitive(v));
+                o.add("box", box);
+            } else {
+                JsonObject prism = new JsonObject();
+                prism.addProperty("minY", p.minY);
+                prism.addProperty("maxY", p.maxY);
+                JsonArray points = new JsonArray();
+                for (int i = 0; i < p.xs.length; i++) {
+                    JsonArray pt = new JsonArray();
+                    pt.add(new JsonPrimitive(p.xs[i]));
+                    pt.add(new JsonPrimitive(p.zs[i]));
+                    points.add(pt);
+                }
+                prism.add("points", points);
+                o.add("prism", prism);
+            }
+            arr.add(o);
+        }
+        return arr;
+    }
+
+    public static AreaShape fromJson(JsonArray arr) {
+        return new AreaShape(partsFromJson(arr));
+    }
+
+    public static List<Part> partsFromJson(JsonArray arr) {
+        List<Part> parts = new ArrayList<>();
+        for (JsonElement el : arr) {
+            JsonObject o = el.getAsJsonObject();
+            boolean cut = o.has("op") && "cut".equals(o.get("op").getAsString());
+            if (o.has("box")) {
+                JsonArray b = o.getAsJsonArray("box");
+                parts.add(Part.box(cut, b.get(0).getAsInt(), b.get(1).getAsInt(), b.get(2).getAsInt(),
+                        b.get(3).getAsInt(), b.get(4).getAsInt(), b.get(5).getAsInt()));
+            } else if (o.has("prism")) {
+                JsonObject p = o.getAsJsonObject("prism");
+                JsonArray points = p.getAsJsonArray("points");
+                int[] xs = new int[points.size()];
+                int[] zs = new int[points.size()];
+                for (int i = 0; i < points.size(); i++) {
+                    xs[i] = points.get(i).getAsJsonArray().get(0).getAsInt();
+                    zs[i] = points.get(i).getAsJsonArray().get(1).getAsInt();
+                }
+                parts.add(Part.prism(cut, p.get("minY").getAsInt(), p.get("maxY").getAsInt(), xs, zs));
+            }
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.xtimfie.housinglogs.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Who made one block change, decided in the order the audit has always used: our own action, a
+ * finished break animation, the look heuristic ({@link AttributionScorer#guess}), and finally the
+ * player who swung as the matching place sound or break effect played.
+ *
+ * BlockAuditManager and {@link CaptureReplay} both go through this class, so a replay scores
+ * exactly what the game would have logged. Fill in what is known with {@link #self} and
+ * {@link #breaker}, then call {@link #observe} where the player and sound tables are fed (the
+ * main thread in game); {@link #resolve} only reads the snapshot and may run on any thread.
+ */
+public final class Attribution {
+    public static final long BREAK_ATTRIBUTION_WINDOW_MS = 2500;
+    public static final long SOUND_MATCH_WINDOW_MS = 1000;
+
+    public final String action;
+    private final int x, y, z;
+    private final int newBlockId;
+    private final long nowMs;
+
+    private UUID selfUuid;
+    private String selfName;
+    private AttributionScorer.PlacementCandidate selfLook;
+    private UUID breakerUuid;
+    private String breakerName;
+    private long breakerAtMs;
+
+    // Result so far; final once resolve() has run.
+    public UUID uuid;
+    public String name;
+    public String attribution = "unknown";
+    // "sound" or "break_effect" when one was heard at the block, else null.
+    public String sound;
+
+    private AttributionScorer.NearbyPlayerSnapshot swinger;
+    private List<AttributionScorer.PlacementCandidate> candidates;
+
+    /**
+     * @param newBlockId block id (not state id) of the new state, for matching held items
+     */
+    public Attribution(boolean oldAir, boolean newAir, int x, int y, int z, int newBlockId, long nowMs) {
+        this.action = oldAir && !newAir ? "PLACE" : !oldAir && newAir ? "BREAK" : "CHANGE";
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.newBlockId = newBlockId;
+        this.nowMs = nowMs;
+    }
+
+    /**
+     * Our own player: the actor of a local change, and a look candidate for every other one.
+     *
+     * @param heldBlockId block id of the held item, 0 for none
+     */
+    public Attribution self(UUID uuid, String name, double eyeX, double eyeY, double eyeZ,
+                            double lookX, double lookY, double lookZ, int heldBlockId) {
+        this.selfUuid = uuid;
+        this.selfName = name;
+        this.selfLook = new AttributionScorer.PlacementCandidate(uuid, name, eyeX, eyeY, eyeZ, lookX, lookY, lookZ,
+                heldBlockId != 0 && heldBlockId == newBlockId, false);
+        return this;
+    }
+
+    /**
+     * The player whose break animation last finished at this block, at atMs.
+     */
+    public Attribution breaker(UUID uuid, String name, long atMs) {
+        this.breakerUuid = uuid;
+        this.breakerName = name;
+        this.breakerAtMs = atMs;
+        return this;
+    }
+
+    /**
+     * The certain sources, then everything the heuristics need from the live tables.
+     *
+     * @param local whether the change is the client's prediction of our own action
+     * @param allowHeuristic false to skip the look heuristic for this change
+     */
+    public void observe(boolean local, boolean allowHeuristic, PlayerStateTable players, SoundIndex sounds) {
+        if (local) {
+            if (selfUuid != null) certain(selfUuid, selfName, "self");
+            return;
+        }
+        if ("BREAK".equals(action) && breakerName != null && nowMs - breakerAtMs <= BREAK_ATTRIBUTION_WINDOW_MS) {
+            certain(breakerUuid, breakerName, "break_anim");
+        }
+        if ("CHANGE".equals(action)) return;
+
+        // The server plays the place sound / break effect as it makes the change, normally just
+        // ahead of the block update. Hearing one at this block confirms the action; the player
+        // nearest it who swung at that moment is the fallback actor when the look finds nobody.
+        long[] heardAt = new long[1];
+        int heard = sounds.find(x, y, z, nowMs, SOUND_MATCH_WINDOW_MS, heardAt);
+        boolean matches = "PLACE".equals(action) ? (heard & SoundIndex.SOUND) != 0 : heard != 0;
+        if (matches) {
+            sound = (heard & SoundIndex.BREAK_EFFECT) != 0 ? "break_effect" : "sound";
+            if (name == null) {
+                swinger = players.nearestSwinging(x + 0.5, y + 0.5, z + 0.5, AttributionScorer.PLACER_MAX_DIST, heardAt[0]);
+            }
+        }
+
+        if (allowHeuristic && name == null) {
+            candidates = new ArrayList<>();
+            players.collectCandidates(x + 0.5, y + 0.5, z + 0.5, AttributionScorer.PLACER_MAX_DIST, newBlockId, nowMs, candidates);
+            if (selfLook != null) candidates.add(selfLook);
+        }
+    }
+
+    /**
+     * Whether {@link #observe} found no certain actor.
+     */
+    public boolean uncertain() {
+        return name == null;
+    }
+
+    /**
+     * The look heuristic, then the swing fallback, over what {@link #observe} collected.
+     */
+    public void resolve() {
+        AttributionScorer.PlacementGuess guess = AttributionScorer.guess(x, y, z, candidates, "BREAK".equals(action));
+        if (guess != null) {
+            uuid = guess.uuid;
+            name = guess.name;
+            attribution = "BREAK".equals(action) ? "heuristic_break" : guess.itemMatch ? "heuristic_look_item" : "heuristic_look";
+        } else if (name == null && swinger != null) {
+            uuid = swinger.uuid;
+            name = swinger.name;
+            attribution = "sound_swing";
+        }
+    }
+
+    private void certain(UUID uuid, String name, String attribution) {
+        this.uuid = uuid;
+        this.name = name;
+        this.attribution = attribution;
+    }
+}
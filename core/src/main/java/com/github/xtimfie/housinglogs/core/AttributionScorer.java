@@ -0,0 +1,134 @@
+package com.github.xtimfie.housinglogs.core;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Look-ray scoring for guessing who placed or broke a block. Plain Java, so captures can be
+ * replayed through it outside the game (see {@link CaptureReplay}).
+ */
+public final class AttributionScorer {
+    public static final double PLACER_MAX_DIST = 7.0;
+    static final double PLACER_LOOK_DOT_MIN = 0.94; // widened for stability (heuristic is best-effort)
+    static final double BREAKER_LOOK_DOT_MIN = 0.92; // slightly wider than placement
+
+    private AttributionScorer() {
+    }
+
+    public static class PlacementCandidate {
+        public final UUID uuid;
+        public final String name;
+        final double eyeX, eyeY, eyeZ;
+        final double lookX, lookY, lookZ;
+        final boolean itemMatch;
+        final boolean swung;
+
+        public PlacementCandidate(UUID uuid, String name,
+                           double eyeX, double eyeY, double eyeZ,
+                           double lookX, double lookY, double lookZ,
+                           boolean itemMatch, boolean swung) {
+            this.uuid = uuid;
+            this.name = name;
+            this.eyeX = eyeX;
+            this.eyeY = eyeY;
+            this.eyeZ = eyeZ;
+            this.lookX = lookX;
+            this.lookY = lookY;
+            this.lookZ = lookZ;
+            this.itemMatch = itemMatch;
+            this.swung = swung;
+        }
+    }
+
+    public static class PlacementGuess {
+        public final UUID uuid;
+        public final String name;
+        public final boolean itemMatch;
+
+        private PlacementGuess(UUID uuid, String name, boolean itemMatch) {
+            this.uuid = uuid;
+            this.name = name;
+            this.itemMatch = itemMatch;
+        }
+    }
+
+    public static class NearbyPlayerSnapshot {
+        public final UUID uuid;
+        public final String name;
+        public final double dist;
+
+        public NearbyPlayerSnapshot(UUID uuid, String name, double dist) {
+            this.uuid = uuid;
+            this.name = name;
+            this.dist = dist;
+        }
+    }
+
+    /**
+     * @return the candidate whose look ray passes closest to the block centre, if any scores well enough
+     */
+    public static PlacementGuess guess(int x, int y, int z, List<PlacementCandidate> candidates, boolean isBreak) {
+        if (candidates == null || candidates.isEmpty()) return null;
+
+        double cx = x + 0.5;
+        double cy = y + 0.5;
+        double cz = z + 0.5;
+
+        PlacementCandidate best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+
+        for (PlacementCandidate c : candidates) {
+            double dx = cx - c.eyeX;
+            double dy = cy - c.eyeY;
+            double dz = cz - c.eyeZ;
+            double distSq = dx * dx + dy * dy + dz * dz;
+            if (distSq <= 0.0001) continue;
+
+            double dist = Math.sqrt(distSq);
+            if (dist > PLACER_MAX_DIST) continue;
+
+            // More stable heuristic:
+            // - Use distance from the player's view ray to the block center (perpendicular distance)
+            // - Keep a mild dot-product gate to avoid behind-the-player guesses
+            double lookLenSq = (c.lookX * c.lookX) + (c.lookY * c.lookY) + (c.lookZ * c.lookZ);
+            if (lookLenSq <= 0.0001) continue;
+            double invLookLen = 1.0 / Math.sqrt(lookLenSq);
+            double lx = c.lookX * invLookLen;
+            double ly = c.lookY * invLookLen;
+            double lz = c.lookZ * invLookLen;
+
+            double dot = (lx * dx + ly * dy + lz * dz) / dist; // cos(angle)
+            if (dot < (isBreak ? BREAKER_LOOK_DOT_MIN : PLACER_LOOK_DOT_MIN)) continue;
+
+            double t = (lx * dx) + (ly * dy) + (lz * dz); // projection length along ray (in blocks)
+            if (t < 0.0) continue;
+
+            double closestX = c.eyeX + (lx * t);
+            double closestY = c.eyeY + (ly * t);
+            double closestZ = c.eyeZ + (lz * t);
+            double pdx = cx - closestX;
+            double pdy = cy - closestY;
+            double pdz = cz - closestZ;
+            double perpDistSq = (pdx * pdx) + (pdy * pdy) + (pdz * pdz);
+
+            double maxPerp = isBreak ? 2.25 : 1.75; // squared distance to ray; break is a bit looser
+            if (perpDistSq > maxPerp) continue;
+
+            double score = 2.2 * dot;
+            score -= (dist / PLACER_MAX_DIST);
+            score -= (perpDistSq * (isBreak ? 0.75 : 0.95));
+            if (!isBreak && c.itemMatch) score += 0.35;
+            // An arm swing just before the change is what placing or breaking looks like from outside.
+            if (c.swung) score += 0.25;
+
+            if (score > bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+
+        if (best == null) return null;
+        if (bestScore < 0.25) return null;
+        return new PlacementGuess(best.uuid, best.name, best.itemMatch);
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.xtimfie.housinglogs.core;
+
+import com.google.gson.JsonObject;
+
+import java.util.UUID;
+
+/**
+ * One logged block change, as written to the audit sinks. {@link #toJson} is the stored form; the
+ * field names are the ones the JSONL logs and the H2 store have always used.
+ */
+public final class AuditEvent {
+    public final String area;
+    public final long tsMs;
+    public final int x, y, z;
+    // Null when the change was not observed in a known dimension (offline diffs).
+    public final Integer dimension;
+    public final String action;
+    public final String oldBlock;
+    public final int oldMeta;
+    public final String newBlock;
+    public final int newMeta;
+    public final UUID playerUuid;
+    public final String playerName;
+    public final String attribution;
+
+    public AuditEvent(String area, long tsMs, int x, int y, int z, Integer dimension, String action,
+                      String oldBlock, int oldMeta, String newBlock, int newMeta,
+                      UUID playerUuid, String playerName, String attribution) {
+        this.area = area;
+        this.tsMs = tsMs;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.dimension = dimension;
+        this.action = action;
+        this.oldBlock = oldBlock;
+        this.oldMeta = oldMeta;
+        this.newBlock = newBlock;
+        this.newMeta = newMeta;
+        this.playerUuid = playerUuid;
+        this.playerName = playerName;
+        this.attribution = attribution;
+    }
+
+    public JsonObject toJson() {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("tsMs", tsMs);
+        if (area != null) obj.addProperty("area", area);
+        obj.addProperty("action", action);
+        obj.addProperty("x", x);
+        obj.addProperty("y", y);
+        obj.addProperty("z", z);
+        obj.addProperty("inHousing", true);
+        if (dimension != null) obj.addProperty("dimension", dimension);
+
+        obj.addProperty("oldBlock", oldBlock);
+        obj.addProperty("oldMeta", oldMeta);
+        obj.addProperty("newBlock", newBlock);
+        obj.addProperty("newMeta", newMeta);
+
+        if (playerUuid != null) obj.addProperty("playerUuid", playerUuid.toString());
+        if (playerName != null) obj.addProperty("playerName", playerName);
+        obj.addProperty("attribution", attribution);
+        return obj;
+    }
+}
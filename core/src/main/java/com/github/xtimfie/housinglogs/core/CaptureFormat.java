@@ -0,0 +1,82 @@
+package com.github.xtimfie.housinglogs.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Layout of a packet capture (.hlcap), written by the mod's PacketCapture and read by
+ * {@link CaptureReplay}.
+ *
+ * A gzip stream holding a header (magic, version, start time, the recording player's uuid and
+ * name) and then records, each a type byte and its fields. Times are not stored per record: a TICK
+ * record carries the milliseconds since the previous tick and everything up to the next TICK
+ * happened then. Ids and counts are varints; block positions are packed into a long.
+ *
+ * BLOCK records are the changes the audit saw (after area filtering). LABEL follows a BLOCK whose
+ * actor was certain when recorded (our own action or a break animation) and is the ground truth a
+ * replay is scored against.
+ *
+ * Version 2 writes SELF ahead of any BLOCK our look changed before, not only ahead of our own, and
+ * sets {@link #BLOCK_HEURISTIC}; version 1 captures are still read, with the heuristic assumed on.
+ */
+public final class CaptureFormat {
+    public static final int MAGIC = 0x484C4350; // "HLCP"
+    public static final int VERSION = 2;
+
+    public static final int TICK = 0;         // varint ms since the last tick
+    public static final int STATE = 1;        // varint state id, utf block, byte meta, boolean air-like; before the first use of an id
+    public static final int BLOCK = 2;        // long pos, varint old state, varint new state, byte flags
+    public static final int LABEL = 3;        // utf player name, utf attribution
+    public static final int BREAK_ANIM = 4;   // varint entity id, long pos, byte progress
+    public static final int SPAWN = 5;        // varint entity id, long uuid msb, long uuid lsb, utf name, float eye height, double x, y, z, float yaw, pitch
+    public static final int MOVE = 6;         // varint entity id, int x, y, z (1/32 block), boolean rotating, byte yaw, byte pitch, float eye height
+    public static final int HEAD_LOOK = 7;    // varint entity id, byte yaw
+    public static final int SWING = 8;        // varint entity id
+    public static final int EQUIP = 9;        // varint entity id, varint held block id (0 for none)
+    public static final int DESTROY = 10;     // varint count, varint entity ids
+    public static final int SOUND = 11;       // varint name index (utf name follows the first use), int x, y, z (1/8 block)
+    public static final int EFFECT = 12;      // varint effect type, long pos
+    public static final int SELF = 13;        // double eye x, y, z, float look x, y, z, varint held block id; before a BLOCK when it changed (v1: before our own BLOCKs only)
+
+    public static final int BLOCK_LOCAL = 1;      // the client's prediction of our own action
+    public static final int BLOCK_HEURISTIC = 2;  // the look heuristic was allowed for this change
+
+    private CaptureFormat() {
+    }
+
+    public static void writeVarInt(DataOutput out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Varint too long.");
+    }
+
+    // Same layout as BlockPos#toLong.
+    public static long packPos(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) y & 0xFFFL) << 26 | ((long) z & 0x3FFFFFFL);
+    }
+
+    public static int posX(long p) {
+        return (int) (p >> 38);
+    }
+
+    public static int posY(long p) {
+        return (int) (p << 26 >> 52);
+    }
+
+    public static int posZ(long p) {
+        return (int) (p << 38 >> 38);
+    }
+}
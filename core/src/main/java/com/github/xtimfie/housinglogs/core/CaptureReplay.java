@@ -0,0 +1,267 @@
+package com.github.xtimfie.housinglogs.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replays a capture from /hlog capture through attribution, outside the game and as fast as it
+ * will go, and reports throughput and how often the guess matched the labelled actor.
+ *
+ * Usage: ./gradlew :core:replay --args="<file.hlcap> [--repeat N] [--certain]", or
+ * java -cp HousingLogs.jar com.github.xtimfie.housinglogs.core.CaptureReplay <file.hlcap> [--repeat N] [--certain]
+ *
+ * By default the certain sources (our own actions and break animations) are ignored, so every
+ * labelled change is attributed by the look, swing and sound heuristics and scored against its
+ * label. --certain uses them as the game does.
+ */
+public final class CaptureReplay {
+    private final boolean certain;
+
+    private PlayerStateTable players;
+    private SoundIndex sounds;
+    private int version;
+    private final Map<Integer, Boolean> airStates = new HashMap<>();
+    private final Map<Long, long[]> breakers = new HashMap<>();
+    private final List<String> soundNames = new ArrayList<>();
+    private UUID selfUuid;
+    private String selfName;
+    private long selfMs = Long.MIN_VALUE;
+    private double selfEyeX, selfEyeY, selfEyeZ;
+    private float selfLookX, selfLookY, selfLookZ;
+    private int selfHeld;
+
+    // Results; kept across repeats, reported for one pass.
+    private long records;
+    private long changes;
+    private final Map<String, Integer> byAttribution = new TreeMap<>();
+    private int labelled;
+    private int correct;
+    private int wrong;
+    private int unattributed;
+    private String lastName;
+
+    private CaptureReplay(boolean certain) {
+        this.certain = certain;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: CaptureReplay <file.hlcap> [--repeat N] [--certain]");
+            System.exit(2);
+        }
+        int repeat = 1;
+        boolean certain = false;
+        for (int i = 1; i < args.length; i++) {
+            if ("--repeat".equals(args[i]) && i + 1 < args.length) repeat = Math.max(1, Integer.parseInt(args[++i]));
+            else if ("--certain".equals(args[i])) certain = true;
+        }
+        byte[] data = readAll(args[0]);
+
+        CaptureReplay replay = new CaptureReplay(certain);
+        long started = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            replay.run(data, i == 0);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.printf(Locale.ROOT, "%s: %d records, %d block changes per pass, %d pass(es) in %.3f s%n",
+                args[0], replay.records, replay.changes, repeat, seconds);
+        System.out.printf(Locale.ROOT, "Throughput: %.0f records/s, %.0f block changes/s%n",
+                replay.records * repeat / seconds, replay.changes * repeat / seconds);
+        System.out.println("Attribution: " + replay.byAttribution);
+        if (replay.labelled > 0) {
+            System.out.printf(Locale.ROOT, "Labelled: %d, correct %d (%.1f%%), wrong %d, unattributed %d%s%n",
+                    replay.labelled, replay.correct, 100.0 * replay.correct / replay.labelled, replay.wrong, replay.unattributed,
+                    certain ? " (certain sources used)" : "");
+        } else {
+            System.out.println("No labelled changes in this capture.");
+        }
+    }
+
+    private static byte[] readAll(String path) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(path), 64 * 1024)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * One pass over a capture with fresh state.
+     *
+     * @param count whether to collect results (the first pass only)
+     */
+    private void run(byte[] data, boolean count) throws IOException {
+        players = new PlayerStateTable();
+        sounds = new SoundIndex();
+        airStates.clear();
+        breakers.clear();
+        soundNames.clear();
+        selfMs = Long.MIN_VALUE;
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != CaptureFormat.MAGIC) throw new IOException("Not a HousingLogs capture.");
+        version = in.readUnsignedByte();
+        if (version < 1 || version > CaptureFormat.VERSION) throw new IOException("Unsupported capture version " + version + ".");
+        long now = in.readLong();
+        selfUuid = new UUID(in.readLong(), in.readLong());
+        selfName = in.readUTF();
+
+        while (true) {
+            int type;
+            try {
+                type = in.readUnsignedByte();
+            } catch (EOFException end) {
+                return;
+            }
+            if (count) records++;
+            switch (type) {
+                case CaptureFormat.TICK:
+                    now += CaptureFormat.readVarInt(in);
+                    break;
+                case CaptureFormat.STATE: {
+                    int id = CaptureFormat.readVarInt(in);
+                    in.readUTF();
+                    in.readByte();
+                    airStates.put(id, in.readBoolean());
+                    break;
+                }
+                case CaptureFormat.BLOCK: {
+                    long pos = in.readLong();
+                    int oldId = CaptureFormat.readVarInt(in);
+                    int newId = CaptureFormat.readVarInt(in);
+                    int flags = in.readByte();
+                    boolean local = (flags & CaptureFormat.BLOCK_LOCAL) != 0;
+                    // Version 1 has no heuristic bit; the game allowed it for every change then.
+                    boolean allowHeuristic = version < 2 || (flags & CaptureFormat.BLOCK_HEURISTIC) != 0;
+                    String attribution = attribute(pos, oldId, newId, local, allowHeuristic, now);
+                    if (count) {
+                        changes++;
+                        byAttribution.merge(attribution, 1, Integer::sum);
+                    }
+                    break;
+                }
+                case CaptureFormat.LABEL: {
+                    String actor = in.readUTF();
+                    in.readUTF();
+                    if (count) {
+                        labelled++;
+                        if (lastName == null) unattributed++;
+                        else if (lastName.equalsIgnoreCase(actor)) correct++;
+                        else wrong++;
+                    }
+                    break;
+                }
+                case CaptureFormat.BREAK_ANIM: {
+                    int id = CaptureFormat.readVarInt(in);
+                    long pos = in.readLong();
+                    in.readByte();
+                    breakers.put(pos, new long[]{id, now});
+                    break;
+                }
+                case CaptureFormat.SPAWN: {
+                    int id = CaptureFormat.readVarInt(in);
+                    UUID uuid = new UUID(in.readLong(), in.readLong());
+                    String name = in.readUTF();
+                    float eyeHeight = in.readFloat();
+                    double x = in.readDouble();
+                    double y = in.readDouble();
+                    double z = in.readDouble();
+                    players.move(id, uuid, name, eyeHeight, x, y, z, true, in.readFloat(), in.readFloat(), now);
+                    break;
+                }
+                case CaptureFormat.MOVE: {
+                    int id = CaptureFormat.readVarInt(in);
+                    double x = in.readInt() / 32.0D;
+                    double y = in.readInt() / 32.0D;
+                    double z = in.readInt() / 32.0D;
+                    boolean rotating = in.readBoolean();
+                    float yaw = in.readByte() * PlayerStateTable.BYTE_TO_DEGREES;
+                    float pitch = in.readByte() * PlayerStateTable.BYTE_TO_DEGREES;
+                    players.move(id, null, null, in.readFloat(), x, y, z, rotating, yaw, pitch, now);
+                    break;
+                }
+                case CaptureFormat.HEAD_LOOK:
+                    players.headLook(CaptureFormat.readVarInt(in), in.readByte() * PlayerStateTable.BYTE_TO_DEGREES, now);
+                    break;
+                case CaptureFormat.SWING:
+                    players.swing(CaptureFormat.readVarInt(in), now);
+                    break;
+                case CaptureFormat.EQUIP:
+                    players.equip(CaptureFormat.readVarInt(in), CaptureFormat.readVarInt(in));
+                    break;
+                case CaptureFormat.DESTROY: {
+                    int[] ids = new int[CaptureFormat.readVarInt(in)];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = CaptureFormat.readVarInt(in);
+                    }
+                    players.destroy(ids);
+                    break;
+                }
+                case CaptureFormat.SOUND: {
+                    int index = CaptureFormat.readVarInt(in);
+                    if (index == soundNames.size()) soundNames.add(in.readUTF());
+                    String name = soundNames.get(index);
+                    sounds.onSound(name, in.readInt() / 8.0D, in.readInt() / 8.0D, in.readInt() / 8.0D, now);
+                    break;
+                }
+                case CaptureFormat.EFFECT: {
+                    int effect = CaptureFormat.readVarInt(in);
+                    long pos = in.readLong();
+                    sounds.onEffect(effect, CaptureFormat.posX(pos), CaptureFormat.posY(pos), CaptureFormat.posZ(pos), now);
+                    break;
+                }
+                case CaptureFormat.SELF:
+                    selfEyeX = in.readDouble();
+                    selfEyeY = in.readDouble();
+                    selfEyeZ = in.readDouble();
+                    selfLookX = in.readFloat();
+                    selfLookY = in.readFloat();
+                    selfLookZ = in.readFloat();
+                    selfHeld = CaptureFormat.readVarInt(in);
+                    selfMs = now;
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + type + ".");
+            }
+        }
+    }
+
+    /**
+     * Feeds a change through {@link Attribution} as BlockAuditManager#noteBlockChange does.
+     *
+     * @return the attribution; the actor's name is left in {@link #lastName}
+     */
+    private String attribute(long pos, int oldId, int newId, boolean local, boolean allowHeuristic, long now) {
+        // Block id is the low 12 bits of a state id.
+        Attribution a = new Attribution(Boolean.TRUE.equals(airStates.get(oldId)), Boolean.TRUE.equals(airStates.get(newId)),
+                CaptureFormat.posX(pos), CaptureFormat.posY(pos), CaptureFormat.posZ(pos), newId & 0xFFF, now);
+        // Version 1 only wrote our look ahead of our own changes, so it goes stale.
+        if (selfMs != Long.MIN_VALUE && (version >= 2 || now - selfMs <= PlayerStateTable.LOOK_HISTORY_MS)) {
+            a.self(selfUuid, selfName, selfEyeX, selfEyeY, selfEyeZ, selfLookX, selfLookY, selfLookZ, selfHeld);
+        }
+        long[] b = certain ? breakers.get(pos) : null;
+        if (b != null) a.breaker(players.uuidOf((int) b[0]), players.nameOf((int) b[0]), b[1]);
+        a.observe(certain && local, allowHeuristic, players, sounds);
+        a.resolve();
+        lastName = a.name;
+        return a.attribution;
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.xtimfie.housinglogs.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Times the per-change hot paths on synthetic data, outside the game: area lookup, the sound index,
+ * the player table and event serialisation. {@link CaptureReplay} covers attribution as a whole on
+ * real captures; this is for checking one structure at a time after changing it.
+ *
+ * Usage: ./gradlew :core:bench [--args="--rounds N"]
+ *
+ * Every case runs a fixed number of operations per round, the first round being warm-up, and
+ * prints the best round in nanoseconds per operation. Results are folded into a checksum that is
+ * printed at the end so the JIT cannot drop the work.
+ */
+public final class CoreBench {
+    private static final int OPS = 1_000_000;
+
+    private final Random random = new Random(42);
+    private long checksum;
+
+    public static void main(String[] args) {
+        int rounds = 5;
+        for (int i = 0; i < args.length; i++) {
+            if ("--rounds".equals(args[i]) && i + 1 < args.length) rounds = Math.max(2, Integer.parseInt(args[++i]));
+        }
+        CoreBench bench = new CoreBench();
+        bench.areaIndex(rounds);
+        bench.soundIndex(rounds);
+        bench.playerStateTable(rounds);
+        bench.auditEvent(rounds);
+        System.out.println("Checksum: " + bench.checksum);
+    }
+
+    /**
+     * 64 plain areas on a grid plus 8 shaped ones, looked up at random positions across all of them.
+     */
+    private void areaIndex(int rounds) {
+        AreaIndex.Builder<String> b = new AreaIndex.Builder<>();
+        for (int i = 0; i < 64; i++) {
+            int x = (i % 8) * 64;
+            int z = (i / 8) * 64;
+            b.add(x, 0, z, x + 47, 255, z + 47, null, "area" + i);
+        }
+        for (int i = 0; i < 8; i++) {
+            int x = i * 64;
+            List<AreaShape.Part> parts = new ArrayList<>();
+            parts.add(AreaShape.Part.box(false, x, 0, 0, x + 63, 255, 511));
+            parts.add(AreaShape.Part.box(true, x + 24, 0, 0, x + 39, 255, 511));
+            AreaShape shape = new AreaShape(parts);
+            b.add(shape.minX, shape.minY, shape.minZ, shape.maxX, shape.maxY, shape.maxZ, shape, "shaped" + i);
+        }
+        AreaIndex<String> index = b.build();
+        int[] xs = ints(OPS, 512);
+        int[] ys = ints(OPS, 256);
+        int[] zs = ints(OPS, 512);
+
+        report("AreaIndex.matching (72 areas)", rounds, () -> {
+            long found = 0;
+            for (int i = 0; i < OPS; i++) {
+                List<String> m = index.matching(xs[i], ys[i], zs[i]);
+                if (m != null) found += m.size();
+            }
+            return found;
+        });
+    }
+
+    /**
+     * A steady stream of place sounds and break effects in a 64-block square, each followed by the
+     * lookup a block change makes; half the lookups hit.
+     */
+    private void soundIndex(int rounds) {
+        SoundIndex sounds = new SoundIndex();
+        int[] xs = ints(OPS, 64);
+        int[] ys = ints(OPS, 16);
+        int[] zs = ints(OPS, 64);
+        long[] out = new long[1];
+
+        report("SoundIndex add + find", rounds, () -> {
+            sounds.clear();
+            long heard = 0;
+            long now = 1_000_000L;
+            for (int i = 0; i < OPS; i++) {
+                // About 20 sounds per tick.
+                if ((i & 15) == 0) now += 3;
+                if ((i & 1) == 0) sounds.onSound("dig.stone", xs[i] + 0.5, ys[i] + 0.5, zs[i] + 0.5, now);
+                else sounds.onEffect(2001, xs[i], ys[i], zs[i], now);
+                int j = (i & 1) == 0 ? i : (i * 31) % OPS;
+                heard += sounds.find(xs[j], ys[j], zs[j], now, Attribution.SOUND_MATCH_WINDOW_MS, out);
+            }
+            return heard;
+        });
+    }
+
+    /**
+     * 100 players moving and looking about, with a candidate scan and a swing lookup after every
+     * 20 moves, as when a busy plot has a change every tick.
+     */
+    private void playerStateTable(int rounds) {
+        PlayerStateTable players = new PlayerStateTable();
+        int n = 100;
+        UUID[] uuids = new UUID[n];
+        for (int i = 0; i < n; i++) {
+            uuids[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        double[] dx = doubles(OPS, 32.0);
+        double[] dz = doubles(OPS, 32.0);
+        double[] yaw = doubles(OPS, 360.0);
+        List<AttributionScorer.PlacementCandidate> candidates = new ArrayList<>();
+
+        report("PlayerStateTable move (+ scan every 20)", rounds, () -> {
+            players.clear();
+            long now = 1_000_000L;
+            for (int i = 0; i < n; i++) {
+                players.move(i, uuids[i], "player" + i, 1.62F, dx[i], 64.0, dz[i], true, 0.0F, 0.0F, now);
+            }
+            long seen = 0;
+            for (int i = 0; i < OPS; i++) {
+                int id = i % n;
+                if (id == 0) now += 50;
+                players.move(id, null, null, 1.62F, dx[i], 64.0, dz[i], true, (float) yaw[i], 10.0F, now);
+                if ((i & 3) == 0) players.swing(id, now);
+                if (i % 20 == 0) {
+                    candidates.clear();
+                    players.collectCandidates(dx[i] + 0.5, 64.5, dz[i] + 0.5, AttributionScorer.PLACER_MAX_DIST, 1, now, candidates);
+                    seen += candidates.size();
+                    if (players.nearestSwinging(dx[i] + 0.5, 64.5, dz[i] + 0.5, AttributionScorer.PLACER_MAX_DIST, now) != null) seen++;
+                }
+            }
+            return seen;
+        });
+    }
+
+    /**
+     * One log line: an event to JSON and the JSON to text, as the JSONL sink writes it.
+     */
+    private void auditEvent(int rounds) {
+        int n = 1024;
+        AuditEvent[] events = new AuditEvent[n];
+        for (int i = 0; i < n; i++) {
+            events[i] = new AuditEvent("Plot " + (i & 7), 1_700_000_000_000L + i, random.nextInt(1024), random.nextInt(256),
+                    random.nextInt(1024), 0, (i & 1) == 0 ? "PLACE" : "BREAK", "minecraft:air", 0, "minecraft:stone",
+                    i & 15, new UUID(random.nextLong(), random.nextLong()), "player" + (i & 31), "heuristic_look");
+        }
+        int ops = OPS / 10;
+
+        report("AuditEvent toJson + toString", rounds, ops, () -> {
+            long chars = 0;
+            for (int i = 0; i < ops; i++) {
+                chars += events[i & (n - 1)].toJson().toString().length();
+            }
+            return chars;
+        });
+    }
+
+    private interface Case {
+        long run();
+    }
+
+    private void report(String name, int rounds, Case c) {
+        report(name, rounds, OPS, c);
+    }
+
+    private void report(String name, int rounds, int ops, Case c) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < rounds; r++) {
+            long started = System.nanoTime();
+            checksum += c.run();
+            long took = System.nanoTime() - started;
+            if (r > 0) best = Math.min(best, took);
+        }
+        System.out.printf(Locale.ROOT, "%-42s %8.1f ns/op%n", name, (double) best / ops);
+    }
+
+    private int[] ints(int n, int bound) {
+        int[] a = new int[n];
+        Arrays.setAll(a, i -> random.nextInt(bound));
+        return a;
+    }
+
+    private double[] doubles(int n, double bound) {
+        double[] a = new double[n];
+        Arrays.setAll(a, i -> random.nextDouble() * bound);
+        return a;
+    }
+}
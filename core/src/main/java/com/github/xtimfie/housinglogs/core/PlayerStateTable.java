@@ -0,0 +1,290 @@
+package com.github.xtimfie.housinglogs.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * What attribution needs to know about other players, kept up to date from the packets that carry
+ * it rather than read off live entities when a block changes.
+ *
+ * Entities are interpolated towards their last received position and rotation over a few ticks,
+ * so getLookVec() at the moment of a change lags the look the server actually sent. This table
+ * records each look as it arrives (spawn, relative move/look, teleport, head look) together with
+ * the exact server position, keeps the last {@link #RAYS} per player, and notes arm swings and
+ * the held block from equipment packets. The mod's packet hooks feed it in game and
+ * {@link CaptureReplay} from a capture file; it does not touch Minecraft classes itself.
+ *
+ * Open addressing on entity id with parallel arrays. Main thread only: packet handlers reach the
+ * hooks on the main thread, as does noteBlockChange.
+ */
+public final class PlayerStateTable {
+    public static final PlayerStateTable INSTANCE = new PlayerStateTable();
+
+    private static final int CAPACITY = 256;
+    static final int RAYS = 8;
+    // Older rays than this are only used if they are a player's latest.
+    static final long LOOK_HISTORY_MS = 500L;
+    static final long SWING_WINDOW_MS = 400L;
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+    public static final float BYTE_TO_DEGREES = 360.0F / 256.0F;
+    private static final float DEG_TO_RAD = 0.017453292F;
+
+    private final int[] ids = new int[CAPACITY];
+    private final UUID[] uuids = new UUID[CAPACITY];
+    private final String[] names = new String[CAPACITY];
+    private final float[] yaw = new float[CAPACITY];
+    private final float[] pitch = new float[CAPACITY];
+    private final float[] eyeHeight = new float[CAPACITY];
+    private final long[] swingMs = new long[CAPACITY];
+    // Block id of the held item, 0 for none or a non-block item.
+    private final int[] heldBlock = new int[CAPACITY];
+
+    // Ray ring per slot: RAYS entries of time, eye position and unit look vector.
+    private final long[] rayTs = new long[CAPACITY * RAYS];
+    private final double[] rayEye = new double[CAPACITY * RAYS * 3];
+    private final float[] rayLook = new float[CAPACITY * RAYS * 3];
+    private final int[] rayNext = new int[CAPACITY];
+    private final int[] rayCount = new int[CAPACITY];
+
+    private int size = 0;
+
+    PlayerStateTable() {
+        Arrays.fill(ids, EMPTY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * A player's position and look from a spawn, move or teleport. Unknown ids are added when a uuid
+     * is given and ignored otherwise.
+     *
+     * @param x feet position
+     * @param rotating false when the packet carried no look; the last one is kept
+     */
+    public void move(int id, UUID uuid, String name, float eyeHeight, double x, double y, double z,
+                     boolean rotating, float yawDegrees, float pitchDegrees, long nowMs) {
+        int slot = uuid != null ? track(id, uuid, name) : find(id);
+        if (slot < 0) return;
+        // Sneaking changes the eye height; it is refreshed with every update.
+        this.eyeHeight[slot] = eyeHeight;
+        if (rotating) {
+            yaw[slot] = yawDegrees;
+            pitch[slot] = pitchDegrees;
+        }
+        addRay(slot, x, y, z, nowMs);
+    }
+
+    /**
+     * S19: the head turned without the body moving. This is the yaw a player's look follows.
+     */
+    public void headLook(int id, float yawDegrees, long nowMs) {
+        int slot = find(id);
+        if (slot < 0 || rayCount[slot] == 0) return;
+        yaw[slot] = yawDegrees;
+        int r = slot * RAYS + Math.floorMod(rayNext[slot] - 1, RAYS);
+        addRay(slot, rayEye[r * 3], rayEye[r * 3 + 1] - eyeHeight[slot], rayEye[r * 3 + 2], nowMs);
+    }
+
+    public void swing(int id, long nowMs) {
+        int slot = find(id);
+        if (slot >= 0) swingMs[slot] = nowMs;
+    }
+
+    public void equip(int id, int blockId) {
+        int slot = find(id);
+        if (slot >= 0) heldBlock[slot] = blockId;
+    }
+
+    public void destroy(int[] entityIds) {
+        if (entityIds == null || size == 0) return;
+        for (int id : entityIds) {
+            int slot = find(id);
+            if (slot >= 0) remove(slot);
+        }
+    }
+
+    UUID uuidOf(int id) {
+        int slot = find(id);
+        return slot < 0 ? null : uuids[slot];
+    }
+
+    String nameOf(int id) {
+        int slot = find(id);
+        return slot < 0 ? null : names[slot];
+    }
+
+    public void clear() {
+        Arrays.fill(ids, EMPTY);
+        Arrays.fill(uuids, null);
+        Arrays.fill(names, null);
+        Arrays.fill(rayCount, 0);
+        size = 0;
+    }
+
+    /**
+     * Adds a placement/break candidate for every ray within maxDist of the block centre: each
+     * player's latest ray plus any others from the last {@link #LOOK_HISTORY_MS}, so a player who
+     * looked away straight after clicking is still matched on the look they clicked with.
+     */
+    public void collectCandidates(double cx, double cy, double cz, double maxDist, int newBlockId, long nowMs,
+                                  List<AttributionScorer.PlacementCandidate> out) {
+        if (size == 0) return;
+        double maxSq = maxDist * maxDist;
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            if (ids[slot] == EMPTY || rayCount[slot] == 0) continue;
+            boolean itemMatch = heldBlock[slot] != 0 && heldBlock[slot] == newBlockId;
+            boolean swung = nowMs - swingMs[slot] <= SWING_WINDOW_MS;
+            for (int k = 0; k < rayCount[slot]; k++) {
+                int r = slot * RAYS + Math.floorMod(rayNext[slot] - 1 - k, RAYS);
+                if (k > 0 && nowMs - rayTs[r] > LOOK_HISTORY_MS) break;
+                double dx = cx - rayEye[r * 3];
+                double dy = cy - rayEye[r * 3 + 1];
+                double dz = cz - rayEye[r * 3 + 2];
+                double distSq = dx * dx + dy * dy + dz * dz;
+                if (distSq <= 0.0001 || distSq > maxSq) continue;
+                out.add(new AttributionScorer.PlacementCandidate(uuids[slot], names[slot],
+                        rayEye[r * 3], rayEye[r * 3 + 1], rayEye[r * 3 + 2],
+                        rayLook[r * 3], rayLook[r * 3 + 1], rayLook[r * 3 + 2],
+                        itemMatch, swung));
+            }
+        }
+    }
+
+    /**
+     * Adds every player whose last known feet position is within radius of the block centre.
+     */
+    public void collectNearby(double cx, double cy, double cz, double radius, List<AttributionScorer.NearbyPlayerSnapshot> out) {
+        if (size == 0) return;
+        double r2 = radius * radius;
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            if (ids[slot] == EMPTY || rayCount[slot] == 0) continue;
+            int r = slot * RAYS + Math.floorMod(rayNext[slot] - 1, RAYS);
+            double dx = cx - rayEye[r * 3];
+            double dy = cy - (rayEye[r * 3 + 1] - eyeHeight[slot]);
+            double dz = cz - rayEye[r * 3 + 2];
+            double d2 = dx * dx + dy * dy + dz * dz;
+            if (d2 > r2) continue;
+            out.add(new AttributionScorer.NearbyPlayerSnapshot(uuids[slot], names[slot], Math.sqrt(d2)));
+        }
+    }
+
+    /**
+     * @return the player nearest the block centre whose arm swung within {@link #SWING_WINDOW_MS} of
+     * atMs, or null
+     */
+    public AttributionScorer.NearbyPlayerSnapshot nearestSwinging(double cx, double cy, double cz, double maxDist, long atMs) {
+        if (size == 0) return null;
+        int best = -1;
+        double bestSq = maxDist * maxDist;
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            if (ids[slot] == EMPTY || rayCount[slot] == 0 || Math.abs(atMs - swingMs[slot]) > SWING_WINDOW_MS) continue;
+            int r = slot * RAYS + Math.floorMod(rayNext[slot] - 1, RAYS);
+            double dx = cx - rayEye[r * 3];
+            double dy = cy - rayEye[r * 3 + 1];
+            double dz = cz - rayEye[r * 3 + 2];
+            double d2 = dx * dx + dy * dy + dz * dz;
+            if (d2 <= bestSq) {
+                bestSq = d2;
+                best = slot;
+            }
+        }
+        return best < 0 ? null : new AttributionScorer.NearbyPlayerSnapshot(uuids[best], names[best], Math.sqrt(bestSq));
+    }
+
+    private void addRay(int slot, double x, double y, double z, long nowMs) {
+        int r = slot * RAYS + rayNext[slot];
+        rayTs[r] = nowMs;
+        rayEye[r * 3] = x;
+        rayEye[r * 3 + 1] = y + eyeHeight[slot];
+        rayEye[r * 3 + 2] = z;
+        // Same as Entity#getVectorForRotation.
+        float cosYaw = (float) Math.cos(-yaw[slot] * DEG_TO_RAD - (float) Math.PI);
+        float sinYaw = (float) Math.sin(-yaw[slot] * DEG_TO_RAD - (float) Math.PI);
+        float cosPitch = (float) -Math.cos(-pitch[slot] * DEG_TO_RAD);
+        float sinPitch = (float) Math.sin(-pitch[slot] * DEG_TO_RAD);
+        rayLook[r * 3] = sinYaw * cosPitch;
+        rayLook[r * 3 + 1] = sinPitch;
+        rayLook[r * 3 + 2] = cosYaw * cosPitch;
+        rayNext[slot] = (rayNext[slot] + 1) % RAYS;
+        if (rayCount[slot] < RAYS) rayCount[slot]++;
+    }
+
+    /**
+     * @return the slot for a player, adding it if new; -1 when the table is full
+     */
+    private int track(int id, UUID uuid, String name) {
+        int i = home(id);
+        while (ids[i] != EMPTY) {
+            if (ids[i] == id) return i;
+            i = (i + 1) & (CAPACITY - 1);
+        }
+        // Keep a free slot so lookups of absent ids always terminate.
+        if (size >= CAPACITY - 1) return -1;
+        ids[i] = id;
+        uuids[i] = uuid;
+        names[i] = name;
+        swingMs[i] = Long.MIN_VALUE / 2;
+        heldBlock[i] = 0;
+        rayNext[i] = 0;
+        rayCount[i] = 0;
+        size++;
+        return i;
+    }
+
+    private int find(int id) {
+        if (size == 0) return -1;
+        int i = home(id);
+        while (ids[i] != EMPTY) {
+            if (ids[i] == id) return i;
+            i = (i + 1) & (CAPACITY - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Backward-shift deletion: later entries of the probe run move up so no tombstones are needed.
+     */
+    private void remove(int slot) {
+        int hole = slot;
+        int i = (slot + 1) & (CAPACITY - 1);
+        while (ids[i] != EMPTY) {
+            int h = home(ids[i]);
+            // Move i into the hole unless its home lies cyclically in (hole, i].
+            boolean stays = hole <= i ? (h > hole && h <= i) : (h > hole || h <= i);
+            if (!stays) {
+                moveSlot(i, hole);
+                hole = i;
+            }
+            i = (i + 1) & (CAPACITY - 1);
+        }
+        ids[hole] = EMPTY;
+        uuids[hole] = null;
+        names[hole] = null;
+        rayCount[hole] = 0;
+        size--;
+    }
+
+    private void moveSlot(int from, int to) {
+        ids[to] = ids[from];
+        uuids[to] = uuids[from];
+        names[to] = names[from];
+        yaw[to] = yaw[from];
+        pitch[to] = pitch[from];
+        eyeHeight[to] = eyeHeight[from];
+        swingMs[to] = swingMs[from];
+        heldBlock[to] = heldBlock[from];
+        rayNext[to] = rayNext[from];
+        rayCount[to] = rayCount[from];
+        System.arraycopy(rayTs, from * RAYS, rayTs, to * RAYS, RAYS);
+        System.arraycopy(rayEye, from * RAYS * 3, rayEye, to * RAYS * 3, RAYS * 3);
+        System.arraycopy(rayLook, from * RAYS * 3, rayLook, to * RAYS * 3, RAYS * 3);
+    }
+
+    private static int home(int id) {
+        return (id * 0x9E3779B9 >>> 24) & (CAPACITY - 1);
+    }
+}
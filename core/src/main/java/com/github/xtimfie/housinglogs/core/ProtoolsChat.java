@@ -0,0 +1,50 @@
+package com.github.xtimfie.housinglogs.core;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recognises the Pro Tools system lines the automation reacts to: the rate-limit warning and the
+ * //pos1 / //pos2 confirmations.
+ *
+ * Only whole system lines count. Player chat always reaches the client behind the sender's name
+ * ("[MVP+] Name: ...", "Guild > Name: ...", "From Name: ..."), so every pattern is anchored at the
+ * start of the line; a player typing "slow down" or "pos1" is never taken for the server.
+ */
+public final class ProtoolsChat {
+    // "Slow down! You can only use this command every so often."
+    private static final String RATE_LIMIT_PREFIX = "Slow down!";
+    // "Set position 1 to (x, y, z).", "Position 1 set to ...", "First position set to (x, y, z)."
+    private static final Pattern POS_CONFIRM = Pattern.compile(
+            "(?:set )?pos(?:ition)? ?([12]) (?:set )?to\\b|(first|second) position set to\\b", Pattern.CASE_INSENSITIVE);
+
+    private ProtoolsChat() {
+    }
+
+    public static boolean isRateLimited(String msg) {
+        int start = skipSpaces(msg);
+        return msg.regionMatches(true, start, RATE_LIMIT_PREFIX, 0, RATE_LIMIT_PREFIX.length());
+    }
+
+    /**
+     * @return 1 or 2 for a //pos1 / //pos2 confirmation, 0 for anything else
+     */
+    public static int posIndex(String msg) {
+        int start = skipSpaces(msg);
+        if (start >= msg.length()) return 0;
+        // Every confirmation starts with s(et), p(os) or f(irst)/s(econd); skip the regex otherwise.
+        char c = (char) (msg.charAt(start) | 0x20);
+        if (c != 's' && c != 'p' && c != 'f') return 0;
+        Matcher m = POS_CONFIRM.matcher(msg);
+        m.region(start, msg.length());
+        if (!m.lookingAt()) return 0;
+        if (m.group(1) != null) return m.group(1).charAt(0) - '0';
+        return m.group(2).equalsIgnoreCase("first") ? 1 : 2;
+    }
+
+    private static int skipSpaces(String msg) {
+        int i = 0;
+        while (i < msg.length() && msg.charAt(i) == ' ') i++;
+        return i;
+    }
+}
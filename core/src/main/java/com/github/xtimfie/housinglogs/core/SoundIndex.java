@@ -0,0 +1,122 @@
+package com.github.xtimfie.housinglogs.core;
+
+import java.util.Arrays;
+
+/**
+ * Recent block sounds by position, so a block change can be matched with the sound the server
+ * played for it.
+ *
+ * Place sounds arrive as S29 at the block's centre; breaks by other players arrive as effect 2001
+ * (particles and sound) in S28. Both are sent as the change happens, usually just before the
+ * block update itself, so they confirm that a change was a real place or break and tell when it
+ * happened.
+ *
+ * Entries go into a ring of {@link #BUCKETS} time buckets of {@link #BUCKET_MS} each, every bucket
+ * a small hash table on block position. Moving to a new bucket clears the oldest, so memory is
+ * fixed and nothing outlives the retention window; a lookup probes a few slots in each bucket.
+ * Fed by the mod's packet hooks in game and by {@link CaptureReplay}. Main thread only.
+ */
+public final class SoundIndex {
+    public static final SoundIndex INSTANCE = new SoundIndex();
+
+    public static final int SOUND = 1;
+    public static final int BREAK_EFFECT = 2;
+
+    private static final long BUCKET_MS = 250L;
+    private static final int BUCKETS = 8;
+    private static final int SLOTS = 128;
+    private static final int MAX_PROBE = 4;
+    // Block break effect in S28.
+    private static final int EFFECT_BREAK_BLOCK = 2001;
+
+    private final long[] keys = new long[BUCKETS * SLOTS];
+    private final long[] times = new long[BUCKETS * SLOTS];
+    private final byte[] kinds = new byte[BUCKETS * SLOTS];
+    private final long[] bucketIndex = new long[BUCKETS];
+
+    SoundIndex() {
+        Arrays.fill(bucketIndex, Long.MIN_VALUE);
+    }
+
+    public void clear() {
+        Arrays.fill(bucketIndex, Long.MIN_VALUE);
+    }
+
+    /**
+     * S29: only block sounds (dig.* and step.*) are indexed.
+     */
+    public void onSound(String name, double x, double y, double z, long nowMs) {
+        if (name == null || !(name.startsWith("dig.") || name.startsWith("step."))) return;
+        add(floor(x), floor(y), floor(z), SOUND, nowMs);
+    }
+
+    /**
+     * S28: the break effect other players' breaks come with.
+     */
+    public void onEffect(int type, int x, int y, int z, long nowMs) {
+        if (type != EFFECT_BREAK_BLOCK) return;
+        add(x, y, z, BREAK_EFFECT, nowMs);
+    }
+
+    void add(int x, int y, int z, int kind, long nowMs) {
+        long bucket = Math.floorDiv(nowMs, BUCKET_MS);
+        int b = (int) Math.floorMod(bucket, (long) BUCKETS);
+        if (bucketIndex[b] != bucket) {
+            // Everything in this bucket is a full ring older; drop it.
+            Arrays.fill(times, b * SLOTS, (b + 1) * SLOTS, 0L);
+            bucketIndex[b] = bucket;
+        }
+        long key = pack(x, y, z);
+        int home = hash(key);
+        int free = -1;
+        for (int p = 0; p < MAX_PROBE; p++) {
+            int i = b * SLOTS + ((home + p) & (SLOTS - 1));
+            if (times[i] != 0L && keys[i] == key) {
+                times[i] = nowMs;
+                kinds[i] |= (byte) kind;
+                return;
+            }
+            if (times[i] == 0L && free < 0) free = i;
+        }
+        // A full probe run overwrites its first slot; under a flood of sounds losing one is fine.
+        int i = free >= 0 ? free : b * SLOTS + home;
+        keys[i] = key;
+        times[i] = nowMs;
+        kinds[i] = (byte) kind;
+    }
+
+    /**
+     * @return the {@link #SOUND}/{@link #BREAK_EFFECT} bits seen at the block within maxAgeMs, and the
+     * latest time in out[0]; 0 if nothing was heard there
+     */
+    public int find(int x, int y, int z, long nowMs, long maxAgeMs, long[] out) {
+        long key = pack(x, y, z);
+        int home = hash(key);
+        long bucketNow = Math.floorDiv(nowMs, BUCKET_MS);
+        int kind = 0;
+        long latest = 0L;
+        for (int b = 0; b < BUCKETS; b++) {
+            if (bucketIndex[b] == Long.MIN_VALUE || bucketNow - bucketIndex[b] >= BUCKETS) continue;
+            for (int p = 0; p < MAX_PROBE; p++) {
+                int i = b * SLOTS + ((home + p) & (SLOTS - 1));
+                if (times[i] == 0L || keys[i] != key || nowMs - times[i] > maxAgeMs) continue;
+                kind |= kinds[i];
+                latest = Math.max(latest, times[i]);
+            }
+        }
+        if (out != null) out[0] = latest;
+        return kind;
+    }
+
+    private static int floor(double v) {
+        return (int) Math.floor(v);
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) y & 0xFFFL) << 26 | ((long) z & 0x3FFFFFFL);
+    }
+
+    private static int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 57);
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.xtimfie.housinglogs.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProtoolsChatTest {
+
+    @Test
+    public void serverLinesAreClassified() {
+        assertTrue(ProtoolsChat.isRateLimited("Slow down! You can only use this command every so often."));
+        assertEquals(1, ProtoolsChat.posIndex("Set position 1 to (10, 64, -3)."));
+        assertEquals(2, ProtoolsChat.posIndex("Set position 2 to (12, 70, -1)."));
+        assertEquals(1, ProtoolsChat.posIndex("First position set to (10, 64, -3)."));
+        assertEquals(2, ProtoolsChat.posIndex("Second position set to (12, 70, -1)."));
+        assertEquals(1, ProtoolsChat.posIndex("Position 1 set to 10, 64, -3"));
+    }
+
+    @Test
+    public void playerChatIsNotClassified() {
+        String[] lines = {
+                "[MVP+] Steve: slow down",
+                "Steve: Slow down! You can only use this command every so often.",
+                "Guild > [VIP] Alex: slow down please",
+                "From [MVP++] Alex: Slow down!",
+                "[MVP+] Steve: Set position 1 to (10, 64, -3).",
+                "Steve: pos1 is over there",
+                "Party > Alex: first position set to (0, 0, 0)",
+                "To Alex: position 2 set to 1, 2, 3",
+                "[VIP] Alex: can you set pos2 to 5, 5, 5",
+        };
+        for (String line : lines) {
+            assertFalse(line, ProtoolsChat.isRateLimited(line));
+            assertEquals(line, 0, ProtoolsChat.posIndex(line));
+        }
+    }
+
+    @Test
+    public void otherServerLinesAreNotClassified() {
+        assertFalse(ProtoolsChat.isRateLimited("Operation completed: 64 blocks changed."));
+        assertEquals(0, ProtoolsChat.posIndex("Operation completed: 64 blocks changed."));
+        assertEquals(0, ProtoolsChat.posIndex("Selection cleared."));
+        assertEquals(0, ProtoolsChat.posIndex("Position 3 set to (1, 2, 3)."));
+    }
+}
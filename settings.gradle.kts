@@ -24,3 +24,6 @@ plugins {
 
 
 rootProject.name = "hitlist"
+
+// Plain-Java area, event and attribution logic, built and tested without Minecraft.
+include("core")
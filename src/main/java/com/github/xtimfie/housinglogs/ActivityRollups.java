@@ -0,0 +1,413 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Per-house event counts rolled up into minute, hour and day buckets, for /hlog top and /hlog stats.
+ *
+ * Two families of counters are kept per bucket: (area, player, action) and (area, block, action).
+ * They are updated as batches are written and appended to hitlist-rollups.jsonl next to the log as
+ * deltas; reading merges them. A query covers its range with as many day buckets as fit, then hour
+ * and minute buckets at the edges, so a month costs a few hundred map lookups. Minute buckets are
+ * kept for two days and hour buckets for 90 days, after which ranges are rounded out to the coarser
+ * buckets. Buckets are aligned to UTC, so a day bucket runs from midnight UTC, not local midnight.
+ *
+ * A house without the file gets it rebuilt from its log on first use. The rebuild reads the log up to
+ * a mark taken between two batches on a thread of its own, while later batches are counted as usual;
+ * until it is merged in, queries are answered from what has been counted so far and marked partial.
+ *
+ * Log thread only, apart from the rebuild's counting.
+ */
+final class ActivityRollups {
+    static final String FILE_NAME = "hitlist-rollups.jsonl";
+
+    private static final long[] BUCKET_MS = {60_000L, 3_600_000L, 86_400_000L};
+    private static final long[] RETAIN_MS = {2 * 86_400_000L, 90 * 86_400_000L, Long.MAX_VALUE};
+    private static final int MINUTE = 0;
+    private static final int DAY = 2;
+    private static final int REBUILD_PAGE = 4096;
+
+    // Deltas are appended at most this often (or when this many cells are waiting).
+    private static final long PERSIST_INTERVAL_MS = 30_000L;
+    private static final int MAX_DELTA_CELLS = 5000;
+
+    private static final class Cell {
+        final int level;
+        final long bucket;
+        final boolean block; // false: name is a player; true: name is a block
+        final String area;
+        final String name;
+        final String action;
+        private final int hash;
+
+        Cell(int level, long bucket, boolean block, String area, String name, String action) {
+            this.level = level;
+            this.bucket = bucket;
+            this.block = block;
+            this.area = area;
+            this.name = name;
+            this.action = action;
+            int h = Long.hashCode(bucket) * 31 + level;
+            h = h * 31 + (block ? 1 : 0);
+            h = h * 31 + area.hashCode();
+            h = h * 31 + name.hashCode();
+            this.hash = h * 31 + action.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Cell)) return false;
+            Cell c = (Cell) o;
+            return hash == c.hash && level == c.level && bucket == c.bucket && block == c.block
+                    && area.equals(c.area) && name.equals(c.name) && action.equals(c.action);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Store {
+        final File file;
+        @SuppressWarnings("unchecked")
+        final TreeMap<Long, Map<Cell, int[]>>[] levels = new TreeMap[]{new TreeMap<>(), new TreeMap<>(), new TreeMap<>()};
+        final Map<Cell, int[]> delta = new HashMap<>();
+        long lastPersistMs = System.currentTimeMillis();
+        int cells = 0;
+        int lines = 0;
+        // The file is missing and the log is being counted in the background; nothing is persisted
+        // until that is merged in.
+        boolean rebuilding;
+
+        Store(File file) {
+            this.file = file;
+        }
+    }
+
+    private static final ExecutorService REBUILD_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "HousingLogs-Rollups");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Result of a query: totals per action, and per player and per block.
+     */
+    static final class Totals {
+        final Map<String, Integer> byAction = new HashMap<>();
+        final Map<String, Integer> byPlayer = new HashMap<>();
+        final Map<String, Integer> byBlock = new HashMap<>();
+        long fromMs;
+        // Older events are still being counted.
+        boolean partial;
+    }
+
+    private static final Map<String, Store> STORES = new HashMap<>();
+
+    private ActivityRollups() {
+    }
+
+    /**
+     * Counts a batch that was just written to a house's log.
+     */
+    static void record(String partition, File dir, List<JsonObject> entries) {
+        Store store = STORES.get(partition);
+        if (store == null) {
+            store = load(partition, dir);
+            STORES.put(partition, store);
+            // The rebuild's mark was taken after this batch was written, so it counts it.
+            if (store.rebuilding) return;
+        }
+        for (JsonObject e : entries) {
+            if (!e.has("tsMs") || !e.has("action")) continue;
+            count(store, e, true);
+        }
+        if (store.rebuilding) return;
+        long now = System.currentTimeMillis();
+        if (store.delta.size() >= MAX_DELTA_CELLS || (!store.delta.isEmpty() && now - store.lastPersistMs >= PERSIST_INTERVAL_MS)) {
+            persist(store);
+        }
+    }
+
+    /**
+     * Writes out every house's waiting deltas.
+     */
+    static void persistAll() {
+        for (Store store : STORES.values()) {
+            if (!store.rebuilding && !store.delta.isEmpty()) persist(store);
+        }
+    }
+
+    /**
+     * Totals for [fromMs, toMs].
+     *
+     * @param area area name, or empty for every area
+     * @param action PLACE/BREAK/CHANGE, or empty for all
+     */
+    static Totals query(String partition, File dir, String area, String action, long fromMs, long toMs) {
+        Store store = STORES.get(partition);
+        if (store == null) {
+            store = load(partition, dir);
+            STORES.put(partition, store);
+        }
+        Totals totals = new Totals();
+        totals.partial = store.rebuilding;
+        Map.Entry<Long, Map<Cell, int[]>> first = store.levels[DAY].firstEntry();
+        if (first == null) return totals;
+        long cursor = Math.max(floor(fromMs, BUCKET_MS[MINUTE]), first.getKey());
+        totals.fromMs = cursor;
+        long now = System.currentTimeMillis();
+        while (cursor <= toMs) {
+            int level = coarsestFitting(cursor, toMs, now);
+            long start = floor(cursor, BUCKET_MS[level]);
+            Map<Cell, int[]> cells = store.levels[level].get(start);
+            if (cells != null) {
+                for (Map.Entry<Cell, int[]> c : cells.entrySet()) {
+                    Cell cell = c.getKey();
+                    if (!area.isEmpty() && !area.equalsIgnoreCase(cell.area)) continue;
+                    if (!action.isEmpty() && !action.equalsIgnoreCase(cell.action)) continue;
+                    int n = c.getValue()[0];
+                    if (cell.block) {
+                        totals.byBlock.merge(cell.name, n, Integer::sum);
+                    } else {
+                        totals.byPlayer.merge(cell.name, n, Integer::sum);
+                        totals.byAction.merge(cell.action, n, Integer::sum);
+                    }
+                }
+            }
+            cursor = start + BUCKET_MS[level];
+        }
+        return totals;
+    }
+
+    /**
+     * The largest bucket starting at cursor that ends by toMs, falling back to the bucket holding
+     * cursor when the finer ones have expired.
+     */
+    private static int coarsestFitting(long cursor, long toMs, long now) {
+        for (int level = DAY; level > MINUTE; level--) {
+            long size = BUCKET_MS[level];
+            if (cursor % size == 0 && cursor + size - 1 <= toMs) return level;
+        }
+        for (int level = MINUTE; level < DAY; level++) {
+            if (now - cursor <= RETAIN_MS[level]) return level;
+        }
+        return DAY;
+    }
+
+    private static void count(Store store, JsonObject e, boolean asDelta) {
+        long ts = e.get("tsMs").getAsLong();
+        String action = e.get("action").getAsString();
+        String area = e.has("area") ? e.get("area").getAsString() : "";
+        String player = e.has("playerName") ? e.get("playerName").getAsString() : "?";
+        String blockKey = "BREAK".equals(action) ? "oldBlock" : "newBlock";
+        String block = e.has(blockKey) ? e.get(blockKey).getAsString() : "?";
+        if (block.startsWith("minecraft:")) block = block.substring("minecraft:".length());
+        // A noise summary stands for every flip it replaced.
+        int n = e.has("suppressed") ? e.get("suppressed").getAsInt() : 1;
+        for (int level = MINUTE; level <= DAY; level++) {
+            long bucket = floor(ts, BUCKET_MS[level]);
+            add(store, new Cell(level, bucket, false, area, player, action), n, asDelta);
+            add(store, new Cell(level, bucket, true, area, block, action), n, asDelta);
+        }
+    }
+
+    private static void add(Store store, Cell cell, int n, boolean asDelta) {
+        Map<Cell, int[]> bucket = store.levels[cell.level].get(cell.bucket);
+        if (bucket == null) {
+            bucket = new HashMap<>();
+            store.levels[cell.level].put(cell.bucket, bucket);
+        }
+        int[] count = bucket.get(cell);
+        if (count == null) {
+            bucket.put(cell, new int[]{n});
+            store.cells++;
+        } else {
+            count[0] += n;
+        }
+        if (asDelta) {
+            int[] d = store.delta.get(cell);
+            if (d == null) {
+                store.delta.put(cell, new int[]{n});
+            } else {
+                d[0] += n;
+            }
+        }
+    }
+
+    private static void persist(Store store) {
+        store.lastPersistMs = System.currentTimeMillis();
+        prune(store);
+        if (store.lines > 2 * store.cells + 10_000) {
+            store.delta.clear();
+            compact(store);
+            return;
+        }
+        try {
+            store.file.getParentFile().mkdirs();
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(store.file, true), StandardCharsets.UTF_8))) {
+                for (Map.Entry<Cell, int[]> e : store.delta.entrySet()) {
+                    w.write(toLine(e.getKey(), e.getValue()[0]));
+                    w.write('\n');
+                    store.lines++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[HousingLogs] Failed to write activity rollups: " + e.getMessage());
+        }
+        store.delta.clear();
+    }
+
+    /**
+     * Rewrites the file as one line per live cell, dropping expired buckets.
+     */
+    private static void compact(Store store) {
+        prune(store);
+        File tmp = new File(store.file.getPath() + ".tmp");
+        int lines = 0;
+        try {
+            store.file.getParentFile().mkdirs();
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                for (TreeMap<Long, Map<Cell, int[]>> level : store.levels) {
+                    for (Map<Cell, int[]> bucket : level.values()) {
+                        for (Map.Entry<Cell, int[]> e : bucket.entrySet()) {
+                            w.write(toLine(e.getKey(), e.getValue()[0]));
+                            w.write('\n');
+                            lines++;
+                        }
+                    }
+                }
+            }
+            if (store.file.exists() && !store.file.delete()) throw new IOException("Could not replace " + store.file);
+            if (!tmp.renameTo(store.file)) throw new IOException("Could not rename " + tmp);
+            store.lines = lines;
+        } catch (IOException e) {
+            System.err.println("[HousingLogs] Failed to compact activity rollups: " + e.getMessage());
+        }
+    }
+
+    private static void prune(Store store) {
+        long now = System.currentTimeMillis();
+        for (int level = MINUTE; level < DAY; level++) {
+            Map<Long, Map<Cell, int[]>> expired = store.levels[level].headMap(now - RETAIN_MS[level]);
+            for (Map<Cell, int[]> bucket : expired.values()) {
+                store.cells -= bucket.size();
+            }
+            expired.clear();
+        }
+    }
+
+    private static Store load(String partition, File dir) {
+        Store store = new Store(new File(dir, FILE_NAME));
+        if (!store.file.exists()) {
+            startRebuild(partition, store, dir);
+            return store;
+        }
+        JsonParser parser = new JsonParser();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(store.file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                try {
+                    JsonObject o = parser.parse(line).getAsJsonObject();
+                    Cell cell = new Cell(o.get("l").getAsInt(), o.get("t").getAsLong(), "b".equals(o.get("k").getAsString()),
+                            o.get("a").getAsString(), o.get("n").getAsString(), o.get("x").getAsString());
+                    add(store, cell, o.get("c").getAsInt(), false);
+                } catch (RuntimeException ignored) {
+                    // A line cut short by a crash; the rest of the file still counts.
+                }
+                store.lines++;
+            }
+        } catch (IOException e) {
+            System.err.println("[HousingLogs] Failed to read activity rollups: " + e.getMessage());
+        }
+        if (store.lines > 2 * store.cells + 10_000) compact(store);
+        return store;
+    }
+
+    /**
+     * Counts a house's whole log in the background, for houses logged before rollups existed. The
+     * mark is taken here, on the log thread, so the rebuild covers exactly the batches written so far
+     * and {@link #record} counts the rest.
+     */
+    private static void startRebuild(String partition, Store store, File dir) {
+        AuditSink sink = BlockAuditManager.getSink();
+        long mark;
+        try {
+            mark = sink.mark(dir);
+        } catch (IOException e) {
+            System.err.println("[HousingLogs] Failed to rebuild activity rollups: " + e.getMessage());
+            compact(store);
+            return;
+        }
+        store.rebuilding = true;
+        REBUILD_EXECUTOR.execute(() -> {
+            Store counted = new Store(store.file);
+            try {
+                AuditSink.EventIndex index = sink.index(dir, EventFilter.NONE, mark);
+                for (int from = 0; from < index.size(); from += REBUILD_PAGE) {
+                    for (JsonObject e : index.read(from, REBUILD_PAGE)) {
+                        if (e.has("tsMs") && e.has("action")) count(counted, e, false);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("[HousingLogs] Failed to rebuild activity rollups: " + e.getMessage());
+            }
+            BlockAuditManager.runOnLogThread(() -> finishRebuild(partition, store, counted));
+        });
+    }
+
+    /**
+     * Log thread: adds the rebuilt counts to what was counted meanwhile and writes the file.
+     */
+    private static void finishRebuild(String partition, Store store, Store counted) {
+        store.rebuilding = false;
+        // Dropped or replaced while rebuilding; nothing to merge into.
+        if (STORES.get(partition) != store) return;
+        for (TreeMap<Long, Map<Cell, int[]>> level : counted.levels) {
+            for (Map<Cell, int[]> bucket : level.values()) {
+                for (Map.Entry<Cell, int[]> e : bucket.entrySet()) {
+                    add(store, e.getKey(), e.getValue()[0], false);
+                }
+            }
+        }
+        // The file is written whole; the deltas are part of it.
+        store.delta.clear();
+        compact(store);
+    }
+
+    private static String toLine(Cell cell, int n) {
+        JsonObject o = new JsonObject();
+        o.addProperty("l", cell.level);
+        o.addProperty("t", cell.bucket);
+        o.addProperty("k", cell.block ? "b" : "p");
+        o.addProperty("a", cell.area);
+        o.addProperty("n", cell.name);
+        o.addProperty("x", cell.action);
+        o.addProperty("c", n);
+        return o.toString();
+    }
+
+    private static long floor(long ts, long size) {
+        return ts - Math.floorMod(ts, size);
+    }
+}
@@ -0,0 +1,679 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import net.minecraft.block.Block;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.audio.PositionedSoundRecord;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Alert rules, e.g. "break block diamond_block in vault except Steve,Alex sound" or
+ * "break over 50 within 10s".
+ *
+ * Rules are compiled into bit rows, one bit per rule: a row per action, per block id, per area named
+ * by a rule and per player named by a rule (plus an "anything else" row for areas and players). An
+ * event's candidate rules are the AND of four rows, so evaluating it costs a few word operations
+ * however many rules exist, and allocates nothing. Evaluation runs on the log thread right after
+ * attribution; hits are collected there and shown by the client tick.
+ */
+final class AlertRules {
+    static final AlertRules INSTANCE = new AlertRules();
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    private static final String RULES_FILE_NAME = "hitlist-alert-rules.json";
+
+    static final String SYNTAX = "<break|place|change|any> [block <id,..>] [in <area,..>] [by <player,..>] [except <player,..>] [over <count> within <time>] [sound]";
+
+    private static final int MAX_RULES = 1024;
+    // Block ids in 1.8 are 12 bits.
+    private static final int BLOCK_IDS = 4096;
+    // Per-player rate counters are kept for this many players at a time; players idle for longer
+    // than every rate window are dropped to make room.
+    private static final int MAX_TRACKED_PLAYERS = 1024;
+    // The same rule is repeated in chat at most this often; hits in between are counted.
+    private static final long MIN_ALERT_INTERVAL_MS = 2000L;
+
+    private static final int PLACE = 0;
+    private static final int BREAK = 1;
+    private static final int CHANGE = 2;
+
+    private static final class Rule {
+        final String name;
+        final String spec;
+        final int actions; // bit per action
+        final int[] blocks; // null = any
+        final String[] areas; // null = any
+        final String[] players; // null = anyone
+        final String[] except;
+        final int overCount; // 0 = alert on every match
+        final long withinMs;
+        final boolean sound;
+
+        Rule(String name, String spec, int actions, int[] blocks, String[] areas, String[] players, String[] except, int overCount, long withinMs, boolean sound) {
+            this.name = name;
+            this.spec = spec;
+            this.actions = actions;
+            this.blocks = blocks;
+            this.areas = areas;
+            this.players = players;
+            this.except = except;
+            this.overCount = overCount;
+            this.withinMs = withinMs;
+            this.sound = sound;
+        }
+    }
+
+    /**
+     * Case-insensitive name-to-id table with open addressing, so looking a player up needs no
+     * lower-cased copy of the name. Log thread only once compiled.
+     */
+    private static final class PlayerIds {
+        private final String[] names;
+        private final int[] ids;
+        private int size = 0;
+
+        PlayerIds(int maxPlayers) {
+            int cap = Integer.highestOneBit(maxPlayers * 2 - 1) << 1;
+            names = new String[cap];
+            ids = new int[cap];
+        }
+
+        /**
+         * @return the name's id, adding it if there is room; -1 when full
+         */
+        int intern(String name) {
+            int mask = names.length - 1;
+            for (int i = hash(name) & mask; ; i = (i + 1) & mask) {
+                String n = names[i];
+                if (n == null) {
+                    if (size * 2 >= names.length) return -1;
+                    names[i] = name;
+                    ids[i] = size;
+                    return size++;
+                }
+                if (n.equalsIgnoreCase(name)) return ids[i];
+            }
+        }
+
+        /**
+         * Rebuilds the table with only the ids keep accepts, renumbered from 0 in their old order,
+         * so an id never grows.
+         *
+         * @return new id per old id, or -1 if dropped
+         */
+        int[] retain(java.util.function.IntPredicate keep) {
+            String[] byId = new String[size];
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] != null) byId[ids[i]] = names[i];
+            }
+            Arrays.fill(names, null);
+            size = 0;
+            int[] remap = new int[byId.length];
+            for (int id = 0; id < byId.length; id++) {
+                remap[id] = keep.test(id) ? intern(byId[id]) : -1;
+            }
+            return remap;
+        }
+
+        private static int hash(String s) {
+            int h = 0;
+            for (int i = 0; i < s.length(); i++) {
+                h = 31 * h + Character.toLowerCase(s.charAt(i));
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Immutable lookup tables for one set of rules, plus the mutable per-rule state they drive.
+     */
+    private static final class Compiled {
+        final Rule[] rules;
+        final int words;
+        final long[][] actionRows = new long[3][];
+        final long[][] blockRows = new long[BLOCK_IDS][];
+        final Map<String, Integer> areaIds = new HashMap<>();
+        final long[][] areaRows;
+        final long[] otherAreaRow;
+        final PlayerIds players = new PlayerIds(MAX_TRACKED_PLAYERS);
+        final int namedPlayers;
+        final long[][] playerRows;
+        final long[] otherPlayerRow;
+
+        // Log thread: scratch rows and sliding-window counters for "over N within T" rules.
+        final long[] blockScratch;
+        final long[] areaScratch;
+        final int[] rateSlot;
+        final long[] bucketStart;
+        final int[] bucketCount;
+        final int[] previousCount;
+        final long[] lastFired;
+        // Per player id: time of their last event, and the longest rate window, for dropping idle ids.
+        final long[] lastSeen = new long[MAX_TRACKED_PLAYERS];
+        final long maxWindowMs;
+        final int rateRules;
+        // After a full table could not be compacted, don't retry before this.
+        long compactRetryMs = Long.MIN_VALUE;
+
+        // Hits waiting for the client tick; guarded by this.
+        final int[] hits;
+        final String[] hitPlayer;
+        final String[] hitArea;
+        final int[] hitAction;
+        final int[] hitBlock;
+        final int[] hitX;
+        final int[] hitY;
+        final int[] hitZ;
+        final long[] lastShown;
+        volatile boolean pending;
+
+        Compiled(List<Rule> list) {
+            rules = list.toArray(new Rule[0]);
+            int n = rules.length;
+            words = Math.max(1, (n + 63) >>> 6);
+
+            for (int a = 0; a < 3; a++) {
+                actionRows[a] = new long[words];
+            }
+            long[] anyBlock = new long[words];
+            List<String> areaNames = new ArrayList<>();
+            for (int r = 0; r < n; r++) {
+                Rule rule = rules[r];
+                for (int a = 0; a < 3; a++) {
+                    if ((rule.actions & (1 << a)) != 0) set(actionRows[a], r);
+                }
+                if (rule.blocks == null) set(anyBlock, r);
+                if (rule.areas != null) {
+                    for (String area : rule.areas) {
+                        if (!areaIds.containsKey(area)) {
+                            areaIds.put(area, areaNames.size());
+                            areaNames.add(area);
+                        }
+                    }
+                }
+                internAll(rule.players);
+                internAll(rule.except);
+            }
+            namedPlayers = players.size;
+
+            for (int r = 0; r < n; r++) {
+                if (rules[r].blocks == null) continue;
+                for (int id : rules[r].blocks) {
+                    if (blockRows[id] == null) blockRows[id] = anyBlock.clone();
+                    set(blockRows[id], r);
+                }
+            }
+            for (int id = 0; id < BLOCK_IDS; id++) {
+                if (blockRows[id] == null) blockRows[id] = anyBlock;
+            }
+
+            areaRows = new long[areaNames.size()][words];
+            otherAreaRow = new long[words];
+            playerRows = new long[namedPlayers][words];
+            otherPlayerRow = new long[words];
+            int rateRules = 0;
+            long maxWindowMs = 0L;
+            rateSlot = new int[n];
+            for (int r = 0; r < n; r++) {
+                Rule rule = rules[r];
+                if (rule.areas == null) {
+                    set(otherAreaRow, r);
+                    for (long[] row : areaRows) set(row, r);
+                } else {
+                    for (String area : rule.areas) set(areaRows[areaIds.get(area)], r);
+                }
+                if (rule.players == null) set(otherPlayerRow, r);
+                for (int p = 0; p < namedPlayers; p++) {
+                    set(playerRows[p], r);
+                }
+                if (rule.players != null) {
+                    for (int p = 0; p < namedPlayers; p++) {
+                        if (!contains(rule.players, p)) clear(playerRows[p], r);
+                    }
+                }
+                if (rule.except != null) {
+                    for (String name : rule.except) clear(playerRows[players.intern(name)], r);
+                }
+                rateSlot[r] = rule.overCount > 0 ? rateRules++ : -1;
+                if (rule.overCount > 0) maxWindowMs = Math.max(maxWindowMs, rule.withinMs);
+            }
+            this.rateRules = rateRules;
+            this.maxWindowMs = maxWindowMs;
+
+            blockScratch = new long[words];
+            areaScratch = new long[words];
+            bucketStart = new long[rateRules * MAX_TRACKED_PLAYERS];
+            bucketCount = new int[rateRules * MAX_TRACKED_PLAYERS];
+            previousCount = new int[rateRules * MAX_TRACKED_PLAYERS];
+            lastFired = new long[rateRules * MAX_TRACKED_PLAYERS];
+            Arrays.fill(lastFired, Long.MIN_VALUE / 2);
+
+            hits = new int[n];
+            hitPlayer = new String[n];
+            hitArea = new String[n];
+            hitAction = new int[n];
+            hitBlock = new int[n];
+            hitX = new int[n];
+            hitY = new int[n];
+            hitZ = new int[n];
+            lastShown = new long[n];
+        }
+
+        /**
+         * Log thread: the player's id, making room by dropping players whose rate windows have all
+         * expired when the table is full.
+         *
+         * @return the id, or -1 if the table is full of active players
+         */
+        int playerId(String name, long tsMs) {
+            int id = players.intern(name);
+            if (id < 0 && rateRules > 0 && tsMs >= compactRetryMs) {
+                dropIdlePlayers(tsMs);
+                id = players.intern(name);
+                if (id < 0) compactRetryMs = tsMs + maxWindowMs;
+            }
+            if (id >= 0) lastSeen[id] = tsMs;
+            return id;
+        }
+
+        private void dropIdlePlayers(long tsMs) {
+            int[] remap = players.retain(id -> id < namedPlayers || tsMs - lastSeen[id] < maxWindowMs);
+            // New ids are never larger than old ones, so moving upwards never overwrites a kept entry.
+            for (int old = 0; old < remap.length; old++) {
+                int id = remap[old];
+                if (id < 0 || id == old) continue;
+                lastSeen[id] = lastSeen[old];
+                for (int s = 0; s < rateRules; s++) {
+                    int from = s * MAX_TRACKED_PLAYERS + old;
+                    int to = s * MAX_TRACKED_PLAYERS + id;
+                    bucketStart[to] = bucketStart[from];
+                    bucketCount[to] = bucketCount[from];
+                    previousCount[to] = previousCount[from];
+                    lastFired[to] = lastFired[from];
+                }
+            }
+            for (int id = players.size; id < MAX_TRACKED_PLAYERS; id++) {
+                lastSeen[id] = 0L;
+                for (int s = 0; s < rateRules; s++) {
+                    int i = s * MAX_TRACKED_PLAYERS + id;
+                    bucketStart[i] = 0L;
+                    bucketCount[i] = 0;
+                    previousCount[i] = 0;
+                    lastFired[i] = Long.MIN_VALUE / 2;
+                }
+            }
+        }
+
+        private void internAll(String[] names) {
+            if (names == null) return;
+            for (String name : names) players.intern(name);
+        }
+
+        private boolean contains(String[] names, int playerId) {
+            for (String name : names) {
+                if (players.intern(name) == playerId) return true;
+            }
+            return false;
+        }
+    }
+
+    // Client thread.
+    private final LinkedHashMap<String, String> specs = new LinkedHashMap<>();
+    private File rulesFile;
+    private volatile Compiled compiled = new Compiled(new ArrayList<>());
+
+    private AlertRules() {
+    }
+
+    /**
+     * Log thread: checks one logged change against every rule.
+     *
+     * @param action PLACE, BREAK or CHANGE
+     * @param areaKeys every area the change is in, as lower-case keys
+     * @param areaNames the same areas' display names
+     * @param playerName the attributed player, or null
+     */
+    void evaluate(String action, int oldBlockId, int newBlockId, List<String> areaKeys, List<String> areaNames, String playerName, int x, int y, int z, long tsMs) {
+        Compiled c = compiled;
+        if (c.rules.length == 0) return;
+        int a = "PLACE".equals(action) ? PLACE : "BREAK".equals(action) ? BREAK : CHANGE;
+        long[] actionRow = c.actionRows[a];
+
+        // A broken block is the old one, a placed block the new one; a change matches either.
+        long[] blockRow;
+        if (a == PLACE) {
+            blockRow = c.blockRows[newBlockId & (BLOCK_IDS - 1)];
+        } else if (a == BREAK) {
+            blockRow = c.blockRows[oldBlockId & (BLOCK_IDS - 1)];
+        } else {
+            long[] o = c.blockRows[oldBlockId & (BLOCK_IDS - 1)];
+            long[] nw = c.blockRows[newBlockId & (BLOCK_IDS - 1)];
+            for (int w = 0; w < c.words; w++) c.blockScratch[w] = o[w] | nw[w];
+            blockRow = c.blockScratch;
+        }
+
+        Arrays.fill(c.areaScratch, 0L);
+        for (int i = 0; i < areaKeys.size(); i++) {
+            Integer id = c.areaIds.get(areaKeys.get(i));
+            long[] row = id == null ? c.otherAreaRow : c.areaRows[id];
+            for (int w = 0; w < c.words; w++) c.areaScratch[w] |= row[w];
+        }
+
+        int playerId = playerName == null ? -1 : c.playerId(playerName, tsMs);
+        long[] playerRow = playerId >= 0 && playerId < c.namedPlayers ? c.playerRows[playerId] : c.otherPlayerRow;
+
+        for (int w = 0; w < c.words; w++) {
+            long bits = actionRow[w] & blockRow[w] & c.areaScratch[w] & playerRow[w];
+            while (bits != 0) {
+                int r = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                Rule rule = c.rules[r];
+                if (rule.overCount > 0 && !overRate(c, r, rule, playerId, tsMs)) continue;
+                String area = areaNames.isEmpty() ? "?" : areaNames.get(0);
+                hit(c, r, playerName, area, a, a == BREAK ? oldBlockId : newBlockId, x, y, z);
+            }
+        }
+    }
+
+    /**
+     * Counts the event for the player and says whether they just went over the rule's rate. Uses
+     * two fixed windows, weighting the previous one by how much of it still overlaps the sliding one.
+     */
+    private static boolean overRate(Compiled c, int r, Rule rule, int playerId, long tsMs) {
+        if (playerId < 0) return false;
+        int i = c.rateSlot[r] * MAX_TRACKED_PLAYERS + playerId;
+        long window = rule.withinMs;
+        long start = tsMs - Math.floorMod(tsMs, window);
+        if (start != c.bucketStart[i]) {
+            c.previousCount[i] = start - c.bucketStart[i] == window ? c.bucketCount[i] : 0;
+            c.bucketCount[i] = 0;
+            c.bucketStart[i] = start;
+        }
+        c.bucketCount[i]++;
+        double estimate = c.bucketCount[i] + c.previousCount[i] * (double) (window - (tsMs - start)) / window;
+        if (estimate <= rule.overCount || tsMs - c.lastFired[i] < window) return false;
+        c.lastFired[i] = tsMs;
+        return true;
+    }
+
+    private static void hit(Compiled c, int r, String player, String area, int action, int blockId, int x, int y, int z) {
+        synchronized (c) {
+            c.hits[r]++;
+            c.hitPlayer[r] = player;
+            c.hitArea[r] = area;
+            c.hitAction[r] = action;
+            c.hitBlock[r] = blockId;
+            c.hitX[r] = x;
+            c.hitY[r] = y;
+            c.hitZ[r] = z;
+        }
+        c.pending = true;
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+        Compiled c = compiled;
+        if (!c.pending) return;
+        Minecraft mc = Minecraft.getMinecraft();
+        if (mc.thePlayer == null) return;
+
+        long now = System.currentTimeMillis();
+        List<String> lines = new ArrayList<>();
+        boolean sound = false;
+        boolean waiting = false;
+        synchronized (c) {
+            c.pending = false;
+            for (int r = 0; r < c.rules.length; r++) {
+                if (c.hits[r] == 0) continue;
+                if (now - c.lastShown[r] < MIN_ALERT_INTERVAL_MS) {
+                    waiting = true;
+                    continue;
+                }
+                lines.add(describeHit(c, r));
+                sound |= c.rules[r].sound;
+                c.hits[r] = 0;
+                c.lastShown[r] = now;
+            }
+            if (waiting) c.pending = true;
+        }
+        for (String line : lines) {
+            mc.thePlayer.addChatMessage(new ChatComponentText(line));
+        }
+        if (sound) {
+            mc.getSoundHandler().playSound(PositionedSoundRecord.create(new ResourceLocation("note.pling"), 1.0F));
+        }
+    }
+
+    private static String describeHit(Compiled c, int r) {
+        Rule rule = c.rules[r];
+        String player = c.hitPlayer[r] == null ? "Someone" : c.hitPlayer[r];
+        String what;
+        if (rule.overCount > 0) {
+            what = player + " made over " + rule.overCount + " " + actionNoun(c.hitAction[r]) + " within " + (rule.withinMs / 1000L) + "s";
+        } else {
+            Block block = Block.getBlockById(c.hitBlock[r]);
+            Object key = block == null ? null : Block.blockRegistry.getNameForObject(block);
+            String blockName = key == null ? "block " + c.hitBlock[r] : key.toString();
+            if (blockName.startsWith("minecraft:")) blockName = blockName.substring("minecraft:".length());
+            what = player + " " + actionVerb(c.hitAction[r]) + " " + blockName;
+        }
+        String more = c.hits[r] > 1 ? " (" + c.hits[r] + " hits)" : "";
+        return EnumChatFormatting.RED + "[HousingLogs] Alert " + rule.name + ": " + what + " in " + c.hitArea[r]
+                + " at " + c.hitX[r] + "," + c.hitY[r] + "," + c.hitZ[r] + more;
+    }
+
+    private static String actionVerb(int a) {
+        return a == PLACE ? "placed" : a == BREAK ? "broke" : "changed";
+    }
+
+    private static String actionNoun(int a) {
+        return a == PLACE ? "placements" : a == BREAK ? "breaks" : "changes";
+    }
+
+    /**
+     * Adds or replaces a rule.
+     *
+     * @return null on success, otherwise what is wrong with the rule
+     */
+    String add(String name, String spec) {
+        if (!name.matches("[A-Za-z0-9_-]{1,32}")) return "Rule names are letters, digits, _ and -.";
+        if (!specs.containsKey(name) && specs.size() >= MAX_RULES) return "Too many rules.";
+        try {
+            parse(name, spec);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        specs.put(name, spec);
+        recompile();
+        save();
+        return null;
+    }
+
+    boolean remove(String name) {
+        if (specs.remove(name) == null) return false;
+        recompile();
+        save();
+        return true;
+    }
+
+    Map<String, String> list() {
+        return new LinkedHashMap<>(specs);
+    }
+
+    private void recompile() {
+        List<Rule> rules = new ArrayList<>(specs.size());
+        for (Map.Entry<String, String> e : specs.entrySet()) {
+            try {
+                rules.add(parse(e.getKey(), e.getValue()));
+            } catch (IllegalArgumentException ex) {
+                System.err.println("[HousingLogs] Skipping alert rule " + e.getKey() + ": " + ex.getMessage());
+            }
+        }
+        compiled = new Compiled(rules);
+    }
+
+    private static Rule parse(String name, String spec) {
+        String[] t = spec.trim().split("\\s+");
+        int actions;
+        switch (t[0].toLowerCase(Locale.ROOT)) {
+            case "place":
+                actions = 1 << PLACE;
+                break;
+            case "break":
+                actions = 1 << BREAK;
+                break;
+            case "change":
+                actions = 1 << CHANGE;
+                break;
+            case "any":
+                actions = (1 << PLACE) | (1 << BREAK) | (1 << CHANGE);
+                break;
+            default:
+                throw new IllegalArgumentException("Rules start with break, place, change or any.");
+        }
+        int[] blocks = null;
+        String[] areas = null;
+        String[] players = null;
+        String[] except = null;
+        int overCount = 0;
+        long withinMs = 0;
+        boolean sound = false;
+        for (int i = 1; i < t.length; i++) {
+            String key = t[i].toLowerCase(Locale.ROOT);
+            if ("sound".equals(key)) {
+                sound = true;
+                continue;
+            }
+            if (i + 1 >= t.length) throw new IllegalArgumentException("Missing value after " + t[i] + ".");
+            String value = t[++i];
+            switch (key) {
+                case "block": {
+                    String[] names = value.split(",");
+                    blocks = new int[names.length];
+                    for (int k = 0; k < names.length; k++) {
+                        Block block = Block.getBlockFromName(names[k]);
+                        if (block == null) throw new IllegalArgumentException("Unknown block " + names[k] + ".");
+                        blocks[k] = Block.getIdFromBlock(block);
+                    }
+                    break;
+                }
+                case "in":
+                    areas = value.toLowerCase(Locale.ROOT).split(",");
+                    break;
+                case "by":
+                    players = value.split(",");
+                    break;
+                case "except":
+                    except = value.split(",");
+                    break;
+                case "over":
+                    try {
+                        overCount = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        overCount = -1;
+                    }
+                    if (overCount < 1) throw new IllegalArgumentException("over needs a positive count.");
+                    if (i + 2 >= t.length || !"within".equalsIgnoreCase(t[i + 1])) {
+                        throw new IllegalArgumentException("over <count> needs within <time>, e.g. over 50 within 10s.");
+                    }
+                    withinMs = parseDuration(t[i + 2]);
+                    if (withinMs <= 0) throw new IllegalArgumentException("Invalid time " + t[i + 2] + " (e.g. 10s, 2m).");
+                    i += 2;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown keyword " + t[i - 1] + ".");
+            }
+        }
+        return new Rule(name, spec.trim(), actions, blocks, areas, players, except, overCount, withinMs, sound);
+    }
+
+    /**
+     * @return "10s", "2m" or "1h" in millis, or -1
+     */
+    private static long parseDuration(String s) {
+        char unit = Character.toLowerCase(s.charAt(s.length() - 1));
+        long mult = unit == 's' ? 1000L : unit == 'm' ? 60_000L : unit == 'h' ? 3_600_000L : -1;
+        if (mult < 0) return -1;
+        try {
+            return Long.parseLong(s.substring(0, s.length() - 1)) * mult;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param configDir the game's config/ directory; rules are saved back there
+     */
+    void load(File configDir) {
+        rulesFile = new File(configDir, RULES_FILE_NAME);
+        specs.clear();
+        if (rulesFile.exists()) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(rulesFile), StandardCharsets.UTF_8)) {
+                JsonObject obj = GSON.fromJson(reader, JsonObject.class);
+                if (obj != null && obj.has("rules")) {
+                    for (JsonElement el : obj.getAsJsonArray("rules")) {
+                        JsonObject r = el.getAsJsonObject();
+                        specs.put(r.get("name").getAsString(), r.get("rule").getAsString());
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("[HousingLogs] Failed to load alert rules: " + e.getMessage());
+            }
+        }
+        recompile();
+    }
+
+    private void save() {
+        JsonArray arr = new JsonArray();
+        for (Map.Entry<String, String> e : specs.entrySet()) {
+            JsonObject r = new JsonObject();
+            r.addProperty("name", e.getKey());
+            r.addProperty("rule", e.getValue());
+            arr.add(r);
+        }
+        JsonObject obj = new JsonObject();
+        obj.add("rules", arr);
+        try {
+            rulesFile.getParentFile().mkdirs();
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(rulesFile), StandardCharsets.UTF_8)) {
+                GSON.toJson(obj, writer);
+            }
+        } catch (IOException e) {
+            System.err.println("[HousingLogs] Failed to save alert rules: " + e.getMessage());
+        }
+    }
+
+    private static void set(long[] row, int bit) {
+        row[bit >>> 6] |= 1L << bit;
+    }
+
+    private static void clear(long[] row, int bit) {
+        row[bit >>> 6] &= ~(1L << bit);
+    }
+}
@@ -0,0 +1,496 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Full block state of an audit area at one point in time, stored like chunk sections: the area is
+ * cut along the 16x16x16 section grid and each piece keeps its own palette of block state ids,
+ * bit-packed indices and a content hash.
+ *
+ * Two snapshots of the same area have the same pieces, so a diff only decodes pieces whose hashes
+ * differ; an unchanged plot costs one long comparison per section.
+ *
+ * Files live under hitlist-snapshots/&lt;area&gt;/&lt;name&gt;.hls (gzip'd binary) in the current house
+ * partition's directory ({@link BlockAuditManager#getPartitionDir()}).
+ */
+final class AreaBlockSnapshot {
+    private static final int MAGIC = 0x484C534E; // "HLSN"
+    private static final int VERSION = 1;
+
+    // 200x100x200 plots are ~4M blocks; leave room for bigger areas.
+    static final long MAX_VOLUME = 16L * 1024L * 1024L;
+    private static final int DIFF_LINES = 10;
+
+    // FNV-1a over the section's state ids in y, z, x order.
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Hitlist-Snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static final class Section {
+        final int cx;
+        final int sy;
+        final int cz;
+        final long hash;
+        final char[] palette;
+        // 0 when the palette has a single entry (data is then empty).
+        final int bits;
+        final long[] data;
+
+        Section(int cx, int sy, int cz, long hash, char[] palette, int bits, long[] data) {
+            this.cx = cx;
+            this.sy = sy;
+            this.cz = cz;
+            this.hash = hash;
+            this.palette = palette;
+            this.bits = bits;
+            this.data = data;
+        }
+    }
+
+    static final class Change {
+        final BlockPos pos;
+        final int oldState;
+        final int newState;
+
+        Change(BlockPos pos, int oldState, int newState) {
+            this.pos = pos;
+            this.oldState = oldState;
+            this.newState = newState;
+        }
+    }
+
+    static final class Diff {
+        int sections;
+        int sectionsDecoded;
+        long changed;
+        long elapsedMs;
+        final List<Change> changes = new ArrayList<>();
+    }
+
+    final String areaName;
+    final long createdMs;
+    final BlockPos min;
+    final BlockPos max;
+    final List<Section> sections;
+
+    private AreaBlockSnapshot(String areaName, long createdMs, BlockPos min, BlockPos max, List<Section> sections) {
+        this.areaName = areaName;
+        this.createdMs = createdMs;
+        this.min = min;
+        this.max = max;
+        this.sections = sections;
+    }
+
+    static File directoryFor(String areaName) {
+        return new File(BlockAuditManager.getPartitionDir(), "hitlist-snapshots/" + sanitize(areaName));
+    }
+
+    static File fileFor(String areaName, String snapshotName) {
+        return new File(directoryFor(areaName), sanitize(snapshotName) + ".hls");
+    }
+
+    static boolean isValidName(String name) {
+        return name != null && name.matches("[A-Za-z0-9_.-]{1,48}");
+    }
+
+    /**
+     * Snapshot names of an area, oldest first.
+     */
+    static List<String> list(String areaName) {
+        List<String> out = new ArrayList<>();
+        File[] files = directoryFor(areaName).listFiles((dir, n) -> n.endsWith(".hls"));
+        if (files == null) return out;
+        java.util.Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            out.add(f.getName().substring(0, f.getName().length() - 4));
+        }
+        return out;
+    }
+
+    /**
+     * Encodes copied sections; safe to call off the client thread.
+     */
+    static AreaBlockSnapshot encode(String areaName, RegionSnapshot.Sections raw) {
+        List<Section> out = new ArrayList<>(raw.nx * raw.ny * raw.nz);
+        int[] paletteIndex = new int[65536];
+        java.util.Arrays.fill(paletteIndex, -1);
+        char[] states = new char[4096];
+
+        for (int sy = raw.sy0; sy < raw.sy0 + raw.ny; sy++) {
+            for (int cz = raw.cz0; cz < raw.cz0 + raw.nz; cz++) {
+                for (int cx = raw.cx0; cx < raw.cx0 + raw.nx; cx++) {
+                    int x0 = Math.max(raw.min.getX(), cx << 4), x1 = Math.min(raw.max.getX(), (cx << 4) + 15);
+                    int y0 = Math.max(raw.min.getY(), sy << 4), y1 = Math.min(raw.max.getY(), (sy << 4) + 15);
+                    int z0 = Math.max(raw.min.getZ(), cz << 4), z1 = Math.min(raw.max.getZ(), (cz << 4) + 15);
+
+                    int n = 0;
+                    for (int y = y0; y <= y1; y++) {
+                        for (int z = z0; z <= z1; z++) {
+                            for (int x = x0; x <= x1; x++) {
+                                states[n++] = raw.stateAt(x, y, z);
+                            }
+                        }
+                    }
+                    out.add(encodeSection(cx, sy, cz, states, n, paletteIndex));
+                }
+            }
+        }
+        return new AreaBlockSnapshot(areaName, raw.capturedMs, raw.min, raw.max, out);
+    }
+
+    /**
+     * @param paletteIndex scratch table of 65536 entries, all -1; left that way on return
+     */
+    private static Section encodeSection(int cx, int sy, int cz, char[] states, int n, int[] paletteIndex) {
+        char[] palette = new char[16];
+        int paletteSize = 0;
+        long hash = HASH_SEED;
+        for (int k = 0; k < n; k++) {
+            char state = states[k];
+            if (paletteIndex[state] < 0) {
+                if (paletteSize == palette.length) palette = java.util.Arrays.copyOf(palette, paletteSize * 2);
+                paletteIndex[state] = paletteSize;
+                palette[paletteSize++] = state;
+            }
+            hash = (hash ^ state) * HASH_PRIME;
+        }
+
+        int bits = paletteSize == 1 ? 0 : 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+        long[] data;
+        if (bits == 0) {
+            data = new long[0];
+        } else {
+            int perLong = 64 / bits;
+            data = new long[(n + perLong - 1) / perLong];
+            for (int k = 0; k < n; k++) {
+                data[k / perLong] |= (long) paletteIndex[states[k]] << ((k % perLong) * bits);
+            }
+        }
+        // Reset only the entries we used instead of refilling the whole table.
+        for (int p = 0; p < paletteSize; p++) {
+            paletteIndex[palette[p]] = -1;
+        }
+        return new Section(cx, sy, cz, hash, java.util.Arrays.copyOf(palette, paletteSize), bits, data);
+    }
+
+    /**
+     * Hash of the part of a live chunk section inside the given world bounds, equal to
+     * {@link Section#hash} for the same blocks. Reads the section array in place.
+     *
+     * @param data the section's block array, or null for an empty (all air) section
+     */
+    static long hashSection(char[] data, int x0, int x1, int y0, int y1, int z0, int z1) {
+        long hash = HASH_SEED;
+        for (int y = y0; y <= y1; y++) {
+            for (int z = z0; z <= z1; z++) {
+                int row = (y & 15) << 8 | (z & 15) << 4;
+                for (int x = x0; x <= x1; x++) {
+                    hash = (hash ^ (data == null ? 0 : data[row | (x & 15)])) * HASH_PRIME;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return the section at these section coordinates, or null if it is not part of this snapshot
+     */
+    Section sectionAt(int cx, int sy, int cz) {
+        int cx0 = min.getX() >> 4, sy0 = min.getY() >> 4, cz0 = min.getZ() >> 4;
+        int nx = (max.getX() >> 4) - cx0 + 1;
+        int ny = (max.getY() >> 4) - sy0 + 1;
+        int nz = (max.getZ() >> 4) - cz0 + 1;
+        if (cx < cx0 || cx >= cx0 + nx || sy < sy0 || sy >= sy0 + ny || cz < cz0 || cz >= cz0 + nz) return null;
+        return sections.get(((sy - sy0) * nz + (cz - cz0)) * nx + (cx - cx0));
+    }
+
+    /**
+     * Copy of this snapshot with some blocks replaced, re-encoding only the touched sections.
+     *
+     * @param changes block state id per position; positions outside the area are ignored
+     */
+    AreaBlockSnapshot withChanges(java.util.Map<BlockPos, Character> changes, long atMs) {
+        int cx0 = min.getX() >> 4, sy0 = min.getY() >> 4, cz0 = min.getZ() >> 4;
+        int nx = (max.getX() >> 4) - cx0 + 1;
+        int nz = (max.getZ() >> 4) - cz0 + 1;
+
+        java.util.Map<Integer, char[]> decoded = new java.util.HashMap<>();
+        for (java.util.Map.Entry<BlockPos, Character> e : changes.entrySet()) {
+            BlockPos p = e.getKey();
+            if (p.getX() < min.getX() || p.getX() > max.getX() || p.getY() < min.getY() || p.getY() > max.getY()
+                    || p.getZ() < min.getZ() || p.getZ() > max.getZ()) continue;
+
+            int index = (((p.getY() >> 4) - sy0) * nz + ((p.getZ() >> 4) - cz0)) * nx + ((p.getX() >> 4) - cx0);
+            Section s = sections.get(index);
+            char[] states = decoded.get(index);
+            if (states == null) {
+                states = decode(s);
+                decoded.put(index, states);
+            }
+            int x0 = Math.max(min.getX(), s.cx << 4), x1 = Math.min(max.getX(), (s.cx << 4) + 15);
+            int y0 = Math.max(min.getY(), s.sy << 4);
+            int z0 = Math.max(min.getZ(), s.cz << 4), z1 = Math.min(max.getZ(), (s.cz << 4) + 15);
+            int w = x1 - x0 + 1;
+            int d = z1 - z0 + 1;
+            states[((p.getY() - y0) * d + (p.getZ() - z0)) * w + (p.getX() - x0)] = e.getValue();
+        }
+
+        List<Section> out = new ArrayList<>(sections);
+        int[] paletteIndex = new int[65536];
+        java.util.Arrays.fill(paletteIndex, -1);
+        for (java.util.Map.Entry<Integer, char[]> e : decoded.entrySet()) {
+            Section s = sections.get(e.getKey());
+            out.set(e.getKey(), encodeSection(s.cx, s.sy, s.cz, e.getValue(), e.getValue().length, paletteIndex));
+        }
+        return new AreaBlockSnapshot(areaName, atMs, min, max, out);
+    }
+
+    /**
+     * Block state ids of one section, in y, z, x order over its clipped bounds.
+     */
+    char[] decode(Section s) {
+        int n = sectionVolume(s);
+        char[] out = new char[n];
+        if (s.bits == 0) {
+            java.util.Arrays.fill(out, s.palette[0]);
+            return out;
+        }
+        int perLong = 64 / s.bits;
+        long mask = (1L << s.bits) - 1;
+        for (int k = 0; k < n; k++) {
+            out[k] = s.palette[(int) ((s.data[k / perLong] >>> ((k % perLong) * s.bits)) & mask)];
+        }
+        return out;
+    }
+
+    private int sectionVolume(Section s) {
+        int x0 = Math.max(min.getX(), s.cx << 4), x1 = Math.min(max.getX(), (s.cx << 4) + 15);
+        int y0 = Math.max(min.getY(), s.sy << 4), y1 = Math.min(max.getY(), (s.sy << 4) + 15);
+        int z0 = Math.max(min.getZ(), s.cz << 4), z1 = Math.min(max.getZ(), (s.cz << 4) + 15);
+        return (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1);
+    }
+
+    /**
+     * @param maxListed how many individual changes to keep (all are counted)
+     * @return null when the snapshots cover different bounds
+     */
+    static Diff diff(AreaBlockSnapshot a, AreaBlockSnapshot b, int maxListed) {
+        if (!a.min.equals(b.min) || !a.max.equals(b.max) || a.sections.size() != b.sections.size()) return null;
+        long started = System.nanoTime();
+
+        Diff d = new Diff();
+        d.sections = a.sections.size();
+        for (int i = 0; i < a.sections.size(); i++) {
+            Section sa = a.sections.get(i);
+            Section sb = b.sections.get(i);
+            if (sa.hash == sb.hash) continue;
+
+            d.sectionsDecoded++;
+            char[] oldStates = a.decode(sa);
+            char[] newStates = b.decode(sb);
+            int x0 = Math.max(a.min.getX(), sa.cx << 4), x1 = Math.min(a.max.getX(), (sa.cx << 4) + 15);
+            int y0 = Math.max(a.min.getY(), sa.sy << 4), y1 = Math.min(a.max.getY(), (sa.sy << 4) + 15);
+            int z0 = Math.max(a.min.getZ(), sa.cz << 4), z1 = Math.min(a.max.getZ(), (sa.cz << 4) + 15);
+            int k = 0;
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    for (int x = x0; x <= x1; x++, k++) {
+                        if (oldStates[k] == newStates[k]) continue;
+                        d.changed++;
+                        if (d.changes.size() < maxListed) {
+                            d.changes.add(new Change(new BlockPos(x, y, z), oldStates[k], newStates[k]));
+                        }
+                    }
+                }
+            }
+        }
+        d.elapsedMs = (System.nanoTime() - started) / 1_000_000L;
+        return d;
+    }
+
+    void write(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(areaName);
+            out.writeLong(createdMs);
+            out.writeInt(min.getX());
+            out.writeInt(min.getY());
+            out.writeInt(min.getZ());
+            out.writeInt(max.getX());
+            out.writeInt(max.getY());
+            out.writeInt(max.getZ());
+            out.writeInt(sections.size());
+            for (Section s : sections) {
+                out.writeInt(s.cx);
+                out.writeInt(s.sy);
+                out.writeInt(s.cz);
+                out.writeLong(s.hash);
+                out.writeShort(s.palette.length);
+                for (char c : s.palette) {
+                    out.writeChar(c);
+                }
+                out.writeByte(s.bits);
+                out.writeInt(s.data.length);
+                for (long l : s.data) {
+                    out.writeLong(l);
+                }
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not replace " + file.getName());
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not rename " + tmp.getName());
+        }
+    }
+
+    /**
+     * Reads just the bounds and capture time from a snapshot file.
+     *
+     * @return {createdMs, minX, minY, minZ, maxX, maxY, maxZ}
+     */
+    static long[] readHeader(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file)), 512))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a snapshot file: " + file.getName());
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+            in.readUTF();
+            return new long[]{in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt()};
+        }
+    }
+
+    static AreaBlockSnapshot read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a snapshot file: " + file.getName());
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+            String areaName = in.readUTF();
+            long createdMs = in.readLong();
+            BlockPos min = new BlockPos(in.readInt(), in.readInt(), in.readInt());
+            BlockPos max = new BlockPos(in.readInt(), in.readInt(), in.readInt());
+            int count = in.readInt();
+            List<Section> sections = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int cx = in.readInt();
+                int sy = in.readInt();
+                int cz = in.readInt();
+                long hash = in.readLong();
+                char[] palette = new char[in.readUnsignedShort()];
+                for (int p = 0; p < palette.length; p++) {
+                    palette[p] = in.readChar();
+                }
+                int bits = in.readUnsignedByte();
+                long[] data = new long[in.readInt()];
+                for (int k = 0; k < data.length; k++) {
+                    data[k] = in.readLong();
+                }
+                sections.add(new Section(cx, sy, cz, hash, palette, bits, data));
+            }
+            return new AreaBlockSnapshot(areaName, createdMs, min, max, sections);
+        }
+    }
+
+    /**
+     * /hlog snapshot: copies the area's sections now, encodes and writes them in the background.
+     *
+     * @param sender where to report, or null to stay quiet (automatic checkpoints)
+     * @return false if the area could not be copied
+     */
+    static boolean takeAsync(ICommandSender sender, BlockAuditManager.AreaSnapshot area, String name) {
+        RegionSnapshot.Sections raw = RegionSnapshot.copySections(Minecraft.getMinecraft().theWorld, area.min, area.max, MAX_VOLUME);
+        if (raw == null) {
+            reply(sender, EnumChatFormatting.GRAY + "[HousingLogs] Area '" + area.name + "' is not fully loaded (or is too large) to snapshot.");
+            return false;
+        }
+        File file = fileFor(area.name, name);
+        EXECUTOR.execute(() -> {
+            try {
+                AreaBlockSnapshot snap = encode(area.name, raw);
+                snap.write(file);
+                reply(sender, EnumChatFormatting.GREEN + "[HousingLogs] Snapshot '" + name + "' of '" + area.name + "' saved ("
+                        + snap.sections.size() + " sections, " + (file.length() / 1024L) + " KiB).");
+            } catch (IOException e) {
+                if (sender == null) {
+                    System.err.println("[HousingLogs] Failed to save area checkpoint: " + e.getMessage());
+                }
+                reply(sender, EnumChatFormatting.RED + "[HousingLogs] Failed to save snapshot: " + e.getMessage());
+            }
+        });
+        return true;
+    }
+
+    /**
+     * /hlog diff: compares two saved snapshots, or a saved one against the area as loaded right now.
+     */
+    static void diffAsync(ICommandSender sender, BlockAuditManager.AreaSnapshot area, String nameA, String nameB) {
+        RegionSnapshot.Sections live = null;
+        if ("live".equalsIgnoreCase(nameB)) {
+            live = RegionSnapshot.copySections(Minecraft.getMinecraft().theWorld, area.min, area.max, MAX_VOLUME);
+            if (live == null) {
+                reply(sender, EnumChatFormatting.GRAY + "[HousingLogs] Area '" + area.name + "' is not fully loaded (or is too large) to compare live.");
+                return;
+            }
+        }
+        RegionSnapshot.Sections liveRaw = live;
+        EXECUTOR.execute(() -> {
+            try {
+                AreaBlockSnapshot a = read(fileFor(area.name, nameA));
+                AreaBlockSnapshot b = liveRaw != null ? encode(area.name, liveRaw) : read(fileFor(area.name, nameB));
+                Diff d = diff(a, b, DIFF_LINES);
+                if (d == null) {
+                    reply(sender, EnumChatFormatting.GRAY + "[HousingLogs] Snapshots cover different bounds (was the area resized?).");
+                    return;
+                }
+                reply(sender, EnumChatFormatting.GREEN + "[HousingLogs] " + nameA + " -> " + nameB + ": " + d.changed + " blocks changed ("
+                        + d.sectionsDecoded + "/" + d.sections + " sections differ, " + d.elapsedMs + " ms).");
+                for (Change c : d.changes) {
+                    reply(sender, EnumChatFormatting.GRAY + "[HousingLogs] (" + c.pos.getX() + "," + c.pos.getY() + "," + c.pos.getZ() + ") "
+                            + describe(c.oldState) + " -> " + describe(c.newState));
+                }
+                if (d.changed > d.changes.size()) {
+                    reply(sender, EnumChatFormatting.GRAY + "[HousingLogs] ... and " + (d.changed - d.changes.size()) + " more.");
+                }
+            } catch (FileNotFoundException e) {
+                reply(sender, EnumChatFormatting.GRAY + "[HousingLogs] No such snapshot. /hlog snapshots " + area.name + " lists them.");
+            } catch (IOException e) {
+                reply(sender, EnumChatFormatting.RED + "[HousingLogs] Failed to read snapshot: " + e.getMessage());
+            }
+        });
+    }
+
+    private static String describe(int state) {
+        String id = RegionSnapshot.blockIdOf(state);
+        return id == null ? "#" + state : id;
+    }
+
+    static void reply(ICommandSender sender, String text) {
+        if (sender == null) return;
+        // Chat must be touched on the client thread.
+        Minecraft.getMinecraft().addScheduledTask(() -> sender.addChatMessage(new ChatComponentText(text)));
+    }
+
+    private static String sanitize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_.-]", "_");
+    }
+}
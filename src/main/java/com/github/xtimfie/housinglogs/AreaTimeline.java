@@ -0,0 +1,258 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.Minecraft;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Point-in-time reconstruction of an area: the newest snapshot taken at or before the requested
+ * time, plus the audit log events between that snapshot and the requested time.
+ *
+ * Areas that changed are checkpointed automatically (as "auto-..." snapshots) every
+ * {@link #CHECKPOINT_INTERVAL_MS}, so the replayed window is bounded; the storage backend reads just
+ * that window ({@link AuditSink#forEachInRange}).
+ */
+final class AreaTimeline {
+    static final AreaTimeline INSTANCE = new AreaTimeline();
+
+    private static final long CHECKPOINT_INTERVAL_MS = 30L * 60L * 1000L;
+    // Keeps two days of half-hourly checkpoints per area.
+    private static final int MAX_AUTO_CHECKPOINTS = 96;
+    private static final String AUTO_PREFIX = "auto-";
+
+    // Keyed by "partition/area".
+    private final Map<String, Long> lastCheckpointMs = new HashMap<>();
+    private int tickCounter = 0;
+
+    private AreaTimeline() {
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+        if (++tickCounter % (20 * 60) != 0) return;
+        if (!BlockAuditManager.isEnabled() || !HousingContext.isInHousing()) return;
+        if (Minecraft.getMinecraft().theWorld == null) return;
+
+        long now = System.currentTimeMillis();
+        for (BlockAuditManager.AreaSnapshot area : BlockAuditManager.getAreasSnapshot()) {
+            if (!area.enabled) continue;
+            String key = BlockAuditManager.getPartition() + "/" + area.name;
+            Long last = lastCheckpointMs.get(key);
+            if (last != null && now - last < CHECKPOINT_INTERVAL_MS) continue;
+            // Nothing logged since the last checkpoint: the old one still describes the area.
+            if (last != null && BlockAuditManager.getLastChangeMs(area.name) <= last) continue;
+
+            String name = AUTO_PREFIX + new java.text.SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new java.util.Date(now));
+            if (AreaBlockSnapshot.takeAsync(null, area, name)) {
+                lastCheckpointMs.put(key, now);
+                pruneAsync(area.name);
+            }
+        }
+    }
+
+    private static void pruneAsync(String areaName) {
+        AreaBlockSnapshot.EXECUTOR.execute(() -> {
+            List<String> autos = new java.util.ArrayList<>();
+            for (String n : AreaBlockSnapshot.list(areaName)) {
+                if (n.startsWith(AUTO_PREFIX)) autos.add(n);
+            }
+            for (int i = 0; i < autos.size() - MAX_AUTO_CHECKPOINTS; i++) {
+                File f = AreaBlockSnapshot.fileFor(areaName, autos.get(i));
+                if (!f.delete()) {
+                    System.err.println("[HousingLogs] Failed to delete old area checkpoint: " + f.getAbsolutePath());
+                }
+            }
+        });
+    }
+
+    /**
+     * /hlog at: rebuilds the area at atMs in the background, then saves it as a snapshot or queues an
+     * automation batch that puts the live area back into that state.
+     */
+    static void reconstructAsync(ICommandSender sender, BlockAuditManager.AreaSnapshot area, long atMs, String saveAs, boolean rollback) {
+        RegionSnapshot.Sections live = null;
+        if (rollback) {
+            live = RegionSnapshot.copySections(Minecraft.getMinecraft().theWorld, area.min, area.max, AreaBlockSnapshot.MAX_VOLUME);
+            if (live == null) {
+                AreaBlockSnapshot.reply(sender, EnumChatFormatting.GRAY + "[HousingLogs] Area '" + area.name + "' must be fully loaded to roll back.");
+                return;
+            }
+        }
+        RegionSnapshot.Sections liveRaw = live;
+
+        AreaBlockSnapshot.EXECUTOR.execute(() -> {
+            long started = System.nanoTime();
+            File base = findCheckpoint(area, atMs);
+            if (base == null) {
+                AreaBlockSnapshot.reply(sender, EnumChatFormatting.GRAY + "[HousingLogs] No snapshot of '" + area.name
+                        + "' (with its current bounds) was taken before that time.");
+                return;
+            }
+
+            AreaBlockSnapshot result;
+            int replayed;
+            try {
+                AreaBlockSnapshot checkpoint = AreaBlockSnapshot.read(base);
+                Map<BlockPos, Character> changes = readChanges(area, checkpoint.createdMs, atMs);
+                replayed = changes.size();
+                result = checkpoint.withChanges(changes, atMs);
+            } catch (IOException e) {
+                AreaBlockSnapshot.reply(sender, EnumChatFormatting.RED + "[HousingLogs] Failed to reconstruct: " + e.getMessage());
+                return;
+            }
+            long ms = (System.nanoTime() - started) / 1_000_000L;
+            String baseName = base.getName().substring(0, base.getName().length() - 4);
+
+            if (!rollback) {
+                try {
+                    result.write(AreaBlockSnapshot.fileFor(area.name, saveAs));
+                } catch (IOException e) {
+                    AreaBlockSnapshot.reply(sender, EnumChatFormatting.RED + "[HousingLogs] Failed to save snapshot: " + e.getMessage());
+                    return;
+                }
+                AreaBlockSnapshot.reply(sender, EnumChatFormatting.GREEN + "[HousingLogs] Rebuilt '" + area.name + "' from " + baseName
+                        + " + " + replayed + " logged blocks in " + ms + " ms; saved as '" + saveAs + "'.");
+                return;
+            }
+
+            AreaBlockSnapshot.Diff d = AreaBlockSnapshot.diff(AreaBlockSnapshot.encode(area.name, liveRaw), result, Integer.MAX_VALUE);
+            if (d == null || d.changed == 0) {
+                AreaBlockSnapshot.reply(sender, EnumChatFormatting.GRAY + "[HousingLogs] '" + area.name + "' already matches that time.");
+                return;
+            }
+            Map<BlockPos, String> targets = new LinkedHashMap<>();
+            int unknown = 0;
+            for (AreaBlockSnapshot.Change c : d.changes) {
+                String id = RegionSnapshot.blockIdOf(c.newState);
+                if (id == null) {
+                    unknown++;
+                    continue;
+                }
+                targets.put(c.pos, id);
+            }
+            List<CuboidPlanner.Cuboid> plan = CuboidPlanner.plan(targets);
+            int unknownFinal = unknown;
+            Minecraft.getMinecraft().addScheduledTask(() -> {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Rolling '" + area.name
+                        + "' back: " + targets.size() + " blocks as " + plan.size() + " cuboids (from " + baseName + " + " + replayed + " logged blocks)"
+                        + (unknownFinal > 0 ? "; " + unknownFinal + " blocks of unknown type skipped." : ".")));
+                ProtoolsAutomation.INSTANCE.startPlannedJobs(sender, plan);
+            });
+        });
+    }
+
+    /**
+     * The area as it was at atMs (snapshot plus log replay). Call off the client thread.
+     *
+     * @return null if no usable snapshot was taken before atMs
+     */
+    static AreaBlockSnapshot reconstruct(BlockAuditManager.AreaSnapshot area, long atMs) throws IOException {
+        File base = findCheckpoint(area, atMs);
+        if (base == null) return null;
+        AreaBlockSnapshot checkpoint = AreaBlockSnapshot.read(base);
+        return checkpoint.withChanges(readChanges(area, checkpoint.createdMs, atMs), atMs);
+    }
+
+    /**
+     * Newest snapshot of the area taken at or before atMs with the area's current bounds.
+     */
+    private static File findCheckpoint(BlockAuditManager.AreaSnapshot area, long atMs) {
+        File best = null;
+        long bestMs = Long.MIN_VALUE;
+        File[] files = AreaBlockSnapshot.directoryFor(area.name).listFiles((dir, n) -> n.endsWith(".hls"));
+        if (files == null) return null;
+        for (File f : files) {
+            long[] h;
+            try {
+                h = AreaBlockSnapshot.readHeader(f);
+            } catch (IOException e) {
+                continue;
+            }
+            if (h[0] > atMs || h[0] <= bestMs) continue;
+            int minY = Math.max(0, area.min.getY());
+            int maxY = Math.min(255, area.max.getY());
+            if (h[1] != area.min.getX() || h[2] != minY || h[3] != area.min.getZ()
+                    || h[4] != area.max.getX() || h[5] != maxY || h[6] != area.max.getZ()) continue;
+            best = f;
+            bestMs = h[0];
+        }
+        return best;
+    }
+
+    /**
+     * Final block state per position from the area's log events with fromMs &lt; tsMs &lt;= toMs.
+     */
+    private static Map<BlockPos, Character> readChanges(BlockAuditManager.AreaSnapshot area, long fromMs, long toMs) throws IOException {
+        Map<BlockPos, Character> out = new HashMap<>();
+        BlockAuditManager.readEvents(area.name, fromMs, toMs, e -> {
+            if (!e.has("newBlock") || !e.has("x")) return;
+            Character state = stateId(e.get("newBlock").getAsString(), e.has("newMeta") ? e.get("newMeta").getAsInt() : 0);
+            if (state == null) return;
+            out.put(new BlockPos(e.get("x").getAsInt(), e.get("y").getAsInt(), e.get("z").getAsInt()), state);
+        });
+        return out;
+    }
+
+    private static Character stateId(String blockName, int meta) {
+        try {
+            Block block = Block.getBlockFromName(blockName);
+            if (block == null) return null;
+            IBlockState state = block.getStateFromMeta(meta);
+            return (char) Block.getStateId(state);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * Accepts "HH:mm[:ss]" (the most recent such time), "yyyy-MM-ddTHH:mm[:ss]", or an age such as
+     * "90m", "2h" or "1d".
+     *
+     * @return epoch millis, or -1 if not understood
+     */
+    static long parseTime(String s, long now) {
+        if (s == null || s.isEmpty()) return -1;
+        String t = s.trim();
+        try {
+            char unit = Character.toLowerCase(t.charAt(t.length() - 1));
+            if (unit == 'm' || unit == 'h' || unit == 'd') {
+                long n = Long.parseLong(t.substring(0, t.length() - 1));
+                long mult = unit == 'm' ? 60_000L : unit == 'h' ? 3_600_000L : 86_400_000L;
+                return n < 0 ? -1 : now - n * mult;
+            }
+            if (t.indexOf('T') > 0) {
+                String pattern = t.length() > 16 ? "yyyy-MM-dd'T'HH:mm:ss" : "yyyy-MM-dd'T'HH:mm";
+                java.text.SimpleDateFormat f = new java.text.SimpleDateFormat(pattern, Locale.ROOT);
+                f.setLenient(false);
+                return f.parse(t).getTime();
+            }
+            String[] parts = t.split(":");
+            if (parts.length < 2 || parts.length > 3) return -1;
+            java.util.Calendar c = java.util.Calendar.getInstance();
+            c.setTimeInMillis(now);
+            c.set(java.util.Calendar.HOUR_OF_DAY, Integer.parseInt(parts[0]));
+            c.set(java.util.Calendar.MINUTE, Integer.parseInt(parts[1]));
+            c.set(java.util.Calendar.SECOND, parts.length == 3 ? Integer.parseInt(parts[2]) : 0);
+            c.set(java.util.Calendar.MILLISECOND, 0);
+            if (c.getTimeInMillis() > now) c.add(java.util.Calendar.DAY_OF_MONTH, -1);
+            return c.getTimeInMillis();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
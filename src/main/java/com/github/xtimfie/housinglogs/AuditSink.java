@@ -0,0 +1,68 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage backend for audit events. {@link JsonlAuditSink} (flat files) is the default;
+ * {@link H2AuditSink} keeps them in an indexed embedded database instead.
+ *
+ * Writes and {@link #close()} are only called on BlockAuditManager's log thread. Reads can come from
+ * other threads (snapshot rebuilds) and must be safe alongside writes.
+ */
+interface AuditSink {
+    /**
+     * @return the name used by /hlog storage
+     */
+    String name();
+
+    /**
+     * Stores a batch of events, atomically where the backend supports it.
+     *
+     * @param dir the house partition's directory
+     */
+    void write(File dir, List<JsonObject> entries) throws IOException;
+
+    /**
+     * Calls the consumer with the events of one area with fromMs &lt; tsMs &lt;= toMs, oldest first.
+     */
+    void forEachInRange(File dir, String area, long fromMs, long toMs, Consumer<JsonObject> consumer) throws IOException;
+
+    /**
+     * Numbers the stored events matching a filter, oldest first, for random access by the log
+     * browser. Events stored afterwards are not included. Call off the client thread.
+     */
+    EventIndex index(File dir, EventFilter filter) throws IOException;
+
+    /**
+     * How far a partition's storage reaches right now, as an opaque position for
+     * {@link #index(File, EventFilter, long)}. Cheap; call it on the log thread to cut between batches.
+     */
+    long mark(File dir) throws IOException;
+
+    /**
+     * Like {@link #index(File, EventFilter)}, but only over the events stored before the mark was taken.
+     */
+    EventIndex index(File dir, EventFilter filter, long mark) throws IOException;
+
+    /**
+     * Releases open files and connections; the sink may be used again afterwards.
+     */
+    void close();
+
+    /**
+     * Events matching a filter as of {@link #index}, addressable by position.
+     */
+    interface EventIndex {
+        int size();
+
+        /**
+         * @return up to count events starting at position from; unreadable lines come back as empty objects
+         */
+        List<JsonObject> read(int from, int count) throws IOException;
+    }
+}
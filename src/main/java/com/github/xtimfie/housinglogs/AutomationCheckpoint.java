@@ -0,0 +1,247 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import net.minecraft.util.BlockPos;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only checkpoint of the running Pro Tools batch, so it can continue after a disconnect
+ * or world switch without redoing finished jobs.
+ *
+ * File format is JSON Lines: a "batch" record (return point + all jobs), then "add" records for
+ * jobs joining the batch and "done" records once each job's operation has gone through (see
+ * ProtoolsAutomation#settlePrevious). The file is deleted when the batch ends. Writes happen on a
+ * background thread; the pending set is mirrored in memory.
+ */
+final class AutomationCheckpoint {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private static final ExecutorService IO_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Hitlist-Protools-Checkpoint");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static final class Entry {
+        final int id;
+        final BlockPos pos1;
+        final BlockPos pos2;
+        final String blockId;
+        final String operation;
+
+        Entry(int id, BlockPos pos1, BlockPos pos2, String blockId, String operation) {
+            this.id = id;
+            this.pos1 = pos1;
+            this.pos2 = pos2;
+            this.blockId = blockId;
+            this.operation = operation;
+        }
+    }
+
+    // Null (progress kept in memory only, as in benchmarks) until load(File).
+    private File file;
+
+    private final Map<Integer, Entry> pending = new LinkedHashMap<>();
+    private double returnX;
+    private double returnY;
+    private double returnZ;
+    private float returnYaw;
+    private float returnPitch;
+
+    AutomationCheckpoint() {
+    }
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    List<Entry> pendingEntries() {
+        return new ArrayList<>(pending.values());
+    }
+
+    int maxId() {
+        int max = 0;
+        for (Integer id : pending.keySet()) {
+            max = Math.max(max, id);
+        }
+        return max;
+    }
+
+    double getReturnX() {
+        return returnX;
+    }
+
+    double getReturnY() {
+        return returnY;
+    }
+
+    double getReturnZ() {
+        return returnZ;
+    }
+
+    float getReturnYaw() {
+        return returnYaw;
+    }
+
+    float getReturnPitch() {
+        return returnPitch;
+    }
+
+    /**
+     * Starts a new batch, replacing any previous checkpoint.
+     */
+    void begin(double x, double y, double z, float yaw, float pitch, List<Entry> entries) {
+        pending.clear();
+        returnX = x;
+        returnY = y;
+        returnZ = z;
+        returnYaw = yaw;
+        returnPitch = pitch;
+        for (Entry e : entries) {
+            pending.put(e.id, e);
+        }
+
+        JsonObject obj = new JsonObject();
+        obj.addProperty("type", "batch");
+        obj.addProperty("returnX", x);
+        obj.addProperty("returnY", y);
+        obj.addProperty("returnZ", z);
+        obj.addProperty("returnYaw", yaw);
+        obj.addProperty("returnPitch", pitch);
+        obj.add("jobs", toJson(entries));
+        write(GSON.toJson(obj), false);
+    }
+
+    void add(List<Entry> entries) {
+        for (Entry e : entries) {
+            pending.put(e.id, e);
+        }
+        JsonObject obj = new JsonObject();
+        obj.addProperty("type", "add");
+        obj.add("jobs", toJson(entries));
+        write(GSON.toJson(obj), true);
+    }
+
+    void markDone(int id) {
+        if (pending.remove(id) == null) return;
+        JsonObject obj = new JsonObject();
+        obj.addProperty("type", "done");
+        obj.addProperty("id", id);
+        write(GSON.toJson(obj), true);
+    }
+
+    void clear() {
+        pending.clear();
+        if (file == null) return;
+        IO_EXECUTOR.execute(() -> {
+            if (file.exists() && !file.delete()) {
+                System.err.println("[HousingLogs] Failed to delete automation checkpoint: " + file.getAbsolutePath());
+            }
+        });
+    }
+
+    /**
+     * Starts writing to the file and replays what it holds into memory. Called once at startup.
+     */
+    void load(File file) {
+        this.file = file;
+        pending.clear();
+        if (file == null || !file.exists()) return;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                JsonObject obj;
+                try {
+                    obj = GSON.fromJson(line, JsonObject.class);
+                } catch (RuntimeException e) {
+                    // A torn last line from a crash mid-write; everything before it is still valid.
+                    continue;
+                }
+                if (obj == null || !obj.has("type")) continue;
+
+                String type = obj.get("type").getAsString();
+                if ("batch".equals(type)) {
+                    pending.clear();
+                    returnX = obj.get("returnX").getAsDouble();
+                    returnY = obj.get("returnY").getAsDouble();
+                    returnZ = obj.get("returnZ").getAsDouble();
+                    returnYaw = obj.get("returnYaw").getAsFloat();
+                    returnPitch = obj.get("returnPitch").getAsFloat();
+                    readJobs(obj);
+                } else if ("add".equals(type)) {
+                    readJobs(obj);
+                } else if ("done".equals(type)) {
+                    pending.remove(obj.get("id").getAsInt());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[HousingLogs] Failed to load automation checkpoint: " + e.getMessage());
+        }
+    }
+
+    private void readJobs(JsonObject obj) {
+        if (!obj.has("jobs") || !obj.get("jobs").isJsonArray()) return;
+        JsonArray arr = obj.getAsJsonArray("jobs");
+        for (int i = 0; i < arr.size(); i++) {
+            if (!arr.get(i).isJsonObject()) continue;
+            JsonObject j = arr.get(i).getAsJsonObject();
+            Entry e = new Entry(
+                    j.get("id").getAsInt(),
+                    new BlockPos(j.get("x1").getAsInt(), j.get("y1").getAsInt(), j.get("z1").getAsInt()),
+                    new BlockPos(j.get("x2").getAsInt(), j.get("y2").getAsInt(), j.get("z2").getAsInt()),
+                    j.get("block").getAsString(),
+                    j.get("op").getAsString()
+            );
+            pending.put(e.id, e);
+        }
+    }
+
+    private static JsonArray toJson(List<Entry> entries) {
+        JsonArray arr = new JsonArray();
+        for (Entry e : entries) {
+            JsonObject j = new JsonObject();
+            j.addProperty("id", e.id);
+            j.addProperty("x1", e.pos1.getX());
+            j.addProperty("y1", e.pos1.getY());
+            j.addProperty("z1", e.pos1.getZ());
+            j.addProperty("x2", e.pos2.getX());
+            j.addProperty("y2", e.pos2.getY());
+            j.addProperty("z2", e.pos2.getZ());
+            j.addProperty("block", e.blockId);
+            j.addProperty("op", e.operation);
+            arr.add(j);
+        }
+        return arr;
+    }
+
+    private void write(String line, boolean append) {
+        if (file == null) return;
+        IO_EXECUTOR.execute(() -> {
+            try {
+                file.getParentFile().mkdirs();
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8)) {
+                    writer.write(line);
+                    writer.write("\n");
+                }
+            } catch (IOException e) {
+                System.err.println("[HousingLogs] Failed to write automation checkpoint: " + e.getMessage());
+            }
+        });
+    }
+}
@@ -1,5 +1,12 @@
 package com.github.xtimfie.housinglogs;
 
+import com.github.xtimfie.housinglogs.core.AreaIndex;
+import com.github.xtimfie.housinglogs.core.AreaShape;
+import com.github.xtimfie.housinglogs.core.Attribution;
+import com.github.xtimfie.housinglogs.core.AttributionScorer;
+import com.github.xtimfie.housinglogs.core.AuditEvent;
+import com.github.xtimfie.housinglogs.core.PlayerStateTable;
+import com.github.xtimfie.housinglogs.core.SoundIndex;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
@@ -9,8 +16,6 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.Minecraft;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
-import net.minecraft.item.Item;
-import net.minecraft.item.ItemStack;
 import net.minecraft.util.BlockPos;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.Vec3;
@@ -36,13 +41,30 @@ import java.util.concurrent.Executors;
 public class BlockAuditManager {
     private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
 
-    // Single-threaded usage via LOG_EXECUTOR, so SimpleDateFormat thread-safety is not an issue here.
-    private static final java.text.SimpleDateFormat TEXT_LOG_TIME = new java.text.SimpleDateFormat("HH:mm:ss", java.util.Locale.ROOT);
+    // The game's config/ directory, set by loadAreaFromDisk at mod init.
+    private static volatile File configDir;
+    // Each house gets config/hitlist-houses/<house>/ with the same file names; "" is config/ itself.
+    private static final String HOUSES_DIR = "hitlist-houses";
+    private static final String AREA_FILE_NAME = "hitlist-blockaudit-area.json";
+    private static final String SETTINGS_FILE_NAME = "hitlist-blockaudit-settings.json";
 
-    private static final File AREA_FILE = new File(Minecraft.getMinecraft().mcDataDir, "config/hitlist-blockaudit-area.json");
-    private static final File LOG_FILE = new File(Minecraft.getMinecraft().mcDataDir, "config/hitlist-blockaudit-log.jsonl");
-    private static final File LOG_FILE_TEXT = new File(Minecraft.getMinecraft().mcDataDir, "config/hitlist-blockaudit.log");
+    // Current house partition; written on the client thread, captured with each queued log write.
+    private static volatile String partition = "";
 
+    // Where events are stored; swapped on the log thread, read from any thread.
+    private static volatile AuditSink sink = new JsonlAuditSink();
+
+    // Entries waiting for the next batched write, per partition. Only touched on LOG_EXECUTOR.
+    private static final int MAX_BATCH = 512;
+    private static final Map<String, List<JsonObject>> PENDING = new LinkedHashMap<>();
+    private static boolean flushScheduled = false;
+
+    // Compiles area shapes, which can take a while for large footprints.
+    private static final ExecutorService SHAPE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Hitlist-BlockAudit-Shapes");
+        t.setDaemon(true);
+        return t;
+    });
     private static final ExecutorService LOG_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
         Thread t = new Thread(r, "Hitlist-BlockAudit-Log");
         t.setDaemon(true);
@@ -61,8 +83,14 @@ public class BlockAuditManager {
         final int colorRgba;
         final boolean enabled;
         final boolean highlight;
-
-        private Area(String key, String name, BlockPos min, BlockPos max, int colorRgba, boolean enabled, boolean highlight) {
+        // Null for a plain cuboid; otherwise min/max are the bounds of these parts.
+        final List<AreaShape.Part> shapeParts;
+        // The compiled shape. It lags behind shapeParts while a recompile runs in the background
+        // (null until the first one is done); matching uses it as it is until then.
+        final AreaShape shape;
+
+        private Area(String key, String name, BlockPos min, BlockPos max, int colorRgba, boolean enabled, boolean highlight,
+                     List<AreaShape.Part> shapeParts, AreaShape shape) {
             this.key = key;
             this.name = name;
             this.min = min;
@@ -70,13 +98,14 @@ public class BlockAuditManager {
             this.colorRgba = colorRgba;
             this.enabled = enabled;
             this.highlight = highlight;
+            this.shapeParts = shapeParts;
+            this.shape = shape;
         }
 
-        boolean contains(BlockPos pos) {
-            return pos.getX() >= min.getX() && pos.getX() <= max.getX()
-                    && pos.getY() >= min.getY() && pos.getY() <= max.getY()
-                    && pos.getZ() >= min.getZ() && pos.getZ() <= max.getZ();
+        boolean shapeCompiled() {
+            return shapeParts == null || (shape != null && shape.parts().equals(shapeParts));
         }
+
     }
 
     public static final class AreaSnapshot {
@@ -86,25 +115,45 @@ public class BlockAuditManager {
         public final int colorRgba;
         public final boolean enabled;
         public final boolean highlight;
+        // Number of add/cut parts, or 0 for a plain cuboid.
+        public final int shapeParts;
 
-        private AreaSnapshot(String name, BlockPos min, BlockPos max, int colorRgba, boolean enabled, boolean highlight) {
+        private AreaSnapshot(String name, BlockPos min, BlockPos max, int colorRgba, boolean enabled, boolean highlight, int shapeParts) {
             this.name = name;
             this.min = min;
             this.max = max;
             this.colorRgba = colorRgba;
             this.enabled = enabled;
             this.highlight = highlight;
+            this.shapeParts = shapeParts;
         }
     }
 
     private static final Map<String, Area> AREAS = new LinkedHashMap<>();
+    // Enabled areas only; rebuilt under the AREAS lock after every change, read without it.
+    private static volatile AreaIndex<Area> areaIndex = AreaIndex.empty();
 
     private static final Map<BlockPos, BreakAttribution> recentBreakers = new HashMap<>();
-    private static final long BREAK_ATTRIBUTION_WINDOW_MS = 2500;
 
-    private static final double PLACER_MAX_DIST = 7.0;
-    private static final double PLACER_LOOK_DOT_MIN = 0.94; // widened for stability (heuristic is best-effort)
-    private static final double BREAKER_LOOK_DOT_MIN = 0.92; // slightly wider than placement
+    // Time of the last logged change per area key, for skipping unchanged areas at checkpoint time.
+    private static final Map<String, Long> lastChangeMs = new HashMap<>();
+
+    // Set while PlayerControllerMP runs one of our own block actions (main thread).
+    private static long localActionUntilNs = 0L;
+    // Server confirmations of our own predicted changes arrive within this window and are not logged again.
+    private static final long LOCAL_ECHO_WINDOW_MS = 1500;
+    private static final Map<BlockPos, LocalEcho> localEchoes = new HashMap<>();
+
+    private static final class LocalEcho {
+        final IBlockState predicted;
+        final long untilMs;
+
+        LocalEcho(IBlockState predicted, long untilMs) {
+            this.predicted = predicted;
+            this.untilMs = untilMs;
+        }
+    }
+
     private static final double UNKNOWN_BREAK_NEARBY_RADIUS = 5.0;
 
     private static class BreakAttribution {
@@ -127,6 +176,7 @@ public class BlockAuditManager {
         globallyEnabled = enabled;
         if (enabled && hasAnyEnabledArea()) ensureLogFilesExistAsync();
         saveAreaToDiskAsync();
+        saveSettingsAsync();
     }
 
     public static boolean hasAnyArea() {
@@ -167,7 +217,8 @@ public class BlockAuditManager {
             Area prev = AREAS.get(key);
             boolean highlight = prev != null && prev.highlight;
             boolean enabled = prev == null || prev.enabled;
-            AREAS.put(key, new Area(key, trimmed, min, max, colorRgba, enabled, highlight));
+            AREAS.put(key, new Area(key, trimmed, min, max, colorRgba, enabled, highlight, null, null));
+            reindexAreas();
         }
 
         if (globallyEnabled) ensureLogFilesExistAsync();
@@ -175,12 +226,105 @@ public class BlockAuditManager {
         return true;
     }
 
+    /**
+     * Adds a box or prism to an area, or cuts one from it. A plain cuboid area becomes a shape whose
+     * first part is its box.
+     *
+     * @return null on success, otherwise the reason it failed
+     */
+    public static String addAreaPart(String name, AreaShape.Part part) {
+        if (name == null) return "No such area.";
+        String key = normalizeKey(name);
+        Area updated;
+        synchronized (AREAS) {
+            Area a = AREAS.get(key);
+            if (a == null) return "No such area: " + name;
+            List<AreaShape.Part> parts = new ArrayList<>();
+            if (a.shapeParts != null) {
+                parts.addAll(a.shapeParts);
+            } else {
+                parts.add(AreaShape.Part.box(false, a.min.getX(), a.min.getY(), a.min.getZ(), a.max.getX(), a.max.getY(), a.max.getZ()));
+            }
+            parts.add(part);
+            int[] b;
+            try {
+                b = AreaShape.bounds(parts);
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+            updated = new Area(a.key, a.name, new BlockPos(b[0], b[1], b[2]), new BlockPos(b[3], b[4], b[5]),
+                    a.colorRgba, a.enabled, a.highlight, java.util.Collections.unmodifiableList(parts), a.shape);
+            AREAS.put(key, updated);
+            reindexAreas();
+        }
+        compileShapeAsync(updated);
+        saveAreaToDiskAsync();
+        return null;
+    }
+
+    /**
+     * Compiles an area's shape in the background and swaps it in, unless the area changed meanwhile
+     * (the change starts its own compile).
+     */
+    private static void compileShapeAsync(Area area) {
+        SHAPE_EXECUTOR.execute(() -> {
+            AreaShape shape;
+            try {
+                shape = new AreaShape(area.shapeParts);
+            } catch (IllegalArgumentException e) {
+                System.err.println("[HousingLogs] Failed to compile the shape of area " + area.name + ": " + e.getMessage());
+                return;
+            }
+            synchronized (AREAS) {
+                Area current = AREAS.get(area.key);
+                if (current == null || current.shapeParts != area.shapeParts) return;
+                AREAS.put(area.key, new Area(current.key, current.name, current.min, current.max, current.colorRgba, current.enabled,
+                        current.highlight, current.shapeParts, shape));
+                reindexAreas();
+            }
+        });
+    }
+
+    /**
+     * Turns a shaped area back into a plain cuboid over its current bounds.
+     */
+    public static boolean resetAreaShape(String name) {
+        if (name == null) return false;
+        String key = normalizeKey(name);
+        synchronized (AREAS) {
+            Area a = AREAS.get(key);
+            if (a == null || a.shapeParts == null) return false;
+            AREAS.put(key, new Area(a.key, a.name, a.min, a.max, a.colorRgba, a.enabled, a.highlight, null, null));
+            reindexAreas();
+        }
+        saveAreaToDiskAsync();
+        return true;
+    }
+
+    /**
+     * @return the shape's container counts {full, array, bitmap}, an empty array while it is being
+     * compiled, or null for a cuboid or unknown area
+     */
+    public static int[] getAreaShapeStats(String name) {
+        if (name == null) return null;
+        synchronized (AREAS) {
+            Area a = AREAS.get(normalizeKey(name));
+            if (a == null || a.shapeParts == null) return null;
+            return a.shapeCompiled() ? a.shape.sectionStats() : new int[0];
+        }
+    }
+
+    private static int shapeParts(Area a) {
+        return a.shapeParts == null ? 0 : a.shapeParts.size();
+    }
+
     public static boolean removeArea(String name) {
         if (name == null) return false;
         String key = normalizeKey(name);
         boolean removed;
         synchronized (AREAS) {
             removed = AREAS.remove(key) != null;
+            reindexAreas();
         }
         if (removed) saveAreaToDiskAsync();
         return removed;
@@ -189,6 +333,7 @@ public class BlockAuditManager {
     public static void clearAreas() {
         synchronized (AREAS) {
             AREAS.clear();
+            reindexAreas();
         }
         recentBreakers.clear();
         saveAreaToDiskAsync();
@@ -200,7 +345,8 @@ public class BlockAuditManager {
         synchronized (AREAS) {
             Area a = AREAS.get(key);
             if (a == null) return false;
-            AREAS.put(key, new Area(a.key, a.name, a.min, a.max, a.colorRgba, a.enabled, !a.highlight));
+            AREAS.put(key, new Area(a.key, a.name, a.min, a.max, a.colorRgba, a.enabled, !a.highlight, a.shapeParts, a.shape));
+            reindexAreas();
         }
         saveAreaToDiskAsync();
         return true;
@@ -212,7 +358,8 @@ public class BlockAuditManager {
         synchronized (AREAS) {
             Area a = AREAS.get(key);
             if (a == null) return false;
-            AREAS.put(key, new Area(a.key, a.name, a.min, a.max, a.colorRgba, a.enabled, highlight));
+            AREAS.put(key, new Area(a.key, a.name, a.min, a.max, a.colorRgba, a.enabled, highlight, a.shapeParts, a.shape));
+            reindexAreas();
         }
         saveAreaToDiskAsync();
         return true;
@@ -222,44 +369,190 @@ public class BlockAuditManager {
         synchronized (AREAS) {
             List<AreaSnapshot> out = new ArrayList<>(AREAS.size());
             for (Area a : AREAS.values()) {
-                out.add(new AreaSnapshot(a.name, a.min, a.max, a.colorRgba, a.enabled, a.highlight));
+                out.add(new AreaSnapshot(a.name, a.min, a.max, a.colorRgba, a.enabled, a.highlight, shapeParts(a)));
             }
             return out;
         }
     }
 
+    /**
+     * @return the area with this name (case-insensitive), or null
+     */
+    public static AreaSnapshot getAreaSnapshot(String name) {
+        if (name == null) return null;
+        String key = normalizeKey(name);
+        synchronized (AREAS) {
+            Area a = AREAS.get(key);
+            return a == null ? null : new AreaSnapshot(a.name, a.min, a.max, a.colorRgba, a.enabled, a.highlight, shapeParts(a));
+        }
+    }
+
     public static List<AreaSnapshot> getHighlightAreasSnapshot() {
         synchronized (AREAS) {
             List<AreaSnapshot> out = new ArrayList<>();
             for (Area a : AREAS.values()) {
                 if (!a.highlight) continue;
-                out.add(new AreaSnapshot(a.name, a.min, a.max, a.colorRgba, a.enabled, true));
+                out.add(new AreaSnapshot(a.name, a.min, a.max, a.colorRgba, a.enabled, true, shapeParts(a)));
             }
             return out;
         }
     }
 
+    /**
+     * @return when a change was last logged in this area during this session, or 0
+     */
+    public static long getLastChangeMs(String name) {
+        if (name == null) return 0L;
+        synchronized (lastChangeMs) {
+            Long ms = lastChangeMs.get(normalizeKey(name));
+            return ms == null ? 0L : ms;
+        }
+    }
+
     public static File getJsonlLogFile() {
-        return LOG_FILE;
+        return new File(getPartitionDir(), JsonlAuditSink.LOG_FILE_NAME);
     }
 
     public static File getTextLogFile() {
-        return LOG_FILE_TEXT;
+        return new File(getPartitionDir(), JsonlAuditSink.TEXT_LOG_FILE_NAME);
     }
 
     public static File getAreaFile() {
-        return AREA_FILE;
+        return new File(getPartitionDir(), AREA_FILE_NAME);
+    }
+
+    /**
+     * @return the current house partition, or "" when no house has been identified
+     */
+    public static String getPartition() {
+        return partition;
+    }
+
+    /**
+     * Directory holding the current partition's areas, logs and snapshots.
+     */
+    public static File getPartitionDir() {
+        return partitionDir(partition);
+    }
+
+    /**
+     * Directory of any partition, for querying a house other than the current one.
+     */
+    static File partitionDir(String p) {
+        return p.isEmpty() ? configDir : new File(configDir, HOUSES_DIR + "/" + p);
+    }
+
+    /**
+     * Names of the houses that have their own partition, sorted.
+     */
+    public static List<String> listPartitions() {
+        List<String> out = new ArrayList<>();
+        File[] dirs = new File(configDir, HOUSES_DIR).listFiles(File::isDirectory);
+        if (dirs != null) {
+            for (File d : dirs) out.add(d.getName());
+        }
+        java.util.Collections.sort(out);
+        return out;
+    }
+
+    /**
+     * Lower-cased and reduced to file-name characters; "" if nothing usable is left.
+     */
+    public static String normalizePartition(String house) {
+        if (house == null) return "";
+        String s = house.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_.-]+", "_");
+        s = s.replaceAll("^[_.]+|_+$", "");
+        return s.length() > 48 ? s.substring(0, 48) : s;
+    }
+
+    /**
+     * Switches areas, logs and snapshots to another house's partition ("" for the shared default one).
+     * Called on the client thread. The global enabled flag is kept.
+     *
+     * @return true if the partition changed
+     */
+    public static boolean usePartition(String house) {
+        String next = normalizePartition(house);
+        if (next.equals(partition)) return false;
+        partition = next;
+        synchronized (AREAS) {
+            AREAS.clear();
+            reindexAreas();
+        }
+        synchronized (recentBreakers) {
+            recentBreakers.clear();
+        }
+        synchronized (lastChangeMs) {
+            lastChangeMs.clear();
+        }
+        loadAreas(getAreaFile(), false);
+        LOG_EXECUTOR.execute(ActivityRollups::persistAll);
+        return true;
+    }
+
+    /**
+     * Runs a task on the log thread, behind the writes already queued.
+     */
+    static void runOnLogThread(Runnable task) {
+        LOG_EXECUTOR.execute(task);
+    }
+
+    /**
+     * @return "jsonl" or "h2"
+     */
+    public static String getStorage() {
+        return sink.name();
+    }
+
+    static AuditSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Where the current partition's events are stored (the JSONL file or the database file).
+     */
+    public static File getStorageFile() {
+        return sink instanceof H2AuditSink ? H2AuditSink.databaseFile(getPartitionDir()) : getJsonlLogFile();
+    }
+
+    /**
+     * Switches the storage backend. Queued events are written to the old one first.
+     *
+     * @return false if the name is unknown or its backend is not available
+     */
+    public static boolean setStorage(String name) {
+        AuditSink next;
+        if ("jsonl".equalsIgnoreCase(name)) {
+            next = new JsonlAuditSink();
+        } else if ("h2".equalsIgnoreCase(name) && H2AuditSink.isAvailable()) {
+            next = new H2AuditSink();
+        } else {
+            return false;
+        }
+        LOG_EXECUTOR.execute(() -> {
+            flushPending();
+            sink.close();
+            sink = next;
+        });
+        saveSettingsAsync();
+        return true;
+    }
+
+    /**
+     * Calls the consumer with the current partition's logged events of one area with
+     * fromMs &lt; tsMs &lt;= toMs, oldest first. Call off the client thread.
+     */
+    public static void readEvents(String areaName, long fromMs, long toMs, java.util.function.Consumer<JsonObject> consumer) throws IOException {
+        sink.forEachInRange(getPartitionDir(), areaName, fromMs, toMs, consumer);
     }
 
     private static void ensureLogFilesExistAsync() {
+        final File dir = getPartitionDir();
         LOG_EXECUTOR.execute(() -> {
+            if (!(sink instanceof JsonlAuditSink)) return;
             try {
-                LOG_FILE.getParentFile().mkdirs();
-                // Touch files (create if missing)
-                try (Writer ignored = new OutputStreamWriter(new FileOutputStream(LOG_FILE, true), StandardCharsets.UTF_8)) {
-                }
-                try (Writer ignored = new OutputStreamWriter(new FileOutputStream(LOG_FILE_TEXT, true), StandardCharsets.UTF_8)) {
-                }
+                // Opening creates the files if missing; the writers stay in the pool.
+                ((JsonlAuditSink) sink).touch(dir);
             } catch (IOException e) {
                 System.err.println("[HousingLogs] Failed to create block audit log files: " + e.getMessage());
             }
@@ -268,18 +561,60 @@ public class BlockAuditManager {
 
         private static List<Area> snapshotMatchingAreas(BlockPos pos) {
             if (pos == null) return null;
-            synchronized (AREAS) {
-                if (AREAS.isEmpty()) return null;
-                List<Area> out = null;
-                for (Area a : AREAS.values()) {
-                    if (!a.enabled) continue;
-                    if (!a.contains(pos)) continue;
-                    if (out == null) out = new ArrayList<>();
-                    out.add(a);
-                }
-                return out;
+            return areaIndex.matching(pos.getX(), pos.getY(), pos.getZ());
+        }
+
+    /**
+     * Rebuilds {@link #areaIndex} from AREAS; callers hold the AREAS lock. A shaped area is matched
+     * by the shape compiled so far, within that shape's bounds; one never compiled is left out.
+     */
+    private static void reindexAreas() {
+        AreaIndex.Builder<Area> b = new AreaIndex.Builder<>();
+        for (Area a : AREAS.values()) {
+            if (!a.enabled) continue;
+            if (a.shapeParts == null) {
+                b.add(a.min.getX(), a.min.getY(), a.min.getZ(), a.max.getX(), a.max.getY(), a.max.getZ(), null, a);
+            } else if (a.shape != null) {
+                AreaShape s = a.shape;
+                b.add(s.minX, s.minY, s.minZ, s.maxX, s.maxY, s.maxZ, s, a);
             }
         }
+        areaIndex = b.build();
+    }
+
+    /**
+     * Called from the PlayerControllerMP hook (main thread) around our own block actions; changes in
+     * between are attributed to the local player without the look heuristic.
+     */
+    public static void beginLocalAction() {
+        // Bounded, so an action that throws before endLocalAction cannot leave it set.
+        localActionUntilNs = System.nanoTime() + 50_000_000L;
+    }
+
+    public static void endLocalAction() {
+        localActionUntilNs = 0L;
+    }
+
+    private static void noteLocalEcho(BlockPos pos, IBlockState predicted) {
+        long now = System.currentTimeMillis();
+        if (localEchoes.size() >= 256) {
+            localEchoes.values().removeIf(e -> e.untilMs < now);
+        }
+        localEchoes.put(new BlockPos(pos), new LocalEcho(predicted, now + LOCAL_ECHO_WINDOW_MS));
+    }
+
+    /**
+     * Whether a change is the server confirming our own prediction at pos. Each prediction is
+     * confirmed at most once; any other state (a different rotation, or someone else's change right
+     * after ours) is logged like any other change.
+     */
+    private static boolean isLocalEcho(BlockPos pos, IBlockState newState) {
+        if (localEchoes.isEmpty()) return false;
+        LocalEcho echo = localEchoes.remove(pos);
+        if (echo == null) return false;
+        // Block states are interned per block, so identity is full-state equality.
+        return echo.untilMs >= System.currentTimeMillis() && echo.predicted == newState;
+    }
 
     /**
      * Called from packet hook (main thread). Associates a breaker with a position when a break animation finishes.
@@ -321,28 +656,16 @@ public class BlockAuditManager {
         if (oldState == null || newState == null) return;
         if (oldState == newState) return;
 
-        String action;
         boolean oldAir = oldState.getBlock().getMaterial().isReplaceable() || oldState.getBlock().isAir(Minecraft.getMinecraft().theWorld, pos);
         boolean newAir = newState.getBlock().getMaterial().isReplaceable() || newState.getBlock().isAir(Minecraft.getMinecraft().theWorld, pos);
 
-        if (oldAir && !newAir) action = "PLACE";
-        else if (!oldAir && newAir) action = "BREAK";
-        else action = "CHANGE";
-
-        UUID actorUuid = null;
-        String actorName = null;
-        String attribution = "unknown";
-
-        if ("BREAK".equals(action)) {
-            BreakAttribution ba;
-            synchronized (recentBreakers) {
-                ba = recentBreakers.get(pos);
-            }
-            if (ba != null && (System.currentTimeMillis() - ba.atMs) <= BREAK_ATTRIBUTION_WINDOW_MS) {
-                actorUuid = ba.uuid;
-                actorName = ba.name;
-                attribution = "break_anim";
-            }
+        // Our own place/break/use: the client predicts it, so we know who did it; the server's
+        // confirmation then arrives as a second change that would only duplicate it.
+        boolean local = System.nanoTime() < localActionUntilNs;
+        if (local) {
+            noteLocalEcho(pos, newState);
+        } else if (isLocalEcho(pos, newState)) {
+            return;
         }
 
         // Snapshot fields on the main thread; do heuristic + JSON + file I/O off-thread.
@@ -350,6 +673,27 @@ public class BlockAuditManager {
         final int x = pos.getX();
         final int y = pos.getY();
         final int z = pos.getZ();
+        final int oldBlockId = Block.getIdFromBlock(oldState.getBlock());
+        final int newBlockId = Block.getIdFromBlock(newState.getBlock());
+
+        final Attribution attribution = new Attribution(oldAir, newAir, x, y, z, newBlockId, tsMs);
+        EntityPlayer self = Minecraft.getMinecraft().thePlayer;
+        Vec3 look = self == null ? null : self.getLookVec();
+        if (look != null) {
+            attribution.self(self.getUniqueID(), self.getName(), self.posX, self.posY + self.getEyeHeight(), self.posZ,
+                    look.xCoord, look.yCoord, look.zCoord, PacketCapture.heldBlockId(self.getHeldItem()));
+        }
+        BreakAttribution ba;
+        synchronized (recentBreakers) {
+            ba = recentBreakers.get(pos);
+        }
+        if (ba != null) attribution.breaker(ba.uuid, ba.name, ba.atMs);
+        attribution.observe(local, allowHeuristic, PlayerStateTable.INSTANCE, SoundIndex.INSTANCE);
+        final String actionFinal = attribution.action;
+
+        if (PacketCapture.INSTANCE.isRecording()) {
+            PacketCapture.INSTANCE.block(pos, oldState, oldAir, newState, newAir, local, allowHeuristic, attribution.name, attribution.attribution);
+        }
 
         Integer dimension = null;
         try {
@@ -364,60 +708,50 @@ public class BlockAuditManager {
         final BlockStateSnapshot oldSnap = snapshotState(oldState);
         final BlockStateSnapshot newSnap = snapshotState(newState);
 
-        final List<PlacementCandidate> candidates;
-        if (allowHeuristic && ("PLACE".equals(action) || "BREAK".equals(action)) && actorUuid == null) {
-            candidates = snapshotPlacementCandidates(pos, newState);
-        } else {
-            candidates = null;
-        }
-
-        final List<NearbyPlayerSnapshot> nearbyPlayers;
-        if ("BREAK".equals(action) && actorUuid == null) {
+        final List<AttributionScorer.NearbyPlayerSnapshot> nearbyPlayers;
+        if ("BREAK".equals(actionFinal) && attribution.uncertain()) {
             nearbyPlayers = snapshotNearbyPlayers(pos, UNKNOWN_BREAK_NEARBY_RADIUS);
         } else {
             nearbyPlayers = null;
         }
 
-        final UUID initialActorUuid = actorUuid;
-        final String initialActorName = actorName;
-        final String initialAttribution = attribution;
-        final String actionFinal = action;
+        final String partitionFinal = partition;
         final List<String> areaNames;
+        final List<String> areaKeys;
         {
             List<String> tmp = new ArrayList<>(matchingAreas.size());
-            for (Area a : matchingAreas) {
-                tmp.add(a.name);
+            List<String> keys = new ArrayList<>(matchingAreas.size());
+            synchronized (lastChangeMs) {
+                for (Area a : matchingAreas) {
+                    tmp.add(a.name);
+                    keys.add(a.key);
+                    lastChangeMs.put(a.key, tsMs);
+                }
             }
             areaNames = tmp;
+            areaKeys = keys;
         }
 
         LOG_EXECUTOR.execute(() -> {
-            UUID finalActorUuid = initialActorUuid;
-            String finalActorName = initialActorName;
-            String finalAttribution = initialAttribution;
-
-            if (candidates != null && !candidates.isEmpty()) {
-                PlacementGuess guess = guessActorFromCandidates(x, y, z, newSnap, candidates, "BREAK".equals(actionFinal));
-                if (guess != null) {
-                    finalActorUuid = guess.uuid;
-                    finalActorName = guess.name;
-                    if ("BREAK".equals(actionFinal)) {
-                        finalAttribution = "heuristic_break";
-                    } else {
-                        finalAttribution = guess.itemMatch ? "heuristic_look_item" : "heuristic_look";
-                    }
-                }
-            }
+            attribution.resolve();
+            UUID finalActorUuid = attribution.uuid;
+            String finalActorName = attribution.name;
+            String finalAttribution = attribution.attribution;
+            String soundFinal = attribution.sound;
+
+            AlertRules.INSTANCE.evaluate(actionFinal, oldBlockId, newBlockId, areaKeys, areaNames, finalActorName, x, y, z, tsMs);
+            SpikeDetector.INSTANCE.record(actionFinal, areaNames, finalActorName, tsMs);
 
             for (String areaName : areaNames) {
                 JsonObject entry = makeEntry(areaName, tsMs, x, y, z, dimensionFinal, actionFinal, oldSnap, newSnap, finalActorUuid, finalActorName, finalAttribution);
+                if (soundFinal != null) entry.addProperty("sound", soundFinal);
 
                 if ("BREAK".equals(actionFinal)
                         && (finalActorUuid == null || finalActorName == null)
                         && nearbyPlayers != null
                         && !nearbyPlayers.isEmpty()) {
                     com.google.gson.JsonArray arr = new com.google.gson.JsonArray();
-                    for (NearbyPlayerSnapshot np : nearbyPlayers) {
+                    for (AttributionScorer.NearbyPlayerSnapshot np : nearbyPlayers) {
                         JsonObject p = new JsonObject();
                         if (np.uuid != null) p.addProperty("uuid", np.uuid.toString());
                         if (np.name != null) p.addProperty("name", np.name);
@@ -427,7 +761,33 @@ public class BlockAuditManager {
                     entry.add("nearbyPlayers", arr);
                 }
 
-                appendLogLine(entry);
+                appendLogLine(partitionFinal, entry);
+            }
+        });
+    }
+
+    /**
+     * Logs blocks found changed while nobody was watching (see {@link OfflineChangeDetector}). There is
+     * no actor to attribute, so entries carry attribution "observed_offline".
+     */
+    static void noteObservedChanges(String areaName, List<AreaBlockSnapshot.Change> changes, long tsMs) {
+        if (changes == null || changes.isEmpty()) return;
+        synchronized (lastChangeMs) {
+            lastChangeMs.put(normalizeKey(areaName), tsMs);
+        }
+
+        final String partitionFinal = partition;
+        // Registry lookups only; safe on the log thread.
+        LOG_EXECUTOR.execute(() -> {
+            for (AreaBlockSnapshot.Change c : changes) {
+                IBlockState oldState = Block.getStateById(c.oldState);
+                IBlockState newState = Block.getStateById(c.newState);
+                if (oldState == null || newState == null) continue;
+                boolean oldAir = oldState.getBlock().getMaterial().isReplaceable();
+                boolean newAir = newState.getBlock().getMaterial().isReplaceable();
+                String action = oldAir && !newAir ? "PLACE" : !oldAir && newAir ? "BREAK" : "CHANGE";
+                appendLogLine(partitionFinal, makeEntry(areaName, tsMs, c.pos.getX(), c.pos.getY(), c.pos.getZ(), null, action,
+                        snapshotState(oldState), snapshotState(newState), null, null, "observed_offline"));
             }
         });
     }
@@ -442,53 +802,6 @@ public class BlockAuditManager {
         }
     }
 
-    private static class PlacementCandidate {
-        final UUID uuid;
-        final String name;
-        final double eyeX, eyeY, eyeZ;
-        final double lookX, lookY, lookZ;
-        final boolean itemMatch;
-
-        private PlacementCandidate(UUID uuid, String name,
-                                  double eyeX, double eyeY, double eyeZ,
-                                  double lookX, double lookY, double lookZ,
-                                  boolean itemMatch) {
-            this.uuid = uuid;
-            this.name = name;
-            this.eyeX = eyeX;
-            this.eyeY = eyeY;
-            this.eyeZ = eyeZ;
-            this.lookX = lookX;
-            this.lookY = lookY;
-            this.lookZ = lookZ;
-            this.itemMatch = itemMatch;
-        }
-    }
-
-    private static class PlacementGuess {
-        final UUID uuid;
-        final String name;
-        final boolean itemMatch;
-
-        private PlacementGuess(UUID uuid, String name, boolean itemMatch) {
-            this.uuid = uuid;
-            this.name = name;
-            this.itemMatch = itemMatch;
-        }
-    }
-
-    private static class NearbyPlayerSnapshot {
-        final UUID uuid;
-        final String name;
-        final double dist;
-
-        NearbyPlayerSnapshot(UUID uuid, String name, double dist) {
-            this.uuid = uuid;
-            this.name = name;
-            this.dist = dist;
-        }
-    }
-
     private static BlockStateSnapshot snapshotState(IBlockState state) {
         try {
             Block block = state.getBlock();
@@ -506,7 +819,7 @@ public class BlockAuditManager {
         }
     }
 
-    private static List<PlacementCandidate> snapshotPlacementCandidates(BlockPos pos, IBlockState newState) {
+    private static List<AttributionScorer.NearbyPlayerSnapshot> snapshotNearbyPlayers(BlockPos pos, double radius) {
         Minecraft mc = Minecraft.getMinecraft();
         if (mc == null || mc.theWorld == null) return null;
 
@@ -514,263 +827,139 @@ public class BlockAuditManager {
         double cy = pos.getY() + 0.5;
         double cz = pos.getZ() + 0.5;
 
-        List<PlacementCandidate> out = new ArrayList<>();
-
-        for (Object obj : mc.theWorld.playerEntities) {
-            if (!(obj instanceof EntityPlayer)) continue;
-            EntityPlayer p = (EntityPlayer) obj;
-
-            double eyeX = p.posX;
-            double eyeY = p.posY + p.getEyeHeight();
-            double eyeZ = p.posZ;
+        List<AttributionScorer.NearbyPlayerSnapshot> out = new ArrayList<>();
+        PlayerStateTable.INSTANCE.collectNearby(cx, cy, cz, radius, out);
 
-            double dx = cx - eyeX;
-            double dy = cy - eyeY;
-            double dz = cz - eyeZ;
-            double distSq = dx * dx + dy * dy + dz * dz;
-            if (distSq <= 0.0001) continue;
-            if (distSq > (PLACER_MAX_DIST * PLACER_MAX_DIST)) continue;
-
-            Vec3 look = p.getLookVec();
-            if (look == null) continue;
-
-            boolean itemMatch = false;
-            try {
-                ItemStack held = p.getHeldItem();
-                if (held != null) {
-                    Item item = held.getItem();
-                    Block heldBlock = Block.getBlockFromItem(item);
-                    if (heldBlock != null && heldBlock == newState.getBlock()) {
-                        itemMatch = true;
-                    }
-                }
-            } catch (Throwable ignored) {
-            }
-
-            out.add(new PlacementCandidate(
-                    p.getUniqueID(),
-                    p.getName(),
-                    eyeX, eyeY, eyeZ,
-                    look.xCoord, look.yCoord, look.zCoord,
-                    itemMatch
-            ));
-        }
-
-        return out;
-    }
-
-    private static List<NearbyPlayerSnapshot> snapshotNearbyPlayers(BlockPos pos, double radius) {
-        Minecraft mc = Minecraft.getMinecraft();
-        if (mc == null || mc.theWorld == null) return null;
-
-        double cx = pos.getX() + 0.5;
-        double cy = pos.getY() + 0.5;
-        double cz = pos.getZ() + 0.5;
-        double r2 = radius * radius;
-
-        List<NearbyPlayerSnapshot> out = new ArrayList<>();
-
-        for (Object obj : mc.theWorld.playerEntities) {
-            if (!(obj instanceof EntityPlayer)) continue;
-            EntityPlayer p = (EntityPlayer) obj;
-
-            double dx = cx - p.posX;
-            double dy = cy - p.posY;
-            double dz = cz - p.posZ;
+        EntityPlayer self = mc.thePlayer;
+        if (self != null) {
+            double dx = cx - self.posX;
+            double dy = cy - self.posY;
+            double dz = cz - self.posZ;
             double d2 = dx * dx + dy * dy + dz * dz;
-            if (d2 > r2) continue;
-
-            out.add(new NearbyPlayerSnapshot(p.getUniqueID(), p.getName(), Math.sqrt(d2)));
+            if (d2 <= radius * radius) out.add(new AttributionScorer.NearbyPlayerSnapshot(self.getUniqueID(), self.getName(), Math.sqrt(d2)));
         }
 
         out.sort((a, b) -> Double.compare(a.dist, b.dist));
         return out;
     }
 
-    private static PlacementGuess guessActorFromCandidates(int x, int y, int z, BlockStateSnapshot newSnap, List<PlacementCandidate> candidates, boolean isBreak) {
-        if (candidates == null || candidates.isEmpty()) return null;
-
-        double cx = x + 0.5;
-        double cy = y + 0.5;
-        double cz = z + 0.5;
-
-        PlacementCandidate best = null;
-        double bestScore = Double.NEGATIVE_INFINITY;
-
-        for (PlacementCandidate c : candidates) {
-            double dx = cx - c.eyeX;
-            double dy = cy - c.eyeY;
-            double dz = cz - c.eyeZ;
-            double distSq = dx * dx + dy * dy + dz * dz;
-            if (distSq <= 0.0001) continue;
-
-            double dist = Math.sqrt(distSq);
-            if (dist > PLACER_MAX_DIST) continue;
-
-            // More stable heuristic:
-            // - Use distance from the player's view ray to the block center (perpendicular distance)
-            // - Keep a mild dot-product gate to avoid behind-the-player guesses
-            double lookLenSq = (c.lookX * c.lookX) + (c.lookY * c.lookY) + (c.lookZ * c.lookZ);
-            if (lookLenSq <= 0.0001) continue;
-            double invLookLen = 1.0 / Math.sqrt(lookLenSq);
-            double lx = c.lookX * invLookLen;
-            double ly = c.lookY * invLookLen;
-            double lz = c.lookZ * invLookLen;
-
-            double dot = (lx * dx + ly * dy + lz * dz) / dist; // cos(angle)
-            if (dot < (isBreak ? BREAKER_LOOK_DOT_MIN : PLACER_LOOK_DOT_MIN)) continue;
-
-            double t = (lx * dx) + (ly * dy) + (lz * dz); // projection length along ray (in blocks)
-            if (t < 0.0) continue;
-
-            double closestX = c.eyeX + (lx * t);
-            double closestY = c.eyeY + (ly * t);
-            double closestZ = c.eyeZ + (lz * t);
-            double pdx = cx - closestX;
-            double pdy = cy - closestY;
-            double pdz = cz - closestZ;
-            double perpDistSq = (pdx * pdx) + (pdy * pdy) + (pdz * pdz);
-
-            double maxPerp = isBreak ? 2.25 : 1.75; // squared distance to ray; break is a bit looser
-            if (perpDistSq > maxPerp) continue;
-
-            double score = 2.2 * dot;
-            score -= (dist / PLACER_MAX_DIST);
-            score -= (perpDistSq * (isBreak ? 0.75 : 0.95));
-            if (!isBreak && c.itemMatch) score += 0.35;
-
-            if (score > bestScore) {
-                bestScore = score;
-                best = c;
-            }
-        }
-
-        if (best == null) return null;
-        if (bestScore < 0.25) return null;
-        return new PlacementGuess(best.uuid, best.name, best.itemMatch);
-    }
-
     private static JsonObject makeEntry(String areaName, long tsMs, int x, int y, int z, Integer dimension, String action,
                                         BlockStateSnapshot oldSnap, BlockStateSnapshot newSnap,
                                         UUID actorUuid, String actorName, String attribution) {
-        JsonObject obj = new JsonObject();
-        obj.addProperty("tsMs", tsMs);
-        if (areaName != null) obj.addProperty("area", areaName);
-        obj.addProperty("action", action);
-        obj.addProperty("x", x);
-        obj.addProperty("y", y);
-        obj.addProperty("z", z);
-        obj.addProperty("inHousing", true);
-        if (dimension != null) obj.addProperty("dimension", dimension);
-
-        obj.addProperty("oldBlock", oldSnap.block);
-        obj.addProperty("oldMeta", oldSnap.meta);
-        obj.addProperty("newBlock", newSnap.block);
-        obj.addProperty("newMeta", newSnap.meta);
-
-        if (actorUuid != null) obj.addProperty("playerUuid", actorUuid.toString());
-        if (actorName != null) obj.addProperty("playerName", actorName);
-        obj.addProperty("attribution", attribution);
-
-        return obj;
-    }
-
-    private static void appendLogLine(JsonObject entry) {
-        final String line = GSON.toJson(entry);
-        try {
-            LOG_FILE.getParentFile().mkdirs();
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(LOG_FILE, true), StandardCharsets.UTF_8)) {
-                writer.write(line);
-                writer.write("\n");
-            }
+        return new AuditEvent(areaName, tsMs, x, y, z, dimension, action, oldSnap.block, oldSnap.meta,
+                newSnap.block, newSnap.meta, actorUuid, actorName, attribution).toJson();
+    }
 
-            // Also write a human-readable .log line for "tail"-style viewing.
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(LOG_FILE_TEXT, true), StandardCharsets.UTF_8)) {
-                writer.write(toTextLine(entry));
-                writer.write("\n");
-            }
-        } catch (IOException e) {
-            System.err.println("[HousingLogs] Failed to write block audit log: " + e.getMessage());
-        }
+    /**
+     * Queues an entry for the sink (log thread only), after noise filtering. The first entry of a batch schedules the flush
+     * behind the work already queued, so a burst of changes (a //set echoing back, a chunk's worth of
+     * offline changes) is stored in one write or transaction.
+     */
+    private static void appendLogLine(String partition, JsonObject entry) {
+        NoiseFilter.INSTANCE.filter(partition, entry);
     }
 
-    private static String toTextLine(JsonObject entry) {
-        // Format example:
-        // [12:34:56] PLACE (x,y,z) stone:0 -> wool:14 player=Name uuid=... attr=heuristic_look
-        StringBuilder sb = new StringBuilder();
-        try {
-            long ts = entry.has("tsMs") ? entry.get("tsMs").getAsLong() : 0L;
-            sb.append('[').append(TEXT_LOG_TIME.format(new java.util.Date(ts))).append("] ");
+    /**
+     * Log thread: queues an entry that has been through the {@link NoiseFilter}.
+     */
+    static void queueForSink(String partition, JsonObject entry) {
+        List<JsonObject> batch = PENDING.get(partition);
+        if (batch == null) {
+            batch = new ArrayList<>();
+            PENDING.put(partition, batch);
+        }
+        batch.add(entry);
+        if (batch.size() >= MAX_BATCH) {
+            flushPending();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            LOG_EXECUTOR.execute(BlockAuditManager::flushPending);
+        }
+    }
 
-            if (entry.has("area")) {
-                sb.append('[').append(entry.get("area").getAsString()).append("] ");
+    private static void flushPending() {
+        flushScheduled = false;
+        for (Map.Entry<String, List<JsonObject>> e : PENDING.entrySet()) {
+            try {
+                sink.write(partitionDir(e.getKey()), e.getValue());
+            } catch (IOException ex) {
+                System.err.println("[HousingLogs] Failed to write block audit log: " + ex.getMessage());
             }
-
-            sb.append(entry.has("action") ? entry.get("action").getAsString() : "?");
-            sb.append(" (");
-            sb.append(entry.has("x") ? entry.get("x").getAsInt() : 0).append(',');
-            sb.append(entry.has("y") ? entry.get("y").getAsInt() : 0).append(',');
-            sb.append(entry.has("z") ? entry.get("z").getAsInt() : 0).append(')');
-            sb.append(' ');
-            sb.append(entry.has("oldBlock") ? entry.get("oldBlock").getAsString() : "?");
-            sb.append(':');
-            sb.append(entry.has("oldMeta") ? entry.get("oldMeta").getAsInt() : 0);
-            sb.append(" -> ");
-            sb.append(entry.has("newBlock") ? entry.get("newBlock").getAsString() : "?");
-            sb.append(':');
-            sb.append(entry.has("newMeta") ? entry.get("newMeta").getAsInt() : 0);
-
-            if (entry.has("playerName")) {
-                sb.append(" player=").append(entry.get("playerName").getAsString());
-            } else {
-                sb.append(" player=unknown");
+            ActivityRollups.record(e.getKey(), partitionDir(e.getKey()), e.getValue());
+            if (LogTail.INSTANCE.isActive()) {
+                for (JsonObject entry : e.getValue()) {
+                    LogTail.INSTANCE.offer(entry);
+                }
             }
+        }
+        PENDING.clear();
+    }
 
-            if (entry.has("playerUuid")) {
-                sb.append(" uuid=").append(entry.get("playerUuid").getAsString());
-            }
 
-            sb.append(" attr=").append(entry.has("attribution") ? entry.get("attribution").getAsString() : "unknown");
+    public static void loadAreaFromDisk(File configDir) {
+        BlockAuditManager.configDir = configDir;
+        loadAreas(getAreaFile(), true);
+        loadSettings();
+    }
 
-            if (entry.has("nearbyPlayers") && entry.get("nearbyPlayers").isJsonArray()) {
-                com.google.gson.JsonArray arr = entry.getAsJsonArray("nearbyPlayers");
-                if (arr.size() > 0) {
-                    sb.append(" nearby=[");
-                    int limit = Math.min(arr.size(), 12);
-                    for (int i = 0; i < limit; i++) {
-                        if (i > 0) sb.append(", ");
-                        if (!arr.get(i).isJsonObject()) continue;
-                        JsonObject p = arr.get(i).getAsJsonObject();
-                        String n = p.has("name") ? p.get("name").getAsString() : "?";
-                        double d = p.has("dist") ? p.get("dist").getAsDouble() : -1.0;
-                        sb.append(n);
-                        if (d >= 0) sb.append('(').append(String.format(java.util.Locale.ROOT, "%.2f", d)).append(')');
-                    }
-                    if (arr.size() > limit) sb.append(", ...");
-                    sb.append(']');
+    /**
+     * Settings that apply to every house: the enabled flag (older versions kept it only in the area
+     * file), the storage backend and the noise filter.
+     */
+    private static void loadSettings() {
+        File file = new File(configDir, SETTINGS_FILE_NAME);
+        if (!file.exists()) return;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            JsonObject obj = GSON.fromJson(reader, JsonObject.class);
+            if (obj == null) return;
+            if (obj.has("enabled")) globallyEnabled = obj.get("enabled").getAsBoolean();
+            if (obj.has("noise")) {
+                java.util.Set<String> classes = new java.util.HashSet<>();
+                for (com.google.gson.JsonElement el : obj.getAsJsonArray("noise")) classes.add(el.getAsString());
+                NoiseFilter.INSTANCE.setSuppressed(classes);
+            }
+            if (obj.has("flipLimit")) NoiseFilter.INSTANCE.setMaxFlips(obj.get("flipLimit").getAsInt());
+            if (obj.has("storage") && "h2".equals(obj.get("storage").getAsString())) {
+                if (H2AuditSink.isAvailable()) {
+                    sink = new H2AuditSink();
+                } else {
+                    System.err.println("[HousingLogs] H2 storage is not available; logging to JSONL.");
                 }
             }
-        } catch (Throwable t) {
-            return lineFallback(entry);
+        } catch (Exception e) {
+            System.err.println("[HousingLogs] Failed to load block audit settings: " + e.getMessage());
         }
-        return sb.toString();
     }
 
-    private static String lineFallback(JsonObject entry) {
-        try {
-            return GSON.toJson(entry);
-        } catch (Throwable t) {
-            return "{\"error\":\"failed_to_format\"}";
+    static void saveSettingsAsync() {
+        final JsonObject obj = new JsonObject();
+        obj.addProperty("enabled", globallyEnabled);
+        com.google.gson.JsonArray noise = new com.google.gson.JsonArray();
+        for (String cls : NoiseFilter.CLASSES) {
+            if (NoiseFilter.INSTANCE.getSuppressed().contains(cls)) noise.add(new com.google.gson.JsonPrimitive(cls));
         }
+        obj.add("noise", noise);
+        obj.addProperty("flipLimit", NoiseFilter.INSTANCE.getMaxFlips());
+        LOG_EXECUTOR.execute(() -> {
+            obj.addProperty("storage", sink.name());
+            try {
+                configDir.mkdirs();
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(configDir, SETTINGS_FILE_NAME)), StandardCharsets.UTF_8)) {
+                    GSON.toJson(obj, writer);
+                }
+            } catch (IOException e) {
+                System.err.println("[HousingLogs] Failed to save block audit settings: " + e.getMessage());
+            }
+        });
     }
 
-    public static void loadAreaFromDisk() {
-        if (!AREA_FILE.exists()) return;
-        try (Reader reader = new InputStreamReader(new FileInputStream(AREA_FILE), StandardCharsets.UTF_8)) {
+    private static void loadAreas(File file, boolean readEnabled) {
+        if (!file.exists()) return;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
             JsonObject obj = GSON.fromJson(reader, JsonObject.class);
             if (obj == null) return;
 
-            globallyEnabled = !obj.has("enabled") || obj.get("enabled").getAsBoolean();
+            if (readEnabled) globallyEnabled = !obj.has("enabled") || obj.get("enabled").getAsBoolean();
 
             synchronized (AREAS) {
                 AREAS.clear();
@@ -800,7 +989,19 @@ public class BlockAuditManager {
                         }
                         if (min == null || max == null) continue;
 
-                        AREAS.put(key, new Area(key, name, min, max, color, enabled, highlight));
+                        List<AreaShape.Part> parts = null;
+                        if (a.has("shape") && a.get("shape").isJsonArray()) {
+                            try {
+                                parts = java.util.Collections.unmodifiableList(AreaShape.partsFromJson(a.getAsJsonArray("shape")));
+                                int[] b = AreaShape.bounds(parts);
+                                min = new BlockPos(b[0], b[1], b[2]);
+                                max = new BlockPos(b[3], b[4], b[5]);
+                            } catch (RuntimeException e) {
+                                System.err.println("[HousingLogs] Ignoring the shape of area " + name + ": " + e.getMessage());
+                                parts = null;
+                            }
+                        }
+                        AREAS.put(key, new Area(key, name, min, max, color, enabled, highlight, parts, null));
                     }
                 } else if (obj.has("min") && obj.has("max")) {
                     // Legacy single-area format migration: store as an area named "default".
@@ -813,9 +1014,13 @@ public class BlockAuditManager {
                         boolean highlight = obj.has("highlight") && obj.get("highlight").getAsBoolean();
                         String name = "default";
                         String key = normalizeKey(name);
-                        AREAS.put(key, new Area(key, name, min, max, DEFAULT_COLOR_RGBA, enabled, highlight));
+                        AREAS.put(key, new Area(key, name, min, max, DEFAULT_COLOR_RGBA, enabled, highlight, null, null));
                     }
                 }
+                reindexAreas();
+                for (Area a : AREAS.values()) {
+                    if (a.shapeParts != null) compileShapeAsync(a);
+                }
             }
 
             if (globallyEnabled && hasAnyEnabledArea()) ensureLogFilesExistAsync();
@@ -848,16 +1053,18 @@ public class BlockAuditManager {
                 mx.addProperty("y", a.max.getY());
                 mx.addProperty("z", a.max.getZ());
                 area.add("max", mx);
+                if (a.shapeParts != null) area.add("shape", AreaShape.toJson(a.shapeParts));
 
                 areasArr.add(area);
             }
         }
         obj.add("areas", areasArr);
 
+        final File file = getAreaFile();
         LOG_EXECUTOR.execute(() -> {
             try {
-                AREA_FILE.getParentFile().mkdirs();
-                try (Writer writer = new OutputStreamWriter(new FileOutputStream(AREA_FILE), StandardCharsets.UTF_8)) {
+                file.getParentFile().mkdirs();
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
                     GSON.toJson(obj, writer);
                 }
             } catch (IOException e) {
@@ -0,0 +1,144 @@
+package com.github.xtimfie.housinglogs;
+
+import com.github.xtimfie.housinglogs.core.ProtoolsChat;
+import net.minecraft.util.BlockPos;
+import net.minecraftforge.client.event.ClientChatReceivedEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single entry point for incoming chat. Each message is classified once (Pro Tools //pos
+ * confirmation, "Slow down" warning, coordinate payload) and handed to every subscribed listener.
+ *
+ * Classification ({@link ProtoolsChat}) only accepts whole system lines, never player chat that
+ * happens to contain the same words. Coordinate regexes (compiled once) only run when a listener
+ * asks for them. When no listener is active, messages are not even unwrapped.
+ */
+final class ChatDispatcher {
+    static final ChatDispatcher INSTANCE = new ChatDispatcher();
+
+    // Common formats: "(x, y, z)", "x: 1 y: 2 z: 3", and a bare "x, y, z" as a last resort.
+    // Keep these conservative to avoid false positives.
+    private static final Pattern COORDS_PAREN = Pattern.compile("\\((-?\\d+)\\s*,\\s*(-?\\d+)\\s*,\\s*(-?\\d+)\\)");
+    private static final Pattern COORDS_LABELLED = Pattern.compile(
+            "x\\s*[:=]\\s*(-?\\d+).{0,24}y\\s*[:=]\\s*(-?\\d+).{0,24}z\\s*[:=]\\s*(-?\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COORDS_BARE = Pattern.compile("(-?\\d+)\\s*,\\s*(-?\\d+)\\s*,\\s*(-?\\d+)");
+
+    interface Listener {
+        /**
+         * Cheap check run before a message is classified; return false while idle.
+         */
+        boolean isListening();
+
+        void onChat(Message message);
+    }
+
+    static final class Message {
+        final String text;
+        final boolean rateLimited;
+        // 1 or 2 for a Pro Tools //pos1 / //pos2 confirmation, 0 otherwise.
+        final int posIndex;
+        private final boolean hasDigits;
+        private boolean coordsParsed;
+        private BlockPos coords;
+
+        private Message(String text, boolean rateLimited, int posIndex, boolean hasDigits) {
+            this.text = text;
+            this.rateLimited = rateLimited;
+            this.posIndex = posIndex;
+            this.hasDigits = hasDigits;
+        }
+
+        /**
+         * First x/y/z triple in the message, or null. Parsed on first use and shared by all listeners.
+         */
+        BlockPos coords() {
+            if (!coordsParsed) {
+                coordsParsed = true;
+                coords = hasDigits ? parseCoords(text) : null;
+            }
+            return coords;
+        }
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private ChatDispatcher() {
+    }
+
+    void subscribe(Listener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @SubscribeEvent
+    public void onChatReceived(ClientChatReceivedEvent event) {
+        if (event == null || event.message == null) return;
+        if (!anyListening()) return;
+
+        String msg;
+        try {
+            msg = event.message.getUnformattedText();
+        } catch (Throwable t) {
+            return;
+        }
+        if (msg == null || msg.isEmpty()) return;
+
+        Message message = classify(msg);
+        for (Listener l : listeners) {
+            if (l.isListening()) l.onChat(message);
+        }
+    }
+
+    private boolean anyListening() {
+        for (Listener l : listeners) {
+            if (l.isListening()) return true;
+        }
+        return false;
+    }
+
+    static Message classify(String msg) {
+        boolean rateLimited = ProtoolsChat.isRateLimited(msg);
+        int posIndex = rateLimited ? 0 : ProtoolsChat.posIndex(msg);
+
+        boolean hasDigits = false;
+        for (int i = 0; i < msg.length(); i++) {
+            char c = msg.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+                break;
+            }
+        }
+        return new Message(msg, rateLimited, posIndex, hasDigits);
+    }
+
+    private static BlockPos parseCoords(String msg) {
+        Matcher m = COORDS_PAREN.matcher(msg);
+        if (m.find()) return toBlockPos(m);
+        m = COORDS_LABELLED.matcher(msg);
+        if (m.find()) return toBlockPos(m);
+        m = COORDS_BARE.matcher(msg);
+        if (m.find()) return toBlockPos(m);
+        return null;
+    }
+
+    private static BlockPos toBlockPos(Matcher m) {
+        try {
+            int x = Integer.parseInt(m.group(1));
+            int y = Integer.parseInt(m.group(2));
+            int z = Integer.parseInt(m.group(3));
+            return new BlockPos(x, y, z);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.xtimfie.housinglogs;
 
+import com.github.xtimfie.housinglogs.core.AreaShape;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.util.BlockPos;
@@ -14,7 +15,7 @@ public class CommandBlockAudit extends CommandBase {
 
     @Override
     public String getCommandUsage(ICommandSender sender) {
-        return "/hlog add <name> <x1> <y1> <z1> <x2> <y2> <z2> [#RRGGBB|#RRGGBBAA] | /hlog remove <name> | /hlog list | /hlog highlight <name> [on|off] | /hlog clear | /hlog on|off | /hlog path";
+        return "/hlog add <name> <x1> <y1> <z1> <x2> <y2> <z2> [#RRGGBB|#RRGGBBAA] | /hlog shape <name> [add|cut box|prism ...|reset] | /hlog remove <name> | /hlog list | /hlog highlight <name> [on|off] | /hlog clear | /hlog on|off | /hlog path | /hlog snapshot <name> [snap] | /hlog snapshots <name> | /hlog diff <name> <snapA> <snapB|live> | /hlog at <name> <time> [save <snap>|rollback] | /hlog house [list|auto|use <house|default>] | /hlog storage [jsonl|h2] | /hlog gui [house] | /hlog tail [area|*] [player] | /hlog tail off | /hlog alert [list|add <name> <rule>|remove <name>] | /hlog spikes | /hlog top [area] [place|break|change] [7d] [house=<house>] | /hlog stats [area] [7d] [house=<house>] | /hlog noise [<class>|all on|off] [flips <n>|off] | /hlog capture [start|stop|status]";
     }
 
     @Override
@@ -64,6 +65,69 @@ public class CommandBlockAudit extends CommandBase {
                 break;
             }
 
+            case "shape": {
+                String usage = "[HousingLogs] Usage: /hlog shape <name> <add|cut> box <x1> <y1> <z1> <x2> <y2> <z2> | /hlog shape <name> <add|cut> prism <y1> <y2> <x,z> <x,z> <x,z>... | /hlog shape <name> reset";
+                if (args.length == 2) {
+                    BlockAuditManager.AreaSnapshot area = BlockAuditManager.getAreaSnapshot(args[1]);
+                    int[] stats = BlockAuditManager.getAreaShapeStats(args[1]);
+                    if (area == null) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] No such area: " + args[1]));
+                    } else if (stats == null) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] " + area.name + " is a plain box."));
+                    } else if (stats.length == 0) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] " + area.name + ": " + area.shapeParts + " parts, still being compiled."));
+                    } else {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] " + area.name + ": " + area.shapeParts + " parts, sections "
+                                + stats[0] + " full / " + stats[1] + " sparse / " + stats[2] + " bitmap."));
+                    }
+                    return;
+                }
+                if (args.length == 3 && "reset".equalsIgnoreCase(args[2])) {
+                    boolean reset = BlockAuditManager.resetAreaShape(args[1]);
+                    sender.addChatMessage(new ChatComponentText((reset ? EnumChatFormatting.GREEN : EnumChatFormatting.GRAY) + "[HousingLogs] "
+                            + (reset ? "Area '" + args[1] + "' is a box again." : "No shaped area named " + args[1] + ".")));
+                    return;
+                }
+                String op = args.length >= 4 ? args[2].toLowerCase() : "";
+                if (!"add".equals(op) && !"cut".equals(op)) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + usage));
+                    return;
+                }
+                boolean cut = "cut".equals(op);
+                AreaShape.Part part;
+                try {
+                    if ("box".equalsIgnoreCase(args[3]) && args.length == 10) {
+                        part = AreaShape.Part.box(cut, Integer.parseInt(args[4]), Integer.parseInt(args[5]), Integer.parseInt(args[6]),
+                                Integer.parseInt(args[7]), Integer.parseInt(args[8]), Integer.parseInt(args[9]));
+                    } else if ("prism".equalsIgnoreCase(args[3]) && args.length >= 9) {
+                        int n = args.length - 6;
+                        int[] xs = new int[n];
+                        int[] zs = new int[n];
+                        for (int i = 0; i < n; i++) {
+                            String[] xz = args[6 + i].split(",");
+                            if (xz.length != 2) throw new NumberFormatException();
+                            xs[i] = Integer.parseInt(xz[0]);
+                            zs[i] = Integer.parseInt(xz[1]);
+                        }
+                        part = AreaShape.Part.prism(cut, Integer.parseInt(args[4]), Integer.parseInt(args[5]), xs, zs);
+                    } else {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + usage));
+                        return;
+                    }
+                } catch (NumberFormatException e) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Coordinates must be integers (prism points as x,z)."));
+                    return;
+                }
+                String error = BlockAuditManager.addAreaPart(args[1], part);
+                if (error != null) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] " + error));
+                    return;
+                }
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] " + (cut ? "Cut" : "Added") + " " + args[3].toLowerCase()
+                        + (cut ? " from" : " to") + " area '" + args[1] + "'."));
+                break;
+            }
+
             case "clear": {
                 BlockAuditManager.clearAreas();
                 sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] All areas cleared."));
@@ -90,7 +154,8 @@ public class CommandBlockAudit extends CommandBase {
                             + " highlight=" + (a.highlight ? "on" : "off")
                             + " color=" + toHexRgba(a.colorRgba)
                             + " (" + a.min.getX() + "," + a.min.getY() + "," + a.min.getZ() + ") -> ("
-                            + a.max.getX() + "," + a.max.getY() + "," + a.max.getZ() + ")"));
+                            + a.max.getX() + "," + a.max.getY() + "," + a.max.getZ() + ")"
+                            + (a.shapeParts > 0 ? " shape=" + a.shapeParts + " parts" : "")));
                 }
                 break;
             }
@@ -130,11 +195,326 @@ public class CommandBlockAudit extends CommandBase {
                 break;
             }
 
+            case "snapshot": {
+                if (args.length != 2 && args.length != 3) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog snapshot <name> [snap]"));
+                    return;
+                }
+                BlockAuditManager.AreaSnapshot area = BlockAuditManager.getAreaSnapshot(args[1]);
+                if (area == null) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] No such area: " + args[1]));
+                    return;
+                }
+                String snap = args.length == 3 ? args[2]
+                        : new java.text.SimpleDateFormat("yyyyMMdd-HHmmss", java.util.Locale.ROOT).format(new java.util.Date());
+                if (!AreaBlockSnapshot.isValidName(snap) || snap.equalsIgnoreCase("live")) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Snapshot names may use letters, digits, '_', '-' and '.'."));
+                    return;
+                }
+                AreaBlockSnapshot.takeAsync(sender, area, snap);
+                break;
+            }
+
+            case "snapshots": {
+                if (args.length != 2) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog snapshots <name>"));
+                    return;
+                }
+                BlockAuditManager.AreaSnapshot area = BlockAuditManager.getAreaSnapshot(args[1]);
+                if (area == null) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] No such area: " + args[1]));
+                    return;
+                }
+                java.util.List<String> snaps = AreaBlockSnapshot.list(area.name);
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Snapshots of '" + area.name + "': "
+                        + (snaps.isEmpty() ? "none" : String.join(", ", snaps))));
+                break;
+            }
+
+            case "diff": {
+                if (args.length != 4) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog diff <name> <snapA> <snapB|live>"));
+                    return;
+                }
+                BlockAuditManager.AreaSnapshot area = BlockAuditManager.getAreaSnapshot(args[1]);
+                if (area == null) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] No such area: " + args[1]));
+                    return;
+                }
+                if (!AreaBlockSnapshot.isValidName(args[2]) || !AreaBlockSnapshot.isValidName(args[3])) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Invalid snapshot name."));
+                    return;
+                }
+                AreaBlockSnapshot.diffAsync(sender, area, args[2], args[3]);
+                break;
+            }
+
+            case "at": {
+                if (args.length != 3 && !(args.length == 4 && args[3].equalsIgnoreCase("rollback"))
+                        && !(args.length == 5 && args[3].equalsIgnoreCase("save"))) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog at <name> <HH:mm|yyyy-MM-ddTHH:mm|90m|2h|1d> [save <snap>|rollback]"));
+                    return;
+                }
+                BlockAuditManager.AreaSnapshot area = BlockAuditManager.getAreaSnapshot(args[1]);
+                if (area == null) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] No such area: " + args[1]));
+                    return;
+                }
+                long atMs = AreaTimeline.parseTime(args[2], System.currentTimeMillis());
+                if (atMs < 0) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Time must look like 19:42, 2024-05-01T19:42, 90m, 2h or 1d."));
+                    return;
+                }
+                boolean rollback = args.length == 4;
+                String snap = args.length == 5 ? args[4]
+                        : "at-" + new java.text.SimpleDateFormat("yyyyMMdd-HHmmss", java.util.Locale.ROOT).format(new java.util.Date(atMs));
+                if (!AreaBlockSnapshot.isValidName(snap) || snap.equalsIgnoreCase("live")) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Snapshot names may use letters, digits, '_', '-' and '.'."));
+                    return;
+                }
+                if (rollback && !HousingContext.isInHousing()) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Not in Housing (HOUSING scoreboard not detected)."));
+                    return;
+                }
+                AreaTimeline.reconstructAsync(sender, area, atMs, snap, rollback);
+                break;
+            }
+
             case "path": {
                 sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Files:"));
                 sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Areas: " + BlockAuditManager.getAreaFile().getAbsolutePath()));
                 sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] JSONL: " + BlockAuditManager.getJsonlLogFile().getAbsolutePath()));
                 sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] LOG: " + BlockAuditManager.getTextLogFile().getAbsolutePath()));
+                if (!"jsonl".equals(BlockAuditManager.getStorage())) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Database: " + BlockAuditManager.getStorageFile().getAbsolutePath()));
+                }
+                break;
+            }
+
+            case "gui": {
+                String partition = args.length >= 2 ? HouseTracker.parse(args[1]) : BlockAuditManager.getPartition();
+                if (!isKnownPartition(sender, partition)) return;
+                GuiLogBrowser.OPENER.open(BlockAuditManager.partitionDir(partition));
+                break;
+            }
+
+            case "tail": {
+                if (args.length == 2 && "off".equalsIgnoreCase(args[1])) {
+                    LogTail.INSTANCE.stop();
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Tail stopped."));
+                    return;
+                }
+                if (args.length > 3) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog tail [area|*] [player] | /hlog tail off"));
+                    return;
+                }
+                String area = args.length >= 2 && !"*".equals(args[1]) ? args[1] : "";
+                String player = args.length == 3 ? args[2] : "";
+                LogTail.INSTANCE.start(area, player);
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] Tailing " + (area.isEmpty() ? "all areas" : area)
+                        + (player.isEmpty() ? "" : " for " + player) + ". /hlog tail off to stop."));
+                break;
+            }
+
+            case "alert": {
+                String action = args.length >= 2 ? args[1].toLowerCase() : "list";
+                if ("list".equals(action)) {
+                    java.util.Map<String, String> rules = AlertRules.INSTANCE.list();
+                    if (rules.isEmpty()) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] No alert rules. /hlog alert add <name> " + AlertRules.SYNTAX));
+                        return;
+                    }
+                    for (java.util.Map.Entry<String, String> e : rules.entrySet()) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] " + e.getKey() + ": " + e.getValue()));
+                    }
+                } else if ("add".equals(action) && args.length >= 4) {
+                    String rule = String.join(" ", java.util.Arrays.copyOfRange(args, 3, args.length));
+                    String error = AlertRules.INSTANCE.add(args[2], rule);
+                    if (error != null) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "[HousingLogs] " + error + " Rule: " + AlertRules.SYNTAX));
+                        return;
+                    }
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] Saved alert rule " + args[2] + "."));
+                } else if ("remove".equals(action) && args.length == 3) {
+                    if (!AlertRules.INSTANCE.remove(args[2])) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] No alert rule named " + args[2] + "."));
+                        return;
+                    }
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] Removed alert rule " + args[2] + "."));
+                } else {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog alert [list|add <name> <rule>|remove <name>]"));
+                }
+                break;
+            }
+
+            case "spikes": {
+                java.util.List<String> top = SpikeDetector.INSTANCE.top();
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Most breaks in the last minute: "
+                        + (top.isEmpty() ? "(none)" : String.join(", ", top))));
+                break;
+            }
+
+            case "capture": {
+                String action = args.length >= 2 ? args[1].toLowerCase() : "status";
+                PacketCapture capture = PacketCapture.INSTANCE;
+                if ("start".equals(action)) {
+                    String error = capture.start();
+                    if (error != null) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] " + error));
+                        return;
+                    }
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] Capturing to " + capture.getFile().getName() + ". /hlog capture stop to finish."));
+                } else if ("stop".equals(action)) {
+                    java.io.File file = capture.stop();
+                    if (file == null) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Not capturing."));
+                        return;
+                    }
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] Capture saved: " + file.getAbsolutePath()));
+                } else if ("status".equals(action)) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] " + (capture.isRecording()
+                            ? "Capturing to " + capture.getFile().getName() + ": " + capture.getBlocks() + " block changes, " + (capture.getBytes() >> 10) + " KB before compression."
+                            : "Not capturing.")));
+                } else {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog capture [start|stop|status]"));
+                }
+                break;
+            }
+
+            case "top":
+            case "stats": {
+                String area = "";
+                String action = "";
+                long periodMs = 7 * 86_400_000L;
+                String partition = BlockAuditManager.getPartition();
+                for (int i = 1; i < args.length; i++) {
+                    String a = args[i].toLowerCase();
+                    if (a.startsWith("house=")) {
+                        partition = HouseTracker.parse(args[i].substring("house=".length()));
+                        if (!isKnownPartition(sender, partition)) return;
+                    } else if ("place".equals(a) || "break".equals(a) || "change".equals(a)) {
+                        action = a.toUpperCase();
+                    } else if ("all".equals(a)) {
+                        periodMs = Long.MAX_VALUE;
+                    } else if (a.matches("\\d+[mhd]")) {
+                        periodMs = System.currentTimeMillis() - AreaTimeline.parseTime(a, System.currentTimeMillis());
+                    } else if (!"*".equals(a)) {
+                        area = args[i];
+                    }
+                }
+                boolean top = "top".equals(sub);
+                String areaF = area;
+                String actionF = action;
+                long now = System.currentTimeMillis();
+                long from = periodMs == Long.MAX_VALUE ? 0L : now - periodMs;
+                String partitionF = partition;
+                java.io.File dir = BlockAuditManager.partitionDir(partition);
+                BlockAuditManager.runOnLogThread(() -> {
+                    long started = System.nanoTime();
+                    ActivityRollups.Totals t = ActivityRollups.query(partitionF, dir, areaF, actionF, from, now);
+                    long ms = (System.nanoTime() - started) / 1_000_000L;
+                    java.util.List<String> lines = top ? describeTop(t, areaF, actionF) : describeStats(t, areaF);
+                    if (t.partial) {
+                        lines.add(EnumChatFormatting.DARK_GRAY + "[HousingLogs] Older history is still being counted; these numbers are partial.");
+                    }
+                    if (t.fromMs > 0) {
+                        lines.add(EnumChatFormatting.DARK_GRAY + "[HousingLogs] Since "
+                                + new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm", java.util.Locale.ROOT).format(new java.util.Date(t.fromMs)) + " (" + ms + " ms).");
+                    }
+                    net.minecraft.client.Minecraft.getMinecraft().addScheduledTask(() -> {
+                        for (String line : lines) {
+                            sender.addChatMessage(new ChatComponentText(line));
+                        }
+                    });
+                });
+                break;
+            }
+
+            case "noise": {
+                if (args.length == 1) {
+                    java.util.List<String> on = new java.util.ArrayList<>();
+                    for (String cls : NoiseFilter.CLASSES) {
+                        if (NoiseFilter.INSTANCE.getSuppressed().contains(cls)) on.add(cls);
+                    }
+                    int flips = NoiseFilter.INSTANCE.getMaxFlips();
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Summarising state flips of: " + (on.isEmpty() ? "(nothing)" : String.join(", ", on))
+                            + ". Other blocks: " + (flips == 0 ? "no flip limit." : "summarised after " + flips + " flips in 10s.")
+                            + " Classes: " + String.join(", ", NoiseFilter.CLASSES)));
+                    return;
+                }
+                if (args.length == 3 && "flips".equalsIgnoreCase(args[1])) {
+                    int flips;
+                    try {
+                        flips = "off".equalsIgnoreCase(args[2]) ? 0 : Integer.parseInt(args[2]);
+                    } catch (NumberFormatException e) {
+                        flips = -1;
+                    }
+                    if (flips < 0) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog noise flips <n>|off"));
+                        return;
+                    }
+                    NoiseFilter.INSTANCE.setMaxFlips(flips);
+                    BlockAuditManager.saveSettingsAsync();
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] " + (flips == 0 ? "Flip limit off." : "Summarising blocks after " + flips + " flips in 10s.")));
+                    return;
+                }
+                if (args.length == 3 && ("on".equalsIgnoreCase(args[2]) || "off".equalsIgnoreCase(args[2]))) {
+                    boolean on = "on".equalsIgnoreCase(args[2]);
+                    String cls = args[1].toLowerCase();
+                    boolean ok = true;
+                    if ("all".equals(cls)) {
+                        for (String c : NoiseFilter.CLASSES) NoiseFilter.INSTANCE.setSuppressed(c, on);
+                    } else {
+                        ok = NoiseFilter.INSTANCE.setSuppressed(cls, on);
+                    }
+                    if (ok) {
+                        BlockAuditManager.saveSettingsAsync();
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] " + (on ? "Summarising" : "Logging every") + " state flip of " + cls + "."));
+                        return;
+                    }
+                }
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog noise [<" + String.join("|", NoiseFilter.CLASSES) + ">|all on|off] [flips <n>|off]"));
+                break;
+            }
+
+            case "storage": {
+                if (args.length == 1) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Storage: " + BlockAuditManager.getStorage()
+                            + " (" + BlockAuditManager.getStorageFile().getAbsolutePath() + ")"));
+                    return;
+                }
+                if (args.length != 2 || !BlockAuditManager.setStorage(args[1])) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog storage [jsonl|h2] (h2 needs the H2 driver in the mod jar)"));
+                    return;
+                }
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] Storing new events as " + args[1].toLowerCase() + "."));
+                break;
+            }
+
+            case "house": {
+                if (args.length == 1) {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Using " + HouseTracker.describe(BlockAuditManager.getPartition())
+                            + (HouseTracker.INSTANCE.isPinned() ? " (pinned; /hlog house auto to follow the house you are in)." : " (detected).")));
+                    return;
+                }
+                String action = args[1].toLowerCase();
+                if ("list".equals(action)) {
+                    java.util.List<String> houses = BlockAuditManager.listPartitions();
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Houses: "
+                            + (houses.isEmpty() ? "(none yet)" : String.join(", ", houses))));
+                } else if ("auto".equals(action)) {
+                    HouseTracker.INSTANCE.unpin();
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] Following the house you are in."));
+                } else if ("use".equals(action) && args.length == 3) {
+                    if (!HouseTracker.INSTANCE.pin(args[2])) {
+                        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Invalid house name."));
+                        return;
+                    }
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[HousingLogs] Pinned " + HouseTracker.describe(BlockAuditManager.getPartition())
+                            + " (" + BlockAuditManager.getAreasSnapshot().size() + " areas)."));
+                } else {
+                    sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Usage: /hlog house [list|auto|use <house|default>]"));
+                }
                 break;
             }
 
@@ -144,6 +524,55 @@ public class CommandBlockAudit extends CommandBase {
         }
     }
 
+    /**
+     * Whether a partition given to a query command exists; tells the sender if not.
+     */
+    private static boolean isKnownPartition(ICommandSender sender, String partition) {
+        if (partition == null) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] Invalid house name."));
+            return false;
+        }
+        if (!partition.isEmpty() && !partition.equals(BlockAuditManager.getPartition()) && !BlockAuditManager.listPartitions().contains(partition)) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] No saved data for house '" + partition + "'. /hlog house list shows the houses."));
+            return false;
+        }
+        return true;
+    }
+
+    private static java.util.List<String> describeTop(ActivityRollups.Totals t, String area, String action) {
+        java.util.List<String> lines = new java.util.ArrayList<>();
+        String what = action.isEmpty() ? "changes" : action.equals("PLACE") ? "blocks placed" : action.equals("BREAK") ? "blocks broken" : "blocks changed";
+        lines.add(EnumChatFormatting.GRAY + "[HousingLogs] Most " + what + (area.isEmpty() ? "" : " in " + area) + ":");
+        java.util.List<java.util.Map.Entry<String, Integer>> players = sortedByCount(t.byPlayer);
+        if (players.isEmpty()) lines.add(EnumChatFormatting.GRAY + "  (nothing logged)");
+        for (int i = 0; i < Math.min(10, players.size()); i++) {
+            lines.add(EnumChatFormatting.GRAY + "  " + (i + 1) + ". " + players.get(i).getKey() + ": " + players.get(i).getValue());
+        }
+        return lines;
+    }
+
+    private static java.util.List<String> describeStats(ActivityRollups.Totals t, String area) {
+        java.util.List<String> lines = new java.util.ArrayList<>();
+        int total = 0;
+        for (int n : t.byAction.values()) total += n;
+        lines.add(EnumChatFormatting.GRAY + "[HousingLogs] " + (area.isEmpty() ? "All areas" : area) + ": " + total + " changes by " + t.byPlayer.size() + " players ("
+                + t.byAction.getOrDefault("PLACE", 0) + " placed, " + t.byAction.getOrDefault("BREAK", 0) + " broken, " + t.byAction.getOrDefault("CHANGE", 0) + " changed).");
+        java.util.List<java.util.Map.Entry<String, Integer>> blocks = sortedByCount(t.byBlock);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(5, blocks.size()); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(blocks.get(i).getKey()).append(' ').append(blocks.get(i).getValue());
+        }
+        if (sb.length() > 0) lines.add(EnumChatFormatting.GRAY + "  Top blocks: " + sb);
+        return lines;
+    }
+
+    private static java.util.List<java.util.Map.Entry<String, Integer>> sortedByCount(java.util.Map<String, Integer> counts) {
+        java.util.List<java.util.Map.Entry<String, Integer>> list = new java.util.ArrayList<>(counts.entrySet());
+        list.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        return list;
+    }
+
     private static int parseColorRgba(String s, int fallback) {
         if (s == null) return fallback;
         String t = s.trim();
@@ -0,0 +1,245 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.minecraft.util.BlockPos;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns an arbitrary set of (position, block) targets into a small list of axis-aligned cuboids.
+ *
+ * Every cuboid costs the same number of Pro Tools commands regardless of its size
+ * (tp, //pos1, tp, //pos2, //set), so minimising the cuboid count minimises the command count.
+ * Merging is greedy per block id: grow along X, then Z, then Y while every covered cell is still
+ * an unclaimed target with the same block id.
+ */
+public final class CuboidPlanner {
+    // Commands sent per cuboid, plus the return /tp and //desel at the end of a batch.
+    static final int COMMANDS_PER_CUBOID = 5;
+    static final int COMMANDS_PER_BATCH = 2;
+
+    private CuboidPlanner() {
+    }
+
+    public static final class Cuboid {
+        public final BlockPos min;
+        public final BlockPos max;
+        public final String blockId;
+
+        Cuboid(BlockPos min, BlockPos max, String blockId) {
+            this.min = min;
+            this.max = max;
+            this.blockId = blockId;
+        }
+
+        public int volume() {
+            return (max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1) * (max.getZ() - min.getZ() + 1);
+        }
+    }
+
+    /**
+     * @param targets desired block id per position; later entries for the same position win.
+     * @return cuboids in a stable order (grouped by block id in first-seen order, then y/z/x).
+     */
+    public static List<Cuboid> plan(Map<BlockPos, String> targets) {
+        List<Cuboid> out = new ArrayList<>();
+        if (targets == null || targets.isEmpty()) return out;
+
+        Map<String, Set<Long>> byBlock = new LinkedHashMap<>();
+        for (Map.Entry<BlockPos, String> e : targets.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) continue;
+            String blockId = e.getValue().trim();
+            if (blockId.isEmpty()) continue;
+            Set<Long> cells = byBlock.get(blockId);
+            if (cells == null) {
+                cells = new HashSet<>();
+                byBlock.put(blockId, cells);
+            }
+            cells.add(pack(e.getKey().getX(), e.getKey().getY(), e.getKey().getZ()));
+        }
+
+        for (Map.Entry<String, Set<Long>> e : byBlock.entrySet()) {
+            mergeBlock(e.getKey(), e.getValue(), out);
+        }
+        return out;
+    }
+
+    public static int estimateCommandCount(List<Cuboid> cuboids) {
+        if (cuboids == null || cuboids.isEmpty()) return 0;
+        return cuboids.size() * COMMANDS_PER_CUBOID + COMMANDS_PER_BATCH;
+    }
+
+    private static void mergeBlock(String blockId, Set<Long> remaining, List<Cuboid> out) {
+        // Seeds in y, z, x order so each greedy box starts at its own min corner.
+        long[] seeds = new long[remaining.size()];
+        int n = 0;
+        for (Long l : remaining) {
+            seeds[n++] = l;
+        }
+        Arrays.sort(seeds);
+
+        for (long seed : seeds) {
+            if (!remaining.contains(seed)) continue;
+
+            int x0 = unpackX(seed);
+            int y0 = unpackY(seed);
+            int z0 = unpackZ(seed);
+
+            int x1 = x0;
+            while (remaining.contains(pack(x1 + 1, y0, z0))) {
+                x1++;
+            }
+
+            int z1 = z0;
+            while (rowPresent(remaining, x0, x1, y0, z1 + 1)) {
+                z1++;
+            }
+
+            int y1 = y0;
+            while (layerPresent(remaining, x0, x1, y1 + 1, z0, z1)) {
+                y1++;
+            }
+
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    for (int x = x0; x <= x1; x++) {
+                        remaining.remove(pack(x, y, z));
+                    }
+                }
+            }
+
+            out.add(new Cuboid(new BlockPos(x0, y0, z0), new BlockPos(x1, y1, z1), blockId));
+        }
+    }
+
+    private static boolean rowPresent(Set<Long> cells, int x0, int x1, int y, int z) {
+        for (int x = x0; x <= x1; x++) {
+            if (!cells.contains(pack(x, y, z))) return false;
+        }
+        return true;
+    }
+
+    private static boolean layerPresent(Set<Long> cells, int x0, int x1, int y, int z0, int z1) {
+        for (int z = z0; z <= z1; z++) {
+            if (!rowPresent(cells, x0, x1, y, z)) return false;
+        }
+        return true;
+    }
+
+    // Packed as y | z | x with offsets so natural (non-negative) long ordering is y, then z, then x.
+    private static long pack(int x, int y, int z) {
+        return ((long) ((y + 1024) & 0x7FF) << 52) | ((long) (z + 33554432) << 26) | (long) (x + 33554432);
+    }
+
+    private static int unpackX(long packed) {
+        return (int) (packed & 0x3FFFFFFL) - 33554432;
+    }
+
+    private static int unpackZ(long packed) {
+        return (int) ((packed >>> 26) & 0x3FFFFFFL) - 33554432;
+    }
+
+    private static int unpackY(long packed) {
+        return (int) ((packed >>> 52) & 0x7FFL) - 1024;
+    }
+
+    /**
+     * Reads targets from a CSV ("x,y,z,blockId" per line, '#' comments allowed) or a JSON file
+     * (an array of {"x","y","z","block"} objects, optionally wrapped as {"targets": [...]}).
+     */
+    public static Map<BlockPos, String> loadTargets(File file) throws IOException {
+        String name = file.getName().toLowerCase(java.util.Locale.ROOT);
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            if (name.endsWith(".json")) {
+                return readJsonTargets(reader);
+            }
+            return readCsvTargets(new BufferedReader(reader));
+        }
+    }
+
+    private static Map<BlockPos, String> readCsvTargets(BufferedReader reader) throws IOException {
+        Map<BlockPos, String> out = new LinkedHashMap<>();
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            String t = line.trim();
+            if (t.isEmpty() || t.startsWith("#")) continue;
+
+            String[] parts = t.split("[,;]");
+            if (parts.length < 4) {
+                throw new IOException("Line " + lineNo + ": expected x,y,z,blockId");
+            }
+            try {
+                int x = Integer.parseInt(parts[0].trim());
+                int y = Integer.parseInt(parts[1].trim());
+                int z = Integer.parseInt(parts[2].trim());
+                checkY(y, "Line " + lineNo);
+                out.put(new BlockPos(x, y, z), parts[3].trim());
+            } catch (NumberFormatException e) {
+                // Allow a header row such as "x,y,z,block" before the first target.
+                if (out.isEmpty()) continue;
+                throw new IOException("Line " + lineNo + ": coordinates must be integers");
+            }
+        }
+        return out;
+    }
+
+    private static Map<BlockPos, String> readJsonTargets(Reader reader) throws IOException {
+        JsonElement root;
+        try {
+            root = new JsonParser().parse(reader);
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid JSON: " + e.getMessage());
+        }
+
+        JsonArray arr = null;
+        if (root != null && root.isJsonArray()) {
+            arr = root.getAsJsonArray();
+        } else if (root != null && root.isJsonObject() && root.getAsJsonObject().has("targets")
+                && root.getAsJsonObject().get("targets").isJsonArray()) {
+            arr = root.getAsJsonObject().getAsJsonArray("targets");
+        }
+        if (arr == null) throw new IOException("Expected a JSON array of targets");
+
+        Map<BlockPos, String> out = new LinkedHashMap<>();
+        for (int i = 0; i < arr.size(); i++) {
+            if (!arr.get(i).isJsonObject()) continue;
+            JsonObject o = arr.get(i).getAsJsonObject();
+            if (!o.has("x") || !o.has("y") || !o.has("z") || !o.has("block")) {
+                throw new IOException("Entry " + i + ": expected x, y, z and block");
+            }
+            try {
+                int y = jsonInt(o, "y");
+                checkY(y, "Entry " + i);
+                out.put(new BlockPos(jsonInt(o, "x"), y, jsonInt(o, "z")), o.get("block").getAsString());
+            } catch (RuntimeException e) {
+                // Gson throws NumberFormatException, ClassCastException, IllegalStateException or
+                // UnsupportedOperationException for "x":"a", "x":1.5, "block":null and the like.
+                throw new IOException("Entry " + i + ": x, y and z must be integers and block a string");
+            }
+        }
+        return out;
+    }
+
+    // getAsInt() would truncate 1.5 to 1; intValueExact() rejects fractions and overflow.
+    private static int jsonInt(JsonObject o, String key) {
+        return o.get(key).getAsBigDecimal().intValueExact();
+    }
+
+    // pack() keeps 11 bits of y; anything outside the world would wrap onto another layer.
+    private static void checkY(int y, String where) throws IOException {
+        if (y < 0 || y > 255) throw new IOException(where + ": y must be between 0 and 255");
+    }
+}
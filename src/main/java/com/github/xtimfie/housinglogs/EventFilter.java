@@ -0,0 +1,61 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.JsonObject;
+
+import java.util.Locale;
+
+/**
+ * Log browser filter. Area and action must match exactly (ignoring case); player and block match on
+ * a substring of the player name/UUID and of the old or new block id. Empty fields match anything.
+ */
+final class EventFilter {
+    static final EventFilter NONE = new EventFilter("", "", "", "");
+
+    final String area;
+    final String player;
+    final String action;
+    final String block;
+
+    EventFilter(String area, String player, String action, String block) {
+        this.area = norm(area);
+        this.player = norm(player);
+        this.action = norm(action);
+        this.block = norm(block);
+    }
+
+    boolean isEmpty() {
+        return area.isEmpty() && player.isEmpty() && action.isEmpty() && block.isEmpty();
+    }
+
+    /**
+     * Cheap test on a raw JSONL line before parsing it: false only if the line cannot match.
+     *
+     * @param lowerLine the line, lower-cased
+     */
+    boolean mayMatch(String lowerLine) {
+        return mayContain(lowerLine, area) && mayContain(lowerLine, player) && mayContain(lowerLine, action) && mayContain(lowerLine, block);
+    }
+
+    boolean matches(JsonObject e) {
+        if (!area.isEmpty() && !area.equals(lower(e, "area"))) return false;
+        if (!action.isEmpty() && !action.equals(lower(e, "action"))) return false;
+        if (!player.isEmpty() && !lower(e, "playerName").contains(player) && !lower(e, "playerUuid").contains(player)) return false;
+        if (!block.isEmpty() && !lower(e, "oldBlock").contains(block) && !lower(e, "newBlock").contains(block)) return false;
+        return true;
+    }
+
+    private static boolean mayContain(String lowerLine, String needle) {
+        // Quotes and backslashes are escaped in the raw line; leave those to the full check.
+        if (needle.isEmpty() || needle.indexOf('"') >= 0 || needle.indexOf('\\') >= 0) return true;
+        return lowerLine.contains(needle);
+    }
+
+    private static String lower(JsonObject e, String key) {
+        if (!e.has(key) || e.get(key).isJsonNull()) return "";
+        return e.get(key).getAsString().toLowerCase(Locale.ROOT);
+    }
+
+    private static String norm(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+}
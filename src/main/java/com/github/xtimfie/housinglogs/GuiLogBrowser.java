@@ -0,0 +1,322 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.JsonObject;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.GuiButton;
+import net.minecraft.client.gui.GuiScreen;
+import net.minecraft.client.gui.GuiTextField;
+import net.minecraft.util.EnumChatFormatting;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import org.lwjgl.input.Keyboard;
+import org.lwjgl.input.Mouse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * /hlog gui: scrollable view of the current house's audit log.
+ *
+ * The sink numbers the matching events once ({@link AuditSink#index}); rows are then read a page at
+ * a time on a background thread as they scroll into view. Only the pages around the visible window
+ * are kept, so the log can hold millions of events. Filtering happens during indexing, off the
+ * client thread.
+ */
+final class GuiLogBrowser extends GuiScreen {
+    static final Opener OPENER = new Opener();
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Hitlist-LogBrowser");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final int PAGE_SIZE = 128;
+    // The visible window spans at most two pages; keep a neighbour on each side as well.
+    private static final int MAX_CACHED_PAGES = 6;
+    private static final int ROW_HEIGHT = 10;
+    private static final int LIST_TOP = 32;
+    private static final int SCROLLBAR_WIDTH = 6;
+
+    private static final String[] HINTS = {"area", "player", "action", "block"};
+
+    // Partition directory whose log is shown.
+    private final File dir;
+
+    private final GuiTextField[] fields = new GuiTextField[4];
+    private int fieldWidth;
+    private final String[] fieldText = {"", "", "", ""};
+
+    // Bumped for every new index; pages loaded for an older one are dropped.
+    private int generation = 0;
+    private AuditSink.EventIndex index;
+    private String status = "Indexing...";
+    private final LinkedHashMap<Integer, List<String>> pages = new LinkedHashMap<Integer, List<String>>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<String>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    // Page the view is on; loads that have scrolled far out of view are skipped.
+    private volatile int viewPage = 0;
+    private int top = 0;
+
+    /**
+     * Opens on the next tick: the chat screen a command is typed in closes after the command runs.
+     */
+    static final class Opener {
+        private File pending;
+
+        void open(File dir) {
+            pending = dir;
+        }
+
+        @SubscribeEvent
+        public void onClientTick(TickEvent.ClientTickEvent event) {
+            if (event.phase != TickEvent.Phase.END || pending == null) return;
+            File dir = pending;
+            pending = null;
+            Minecraft.getMinecraft().displayGuiScreen(new GuiLogBrowser(dir));
+        }
+    }
+
+    private GuiLogBrowser(File dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public void initGui() {
+        Keyboard.enableRepeatEvents(true);
+        buttonList.clear();
+        int buttonWidth = 50;
+        fieldWidth = (width - 20 - 2 * (buttonWidth + 4) - 3 * 4) / 4;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) fieldText[i] = fields[i].getText();
+            fields[i] = new GuiTextField(i, fontRendererObj, fieldX(i), 8, fieldWidth, 16);
+            fields[i].setMaxStringLength(64);
+            fields[i].setText(fieldText[i]);
+        }
+        int bx = 10 + 4 * (fieldWidth + 4);
+        buttonList.add(new GuiButton(0, bx, 6, buttonWidth, 20, "Filter"));
+        buttonList.add(new GuiButton(1, bx + buttonWidth + 4, 6, buttonWidth, 20, "Refresh"));
+        if (index == null && generation == 0) reindex();
+    }
+
+    @Override
+    public void onGuiClosed() {
+        Keyboard.enableRepeatEvents(false);
+        generation++;
+    }
+
+    @Override
+    public boolean doesGuiPauseGame() {
+        return false;
+    }
+
+    private int visibleRows() {
+        return Math.max(1, (height - LIST_TOP - 16) / ROW_HEIGHT);
+    }
+
+    private int size() {
+        return index == null ? 0 : index.size();
+    }
+
+    private void reindex() {
+        int gen = ++generation;
+        EventFilter filter = new EventFilter(fields[0].getText(), fields[1].getText(), fields[2].getText(), fields[3].getText());
+        AuditSink sink = BlockAuditManager.getSink();
+        status = "Indexing...";
+        LOADER.execute(() -> {
+            long started = System.nanoTime();
+            AuditSink.EventIndex idx;
+            try {
+                idx = sink.index(dir, filter);
+            } catch (IOException e) {
+                String msg = e.getMessage();
+                Minecraft.getMinecraft().addScheduledTask(() -> {
+                    if (gen == generation) status = EnumChatFormatting.RED + "Failed to read the log: " + msg;
+                });
+                return;
+            }
+            long ms = (System.nanoTime() - started) / 1_000_000L;
+            Minecraft.getMinecraft().addScheduledTask(() -> {
+                if (gen != generation) return;
+                index = idx;
+                pages.clear();
+                loading.clear();
+                // Newest events are at the bottom; start there.
+                top = Math.max(0, idx.size() - visibleRows());
+                status = idx.size() + " events (" + (filter.isEmpty() ? "indexed" : "filtered") + " in " + ms + " ms)";
+            });
+        });
+    }
+
+    /**
+     * Row text, or null while its page is loading (the load is started if needed).
+     */
+    private String row(int i) {
+        int page = i / PAGE_SIZE;
+        List<String> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        int k = i - page * PAGE_SIZE;
+        return k < rows.size() ? rows.get(k) : "";
+    }
+
+    private void requestPage(int page) {
+        if (index == null || page < 0 || page * PAGE_SIZE >= index.size() || pages.containsKey(page) || !loading.add(page)) return;
+        AuditSink.EventIndex idx = index;
+        int gen = generation;
+        LOADER.execute(() -> {
+            List<String> rows = null;
+            if (Math.abs(page - viewPage) <= 2) {
+                try {
+                    rows = format(idx.read(page * PAGE_SIZE, PAGE_SIZE));
+                } catch (IOException e) {
+                    rows = new ArrayList<>();
+                    rows.add(EnumChatFormatting.RED + "Failed to read: " + e.getMessage());
+                }
+            }
+            List<String> result = rows;
+            Minecraft.getMinecraft().addScheduledTask(() -> {
+                if (gen != generation) return;
+                loading.remove(page);
+                if (result != null) pages.put(page, result);
+            });
+        });
+    }
+
+    private static List<String> format(List<JsonObject> entries) {
+        List<String> out = new ArrayList<>(entries.size());
+        for (JsonObject e : entries) {
+            String action = e.has("action") ? e.get("action").getAsString() : "";
+            EnumChatFormatting color = "PLACE".equals(action) ? EnumChatFormatting.GREEN
+                    : "BREAK".equals(action) ? EnumChatFormatting.RED : EnumChatFormatting.WHITE;
+            out.add(color + JsonlAuditSink.toTextLine(e));
+        }
+        return out;
+    }
+
+    private void scrollTo(int row) {
+        top = Math.max(0, Math.min(row, size() - visibleRows()));
+    }
+
+    @Override
+    public void drawScreen(int mouseX, int mouseY, float partialTicks) {
+        drawDefaultBackground();
+        for (int i = 0; i < fields.length; i++) {
+            fields[i].drawTextBox();
+            if (fields[i].getText().isEmpty() && !fields[i].isFocused()) {
+                drawString(fontRendererObj, HINTS[i], fieldX(i) + 4, 12, 0x808080);
+            }
+        }
+
+        int rows = visibleRows();
+        int listRight = width - 10 - SCROLLBAR_WIDTH - 2;
+        viewPage = top / PAGE_SIZE;
+        drawRect(8, LIST_TOP - 2, width - 8, LIST_TOP + rows * ROW_HEIGHT + 2, 0x80000000);
+        int last = Math.min(size(), top + rows);
+        for (int i = top; i < last; i++) {
+            String text = row(i);
+            int y = LIST_TOP + (i - top) * ROW_HEIGHT;
+            fontRendererObj.drawString(text == null ? EnumChatFormatting.DARK_GRAY + "..." : fontRendererObj.trimStringToWidth(text, listRight - 12), 12, y, 0xFFFFFF);
+        }
+        // Prefetch the neighbours so steady scrolling never waits.
+        requestPage(top / PAGE_SIZE - 1);
+        requestPage((top + rows) / PAGE_SIZE + 1);
+
+        if (size() > rows) {
+            int trackTop = LIST_TOP - 2;
+            int trackHeight = rows * ROW_HEIGHT + 4;
+            int thumbHeight = Math.max(8, (int) ((long) trackHeight * rows / size()));
+            int thumbTop = trackTop + (int) ((long) (trackHeight - thumbHeight) * top / (size() - rows));
+            drawRect(width - 10 - SCROLLBAR_WIDTH, thumbTop, width - 10, thumbTop + thumbHeight, 0xFFA0A0A0);
+        }
+
+        String position = size() == 0 ? "" : "  rows " + (top + 1) + "-" + last + " of " + size();
+        drawString(fontRendererObj, EnumChatFormatting.GRAY + status + position, 10, height - 12, 0xFFFFFF);
+        super.drawScreen(mouseX, mouseY, partialTicks);
+    }
+
+    private int fieldX(int i) {
+        return 10 + i * (fieldWidth + 4);
+    }
+
+    @Override
+    public void updateScreen() {
+        for (GuiTextField f : fields) {
+            f.updateCursorCounter();
+        }
+    }
+
+    @Override
+    public void handleMouseInput() throws IOException {
+        super.handleMouseInput();
+        int wheel = Mouse.getEventDWheel();
+        if (wheel != 0) scrollTo(top + (wheel > 0 ? -3 : 3));
+    }
+
+    @Override
+    protected void mouseClicked(int mouseX, int mouseY, int mouseButton) throws IOException {
+        super.mouseClicked(mouseX, mouseY, mouseButton);
+        for (GuiTextField f : fields) {
+            f.mouseClicked(mouseX, mouseY, mouseButton);
+        }
+        // Clicking the scrollbar track jumps there.
+        int rows = visibleRows();
+        if (mouseX >= width - 10 - SCROLLBAR_WIDTH && mouseX < width - 10 && mouseY >= LIST_TOP && mouseY < LIST_TOP + rows * ROW_HEIGHT && size() > rows) {
+            scrollTo((int) ((long) (mouseY - LIST_TOP) * (size() - rows) / (rows * ROW_HEIGHT)));
+        }
+    }
+
+    @Override
+    protected void keyTyped(char typedChar, int keyCode) throws IOException {
+        for (GuiTextField f : fields) {
+            if (!f.isFocused()) continue;
+            if (keyCode == Keyboard.KEY_RETURN) {
+                reindex();
+                return;
+            }
+            if (f.textboxKeyTyped(typedChar, keyCode)) return;
+        }
+        int rows = visibleRows();
+        switch (keyCode) {
+            case Keyboard.KEY_UP:
+                scrollTo(top - 1);
+                return;
+            case Keyboard.KEY_DOWN:
+                scrollTo(top + 1);
+                return;
+            case Keyboard.KEY_PRIOR:
+                scrollTo(top - rows);
+                return;
+            case Keyboard.KEY_NEXT:
+                scrollTo(top + rows);
+                return;
+            case Keyboard.KEY_HOME:
+                scrollTo(0);
+                return;
+            case Keyboard.KEY_END:
+                scrollTo(size());
+                return;
+            default:
+                super.keyTyped(typedChar, keyCode);
+        }
+    }
+
+    @Override
+    protected void actionPerformed(GuiButton button) throws IOException {
+        if (button.id == 0 || button.id == 1) reindex();
+    }
+}
@@ -0,0 +1,420 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Audit storage in an embedded H2 database per house partition (hitlist-blockaudit.mv.db), indexed
+ * by time, area + time, lower-cased area + time, position and player + time. Each batch is inserted in one transaction.
+ *
+ * The full event is kept as JSON next to the indexed columns, so reads return exactly what the JSONL
+ * sink would. When a partition's database is first created, its existing JSONL log is imported so
+ * rebuilds still see older events.
+ *
+ * The driver is looked up at runtime; without it in the jar the mod keeps logging to JSONL.
+ */
+final class H2AuditSink implements AuditSink {
+    private static final String DRIVER = "org.h2.Driver";
+    private static final String DB_NAME = "hitlist-blockaudit";
+    // A house or two at a time.
+    private static final int MAX_OPEN_CONNECTIONS = 2;
+    private static final int IMPORT_BATCH = 1000;
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private static final String INSERT = "INSERT INTO audit_event (ts_ms, area, action, x, y, z, old_block, old_meta, new_block, new_meta,"
+            + " player_name, player_uuid, attribution, entry, area_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final LinkedHashMap<File, Connection> connections = new LinkedHashMap<File, Connection>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, Connection> eldest) {
+            if (size() <= MAX_OPEN_CONNECTIONS) return false;
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+
+    static boolean isAvailable() {
+        try {
+            Class.forName(DRIVER);
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    static File databaseFile(File dir) {
+        return new File(dir, DB_NAME + ".mv.db");
+    }
+
+    @Override
+    public String name() {
+        return "h2";
+    }
+
+    @Override
+    public synchronized void write(File dir, List<JsonObject> entries) throws IOException {
+        try {
+            insert(connectionFor(dir), entries);
+        } catch (SQLException e) {
+            closeQuietly(connections.remove(dir));
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void forEachInRange(File dir, String area, long fromMs, long toMs, Consumer<JsonObject> consumer) throws IOException {
+        if (!databaseFile(dir).isFile()) return;
+        JsonParser parser = new JsonParser();
+        try (PreparedStatement st = connectionFor(dir).prepareStatement(
+                "SELECT entry FROM audit_event WHERE area = ? AND ts_ms > ? AND ts_ms <= ? ORDER BY ts_ms, id")) {
+            st.setString(1, area);
+            st.setLong(2, fromMs);
+            st.setLong(3, toMs);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    JsonObject e = JsonlAuditSink.parseLine(parser, rs.getString(1));
+                    if (e != null) consumer.accept(e);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized EventIndex index(File dir, EventFilter filter) throws IOException {
+        return index(dir, filter, mark(dir));
+    }
+
+    /**
+     * The highest row id.
+     */
+    @Override
+    public synchronized long mark(File dir) throws IOException {
+        if (!databaseFile(dir).isFile()) return 0L;
+        try (Statement st = connectionFor(dir).createStatement(); ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM audit_event")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized EventIndex index(File dir, EventFilter filter, long maxId) throws IOException {
+        if (!databaseFile(dir).isFile()) return new QueryIndex(dir, filter, 0L, 0);
+        List<String> params = new ArrayList<>();
+        String where = whereClause(filter, params);
+        try {
+            Connection c = connectionFor(dir);
+            try (PreparedStatement st = c.prepareStatement("SELECT COUNT(*) FROM audit_event WHERE id <= ?" + where)) {
+                st.setLong(1, maxId);
+                bind(st, 2, params);
+                try (ResultSet rs = st.executeQuery()) {
+                    rs.next();
+                    return new QueryIndex(dir, filter, maxId, (int) Math.min(Integer.MAX_VALUE, rs.getLong(1)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Rows up to the highest id at index time, in (ts_ms, id) order.
+     *
+     * Pages are read by key: the (ts_ms, id) of the first and last row of every page read so far are
+     * remembered, and a read seeks from the nearest one, forwards or backwards, instead of skipping
+     * rows from the start with OFFSET. The browser opens at the newest rows, which are read backwards
+     * from the end; scrolling from there only ever skips within one page.
+     */
+    private final class QueryIndex implements EventIndex {
+        // Bounds how many page edges are remembered; past it they are forgotten and relearned.
+        private static final int MAX_ANCHORS = 4096;
+
+        private final File dir;
+        private final EventFilter filter;
+        private final long maxId;
+        private final int count;
+        // Row position -> {ts_ms, id} of that row.
+        private final java.util.TreeMap<Integer, long[]> anchors = new java.util.TreeMap<>();
+
+        QueryIndex(File dir, EventFilter filter, long maxId, int count) {
+            this.dir = dir;
+            this.filter = filter;
+            this.maxId = maxId;
+            this.count = count;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public List<JsonObject> read(int from, int n) throws IOException {
+            List<JsonObject> out = new ArrayList<>();
+            if (from < 0 || from >= count || n <= 0) return out;
+            n = Math.min(n, count - from);
+            int end = from + n;
+
+            // Rows to skip for each way in: from the start, from the end, or from a known row.
+            java.util.Map.Entry<Integer, long[]> before;
+            java.util.Map.Entry<Integer, long[]> after;
+            synchronized (anchors) {
+                before = anchors.lowerEntry(from);
+                after = anchors.ceilingEntry(end);
+            }
+            int skipForward = before == null ? from : from - before.getKey() - 1;
+            int skipBackward = after == null ? count - end : after.getKey() - end;
+            boolean backward = skipBackward < skipForward;
+            long[] anchor = backward ? (after == null ? null : after.getValue()) : (before == null ? null : before.getValue());
+
+            List<String> params = new ArrayList<>();
+            String where = whereClause(filter, params);
+            StringBuilder sql = new StringBuilder("SELECT ts_ms, id, entry FROM audit_event WHERE id <= ?").append(where);
+            // The plain ts_ms bound lets the time index narrow the scan; the OR breaks ties by id.
+            if (anchor != null) sql.append(backward ? " AND ts_ms <= ? AND (ts_ms < ? OR id < ?)" : " AND ts_ms >= ? AND (ts_ms > ? OR id > ?)");
+            sql.append(backward ? " ORDER BY ts_ms DESC, id DESC" : " ORDER BY ts_ms, id").append(" LIMIT ? OFFSET ?");
+
+            List<long[]> keys = new ArrayList<>(n);
+            JsonParser parser = new JsonParser();
+            synchronized (H2AuditSink.this) {
+                try (PreparedStatement st = connectionFor(dir).prepareStatement(sql.toString())) {
+                    st.setLong(1, maxId);
+                    int next = bind(st, 2, params);
+                    if (anchor != null) {
+                        st.setLong(next++, anchor[0]);
+                        st.setLong(next++, anchor[0]);
+                        st.setLong(next++, anchor[1]);
+                    }
+                    st.setInt(next, n);
+                    st.setInt(next + 1, backward ? skipBackward : skipForward);
+                    try (ResultSet rs = st.executeQuery()) {
+                        while (rs.next()) {
+                            keys.add(new long[]{rs.getLong(1), rs.getLong(2)});
+                            JsonObject e = JsonlAuditSink.parseLine(parser, rs.getString(3));
+                            out.add(e == null ? new JsonObject() : e);
+                        }
+                    }
+                } catch (SQLException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+            if (backward) {
+                java.util.Collections.reverse(out);
+                java.util.Collections.reverse(keys);
+            }
+
+            // A short read cannot be placed reliably; don't learn from it.
+            if (keys.size() == n) {
+                synchronized (anchors) {
+                    if (anchors.size() >= MAX_ANCHORS) anchors.clear();
+                    anchors.put(from, keys.get(0));
+                    anchors.put(from + keys.size() - 1, keys.get(keys.size() - 1));
+                }
+            }
+            return out;
+        }
+    }
+
+    /**
+     * SQL for {@link EventFilter#matches}, starting with " AND" (or empty); values go to params.
+     */
+    private static String whereClause(EventFilter filter, List<String> params) {
+        StringBuilder sb = new StringBuilder();
+        if (!filter.area.isEmpty()) {
+            sb.append(" AND area_key = ?");
+            params.add(filter.area);
+        }
+        if (!filter.action.isEmpty()) {
+            sb.append(" AND LOWER(action) = ?");
+            params.add(filter.action);
+        }
+        if (!filter.player.isEmpty()) {
+            sb.append(" AND (LOWER(player_name) LIKE ? ESCAPE '\\' OR LOWER(player_uuid) LIKE ? ESCAPE '\\')");
+            params.add(like(filter.player));
+            params.add(like(filter.player));
+        }
+        if (!filter.block.isEmpty()) {
+            sb.append(" AND (LOWER(old_block) LIKE ? ESCAPE '\\' OR LOWER(new_block) LIKE ? ESCAPE '\\')");
+            params.add(like(filter.block));
+            params.add(like(filter.block));
+        }
+        return sb.toString();
+    }
+
+    private static String like(String needle) {
+        return "%" + needle.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * @return the next free parameter index
+     */
+    private static int bind(PreparedStatement st, int first, List<String> params) throws SQLException {
+        int i = first;
+        for (String p : params) {
+            st.setString(i++, p);
+        }
+        return i;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Connection c : connections.values()) {
+            closeQuietly(c);
+        }
+        connections.clear();
+    }
+
+    private Connection connectionFor(File dir) throws SQLException, IOException {
+        Connection c = connections.get(dir);
+        if (c != null) return c;
+
+        dir.mkdirs();
+        boolean created = !databaseFile(dir).isFile();
+        Driver driver;
+        try {
+            driver = (Driver) Class.forName(DRIVER).newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("H2 is not available", e);
+        }
+        // Connect through the driver itself: DriverManager does not see classes from the mod class loader.
+        c = driver.connect("jdbc:h2:" + new File(dir, DB_NAME).getAbsolutePath(), new Properties());
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS audit_event (id BIGINT AUTO_INCREMENT PRIMARY KEY, ts_ms BIGINT NOT NULL,"
+                    + " area VARCHAR, action VARCHAR(16), x INT, y INT, z INT, old_block VARCHAR(128), old_meta INT,"
+                    + " new_block VARCHAR(128), new_meta INT, player_name VARCHAR(32), player_uuid VARCHAR(36),"
+                    + " attribution VARCHAR(32), entry CLOB NOT NULL, area_key VARCHAR)");
+            if (!created) migrate(c, st);
+            st.execute("CREATE INDEX IF NOT EXISTS audit_event_time ON audit_event (ts_ms)");
+            st.execute("CREATE INDEX IF NOT EXISTS audit_event_area_time ON audit_event (area, ts_ms)");
+            st.execute("CREATE INDEX IF NOT EXISTS audit_event_area_key_time ON audit_event (area_key, ts_ms)");
+            st.execute("CREATE INDEX IF NOT EXISTS audit_event_pos ON audit_event (x, z, y)");
+            st.execute("CREATE INDEX IF NOT EXISTS audit_event_player_time ON audit_event (player_name, ts_ms)");
+        }
+        connections.put(dir, c);
+        if (created) importJsonl(c, new File(dir, JsonlAuditSink.LOG_FILE_NAME));
+        return c;
+    }
+
+    /**
+     * Brings a database created by an older version up to the current columns: area used to be
+     * VARCHAR(64), and area_key (the lower-cased area, for filtering through an index) did not exist.
+     */
+    private static void migrate(Connection c, Statement st) throws SQLException {
+        boolean hasKey;
+        try (ResultSet rs = c.getMetaData().getColumns(null, null, "AUDIT_EVENT", "AREA_KEY")) {
+            hasKey = rs.next();
+        }
+        if (hasKey) return;
+        st.execute("ALTER TABLE audit_event ALTER COLUMN area VARCHAR");
+        st.execute("ALTER TABLE audit_event ADD COLUMN area_key VARCHAR");
+        st.execute("UPDATE audit_event SET area_key = LOWER(area)");
+    }
+
+    private static void insert(Connection c, List<JsonObject> entries) throws SQLException {
+        c.setAutoCommit(false);
+        try (PreparedStatement st = c.prepareStatement(INSERT)) {
+            for (JsonObject e : entries) {
+                st.setLong(1, e.has("tsMs") ? e.get("tsMs").getAsLong() : 0L);
+                setString(st, 2, e, "area");
+                setString(st, 3, e, "action");
+                setInt(st, 4, e, "x");
+                setInt(st, 5, e, "y");
+                setInt(st, 6, e, "z");
+                setString(st, 7, e, "oldBlock");
+                setInt(st, 8, e, "oldMeta");
+                setString(st, 9, e, "newBlock");
+                setInt(st, 10, e, "newMeta");
+                setString(st, 11, e, "playerName");
+                setString(st, 12, e, "playerUuid");
+                setString(st, 13, e, "attribution");
+                st.setString(14, GSON.toJson(e));
+                if (e.has("area") && !e.get("area").isJsonNull()) {
+                    st.setString(15, e.get("area").getAsString().toLowerCase(Locale.ROOT));
+                } else {
+                    st.setNull(15, Types.VARCHAR);
+                }
+                st.addBatch();
+            }
+            st.executeBatch();
+            c.commit();
+        } catch (SQLException e) {
+            try {
+                c.rollback();
+            } catch (SQLException ignored) {
+            }
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+        }
+    }
+
+    private static void importJsonl(Connection c, File log) throws SQLException, IOException {
+        if (!log.isFile()) return;
+        JsonParser parser = new JsonParser();
+        List<JsonObject> batch = new ArrayList<>(IMPORT_BATCH);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(log), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonObject e = JsonlAuditSink.parseLine(parser, line);
+                if (e == null) continue;
+                batch.add(e);
+                if (batch.size() == IMPORT_BATCH) {
+                    insert(c, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) insert(c, batch);
+    }
+
+    private static void setString(PreparedStatement st, int index, JsonObject e, String key) throws SQLException {
+        if (e.has(key) && !e.get(key).isJsonNull()) {
+            st.setString(index, e.get(key).getAsString());
+        } else {
+            st.setNull(index, Types.VARCHAR);
+        }
+    }
+
+    private static void setInt(PreparedStatement st, int index, JsonObject e, String key) throws SQLException {
+        if (e.has(key) && !e.get(key).isJsonNull()) {
+            st.setInt(index, e.get(key).getAsInt());
+        } else {
+            st.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private static void closeQuietly(Connection c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
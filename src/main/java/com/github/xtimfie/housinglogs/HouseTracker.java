@@ -0,0 +1,97 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * Keeps {@link BlockAuditManager}'s storage partition on the house currently being visited, so each
+ * house's areas, logs and snapshots stay apart. A house can also be pinned by hand, for houses whose
+ * sidebar does not name them. Other houses' logs are queried by name (see {@link #parse}) rather
+ * than by switching the partition.
+ */
+final class HouseTracker {
+    static final HouseTracker INSTANCE = new HouseTracker();
+
+    private static final int CHECK_INTERVAL_TICKS = 20;
+    // Checks without a house name in a new world before falling back to the default partition.
+    private static final int UNNAMED_CHECKS_BEFORE_DEFAULT = 5;
+
+    // Normalised partition name, or null to follow the detected house.
+    private String pinned;
+    private int tickCounter = 0;
+    // World the current partition was chosen in; a missing house name there keeps the partition.
+    private World partitionWorld;
+    private int unnamedChecks = 0;
+
+    private HouseTracker() {
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+        if (++tickCounter % CHECK_INTERVAL_TICKS != 0) return;
+        World world = Minecraft.getMinecraft().theWorld;
+        if (pinned != null || world == null) return;
+        // Outside Housing nothing is logged; keep the last house until another one is seen.
+        if (!HousingContext.isInHousing()) return;
+
+        String detected = HousingContext.detectHouse();
+        if (detected == null) {
+            // The sidebar can miss a line for a refresh; switching would reload the areas twice.
+            if (world == partitionWorld || ++unnamedChecks < UNNAMED_CHECKS_BEFORE_DEFAULT) return;
+        }
+        unnamedChecks = 0;
+        partitionWorld = world;
+        if (BlockAuditManager.usePartition(detected == null ? "" : detected)) {
+            announce(EnumChatFormatting.GRAY + "[HousingLogs] Using " + describe(BlockAuditManager.getPartition()) + " ("
+                    + BlockAuditManager.getAreasSnapshot().size() + " areas).");
+        }
+    }
+
+    /**
+     * Sticks to one house's partition until {@link #unpin()}.
+     *
+     * @return false if the name has no usable characters
+     */
+    boolean pin(String house) {
+        String p = parse(house);
+        if (p == null) return false;
+        pinned = p;
+        BlockAuditManager.usePartition(p);
+        return true;
+    }
+
+    void unpin() {
+        pinned = null;
+        partitionWorld = null;
+        // Picked up again on the next check.
+    }
+
+    boolean isPinned() {
+        return pinned != null;
+    }
+
+    /**
+     * Partition named by a command argument: a house name, or "default" for the shared one.
+     *
+     * @return the partition, or null if the name has no usable characters
+     */
+    static String parse(String house) {
+        if ("default".equalsIgnoreCase(house)) return "";
+        String p = BlockAuditManager.normalizePartition(house);
+        return p.isEmpty() ? null : p;
+    }
+
+    static String describe(String partition) {
+        return partition.isEmpty() ? "the default partition" : "house '" + partition + "'";
+    }
+
+    private static void announce(String text) {
+        Minecraft mc = Minecraft.getMinecraft();
+        if (mc.thePlayer != null) mc.thePlayer.addChatMessage(new ChatComponentText(text));
+    }
+}
@@ -1,10 +1,15 @@
 package com.github.xtimfie.housinglogs;
 
 import net.minecraft.client.Minecraft;
+import net.minecraft.scoreboard.Score;
 import net.minecraft.scoreboard.ScoreObjective;
+import net.minecraft.scoreboard.ScorePlayerTeam;
 import net.minecraft.scoreboard.Scoreboard;
 import net.minecraft.util.EnumChatFormatting;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 final class HousingContext {
     private HousingContext() {
     }
@@ -24,4 +29,30 @@ final class HousingContext {
         }
         return false;
     }
-}
\ No newline at end of file
+
+    // Sidebar lines that name the house, e.g. "Owner: Steve" or "House: Steve's Castle".
+    private static final Pattern HOUSE_LINE = Pattern.compile("^\\s*(?:house|owner)\\s*:\\s*(.+?)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Identity of the house being visited, read from the sidebar.
+     *
+     * @return the house line's value, or null if none was found
+     */
+    static String detectHouse() {
+        Minecraft mc = Minecraft.getMinecraft();
+        if (mc == null || mc.theWorld == null) return null;
+        Scoreboard sb = mc.theWorld.getScoreboard();
+        if (sb == null) return null;
+        ScoreObjective sidebar = sb.getObjectiveInDisplaySlot(1);
+        if (sidebar == null) return null;
+
+        for (Score score : sb.getSortedScores(sidebar)) {
+            String name = score.getPlayerName();
+            String line = EnumChatFormatting.getTextWithoutFormattingCodes(ScorePlayerTeam.formatPlayerName(sb.getPlayersTeam(name), name));
+            if (line == null) continue;
+            Matcher m = HOUSE_LINE.matcher(line);
+            if (m.matches()) return m.group(1);
+        }
+        return null;
+    }
+}
@@ -1,19 +1,35 @@
 package com.github.xtimfie.housinglogs;
 
-
+import net.minecraft.client.Minecraft;
 import net.minecraftforge.client.ClientCommandHandler;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 
+import java.io.File;
+
 @Mod(modid = "housinglogs", name = "HousingLogs", version = "1.0.1", clientSideOnly = true)
 public class HousingLogsMod {
 
     @Mod.EventHandler
     public void init(FMLInitializationEvent event) {
+        File configDir = new File(Minecraft.getMinecraft().mcDataDir, "config");
         ClientCommandHandler.instance.registerCommand(new CommandBlockAudit());
-        ProtoolsAutomation.init();
+        MinecraftForge.EVENT_BUS.register(ChatDispatcher.INSTANCE);
+        MinecraftForge.EVENT_BUS.register(HouseTracker.INSTANCE);
+        MinecraftForge.EVENT_BUS.register(AreaTimeline.INSTANCE);
+        MinecraftForge.EVENT_BUS.register(OfflineChangeDetector.INSTANCE);
+        MinecraftForge.EVENT_BUS.register(GuiLogBrowser.OPENER);
+        MinecraftForge.EVENT_BUS.register(LogTail.INSTANCE);
+        MinecraftForge.EVENT_BUS.register(AlertRules.INSTANCE);
+        MinecraftForge.EVENT_BUS.register(SpikeDetector.INSTANCE);
+        MinecraftForge.EVENT_BUS.register(NoiseFilter.INSTANCE);
+        MinecraftForge.EVENT_BUS.register(PacketHooks.INSTANCE);
+        PacketCapture.INSTANCE.init(configDir);
+        MinecraftForge.EVENT_BUS.register(PacketCapture.INSTANCE);
+        ProtoolsAutomation.init(configDir);
         MinecraftForge.EVENT_BUS.register(new BlockAuditHighlightRenderer());
-        BlockAuditManager.loadAreaFromDisk();
+        BlockAuditManager.loadAreaFromDisk(configDir);
+        AlertRules.INSTANCE.load(configDir);
     }
 }
\ No newline at end of file
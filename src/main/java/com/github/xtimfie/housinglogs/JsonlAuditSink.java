@@ -0,0 +1,361 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Default audit storage: one JSON object per line in hitlist-blockaudit-log.jsonl, plus a
+ * human-readable line in hitlist-blockaudit.log, per house partition.
+ *
+ * Open writers are pooled (least recently used is closed first) so a busy log does not reopen both
+ * files for every event. The log is append-only in time order, so range reads start with a binary
+ * search over byte offsets instead of reading the whole file.
+ */
+final class JsonlAuditSink implements AuditSink {
+    static final String LOG_FILE_NAME = "hitlist-blockaudit-log.jsonl";
+    static final String TEXT_LOG_FILE_NAME = "hitlist-blockaudit.log";
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    // Text lines are formatted on the log thread and by the log browser's loader.
+    private static final ThreadLocal<java.text.SimpleDateFormat> TEXT_LOG_TIME =
+            ThreadLocal.withInitial(() -> new java.text.SimpleDateFormat("HH:mm:ss", java.util.Locale.ROOT));
+
+    // Two houses' log pairs.
+    private static final int MAX_OPEN_WRITERS = 4;
+    // Matching lines per index entry: 3 million events index in ~375 KiB.
+    private static final int INDEX_STRIDE = 64;
+    // Log timestamps are taken when a change is seen, slightly before it is written; noise summaries
+    // keep their last flip's time and are written up to the summary interval later.
+    private static final long SEEK_SLACK_MS = NoiseFilter.SUMMARY_INTERVAL_MS + 15_000L;
+
+    private final LinkedHashMap<File, Writer> writers = new LinkedHashMap<File, Writer>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, Writer> eldest) {
+            if (size() <= MAX_OPEN_WRITERS) return false;
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+
+    @Override
+    public String name() {
+        return "jsonl";
+    }
+
+    @Override
+    public void write(File dir, List<JsonObject> entries) throws IOException {
+        File log = new File(dir, LOG_FILE_NAME);
+        File textLog = new File(dir, TEXT_LOG_FILE_NAME);
+        try {
+            Writer writer = writerFor(log);
+            for (JsonObject entry : entries) {
+                writer.write(GSON.toJson(entry));
+                writer.write("\n");
+            }
+            writer.flush();
+
+            // Also write human-readable .log lines for "tail"-style viewing.
+            Writer textWriter = writerFor(textLog);
+            for (JsonObject entry : entries) {
+                textWriter.write(toTextLine(entry));
+                textWriter.write("\n");
+            }
+            textWriter.flush();
+        } catch (IOException e) {
+            // Reopen on the next write rather than keep a broken handle.
+            closeQuietly(writers.remove(log));
+            closeQuietly(writers.remove(textLog));
+            throw e;
+        }
+    }
+
+    /**
+     * Opens (creating if missing) both files of a partition ahead of the first event.
+     */
+    void touch(File dir) throws IOException {
+        writerFor(new File(dir, LOG_FILE_NAME));
+        writerFor(new File(dir, TEXT_LOG_FILE_NAME));
+    }
+
+    @Override
+    public void forEachInRange(File dir, String area, long fromMs, long toMs, Consumer<JsonObject> consumer) throws IOException {
+        File log = new File(dir, LOG_FILE_NAME);
+        if (!log.isFile()) return;
+
+        long start;
+        try (RandomAccessFile raf = new RandomAccessFile(log, "r")) {
+            start = seekToTime(raf, fromMs - SEEK_SLACK_MS);
+        }
+
+        JsonParser parser = new JsonParser();
+        try (FileInputStream in = new FileInputStream(log)) {
+            in.getChannel().position(start);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonObject e = parseLine(parser, line);
+                if (e == null || !e.has("tsMs")) continue;
+                long ts = e.get("tsMs").getAsLong();
+                // Lines are written in time order only to within the slack; read that far past the end.
+                if (ts > toMs + SEEK_SLACK_MS) break;
+                if (ts > toMs) continue;
+                if (ts <= fromMs) continue;
+                if (!e.has("area") || !area.equals(e.get("area").getAsString())) continue;
+                consumer.accept(e);
+            }
+        }
+    }
+
+    @Override
+    public EventIndex index(File dir, EventFilter filter) throws IOException {
+        return index(dir, filter, mark(dir));
+    }
+
+    /**
+     * The log's length; writes are flushed before write returns.
+     */
+    @Override
+    public long mark(File dir) {
+        return new File(dir, LOG_FILE_NAME).length();
+    }
+
+    @Override
+    public EventIndex index(File dir, EventFilter filter, long mark) throws IOException {
+        File log = new File(dir, LOG_FILE_NAME);
+        if (!log.isFile()) return new FileIndex(log, filter, 0L, new long[0], 0);
+
+        long length = Math.min(mark, log.length());
+        long[] offsets = new long[64];
+        int count = 0;
+        JsonParser parser = new JsonParser();
+        byte[] line = new byte[512];
+        byte[] buf = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(log)) {
+            long pos = 0;
+            long lineStart = 0;
+            int len = 0;
+            int read;
+            while (pos < length && (read = in.read(buf, 0, (int) Math.min(buf.length, length - pos))) > 0) {
+                for (int k = 0; k < read; k++) {
+                    byte b = buf[k];
+                    if (b != '\n') {
+                        // Without a filter only the line boundaries matter.
+                        if (!filter.isEmpty()) {
+                            if (len == line.length) line = java.util.Arrays.copyOf(line, len * 2);
+                            line[len] = b;
+                        }
+                        len++;
+                        continue;
+                    }
+                    if (len > 0 && (filter.isEmpty() || matches(filter, parser, new String(line, 0, len, StandardCharsets.UTF_8)))) {
+                        if (count % INDEX_STRIDE == 0) {
+                            if (count / INDEX_STRIDE == offsets.length) offsets = java.util.Arrays.copyOf(offsets, offsets.length * 2);
+                            offsets[count / INDEX_STRIDE] = lineStart;
+                        }
+                        count++;
+                    }
+                    lineStart = pos + k + 1;
+                    len = 0;
+                }
+                pos += read;
+            }
+        }
+        return new FileIndex(log, filter, length, offsets, count);
+    }
+
+    private static boolean matches(EventFilter filter, JsonParser parser, String line) {
+        if (!filter.mayMatch(line.toLowerCase(java.util.Locale.ROOT))) return false;
+        JsonObject e = parseLine(parser, line);
+        return e != null && filter.matches(e);
+    }
+
+    /**
+     * Byte offset of every {@link #INDEX_STRIDE}th matching line; a read seeks to the nearest one
+     * and skips forward, re-checking the filter.
+     */
+    private static final class FileIndex implements EventIndex {
+        private final File log;
+        private final EventFilter filter;
+        private final long length;
+        private final long[] offsets;
+        private final int count;
+
+        FileIndex(File log, EventFilter filter, long length, long[] offsets, int count) {
+            this.log = log;
+            this.filter = filter;
+            this.length = length;
+            this.offsets = offsets;
+            this.count = count;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public List<JsonObject> read(int from, int n) throws IOException {
+            List<JsonObject> out = new java.util.ArrayList<>(Math.max(0, Math.min(n, count - from)));
+            if (from < 0 || from >= count) return out;
+
+            int position = (from / INDEX_STRIDE) * INDEX_STRIDE;
+            long offset = offsets[from / INDEX_STRIDE];
+            JsonParser parser = new JsonParser();
+            try (FileInputStream in = new FileInputStream(log)) {
+                in.getChannel().position(offset);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                long pos = offset;
+                String line;
+                while (out.size() < n && pos < length && (line = reader.readLine()) != null) {
+                    pos += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    if (line.isEmpty()) continue;
+                    if (!filter.isEmpty() && !matches(filter, parser, line)) continue;
+                    if (position++ < from) continue;
+                    JsonObject e = parseLine(parser, line);
+                    out.add(e == null ? new JsonObject() : e);
+                }
+            }
+            return out;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Writer w : writers.values()) {
+            closeQuietly(w);
+        }
+        writers.clear();
+    }
+
+    private Writer writerFor(File file) throws IOException {
+        Writer writer = writers.get(file);
+        if (writer == null) {
+            file.getParentFile().mkdirs();
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            writers.put(file, writer);
+        }
+        return writer;
+    }
+
+    private static void closeQuietly(Writer writer) {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Byte offset of the first line with tsMs &gt;= target (or a line boundary just before it).
+     */
+    static long seekToTime(RandomAccessFile raf, long target) throws IOException {
+        JsonParser parser = new JsonParser();
+        long lo = 0;
+        long hi = raf.length();
+        while (hi - lo > 4096) {
+            long mid = (lo + hi) >>> 1;
+            raf.seek(mid);
+            raf.readLine(); // skip the partial line
+            long lineStart = raf.getFilePointer();
+            String line = raf.readLine();
+            JsonObject e = line == null ? null : parseLine(parser, line);
+            if (e == null || !e.has("tsMs") || e.get("tsMs").getAsLong() >= target) {
+                hi = mid;
+            } else {
+                lo = lineStart;
+            }
+        }
+        // lo only ever moves to the start of a line.
+        return lo;
+    }
+
+    static JsonObject parseLine(JsonParser parser, String line) {
+        if (line.trim().isEmpty()) return null;
+        try {
+            return parser.parse(line).getAsJsonObject();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    static String toTextLine(JsonObject entry) {
+        // Format example:
+        // [12:34:56] PLACE (x,y,z) stone:0 -> wool:14 player=Name uuid=... attr=heuristic_look
+        StringBuilder sb = new StringBuilder();
+        try {
+            long ts = entry.has("tsMs") ? entry.get("tsMs").getAsLong() : 0L;
+            sb.append('[').append(TEXT_LOG_TIME.get().format(new java.util.Date(ts))).append("] ");
+
+            if (entry.has("area")) {
+                sb.append('[').append(entry.get("area").getAsString()).append("] ");
+            }
+
+            sb.append(entry.has("action") ? entry.get("action").getAsString() : "?");
+            sb.append(" (");
+            sb.append(entry.has("x") ? entry.get("x").getAsInt() : 0).append(',');
+            sb.append(entry.has("y") ? entry.get("y").getAsInt() : 0).append(',');
+            sb.append(entry.has("z") ? entry.get("z").getAsInt() : 0).append(')');
+            sb.append(' ');
+            sb.append(entry.has("oldBlock") ? entry.get("oldBlock").getAsString() : "?");
+            sb.append(':');
+            sb.append(entry.has("oldMeta") ? entry.get("oldMeta").getAsInt() : 0);
+            sb.append(" -> ");
+            sb.append(entry.has("newBlock") ? entry.get("newBlock").getAsString() : "?");
+            sb.append(':');
+            sb.append(entry.has("newMeta") ? entry.get("newMeta").getAsInt() : 0);
+
+            if (entry.has("playerName")) {
+                sb.append(" player=").append(entry.get("playerName").getAsString());
+            } else {
+                sb.append(" player=unknown");
+            }
+
+            if (entry.has("playerUuid")) {
+                sb.append(" uuid=").append(entry.get("playerUuid").getAsString());
+            }
+
+            sb.append(" attr=").append(entry.has("attribution") ? entry.get("attribution").getAsString() : "unknown");
+
+            if (entry.has("nearbyPlayers") && entry.get("nearbyPlayers").isJsonArray()) {
+                com.google.gson.JsonArray arr = entry.getAsJsonArray("nearbyPlayers");
+                if (arr.size() > 0) {
+                    sb.append(" nearby=[");
+                    int limit = Math.min(arr.size(), 12);
+                    for (int i = 0; i < limit; i++) {
+                        if (i > 0) sb.append(", ");
+                        if (!arr.get(i).isJsonObject()) continue;
+                        JsonObject p = arr.get(i).getAsJsonObject();
+                        String n = p.has("name") ? p.get("name").getAsString() : "?";
+                        double d = p.has("dist") ? p.get("dist").getAsDouble() : -1.0;
+                        sb.append(n);
+                        if (d >= 0) sb.append('(').append(String.format(java.util.Locale.ROOT, "%.2f", d)).append(')');
+                    }
+                    if (arr.size() > limit) sb.append(", ...");
+                    sb.append(']');
+                }
+            }
+        } catch (Throwable t) {
+            return lineFallback(entry);
+        }
+        return sb.toString();
+    }
+
+    private static String lineFallback(JsonObject entry) {
+        try {
+            return GSON.toJson(entry);
+        } catch (Throwable t) {
+            return "{\"error\":\"failed_to_format\"}";
+        }
+    }
+
+}
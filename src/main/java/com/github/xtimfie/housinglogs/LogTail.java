@@ -0,0 +1,172 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.JsonObject;
+import net.minecraft.client.Minecraft;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * /hlog tail: new events in chat, as they are logged.
+ *
+ * The log thread only filters and enqueues ({@link #offer}); it never waits on chat. Each client tick
+ * folds the queued events into one summary per player, action, block and area ("Steve placed 340
+ * wool in plot3"). Summaries go out under a per-second line budget; while the budget is spent they
+ * keep absorbing events, so a big fill ends up as a few lines with large counts.
+ */
+final class LogTail {
+    static final LogTail INSTANCE = new LogTail();
+
+    private static final int LINES_PER_SECOND = 4;
+    // Burst allowance after a quiet spell.
+    private static final int MAX_LINE_TOKENS = 8;
+    // Bound on what the log thread may queue between two ticks, and on waiting summaries.
+    private static final int MAX_QUEUED = 20000;
+    private static final int MAX_SUMMARIES = 64;
+
+    private static final class Summary {
+        final String player;
+        final String action;
+        final String block;
+        final String area;
+        int count;
+
+        Summary(String player, String action, String block, String area) {
+            this.player = player;
+            this.action = action;
+            this.block = block;
+            this.area = area;
+        }
+    }
+
+    private volatile EventFilter filter;
+    private final ConcurrentLinkedQueue<JsonObject> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    // Client thread only.
+    private final Map<String, Summary> summaries = new LinkedHashMap<>();
+    private int overflow = 0;
+    private double tokens = MAX_LINE_TOKENS;
+
+    private LogTail() {
+    }
+
+    void start(String area, String player) {
+        queue.clear();
+        queued.set(0);
+        dropped.set(0);
+        summaries.clear();
+        overflow = 0;
+        filter = new EventFilter(area, player, "", "");
+    }
+
+    void stop() {
+        filter = null;
+    }
+
+    boolean isActive() {
+        return filter != null;
+    }
+
+    /**
+     * Log thread: hands a written entry to the tail if one is running and it matches.
+     */
+    void offer(JsonObject entry) {
+        EventFilter f = filter;
+        if (f == null || !f.matches(entry)) return;
+        if (queued.incrementAndGet() > MAX_QUEUED) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.add(entry);
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || filter == null) return;
+        tokens = Math.min(MAX_LINE_TOKENS, tokens + LINES_PER_SECOND / 20.0);
+
+        JsonObject e;
+        while ((e = queue.poll()) != null) {
+            queued.decrementAndGet();
+            add(e);
+        }
+        overflow += dropped.getAndSet(0);
+
+        Minecraft mc = Minecraft.getMinecraft();
+        if (mc.thePlayer == null) return;
+        Iterator<Summary> it = summaries.values().iterator();
+        while (tokens >= 1.0 && it.hasNext()) {
+            Summary s = it.next();
+            it.remove();
+            tokens -= 1.0;
+            mc.thePlayer.addChatMessage(new ChatComponentText(format(s)));
+        }
+        if (overflow > 0 && summaries.isEmpty() && tokens >= 1.0) {
+            tokens -= 1.0;
+            mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[HousingLogs] ... and " + overflow + " more events."));
+            overflow = 0;
+        }
+    }
+
+    private void add(JsonObject e) {
+        String action = str(e, "action", "CHANGE");
+        String player = e.has("playerName") ? e.get("playerName").getAsString()
+                : "observed_offline".equals(str(e, "attribution", "")) ? "Someone (offline)" : "Someone";
+        String block = shortName(str(e, "BREAK".equals(action) ? "oldBlock" : "TRANSIENT".equals(action) ? "transientBlock" : "newBlock", "?"));
+        String area = str(e, "area", "?");
+
+        String key = player + '\u0000' + action + '\u0000' + block + '\u0000' + area;
+        Summary s = summaries.get(key);
+        if (s == null) {
+            if (summaries.size() >= MAX_SUMMARIES) {
+                overflow++;
+                return;
+            }
+            s = new Summary(player, action, block, area);
+            summaries.put(key, s);
+        }
+        s.count += e.has("suppressed") ? e.get("suppressed").getAsInt() : 1;
+    }
+
+    private static String format(Summary s) {
+        String verb;
+        EnumChatFormatting color;
+        switch (s.action) {
+            case "PLACE":
+                verb = "placed";
+                color = EnumChatFormatting.GREEN;
+                break;
+            case "BREAK":
+                verb = "broke";
+                color = EnumChatFormatting.RED;
+                break;
+            case "TRANSIENT":
+                verb = "briefly placed";
+                color = EnumChatFormatting.GRAY;
+                break;
+            default:
+                verb = "changed " + s.count + (s.count == 1 ? " block" : " blocks") + " to";
+                color = EnumChatFormatting.YELLOW;
+        }
+        String what = "CHANGE".equals(s.action) ? s.block : s.count + " " + s.block;
+        return color + "[HousingLogs] " + s.player + " " + verb + " " + what + " in " + s.area;
+    }
+
+    private static String shortName(String block) {
+        return block.startsWith("minecraft:") ? block.substring("minecraft:".length()) : block;
+    }
+
+    private static String str(JsonObject e, String key, String fallback) {
+        return e.has(key) && !e.get(key).isJsonNull() ? e.get(key).getAsString() : fallback;
+    }
+}
@@ -0,0 +1,280 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.IChatComponent;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * Simulated Hypixel Pro Tools endpoint for {@link ProtoolsBenchmark}.
+ *
+ * Commands and replies travel with a configurable one-way latency (plus jitter, delivered in order
+ * like a TCP stream). The server enforces its own token bucket and answers "Slow down!" for commands
+ * it drops, may nudge a /tp off by a block, and replies to //pos, //set, //fill and //desel in the
+ * same wording the engine parses in game. Everything is driven by {@link #tick()} and a seeded
+ * {@link Random}, so a run is reproducible.
+ */
+final class MockProtoolsServer implements ProtoolsTransport {
+    private static final class Packet {
+        final long deliverTick;
+        final String text;
+        // Set for position updates (the client seeing where the server put it).
+        final double[] position;
+
+        Packet(long deliverTick, String text, double[] position) {
+            this.deliverTick = deliverTick;
+            this.text = text;
+            this.position = position;
+        }
+    }
+
+    private final Random random;
+    private final int latencyTicks;
+    private final int jitterTicks;
+    private final double nudgeChance;
+    private final double serverRatePerTick;
+    private final double serverBurst;
+
+    private final Object world = new Object();
+    private final ArrayDeque<Packet> uplink = new ArrayDeque<>();
+    private final ArrayDeque<Packet> downlink = new ArrayDeque<>();
+    private long lastUplinkTick = 0;
+    private long lastDownlinkTick = 0;
+
+    private ProtoolsAutomation engine;
+    private long now = 0;
+    private double serverTokens;
+
+    // Where the server has the player, and where the client currently believes it is.
+    private double serverX;
+    private double serverY;
+    private double serverZ;
+    private double clientX;
+    private double clientY;
+    private double clientZ;
+
+    private BlockPos pos1;
+    private BlockPos pos2;
+
+    private int commandsReceived = 0;
+    private int slowDowns = 0;
+    private int nudges = 0;
+    private int operations = 0;
+    private long blocksChanged = 0;
+
+    MockProtoolsServer(long seed, int latencyTicks, int jitterTicks, double nudgeChance, double serverRatePerTick, double serverBurst) {
+        this.random = new Random(seed);
+        this.latencyTicks = Math.max(0, latencyTicks);
+        this.jitterTicks = Math.max(0, jitterTicks);
+        this.nudgeChance = nudgeChance;
+        this.serverRatePerTick = serverRatePerTick;
+        this.serverBurst = serverBurst;
+        this.serverTokens = serverBurst;
+    }
+
+    void attach(ProtoolsAutomation engine) {
+        this.engine = engine;
+    }
+
+    void setPlayerPosition(double x, double y, double z) {
+        serverX = clientX = x;
+        serverY = clientY = y;
+        serverZ = clientZ = z;
+    }
+
+    /**
+     * Advances the simulation one tick: refills the server bucket, handles arrived commands and
+     * delivers arrived replies to the engine.
+     */
+    void tick() {
+        now++;
+        serverTokens = Math.min(serverBurst, serverTokens + serverRatePerTick);
+
+        while (!uplink.isEmpty() && uplink.peekFirst().deliverTick <= now) {
+            handleCommand(uplink.pollFirst().text);
+        }
+        while (!downlink.isEmpty() && downlink.peekFirst().deliverTick <= now) {
+            Packet p = downlink.pollFirst();
+            if (p.position != null) {
+                clientX = p.position[0];
+                clientY = p.position[1];
+                clientZ = p.position[2];
+            } else if (engine != null) {
+                engine.handleServerMessage(p.text);
+            }
+        }
+    }
+
+    private void handleCommand(String command) {
+        commandsReceived++;
+        if (serverTokens < 1.0) {
+            slowDowns++;
+            reply("Slow down! You can only use this command every so often.");
+            return;
+        }
+        serverTokens -= 1.0;
+
+        String[] parts = command.trim().split("\\s+");
+        String name = parts[0].toLowerCase(java.util.Locale.ROOT);
+        switch (name) {
+            case "/tp": {
+                if (parts.length < 4) return;
+                try {
+                    serverX = Double.parseDouble(parts[1]);
+                    serverY = Double.parseDouble(parts[2]);
+                    serverZ = Double.parseDouble(parts[3]);
+                } catch (NumberFormatException e) {
+                    return;
+                }
+                if (random.nextDouble() < nudgeChance) {
+                    nudges++;
+                    serverX += random.nextBoolean() ? 1.0 : -1.0;
+                }
+                downlink(new Packet(nextDownlinkTick(), null, new double[]{serverX, serverY, serverZ}));
+                return;
+            }
+            case "//pos1":
+            case "//pos2": {
+                BlockPos at = new BlockPos((int) Math.floor(serverX), (int) Math.floor(serverY), (int) Math.floor(serverZ));
+                int index = name.endsWith("1") ? 1 : 2;
+                if (index == 1) pos1 = at; else pos2 = at;
+                reply("Set position " + index + " to (" + at.getX() + ", " + at.getY() + ", " + at.getZ() + ").");
+                return;
+            }
+            case "//set":
+            case "//fill": {
+                if (pos1 == null || pos2 == null) {
+                    reply("You need to make a selection first!");
+                    return;
+                }
+                long volume = (long) (Math.abs(pos1.getX() - pos2.getX()) + 1)
+                        * (Math.abs(pos1.getY() - pos2.getY()) + 1)
+                        * (Math.abs(pos1.getZ() - pos2.getZ()) + 1);
+                operations++;
+                blocksChanged += volume;
+                reply("Operation completed: " + volume + " blocks changed.");
+                return;
+            }
+            case "//desel": {
+                pos1 = null;
+                pos2 = null;
+                reply("Selection cleared.");
+                return;
+            }
+            default:
+                reply("Unknown command.");
+        }
+    }
+
+    private void reply(String text) {
+        downlink(new Packet(nextDownlinkTick(), text, null));
+    }
+
+    private void downlink(Packet p) {
+        downlink.addLast(p);
+    }
+
+    private long nextDownlinkTick() {
+        lastDownlinkTick = Math.max(lastDownlinkTick, now + delay());
+        return lastDownlinkTick;
+    }
+
+    private int delay() {
+        return latencyTicks + (jitterTicks > 0 ? random.nextInt(jitterTicks + 1) : 0);
+    }
+
+    /**
+     * @return true once every command sent has been handled and every reply delivered
+     */
+    boolean isIdle() {
+        return uplink.isEmpty() && downlink.isEmpty();
+    }
+
+    int getCommandsReceived() {
+        return commandsReceived;
+    }
+
+    int getSlowDowns() {
+        return slowDowns;
+    }
+
+    int getNudges() {
+        return nudges;
+    }
+
+    int getOperations() {
+        return operations;
+    }
+
+    long getBlocksChanged() {
+        return blocksChanged;
+    }
+
+    // ProtoolsTransport
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public Object worldToken() {
+        return world;
+    }
+
+    @Override
+    public boolean isInHousing() {
+        return true;
+    }
+
+    @Override
+    public double getX() {
+        return clientX;
+    }
+
+    @Override
+    public double getY() {
+        return clientY;
+    }
+
+    @Override
+    public double getZ() {
+        return clientZ;
+    }
+
+    @Override
+    public float getYaw() {
+        return 0.0f;
+    }
+
+    @Override
+    public float getPitch() {
+        return 0.0f;
+    }
+
+    @Override
+    public void sendCommand(String message) {
+        lastUplinkTick = Math.max(lastUplinkTick, now + delay());
+        uplink.addLast(new Packet(lastUplinkTick, message, null));
+    }
+
+    @Override
+    public void feedback(IChatComponent message) {
+        // Progress chatter is not part of the measurement.
+    }
+
+    @Override
+    public void holdStill() {
+    }
+
+    @Override
+    public void restoreRotation(float yaw, float pitch) {
+    }
+
+    @Override
+    public java.util.concurrent.Future<RegionSnapshot> captureRegion(BlockPos a, BlockPos b) {
+        // There is no world to read; benchmark jobs are not undoable.
+        return null;
+    }
+}
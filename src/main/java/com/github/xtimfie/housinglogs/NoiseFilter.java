@@ -0,0 +1,289 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.JsonObject;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps doors, levers, redstone and other constantly flipping blocks from flooding the log.
+ *
+ * Three things happen between attribution and the sink:
+ * - state flips (CHANGE within one block class such as doors) of suppressed classes are held back;
+ * - any other position flipping more than a few times in 10 seconds is held back as well, tracked in
+ *   a fixed-size table;
+ * - a PLACE undone by a BREAK within {@link #PAIR_WINDOW_MS} becomes one TRANSIENT record.
+ * Held-back flips are not dropped: each position's run is written later as its last flip with a
+ * "suppressed" count, so counts stay right and replaying the log still ends in the right state.
+ * That record keeps the last flip's time, so it can reach the log up to {@link #SUMMARY_INTERVAL_MS}
+ * after later entries; JSONL range reads allow for that, and a record flushed by a following change
+ * at the same position is written ahead of it and never stamped later than it.
+ *
+ * Log thread only, apart from the settings and the tick that releases held entries.
+ */
+final class NoiseFilter {
+    static final List<String> CLASSES = Collections.unmodifiableList(Arrays.asList("doors", "trapdoors", "gates", "levers", "buttons", "plates", "redstone"));
+
+    // After CLASSES, which the constructor reads.
+    static final NoiseFilter INSTANCE = new NoiseFilter();
+
+    static final int DEFAULT_MAX_FLIPS = 4;
+    private static final long FLIP_WINDOW_MS = 10_000L;
+    static final long PAIR_WINDOW_MS = 50L;
+    static final long SUMMARY_INTERVAL_MS = 30_000L;
+    private static final int MAX_HELD_PLACES = 256;
+    private static final int FLIP_SLOTS = 4096;
+    private static final int SUMMARY_SLOTS = 1024;
+
+    private static final class HeldPlace {
+        final String partition;
+        final JsonObject entry;
+        final long receivedMs;
+
+        HeldPlace(String partition, JsonObject entry, long receivedMs) {
+            this.partition = partition;
+            this.entry = entry;
+            this.receivedMs = receivedMs;
+        }
+    }
+
+    private volatile Set<String> suppressed = new HashSet<>(CLASSES);
+    private volatile int maxFlips = DEFAULT_MAX_FLIPS;
+    private volatile boolean hasHeld;
+
+    private final LinkedHashMap<String, HeldPlace> heldPlaces = new LinkedHashMap<>();
+
+    // Direct-mapped: a colliding position takes the slot over and starts counting afresh.
+    private final long[] flipKey = new long[FLIP_SLOTS];
+    private final long[] flipStart = new long[FLIP_SLOTS];
+    private final int[] flipCount = new int[FLIP_SLOTS];
+
+    // Runs of held-back flips, one per position; a colliding position writes the old run out first.
+    private final String[] summaryKey = new String[SUMMARY_SLOTS];
+    private final String[] summaryPartition = new String[SUMMARY_SLOTS];
+    private final JsonObject[] summaryLast = new JsonObject[SUMMARY_SLOTS];
+    private final int[] summaryCount = new int[SUMMARY_SLOTS];
+    private final long[] summaryFirstMs = new long[SUMMARY_SLOTS];
+    private int summaries = 0;
+    private long lastSummaryFlushMs = System.currentTimeMillis();
+
+    private NoiseFilter() {
+    }
+
+    Set<String> getSuppressed() {
+        return suppressed;
+    }
+
+    boolean setSuppressed(String cls, boolean on) {
+        if (!CLASSES.contains(cls)) return false;
+        Set<String> next = new HashSet<>(suppressed);
+        if (on) next.add(cls);
+        else next.remove(cls);
+        suppressed = next;
+        return true;
+    }
+
+    void setSuppressed(Set<String> classes) {
+        Set<String> next = new HashSet<>(classes);
+        next.retainAll(CLASSES);
+        suppressed = next;
+    }
+
+    int getMaxFlips() {
+        return maxFlips;
+    }
+
+    /**
+     * @param flips flips allowed per position in 10 seconds; 0 turns the limiter off
+     */
+    void setMaxFlips(int flips) {
+        maxFlips = Math.max(0, flips);
+    }
+
+    /**
+     * Log thread: passes an entry on to the sink now, later, or folded into a summary.
+     */
+    void filter(String partition, JsonObject e) {
+        releaseDue(System.currentTimeMillis(), false);
+        if ("observed_offline".equals(str(e, "attribution")) || !e.has("x")) {
+            BlockAuditManager.queueForSink(partition, e);
+            return;
+        }
+        String action = str(e, "action");
+        long ts = e.get("tsMs").getAsLong();
+        String key = partition + '|' + str(e, "area") + '|' + e.get("x").getAsInt() + ',' + e.get("y").getAsInt() + ',' + e.get("z").getAsInt();
+
+        HeldPlace held = heldPlaces.remove(key);
+        if (held != null) {
+            if ("BREAK".equals(action) && ts - held.entry.get("tsMs").getAsLong() <= PAIR_WINDOW_MS
+                    && str(held.entry, "newBlock").equals(str(e, "oldBlock"))) {
+                BlockAuditManager.queueForSink(partition, transientRecord(held.entry, e));
+                return;
+            }
+            BlockAuditManager.queueForSink(held.partition, held.entry);
+        }
+
+        if ("PLACE".equals(action)) {
+            flushSummary(key, ts);
+            heldPlaces.put(key, new HeldPlace(partition, e, System.currentTimeMillis()));
+            if (heldPlaces.size() > MAX_HELD_PLACES) {
+                Iterator<HeldPlace> it = heldPlaces.values().iterator();
+                HeldPlace oldest = it.next();
+                it.remove();
+                BlockAuditManager.queueForSink(oldest.partition, oldest.entry);
+            }
+            hasHeld = true;
+            return;
+        }
+
+        if ("CHANGE".equals(action)) {
+            String cls = blockClass(str(e, "oldBlock"));
+            boolean classFlip = cls != null && cls.equals(blockClass(str(e, "newBlock"))) && suppressed.contains(cls);
+            if (classFlip || overFlipLimit(key, ts)) {
+                summarize(partition, key, e, ts);
+                return;
+            }
+        }
+        flushSummary(key, ts);
+        BlockAuditManager.queueForSink(partition, e);
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !hasHeld) return;
+        BlockAuditManager.runOnLogThread(() -> releaseDue(System.currentTimeMillis(), false));
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+        // Leaving the house: write everything out rather than wait for events that will not come.
+        BlockAuditManager.runOnLogThread(() -> {
+            releaseDue(System.currentTimeMillis(), true);
+            ActivityRollups.persistAll();
+        });
+    }
+
+    /**
+     * Log thread: writes out held places whose pairing window has passed and, every 30 seconds or
+     * when forced, every pending summary.
+     */
+    void releaseDue(long nowMs, boolean force) {
+        Iterator<HeldPlace> it = heldPlaces.values().iterator();
+        while (it.hasNext()) {
+            HeldPlace h = it.next();
+            if (!force && nowMs - h.receivedMs <= PAIR_WINDOW_MS) break;
+            it.remove();
+            BlockAuditManager.queueForSink(h.partition, h.entry);
+        }
+        if (summaries > 0 && (force || nowMs - lastSummaryFlushMs >= SUMMARY_INTERVAL_MS)) {
+            for (int i = 0; i < SUMMARY_SLOTS; i++) {
+                if (summaryKey[i] != null) emitSummary(i, Long.MAX_VALUE);
+            }
+        }
+        // The 30 seconds count from the first flip held back since the last flush.
+        if (summaries == 0) lastSummaryFlushMs = nowMs;
+        hasHeld = !heldPlaces.isEmpty() || summaries > 0;
+    }
+
+    private boolean overFlipLimit(String key, long ts) {
+        int limit = maxFlips;
+        if (limit <= 0) return false;
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L + key.length();
+        int i = (int) (h >>> 52) & (FLIP_SLOTS - 1);
+        if (flipKey[i] != h || ts - flipStart[i] > FLIP_WINDOW_MS) {
+            flipKey[i] = h;
+            flipStart[i] = ts;
+            flipCount[i] = 0;
+        }
+        return ++flipCount[i] > limit;
+    }
+
+    private void summarize(String partition, String key, JsonObject e, long ts) {
+        int i = key.hashCode() & (SUMMARY_SLOTS - 1);
+        if (summaryKey[i] != null && !summaryKey[i].equals(key)) emitSummary(i, Long.MAX_VALUE);
+        if (summaryKey[i] == null) {
+            summaryKey[i] = key;
+            summaryPartition[i] = partition;
+            summaryFirstMs[i] = ts;
+            summaryCount[i] = 0;
+            summaries++;
+        }
+        summaryLast[i] = e;
+        summaryCount[i]++;
+        hasHeld = true;
+    }
+
+    /**
+     * Writes out the run at key ahead of a change there at beforeTs.
+     */
+    private void flushSummary(String key, long beforeTs) {
+        int i = key.hashCode() & (SUMMARY_SLOTS - 1);
+        if (key.equals(summaryKey[i])) emitSummary(i, beforeTs);
+    }
+
+    /**
+     * @param notAfterMs latest tsMs the record may carry, so a reader sorting by time still puts it
+     *                   before the change that flushed it
+     */
+    private void emitSummary(int i, long notAfterMs) {
+        JsonObject last = summaryLast[i];
+        last.addProperty("suppressed", summaryCount[i]);
+        last.addProperty("firstTsMs", summaryFirstMs[i]);
+        long lastTs = last.get("tsMs").getAsLong();
+        if (lastTs > notAfterMs) last.addProperty("tsMs", notAfterMs);
+        BlockAuditManager.queueForSink(summaryPartition[i], last);
+        summaryKey[i] = null;
+        summaryPartition[i] = null;
+        summaryLast[i] = null;
+        summaries--;
+    }
+
+    /**
+     * One record for a block placed and broken again straight away: the state before and after
+     * (normally the same) plus the block that was briefly there.
+     */
+    private static JsonObject transientRecord(JsonObject place, JsonObject brk) {
+        JsonObject out = new JsonObject();
+        for (java.util.Map.Entry<String, com.google.gson.JsonElement> en : place.entrySet()) {
+            out.add(en.getKey(), en.getValue());
+        }
+        out.addProperty("action", "TRANSIENT");
+        out.add("transientBlock", place.get("newBlock"));
+        if (place.has("newMeta")) out.add("transientMeta", place.get("newMeta"));
+        out.add("newBlock", brk.get("newBlock"));
+        if (brk.has("newMeta")) out.add("newMeta", brk.get("newMeta"));
+        out.addProperty("durationMs", brk.get("tsMs").getAsLong() - place.get("tsMs").getAsLong());
+        return out;
+    }
+
+    /**
+     * @return the noise class of a block id, or null
+     */
+    static String blockClass(String block) {
+        if (block == null) return null;
+        String b = block.startsWith("minecraft:") ? block.substring("minecraft:".length()) : block;
+        if (b.endsWith("_door")) return "doors";
+        if (b.endsWith("trapdoor")) return "trapdoors";
+        if (b.endsWith("fence_gate")) return "gates";
+        if (b.equals("lever")) return "levers";
+        if (b.endsWith("_button")) return "buttons";
+        if (b.endsWith("pressure_plate")) return "plates";
+        if (b.startsWith("redstone_") || b.startsWith("unlit_redstone") || b.startsWith("lit_redstone") || b.endsWith("_repeater")
+                || b.endsWith("_comparator") || b.startsWith("daylight_detector") || b.startsWith("tripwire")) {
+            return "redstone";
+        }
+        return null;
+    }
+
+    private static String str(JsonObject e, String key) {
+        return e.has(key) && !e.get(key).isJsonNull() ? e.get(key).getAsString() : "";
+    }
+}
@@ -0,0 +1,352 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Finds blocks in audit areas that changed while no client was there to log them.
+ *
+ * Every chunk section overlapping an area is hashed (the same hash the snapshots store) when its
+ * chunk arrives and again when it is unloaded, and the hash is remembered per area across sessions.
+ * A section whose hash still matches costs one pass over its blocks and nothing else. Only sections
+ * whose hash changed are compared, in the background, against the area as the snapshots and the log
+ * say it should be; the differences are logged as "observed_offline" changes.
+ *
+ * Hashes are kept next to the area's snapshots, in hitlist-snapshots/&lt;area&gt;/sections.hash.
+ */
+final class OfflineChangeDetector {
+    static final OfflineChangeDetector INSTANCE = new OfflineChangeDetector();
+
+    private static final int MAGIC = 0x484C5348; // "HLSH"
+    private static final int VERSION = 1;
+    private static final int SAVE_INTERVAL_TICKS = 20 * 10;
+
+    private static final class AreaHashes {
+        final File file;
+        final BlockPos min;
+        final BlockPos max;
+        final Map<Long, Long> hashes;
+        // Sections queued for comparison; their stored hash is only replaced once the comparison ran.
+        final Set<Long> unconfirmed = new HashSet<>();
+        boolean dirty;
+
+        AreaHashes(File file, BlockPos min, BlockPos max, Map<Long, Long> hashes) {
+            this.file = file;
+            this.min = min;
+            this.max = max;
+            this.hashes = hashes;
+        }
+    }
+
+    /**
+     * A section whose hash changed since the last visit, copied on the client thread.
+     */
+    private static final class Observed {
+        final BlockAuditManager.AreaSnapshot area;
+        final AreaHashes stored;
+        final int cx;
+        final int sy;
+        final int cz;
+        final long hash;
+        // null for an empty (all air) section.
+        final char[] data;
+        final long tsMs;
+
+        Observed(BlockAuditManager.AreaSnapshot area, AreaHashes stored, int cx, int sy, int cz, long hash, char[] data, long tsMs) {
+            this.area = area;
+            this.stored = stored;
+            this.cx = cx;
+            this.sy = sy;
+            this.cz = cz;
+            this.hash = hash;
+            this.data = data;
+            this.tsMs = tsMs;
+        }
+    }
+
+    // Keyed by "partition/area" (lower-cased); client thread only.
+    private final Map<String, AreaHashes> byArea = new HashMap<>();
+    // Chunks that arrived and have not been hashed yet (they are filled after the load event fires).
+    private final LinkedHashSet<Long> arrived = new LinkedHashSet<>();
+    private final ConcurrentLinkedQueue<Observed> pending = new ConcurrentLinkedQueue<>();
+    private int tickCounter = 0;
+
+    private OfflineChangeDetector() {
+    }
+
+    @SubscribeEvent
+    public void onChunkLoad(ChunkEvent.Load event) {
+        if (!event.world.isRemote || !BlockAuditManager.isEnabled()) return;
+        Chunk chunk = event.getChunk();
+        if (chunk == null || !overlapsAnyArea(chunk.xPosition, chunk.zPosition)) return;
+        arrived.add(chunkKey(chunk.xPosition, chunk.zPosition));
+    }
+
+    @SubscribeEvent
+    public void onChunkUnload(ChunkEvent.Unload event) {
+        if (!event.world.isRemote || !BlockAuditManager.isEnabled() || !HousingContext.isInHousing()) return;
+        Chunk chunk = event.getChunk();
+        if (chunk == null || chunk.isEmpty()) return;
+        arrived.remove(chunkKey(chunk.xPosition, chunk.zPosition));
+        // Remember what the area looked like when we left, so the next visit only flags real changes.
+        hashChunk(chunk, false);
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+        if (event.world.isRemote) arrived.clear();
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+        if (++tickCounter % SAVE_INTERVAL_TICKS == 0) saveDirty();
+
+        if (arrived.isEmpty()) return;
+        World world = Minecraft.getMinecraft().theWorld;
+        if (world == null) {
+            arrived.clear();
+            return;
+        }
+        // The scoreboard that marks a house can show up a little after the chunks; keep them until then.
+        if (!BlockAuditManager.isEnabled() || !HousingContext.isInHousing()) return;
+
+        boolean found = false;
+        for (long key : arrived) {
+            Chunk chunk = world.getChunkFromChunkCoords((int) (key >> 32), (int) key);
+            if (chunk == null || chunk.isEmpty()) continue;
+            found |= hashChunk(chunk, true);
+        }
+        arrived.clear();
+        if (found) AreaBlockSnapshot.EXECUTOR.execute(this::comparePending);
+    }
+
+    /**
+     * Hashes every area section in the chunk and stores the hashes. With compare set, a changed hash
+     * is queued instead and stored by {@link #comparePending} once the comparison has run, so a
+     * comparison that could not run is retried on the next visit rather than lost.
+     *
+     * @param compare queue sections whose hash changed for comparison
+     * @return true if anything was queued
+     */
+    private boolean hashChunk(Chunk chunk, boolean compare) {
+        ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+        if (storage == null) return false;
+        int cx = chunk.xPosition;
+        int cz = chunk.zPosition;
+        int bx = cx << 4;
+        int bz = cz << 4;
+        long now = System.currentTimeMillis();
+        boolean queued = false;
+
+        for (BlockAuditManager.AreaSnapshot area : BlockAuditManager.getAreasSnapshot()) {
+            if (!area.enabled) continue;
+            int x0 = Math.max(area.min.getX(), bx), x1 = Math.min(area.max.getX(), bx + 15);
+            int z0 = Math.max(area.min.getZ(), bz), z1 = Math.min(area.max.getZ(), bz + 15);
+            int minY = Math.max(0, area.min.getY()), maxY = Math.min(255, area.max.getY());
+            if (x0 > x1 || z0 > z1 || minY > maxY) continue;
+
+            AreaHashes stored = hashesFor(area);
+            for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+                int y0 = Math.max(minY, sy << 4), y1 = Math.min(maxY, (sy << 4) + 15);
+                ExtendedBlockStorage s = storage[sy];
+                char[] data = s == null ? null : s.getData();
+                long hash = AreaBlockSnapshot.hashSection(data, x0, x1, y0, y1, z0, z1);
+                long key = sectionKey(cx, sy, cz);
+                Long previous = stored.hashes.get(key);
+                if (previous != null && previous == hash) continue;
+                if (compare) {
+                    stored.unconfirmed.add(key);
+                    pending.add(new Observed(area, stored, cx, sy, cz, hash, data == null ? null : data.clone(), now));
+                    queued = true;
+                } else if (!stored.unconfirmed.contains(key)) {
+                    stored.hashes.put(key, hash);
+                    stored.dirty = true;
+                }
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Background: compares changed sections with the area's expected state and logs the differences.
+     */
+    private void comparePending() {
+        Map<String, List<Observed>> byName = new HashMap<>();
+        Observed o;
+        while ((o = pending.poll()) != null) {
+            byName.computeIfAbsent(o.area.name, k -> new ArrayList<>()).add(o);
+        }
+
+        for (List<Observed> observed : byName.values()) {
+            BlockAuditManager.AreaSnapshot area = observed.get(0).area;
+            long at = observed.get(observed.size() - 1).tsMs;
+            AreaBlockSnapshot expected;
+            try {
+                expected = AreaTimeline.reconstruct(area, at);
+            } catch (IOException e) {
+                System.err.println("[HousingLogs] Failed to check '" + area.name + "' for offline changes: " + e.getMessage());
+                continue;
+            }
+            // Without a snapshot there is nothing to compare against yet; the old hashes stay.
+            if (expected == null) continue;
+            Minecraft.getMinecraft().addScheduledTask(() -> confirm(observed));
+
+            List<AreaBlockSnapshot.Change> changes = new ArrayList<>();
+            for (Observed obs : observed) {
+                AreaBlockSnapshot.Section section = expected.sectionAt(obs.cx, obs.sy, obs.cz);
+                if (section == null || section.hash == obs.hash) continue;
+                collectChanges(expected, section, obs, changes);
+            }
+            if (changes.isEmpty()) continue;
+
+            BlockAuditManager.noteObservedChanges(area.name, changes, at);
+            int count = changes.size();
+            Minecraft.getMinecraft().addScheduledTask(() -> {
+                Minecraft mc = Minecraft.getMinecraft();
+                if (mc.thePlayer == null) return;
+                mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.YELLOW + "[HousingLogs] " + count
+                        + " blocks in '" + area.name + "' changed while you were away (logged as observed_offline)."));
+            });
+        }
+    }
+
+    /**
+     * Client thread: stores the hashes of sections that have been compared.
+     */
+    private static void confirm(List<Observed> observed) {
+        for (Observed obs : observed) {
+            long key = sectionKey(obs.cx, obs.sy, obs.cz);
+            obs.stored.hashes.put(key, obs.hash);
+            obs.stored.unconfirmed.remove(key);
+            obs.stored.dirty = true;
+        }
+    }
+
+    private static void collectChanges(AreaBlockSnapshot expected, AreaBlockSnapshot.Section section, Observed obs, List<AreaBlockSnapshot.Change> out) {
+        char[] old = expected.decode(section);
+        int x0 = Math.max(expected.min.getX(), obs.cx << 4), x1 = Math.min(expected.max.getX(), (obs.cx << 4) + 15);
+        int y0 = Math.max(expected.min.getY(), obs.sy << 4), y1 = Math.min(expected.max.getY(), (obs.sy << 4) + 15);
+        int z0 = Math.max(expected.min.getZ(), obs.cz << 4), z1 = Math.min(expected.max.getZ(), (obs.cz << 4) + 15);
+        int k = 0;
+        for (int y = y0; y <= y1; y++) {
+            for (int z = z0; z <= z1; z++) {
+                for (int x = x0; x <= x1; x++, k++) {
+                    char now = obs.data == null ? 0 : obs.data[(y & 15) << 8 | (z & 15) << 4 | (x & 15)];
+                    if (now != old[k]) out.add(new AreaBlockSnapshot.Change(new BlockPos(x, y, z), old[k], now));
+                }
+            }
+        }
+    }
+
+    private boolean overlapsAnyArea(int cx, int cz) {
+        int bx = cx << 4;
+        int bz = cz << 4;
+        for (BlockAuditManager.AreaSnapshot area : BlockAuditManager.getAreasSnapshot()) {
+            if (!area.enabled) continue;
+            if (area.max.getX() >= bx && area.min.getX() <= bx + 15 && area.max.getZ() >= bz && area.min.getZ() <= bz + 15) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stored hashes of an area, read from disk the first time; dropped if the area has been resized.
+     */
+    private AreaHashes hashesFor(BlockAuditManager.AreaSnapshot area) {
+        String key = BlockAuditManager.getPartition() + "/" + area.name.toLowerCase(java.util.Locale.ROOT);
+        AreaHashes h = byArea.get(key);
+        if (h != null && h.min.equals(area.min) && h.max.equals(area.max)) return h;
+
+        File file = fileFor(area.name);
+        if (h == null) h = read(file, area);
+        if (h == null || !h.min.equals(area.min) || !h.max.equals(area.max)) {
+            h = new AreaHashes(file, area.min, area.max, new HashMap<>());
+        }
+        byArea.put(key, h);
+        return h;
+    }
+
+    private void saveDirty() {
+        for (AreaHashes h : byArea.values()) {
+            if (!h.dirty) continue;
+            h.dirty = false;
+            Map<Long, Long> copy = new HashMap<>(h.hashes);
+            AreaBlockSnapshot.EXECUTOR.execute(() -> write(h.file, h.min, h.max, copy));
+        }
+    }
+
+    private static File fileFor(String areaName) {
+        return new File(AreaBlockSnapshot.directoryFor(areaName), "sections.hash");
+    }
+
+    private static AreaHashes read(File file, BlockAuditManager.AreaSnapshot area) {
+        if (!file.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            BlockPos min = new BlockPos(in.readInt(), in.readInt(), in.readInt());
+            BlockPos max = new BlockPos(in.readInt(), in.readInt(), in.readInt());
+            int count = in.readInt();
+            Map<Long, Long> hashes = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                hashes.put(in.readLong(), in.readLong());
+            }
+            return new AreaHashes(file, min, max, hashes);
+        } catch (IOException e) {
+            System.err.println("[HousingLogs] Failed to read section hashes of '" + area.name + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(File file, BlockPos min, BlockPos max, Map<Long, Long> hashes) {
+        file.getParentFile().mkdirs();
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(min.getX());
+                out.writeInt(min.getY());
+                out.writeInt(min.getZ());
+                out.writeInt(max.getX());
+                out.writeInt(max.getY());
+                out.writeInt(max.getZ());
+                out.writeInt(hashes.size());
+                for (Map.Entry<Long, Long> e : hashes.entrySet()) {
+                    out.writeLong(e.getKey());
+                    out.writeLong(e.getValue());
+                }
+            }
+            if (file.exists() && !file.delete()) throw new IOException("Could not replace " + file.getName());
+            if (!tmp.renameTo(file)) throw new IOException("Could not rename " + tmp.getName());
+        } catch (IOException e) {
+            System.err.println("[HousingLogs] Failed to save section hashes: " + e.getMessage());
+        }
+    }
+
+    private static long chunkKey(int cx, int cz) {
+        return (long) cx << 32 | (cz & 0xFFFFFFFFL);
+    }
+
+    private static long sectionKey(int cx, int sy, int cz) {
+        return (long) cx << 36 | (cz & 0xFFFFFFFFL) << 4 | sy;
+    }
+}
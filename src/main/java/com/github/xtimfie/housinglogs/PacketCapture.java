@@ -0,0 +1,386 @@
+package com.github.xtimfie.housinglogs;
+
+import com.github.xtimfie.housinglogs.core.CaptureFormat;
+import com.github.xtimfie.housinglogs.core.CaptureReplay;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.Vec3;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records what attribution works from to a capture file, so sessions can be replayed offline with
+ * {@link CaptureReplay} while tuning it. See {@link CaptureFormat} for the layout.
+ *
+ * Records are written on the main thread into a buffer that is handed to a background writer at
+ * the end of every tick. Off unless started with /hlog capture; stops by itself when leaving the
+ * world or at {@link #MAX_BYTES}.
+ */
+final class PacketCapture {
+    static final PacketCapture INSTANCE = new PacketCapture();
+
+    private static final long MAX_BYTES = 256L << 20;
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "HousingLogs-Capture");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+
+    // Set at mod init.
+    private File dir;
+
+    // Main thread.
+    private boolean recording;
+    private File file;
+    private long lastTickMs;
+    private long bytes;
+    private int blocks;
+    private final BitSet seenStates = new BitSet();
+    private final Set<Integer> seenEntities = new HashSet<>();
+    private final Map<String, Integer> soundNames = new HashMap<>();
+    // Our look as last written; a SELF record is only repeated when it changes.
+    private final double[] lastSelf = new double[7];
+    private boolean selfWritten;
+
+    // Writer thread.
+    private OutputStream stream;
+
+    private PacketCapture() {
+    }
+
+    void init(File configDir) {
+        dir = new File(configDir, "hitlist-captures");
+    }
+
+    boolean isRecording() {
+        return recording;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getBytes() {
+        return bytes + buffer.size();
+    }
+
+    int getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return an error message, or null once recording
+     */
+    String start() {
+        Minecraft mc = Minecraft.getMinecraft();
+        if (recording) return "Already recording to " + file.getName() + ".";
+        if (mc.theWorld == null || mc.thePlayer == null) return "Join a world first.";
+        file = new File(dir, new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date()) + ".hlcap");
+        File target = file;
+        File targetDir = dir;
+        WRITER.execute(() -> {
+            try {
+                targetDir.mkdirs();
+                stream = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(target), 64 * 1024));
+            } catch (IOException e) {
+                System.err.println("[HousingLogs] Failed to open capture " + target + ": " + e);
+                stream = null;
+            }
+        });
+
+        buffer.reset();
+        bytes = 0;
+        blocks = 0;
+        seenStates.clear();
+        seenEntities.clear();
+        soundNames.clear();
+        selfWritten = false;
+        lastTickMs = System.currentTimeMillis();
+        recording = true;
+        try {
+            out.writeInt(CaptureFormat.MAGIC);
+            out.writeByte(CaptureFormat.VERSION);
+            out.writeLong(lastTickMs);
+            UUID self = mc.thePlayer.getUniqueID();
+            out.writeLong(self.getMostSignificantBits());
+            out.writeLong(self.getLeastSignificantBits());
+            out.writeUTF(mc.thePlayer.getName());
+            // Players already in view; everyone else is written as they appear.
+            for (EntityPlayer p : mc.theWorld.playerEntities) {
+                if (p != mc.thePlayer) spawn(p);
+            }
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    File stop() {
+        if (!recording) return null;
+        flushTick();
+        recording = false;
+        WRITER.execute(() -> {
+            try {
+                if (stream != null) stream.close();
+            } catch (IOException e) {
+                System.err.println("[HousingLogs] Failed to close capture: " + e);
+            }
+            stream = null;
+        });
+        return file;
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (!recording) return;
+        if (event.phase == TickEvent.Phase.START) {
+            long now = System.currentTimeMillis();
+            try {
+                out.writeByte(CaptureFormat.TICK);
+                CaptureFormat.writeVarInt(out, (int) Math.max(0L, now - lastTickMs));
+            } catch (IOException ignored) {
+            }
+            lastTickMs = now;
+            return;
+        }
+        flushTick();
+        if (bytes >= MAX_BYTES) {
+            stop();
+            chat(EnumChatFormatting.GOLD + "[HousingLogs] Capture reached " + (MAX_BYTES >> 20) + " MB and was stopped: " + file.getName());
+        }
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+        // Entity ids start over in the next world, so a capture does not span worlds.
+        if (recording && event.world != null && event.world.isRemote) {
+            stop();
+            chat(EnumChatFormatting.GRAY + "[HousingLogs] Left the world; capture saved to " + file.getName() + ".");
+        }
+    }
+
+    private void flushTick() {
+        if (buffer.size() == 0) return;
+        byte[] chunk = buffer.toByteArray();
+        buffer.reset();
+        bytes += chunk.length;
+        WRITER.execute(() -> {
+            if (stream == null) return;
+            try {
+                stream.write(chunk);
+            } catch (IOException e) {
+                System.err.println("[HousingLogs] Failed to write capture: " + e);
+            }
+        });
+    }
+
+    /**
+     * A change the audit is about to log, with its certain actor if there is one.
+     *
+     * @param label the player it was certainly done by, or null
+     */
+    void block(BlockPos pos, IBlockState oldState, boolean oldAir, IBlockState newState, boolean newAir, boolean local,
+               boolean allowHeuristic, String label, String attribution) {
+        if (!recording) return;
+        try {
+            int oldId = Block.getStateId(oldState);
+            int newId = Block.getStateId(newState);
+            state(oldId, oldState, oldAir);
+            state(newId, newState, newAir);
+            self();
+            out.writeByte(CaptureFormat.BLOCK);
+            out.writeLong(CaptureFormat.packPos(pos.getX(), pos.getY(), pos.getZ()));
+            CaptureFormat.writeVarInt(out, oldId);
+            CaptureFormat.writeVarInt(out, newId);
+            out.writeByte((local ? CaptureFormat.BLOCK_LOCAL : 0) | (allowHeuristic ? CaptureFormat.BLOCK_HEURISTIC : 0));
+            if (label != null) {
+                out.writeByte(CaptureFormat.LABEL);
+                out.writeUTF(label);
+                out.writeUTF(attribution);
+            }
+            blocks++;
+        } catch (IOException ignored) {
+        }
+    }
+
+    void breakAnim(int entityId, BlockPos pos, int progress) throws IOException {
+        if (!recording || !spawned(entityId)) return;
+        out.writeByte(CaptureFormat.BREAK_ANIM);
+        CaptureFormat.writeVarInt(out, entityId);
+        out.writeLong(CaptureFormat.packPos(pos.getX(), pos.getY(), pos.getZ()));
+        out.writeByte(progress);
+    }
+
+    void spawn(Entity e) throws IOException {
+        if (!recording || !(e instanceof EntityPlayer) || !seenEntities.add(e.getEntityId())) return;
+        out.writeByte(CaptureFormat.SPAWN);
+        CaptureFormat.writeVarInt(out, e.getEntityId());
+        out.writeLong(e.getUniqueID().getMostSignificantBits());
+        out.writeLong(e.getUniqueID().getLeastSignificantBits());
+        out.writeUTF(e.getName());
+        out.writeFloat(e.getEyeHeight());
+        out.writeDouble(e.posX);
+        out.writeDouble(e.posY);
+        out.writeDouble(e.posZ);
+        out.writeFloat(e.rotationYawHead);
+        out.writeFloat(e.rotationPitch);
+    }
+
+    void move(Entity e, boolean rotating, byte yaw, byte pitch) throws IOException {
+        if (!recording || !(e instanceof EntityPlayer)) return;
+        spawn(e);
+        out.writeByte(CaptureFormat.MOVE);
+        CaptureFormat.writeVarInt(out, e.getEntityId());
+        out.writeInt(e.serverPosX);
+        out.writeInt(e.serverPosY);
+        out.writeInt(e.serverPosZ);
+        out.writeBoolean(rotating);
+        out.writeByte(yaw);
+        out.writeByte(pitch);
+        out.writeFloat(e.getEyeHeight());
+    }
+
+    void headLook(Entity e, byte yaw) throws IOException {
+        if (!recording || !(e instanceof EntityPlayer)) return;
+        spawn(e);
+        out.writeByte(CaptureFormat.HEAD_LOOK);
+        CaptureFormat.writeVarInt(out, e.getEntityId());
+        out.writeByte(yaw);
+    }
+
+    void swing(int entityId) throws IOException {
+        if (!recording || !spawned(entityId)) return;
+        out.writeByte(CaptureFormat.SWING);
+        CaptureFormat.writeVarInt(out, entityId);
+    }
+
+    void equip(int entityId, int blockId) throws IOException {
+        if (!recording || !spawned(entityId)) return;
+        out.writeByte(CaptureFormat.EQUIP);
+        CaptureFormat.writeVarInt(out, entityId);
+        CaptureFormat.writeVarInt(out, blockId);
+    }
+
+    void destroy(int[] entityIds) throws IOException {
+        if (!recording || entityIds == null) return;
+        out.writeByte(CaptureFormat.DESTROY);
+        CaptureFormat.writeVarInt(out, entityIds.length);
+        for (int id : entityIds) {
+            CaptureFormat.writeVarInt(out, id);
+            seenEntities.remove(id);
+        }
+    }
+
+    void sound(String name, double x, double y, double z) throws IOException {
+        if (!recording || name == null) return;
+        Integer index = soundNames.get(name);
+        out.writeByte(CaptureFormat.SOUND);
+        if (index == null) {
+            CaptureFormat.writeVarInt(out, soundNames.size());
+            out.writeUTF(name);
+            soundNames.put(name, soundNames.size());
+        } else {
+            CaptureFormat.writeVarInt(out, index);
+        }
+        out.writeInt((int) Math.round(x * 8.0D));
+        out.writeInt((int) Math.round(y * 8.0D));
+        out.writeInt((int) Math.round(z * 8.0D));
+    }
+
+    void effect(int type, BlockPos pos) throws IOException {
+        if (!recording) return;
+        out.writeByte(CaptureFormat.EFFECT);
+        CaptureFormat.writeVarInt(out, type);
+        out.writeLong(CaptureFormat.packPos(pos.getX(), pos.getY(), pos.getZ()));
+    }
+
+    /**
+     * Our own look and held block, which no packet carries, ahead of any change if they moved since
+     * the last one: attribution offers our look as a candidate for every change.
+     */
+    private void self() throws IOException {
+        EntityPlayer p = Minecraft.getMinecraft().thePlayer;
+        Vec3 look = p == null ? null : p.getLookVec();
+        if (look == null) return;
+        double[] now = {p.posX, p.posY + p.getEyeHeight(), p.posZ,
+                (float) look.xCoord, (float) look.yCoord, (float) look.zCoord, heldBlockId(p.getHeldItem())};
+        if (selfWritten && Arrays.equals(now, lastSelf)) return;
+        System.arraycopy(now, 0, lastSelf, 0, now.length);
+        selfWritten = true;
+        out.writeByte(CaptureFormat.SELF);
+        out.writeDouble(now[0]);
+        out.writeDouble(now[1]);
+        out.writeDouble(now[2]);
+        out.writeFloat((float) now[3]);
+        out.writeFloat((float) now[4]);
+        out.writeFloat((float) now[5]);
+        CaptureFormat.writeVarInt(out, (int) now[6]);
+    }
+
+    private void state(int id, IBlockState state, boolean air) throws IOException {
+        if (seenStates.get(id)) return;
+        seenStates.set(id);
+        Block block = state.getBlock();
+        ResourceLocation key = (ResourceLocation) Block.blockRegistry.getNameForObject(block);
+        out.writeByte(CaptureFormat.STATE);
+        CaptureFormat.writeVarInt(out, id);
+        out.writeUTF(key == null ? "unknown" : key.toString());
+        out.writeByte(block.getMetaFromState(state));
+        out.writeBoolean(air);
+    }
+
+    /**
+     * Writes a SPAWN for an entity only known by id, if it is a player still in the world.
+     */
+    private boolean spawned(int entityId) throws IOException {
+        if (seenEntities.contains(entityId)) return true;
+        Minecraft mc = Minecraft.getMinecraft();
+        Entity e = mc.theWorld == null ? null : mc.theWorld.getEntityByID(entityId);
+        if (!(e instanceof EntityPlayer) || e == mc.thePlayer) return false;
+        spawn(e);
+        return true;
+    }
+
+    static int heldBlockId(net.minecraft.item.ItemStack stack) {
+        if (stack == null || stack.getItem() == null) return 0;
+        Block block = Block.getBlockFromItem(stack.getItem());
+        return block == null ? 0 : Block.getIdFromBlock(block);
+    }
+
+    private static void chat(String msg) {
+        Minecraft mc = Minecraft.getMinecraft();
+        if (mc.thePlayer != null) mc.thePlayer.addChatMessage(new ChatComponentText(msg));
+    }
+}
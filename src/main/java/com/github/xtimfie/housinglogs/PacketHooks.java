@@ -0,0 +1,122 @@
+package com.github.xtimfie.housinglogs;
+
+import com.github.xtimfie.housinglogs.core.PlayerStateTable;
+import com.github.xtimfie.housinglogs.core.SoundIndex;
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.BlockPos;
+import net.minecraftforge.event.entity.EntityJoinWorldEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+import java.io.IOException;
+
+/**
+ * Packet-side inputs to attribution: turns what the packet hooks see into updates of
+ * {@link PlayerStateTable} and {@link SoundIndex}, and records them when a capture is running.
+ *
+ * Called from the RETURN of NetHandlerPlayClient handlers. On the network thread those handlers
+ * hand the packet to the main thread and exit by exception, so RETURN is reached once, on the main
+ * thread, after the entity has been updated.
+ */
+public final class PacketHooks {
+    public static final PacketHooks INSTANCE = new PacketHooks();
+
+    private PacketHooks() {
+    }
+
+    @SubscribeEvent
+    public void onEntityJoinWorld(EntityJoinWorldEvent event) {
+        try {
+            if (!event.world.isRemote) return;
+            Entity e = event.entity;
+            if (!(e instanceof EntityPlayer) || e == Minecraft.getMinecraft().thePlayer) return;
+            // Spawn packets place the entity exactly, so its own position and rotation are the first ray.
+            PlayerStateTable.INSTANCE.move(e.getEntityId(), e.getUniqueID(), e.getName(), e.getEyeHeight(), e.posX, e.posY, e.posZ,
+                    true, e.rotationYawHead, e.rotationPitch, System.currentTimeMillis());
+            PacketCapture.INSTANCE.spawn(e);
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event) {
+        if (event.world == null || !event.world.isRemote) return;
+        PlayerStateTable.INSTANCE.clear();
+        SoundIndex.INSTANCE.clear();
+    }
+
+    /**
+     * S14: the entity's serverPos fields now hold the exact position sent.
+     */
+    public void onMove(Entity e, boolean rotating, byte yaw, byte pitch) throws IOException {
+        if (!(e instanceof EntityPlayer)) return;
+        PlayerStateTable.INSTANCE.move(e.getEntityId(), e.getUniqueID(), e.getName(), e.getEyeHeight(),
+                e.serverPosX / 32.0D, e.serverPosY / 32.0D, e.serverPosZ / 32.0D,
+                rotating, yaw * PlayerStateTable.BYTE_TO_DEGREES, pitch * PlayerStateTable.BYTE_TO_DEGREES, System.currentTimeMillis());
+        PacketCapture.INSTANCE.move(e, rotating, yaw, pitch);
+    }
+
+    /**
+     * S18: absolute position and look; recorded like a move.
+     */
+    public void onTeleport(Entity e, byte yaw, byte pitch) throws IOException {
+        onMove(e, true, yaw, pitch);
+    }
+
+    /**
+     * S19: the head turned without the body moving.
+     */
+    public void onHeadLook(Entity e, byte yaw) throws IOException {
+        if (!(e instanceof EntityPlayer)) return;
+        PlayerStateTable.INSTANCE.headLook(e.getEntityId(), yaw * PlayerStateTable.BYTE_TO_DEGREES, System.currentTimeMillis());
+        PacketCapture.INSTANCE.headLook(e, yaw);
+    }
+
+    /**
+     * S0B: animation 0 is the arm swing that goes with every place, break and click.
+     */
+    public void onAnimation(int entityId, int animation) throws IOException {
+        if (animation != 0) return;
+        PlayerStateTable.INSTANCE.swing(entityId, System.currentTimeMillis());
+        PacketCapture.INSTANCE.swing(entityId);
+    }
+
+    /**
+     * S04: slot 0 is the held item.
+     */
+    public void onEquipment(int entityId, int slot, ItemStack stack) throws IOException {
+        if (slot != 0) return;
+        int blockId = PacketCapture.heldBlockId(stack);
+        PlayerStateTable.INSTANCE.equip(entityId, blockId);
+        PacketCapture.INSTANCE.equip(entityId, blockId);
+    }
+
+    /**
+     * S13: entities left the client's view.
+     */
+    public void onDestroy(int[] entityIds) throws IOException {
+        PlayerStateTable.INSTANCE.destroy(entityIds);
+        PacketCapture.INSTANCE.destroy(entityIds);
+    }
+
+    public void onSound(String name, double x, double y, double z) throws IOException {
+        SoundIndex.INSTANCE.onSound(name, x, y, z, System.currentTimeMillis());
+        PacketCapture.INSTANCE.sound(name, x, y, z);
+    }
+
+    public void onEffect(int type, BlockPos pos) throws IOException {
+        SoundIndex.INSTANCE.onEffect(type, pos.getX(), pos.getY(), pos.getZ(), System.currentTimeMillis());
+        PacketCapture.INSTANCE.effect(type, pos);
+    }
+
+    /**
+     * S25: only recorded here; the audit itself picks break animations up in
+     * {@link BlockAuditManager#noteBlockBreakAnim}.
+     */
+    public void onBreakAnim(int entityId, BlockPos pos, int progress) throws IOException {
+        PacketCapture.INSTANCE.breakAnim(entityId, pos, progress);
+    }
+}
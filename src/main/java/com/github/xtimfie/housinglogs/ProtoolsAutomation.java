@@ -1,13 +1,11 @@
 package com.github.xtimfie.housinglogs;
 
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.settings.KeyBinding;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.util.BlockPos;
 import net.minecraft.util.ChatComponentText;
 import net.minecraft.util.EnumChatFormatting;
-import net.minecraftforge.client.event.ClientChatReceivedEvent;
 import net.minecraftforge.client.ClientCommandHandler;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
@@ -19,18 +17,19 @@ import net.minecraftforge.fml.common.gameevent.TickEvent;
  * Adds a client command that can be invoked as "//setblock ..." (command name is "/setblock"
  * after the client strips the first '/').
  */
-public final class ProtoolsAutomation {
-    public static final ProtoolsAutomation INSTANCE = new ProtoolsAutomation();
+public final class ProtoolsAutomation implements ChatDispatcher.Listener {
+    // Files are attached in init, so creating the class does not need a running game (benchmarks).
+    public static final ProtoolsAutomation INSTANCE = new ProtoolsAutomation(
+            new ProtoolsTransport.Client(), new ProtoolsPacer(), new AutomationCheckpoint());
 
-    // Cooldowns between chat commands.
-    // Hypixel may rate-limit command usage; these delays help avoid "Slow down".
+    // Spacing between chat commands is decided by ProtoolsPacer (adaptive token bucket).
     // Keep this very small so //pos happens almost instantly after a tp.
     private static final int TP_TO_POS_DELAY_TICKS = 1;
-    private static final int PROTOOLS_STEP_DELAY_TICKS = 10;
-    private static final int DESELECT_DELAY_TICKS = 14;
-    private static final int RETURN_TO_DESELECT_DELAY_TICKS = 14;
     private static final int TP_TIMEOUT_TICKS = 120;
 
+    // A "Slow down" reply within this many ticks of a command is assumed to have dropped it.
+    private static final int SLOW_DOWN_ATTRIBUTION_TICKS = 40;
+
     // Retry settings if //pos is executed at the wrong block due to server nudges.
     private static final int POS_RETRY_COUNT = 3;
     private static final int TP_RETRY_DELAY_TICKS = 12;
@@ -43,15 +42,67 @@ public final class ProtoolsAutomation {
     private static final double TP_NEAR_TOLERANCE_XZ = 0.65;
     private static final double TP_NEAR_TOLERANCE_Y = 1.10;
 
-    private Job job;
+    // After a disconnect/world switch, wait this long in Housing before resuming the batch.
+    private static final int RESUME_SETTLE_SECONDS = 3;
+
+    // Batches kept for //jobundo, newest last; older ones are dropped past either limit.
+    private static final int UNDO_HISTORY = 5;
+    private static final long UNDO_MAX_BYTES = 64L * 1024L * 1024L;
+
+    private static final java.util.concurrent.ExecutorService BENCH_EXECUTOR = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Hitlist-Protools-Bench");
+        t.setDaemon(true);
+        return t;
+    });
 
-    private ProtoolsAutomation() {
+    private Job job;
+    private final ProtoolsTransport transport;
+    private final ProtoolsPacer pacer;
+    private long tickCounter = 0;
+
+    // Counters for benchmark reports (see ProtoolsBenchmark).
+    private long activeTicks = 0;
+    private long idleActiveTicks = 0;
+    private long totalCommandsSent = 0;
+    private int jobsCompleted = 0;
+    private int posRetries = 0;
+
+    // Remaining jobs of the current batch in travel order (see TravelPlanner). Only the last one returns + deselects.
+    private final java.util.List<Job> queuedJobs = new java.util.ArrayList<>();
+    private int batchTotal = 0;
+    private long batchStartedAtMs = 0L;
+    private int nextJobId = 1;
+
+    // Progress of the current batch on disk; survives disconnects and restarts.
+    private final AutomationCheckpoint checkpoint;
+    private Object batchWorld;
+    private boolean autoResume = false;
+    private boolean resumeHintShown = false;
+    private int resumeSettleSeconds = 0;
+
+    // Pre-operation captures for //jobundo. currentUndo collects the running batch.
+    private final java.util.ArrayDeque<UndoBatch> undoHistory = new java.util.ArrayDeque<>();
+    private UndoBatch currentUndo;
+    // Set while //jobundo is being planned in the background.
+    private boolean undoPlanning = false;
+
+    ProtoolsAutomation(ProtoolsTransport transport, ProtoolsPacer pacer, AutomationCheckpoint checkpoint) {
+        this.transport = transport;
+        this.pacer = pacer;
+        this.checkpoint = checkpoint;
     }
 
-    public static void init() {
+    public static void init(java.io.File configDir) {
         ClientCommandHandler.instance.registerCommand(new CommandProtoSetBlock());
         ClientCommandHandler.instance.registerCommand(new CommandProtoFillBlocks());
+        ClientCommandHandler.instance.registerCommand(new CommandProtoImportBlocks());
+        ClientCommandHandler.instance.registerCommand(new CommandProtoJobResume());
+        ClientCommandHandler.instance.registerCommand(new CommandProtoJobUndo());
+        ClientCommandHandler.instance.registerCommand(new CommandProtoBenchmark());
         MinecraftForge.EVENT_BUS.register(INSTANCE);
+        ChatDispatcher.INSTANCE.subscribe(INSTANCE);
+        INSTANCE.pacer.load(new java.io.File(configDir, "hitlist-protools-pacer.json"));
+        INSTANCE.checkpoint.load(new java.io.File(configDir, "hitlist-protools-checkpoint.jsonl"));
     }
 
     private enum Operation {
@@ -59,9 +110,9 @@ public final class ProtoolsAutomation {
         FILL
     }
 
-    private static final class Job {
-        final BlockPos pos1Target;
-        final BlockPos pos2Target;
+    private static final class Job implements TravelPlanner.Stop {
+        int id;
+        Selection[] selections;
         final String blockId;
         final Operation operation;
 
@@ -73,22 +124,40 @@ public final class ProtoolsAutomation {
 
         int step = 0;
         int waitTicks = 0;
+
+        // Selection currently being teleported to / sent (-1 when none). Only one can move at a time
+        // because the player's position is shared, but confirmations of earlier ones overlap with it.
+        int moving = -1;
+        int moveStep = 0;
         int tpWaitTicks = 0;
 
-        PendingConfirm pendingConfirm = PendingConfirm.NONE;
-        int confirmTicksRemaining = 0;
-        boolean confirmOk = false;
-        boolean confirmBad = false;
+        String lastCommand = null;
+        long lastCommandTick = 0;
+        Selection lastCommandSelection = null;
+        boolean resendPending = false;
+        // Set by the first "Slow down": from then on only a chat confirmation counts for //pos.
+        boolean rateLimited = false;
 
-        BlockPos playerBlockAtPosSend = null;
+        // The job before, while a "Slow down" may still be the reply to its //set. Replies arrive in
+        // order, so it is settled by the first //pos reply this job gets, or once that is too late.
+        // Only then is it marked done in the checkpoint.
+        Job previous = null;
+        long setSentTick = 0L;
+
+        // False for all but the last job of a batch: skip the return /tp and //desel.
+        boolean returnAfter = true;
 
-        int retriesRemainingPos1 = POS_RETRY_COUNT;
-        int retriesRemainingPos2 = POS_RETRY_COUNT;
+        // Undo jobs themselves are not recorded for undo.
+        boolean captureUndo = true;
+
+        // Measured end-to-end latency (first command until //set or //desel was sent).
+        long startedAtMs = 0L;
+        int commandsSent = 0;
+        int tpsSkipped = 0;
 
         Job(BlockPos pos1Target, BlockPos pos2Target, String blockId, Operation operation,
             double returnX, double returnY, double returnZ, float returnYaw, float returnPitch) {
-            this.pos1Target = pos1Target;
-            this.pos2Target = pos2Target;
+            this.selections = new Selection[]{new Selection(1, pos1Target), new Selection(2, pos2Target)};
             this.blockId = blockId;
             this.operation = operation;
             this.returnX = returnX;
@@ -97,14 +166,116 @@ public final class ProtoolsAutomation {
             this.returnYaw = returnYaw;
             this.returnPitch = returnPitch;
         }
+
+        @Override
+        public BlockPos entry() {
+            return selections[0].target;
+        }
+
+        @Override
+        public BlockPos exit() {
+            return selections[1].target;
+        }
+
+        /**
+         * Back to an unstarted job over the same cuboid, after the server dropped one of its commands.
+         * The position fallback stays off for it.
+         */
+        void restart() {
+            selections = new Selection[]{new Selection(1, selections[0].target), new Selection(2, selections[1].target)};
+            step = 0;
+            waitTicks = 0;
+            rateLimited = true;
+            moving = -1;
+            moveStep = 0;
+            resendPending = false;
+            previous = null;
+        }
+
+        @Override
+        public void flip() {
+            // Only called on queued jobs that have not started; a cuboid is the same from either corner.
+            selections = new Selection[]{new Selection(1, selections[1].target), new Selection(2, selections[0].target)};
+        }
+    }
+
+    /**
+     * Region state captured right before one job's //set or //fill.
+     */
+    private static final class UndoEntry {
+        final java.util.concurrent.Future<RegionSnapshot> snapshot;
+        final String appliedBlockId;
+        // Used until the snapshot is encoded; one byte per block is the worst realistic case.
+        final long estimatedBytes;
+
+        UndoEntry(java.util.concurrent.Future<RegionSnapshot> snapshot, String appliedBlockId, long estimatedBytes) {
+            this.snapshot = snapshot;
+            this.appliedBlockId = appliedBlockId;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        long sizeBytes() {
+            if (!snapshot.isDone()) return estimatedBytes;
+            try {
+                return snapshot.get().sizeBytes();
+            } catch (Exception e) {
+                return 0L;
+            }
+        }
+    }
+
+    private static final class UndoBatch {
+        final java.util.List<UndoEntry> entries = new java.util.ArrayList<>();
+
+        long sizeBytes() {
+            long total = 0L;
+            for (UndoEntry e : entries) {
+                total += e.sizeBytes();
+            }
+            return total;
+        }
     }
 
-    private enum PendingConfirm {
-        NONE,
-        POS1,
-        POS2
+    /**
+     * What an undo will restore, worked out off the client thread.
+     */
+    private static final class UndoPlan {
+        final int blocks;
+        final int unknown;
+        final java.util.List<CuboidPlanner.Cuboid> cuboids;
+
+        UndoPlan(int blocks, int unknown, java.util.List<CuboidPlanner.Cuboid> cuboids) {
+            this.blocks = blocks;
+            this.unknown = unknown;
+            this.cuboids = cuboids;
+        }
     }
 
+    /**
+     * One //pos corner: teleport, send, then await its confirmation independently of the other corner.
+     */
+    private static final class Selection {
+        final int index;
+        final BlockPos target;
+
+        boolean sent = false;
+        boolean confirmed = false;
+        int retriesRemaining = POS_RETRY_COUNT;
+
+        int confirmTicksRemaining = 0;
+        boolean confirmOk = false;
+        boolean confirmBad = false;
+        BlockPos playerBlockAtPosSend = null;
+        // Tick this corner's //pos was last sent; a "Slow down" soon after may have dropped it.
+        long posSentTick = 0L;
+        // Ticks until the chat confirmation, or -1 when confirmed by the position fallback.
+        int lastConfirmLatencyTicks = -1;
+
+        Selection(int index, BlockPos target) {
+            this.index = index;
+            this.target = target;
+        }
+    }
     private static final class CommandProtoSetBlock extends CommandBase {
         @Override
         public String getCommandName() {
@@ -153,10 +324,7 @@ public final class ProtoolsAutomation {
                 return;
             }
 
-            boolean started = INSTANCE.startSetBlockJob(sender, new BlockPos(x, y, z), blockId.trim());
-            if (!started) {
-                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] An automation job is already running."));
-            }
+            INSTANCE.startSetBlockJob(sender, new BlockPos(x, y, z), blockId.trim());
         }
     }
 
@@ -214,281 +382,818 @@ public final class ProtoolsAutomation {
                 return;
             }
 
-            boolean started = INSTANCE.startFillBlocksJob(sender,
+            INSTANCE.startFillBlocksJob(sender,
                     new BlockPos(x1, y1, z1),
                     new BlockPos(x2, y2, z2),
                     blockId.trim());
-            if (!started) {
-                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] An automation job is already running."));
+        }
+    }
+
+    private static final class CommandProtoImportBlocks extends CommandBase {
+        @Override
+        public String getCommandName() {
+            // Allows typing "//importblocks" in chat.
+            // The client strips the first '/', leaving "/importblocks" as the command name.
+            return "/importblocks";
+        }
+
+        @Override
+        public String getCommandUsage(ICommandSender sender) {
+            return "//importblocks <file.csv|file.json> [dry]";
+        }
+
+        @Override
+        public int getRequiredPermissionLevel() {
+            return 0;
+        }
+
+        @Override
+        public void processCommand(ICommandSender sender, String[] args) {
+            if (args.length != 1 && !(args.length == 2 && args[1].equalsIgnoreCase("dry"))) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Usage: " + getCommandUsage(sender)));
+                return;
+            }
+
+            // Relative paths resolve against the config folder, next to the block audit files.
+            java.io.File file = new java.io.File(args[0]);
+            if (!file.isAbsolute()) {
+                file = new java.io.File(new java.io.File(Minecraft.getMinecraft().mcDataDir, "config"), args[0]);
+            }
+            if (!file.isFile()) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] File not found: " + file.getAbsolutePath()));
+                return;
+            }
+
+            java.util.Map<BlockPos, String> targets;
+            try {
+                targets = CuboidPlanner.loadTargets(file);
+            } catch (java.io.IOException e) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "[ProtoolsAutomation] Failed to read targets: " + e.getMessage()));
+                return;
             }
+
+            java.util.List<CuboidPlanner.Cuboid> plan = CuboidPlanner.plan(targets);
+            if (plan.isEmpty()) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] No targets in " + file.getName() + "."));
+                return;
+            }
+
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Planned " + targets.size() + " blocks as "
+                    + plan.size() + " cuboids (~" + CuboidPlanner.estimateCommandCount(plan) + " commands)."));
+            if (args.length == 2) return;
+
+            if (!HousingContext.isInHousing()) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Not in Housing (HOUSING scoreboard not detected)."));
+                return;
+            }
+
+            INSTANCE.startPlannedJobs(sender, plan);
+        }
+    }
+
+    private static final class CommandProtoJobResume extends CommandBase {
+        @Override
+        public String getCommandName() {
+            // Allows typing "//jobresume" in chat.
+            // The client strips the first '/', leaving "/jobresume" as the command name.
+            return "/jobresume";
+        }
+
+        @Override
+        public String getCommandUsage(ICommandSender sender) {
+            return "//jobresume [discard]";
+        }
+
+        @Override
+        public int getRequiredPermissionLevel() {
+            return 0;
+        }
+
+        @Override
+        public void processCommand(ICommandSender sender, String[] args) {
+            if (args.length == 1 && args[0].equalsIgnoreCase("discard")) {
+                INSTANCE.discardCheckpoint(sender);
+                return;
+            }
+            if (args.length != 0) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Usage: " + getCommandUsage(sender)));
+                return;
+            }
+
+            if (!HousingContext.isInHousing()) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Not in Housing (HOUSING scoreboard not detected)."));
+                return;
+            }
+
+            INSTANCE.resumeBatch(sender);
+        }
+    }
+
+    private static final class CommandProtoJobUndo extends CommandBase {
+        @Override
+        public String getCommandName() {
+            // Allows typing "//jobundo" in chat.
+            // The client strips the first '/', leaving "/jobundo" as the command name.
+            return "/jobundo";
+        }
+
+        @Override
+        public String getCommandUsage(ICommandSender sender) {
+            return "//jobundo";
+        }
+
+        @Override
+        public int getRequiredPermissionLevel() {
+            return 0;
+        }
+
+        @Override
+        public void processCommand(ICommandSender sender, String[] args) {
+            if (args.length != 0) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Usage: " + getCommandUsage(sender)));
+                return;
+            }
+
+            if (!HousingContext.isInHousing()) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Not in Housing (HOUSING scoreboard not detected)."));
+                return;
+            }
+
+            INSTANCE.undoLastBatch(sender);
+        }
+    }
+
+    private static final class CommandProtoBenchmark extends CommandBase {
+        @Override
+        public String getCommandName() {
+            // Allows typing "//protoolsbench" in chat.
+            // The client strips the first '/', leaving "/protoolsbench" as the command name.
+            return "/protoolsbench";
+        }
+
+        @Override
+        public String getCommandUsage(ICommandSender sender) {
+            return "//protoolsbench [jobs] [latencyTicks] [seed]";
+        }
+
+        @Override
+        public int getRequiredPermissionLevel() {
+            return 0;
+        }
+
+        @Override
+        public void processCommand(ICommandSender sender, String[] args) {
+            if (args.length > 3) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Usage: " + getCommandUsage(sender)));
+                return;
+            }
+
+            int jobs;
+            int latencyTicks;
+            long seed;
+            try {
+                jobs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+                latencyTicks = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+                seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+            } catch (NumberFormatException e) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Arguments must be integers."));
+                return;
+            }
+            if (jobs < 1 || jobs > 500 || latencyTicks < 0 || latencyTicks > 100) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] jobs must be 1-500, latencyTicks 0-100."));
+                return;
+            }
+
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Benchmark running..."));
+            // Simulated time runs as fast as the CPU allows; keep it off the client thread.
+            BENCH_EXECUTOR.execute(() -> {
+                ProtoolsBenchmark.Result r = ProtoolsBenchmark.run(jobs, latencyTicks, seed);
+                AreaBlockSnapshot.reply(sender, (r.jobsCompleted == r.jobsRequested ? EnumChatFormatting.GREEN : EnumChatFormatting.RED)
+                        + "[ProtoolsAutomation] " + ProtoolsBenchmark.describe(r));
+            });
         }
     }
 
     private boolean startSetBlockJob(ICommandSender sender, BlockPos target, String blockId) {
-        Minecraft mc = Minecraft.getMinecraft();
-        if (mc == null || mc.thePlayer == null) {
+        if (!transport.isAvailable()) {
             if (sender != null) {
                 sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Player not available."));
             }
             return false;
         }
 
-        if (job != null) return false;
-
-        job = new Job(
-            target,
-            target,
-            blockId,
-            Operation.SET,
-                mc.thePlayer.posX,
-                mc.thePlayer.posY,
-                mc.thePlayer.posZ,
-                mc.thePlayer.rotationYaw,
-                mc.thePlayer.rotationPitch
-        );
+        // Kicks the state machine on the next tick.
+        return enqueueJobs(sender, java.util.Collections.singletonList(newJob(target, target, blockId, Operation.SET)), "//setblock automation", false);
+    }
 
-        if (sender != null) {
-            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[ProtoolsAutomation] Starting //setblock automation..."));
+    private boolean startFillBlocksJob(ICommandSender sender, BlockPos pos1, BlockPos pos2, String blockId) {
+        if (!transport.isAvailable()) {
+            if (sender != null) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Player not available."));
+            }
+            return false;
         }
 
-        // Kick the state machine on the next tick.
-        return true;
+        return enqueueJobs(sender, java.util.Collections.singletonList(newJob(pos1, pos2, blockId, Operation.FILL)), "//fillblocks automation", false);
     }
 
-    private boolean startFillBlocksJob(ICommandSender sender, BlockPos pos1, BlockPos pos2, String blockId) {
-        Minecraft mc = Minecraft.getMinecraft();
-        if (mc == null || mc.thePlayer == null) {
+    /**
+     * Queues one //set job per planned cuboid. All jobs share the caller's starting position as
+     * the return point, and only the final job returns and deselects.
+     */
+    boolean startPlannedJobs(ICommandSender sender, java.util.List<CuboidPlanner.Cuboid> plan) {
+        if (!transport.isAvailable()) {
             if (sender != null) {
                 sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Player not available."));
             }
             return false;
         }
 
-        if (job != null) return false;
+        if (plan == null || plan.isEmpty()) return false;
 
-        job = new Job(
-                pos1,
-                pos2,
-                blockId,
-                Operation.FILL,
-                mc.thePlayer.posX,
-                mc.thePlayer.posY,
-                mc.thePlayer.posZ,
-                mc.thePlayer.rotationYaw,
-                mc.thePlayer.rotationPitch
-        );
+        java.util.List<Job> jobs = new java.util.ArrayList<>(plan.size());
+        for (CuboidPlanner.Cuboid c : plan) {
+            jobs.add(newJob(c.min, c.max, c.blockId, Operation.SET));
+        }
+        return enqueueJobs(sender, jobs, "batch of " + jobs.size() + " cuboids", false);
+    }
+
+    private void recordUndo(Job j) {
+        java.util.concurrent.Future<RegionSnapshot> snapshot = transport.captureRegion(j.selections[0].target, j.selections[1].target);
+        if (snapshot == null) {
+            transport.feedback(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Region not captured (unloaded or too large); this job cannot be undone."));
+            return;
+        }
+
+        if (currentUndo == null) {
+            currentUndo = new UndoBatch();
+            undoHistory.addLast(currentUndo);
+        }
+        BlockPos a = j.selections[0].target;
+        BlockPos b = j.selections[1].target;
+        long volume = (long) (Math.abs(a.getX() - b.getX()) + 1) * (Math.abs(a.getY() - b.getY()) + 1) * (Math.abs(a.getZ() - b.getZ()) + 1);
+        currentUndo.entries.add(new UndoEntry(snapshot, j.blockId, volume));
+
+        long total = 0L;
+        for (UndoBatch u : undoHistory) {
+            total += u.sizeBytes();
+        }
+        while (undoHistory.size() > 1 && (undoHistory.size() > UNDO_HISTORY || total > UNDO_MAX_BYTES)) {
+            total -= undoHistory.removeFirst().sizeBytes();
+        }
+    }
+
+    /**
+     * Restores the regions touched by the most recent batch to their captured state. Only blocks that
+     * the batch actually changed are replanned, merged into as few cuboids as possible.
+     *
+     * The diff and the planning run on the snapshot encoder thread, after the batch's own snapshots;
+     * the jobs are queued back on the client thread.
+     */
+    private void undoLastBatch(ICommandSender sender) {
+        if (!transport.isAvailable()) return;
+        if (job != null) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] An automation job is already running."));
+            return;
+        }
+        if (undoPlanning) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] An undo is already being prepared."));
+            return;
+        }
+        if (refuseOverCheckpoint(sender)) return;
+        UndoBatch batch = undoHistory.peekLast();
+        if (batch == null) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Nothing to undo."));
+            return;
+        }
+
+        undoPlanning = true;
+        RegionSnapshot.ENCODE_EXECUTOR.execute(() -> {
+            UndoPlan plan = null;
+            String error = null;
+            try {
+                plan = planUndo(batch);
+            } catch (Exception ex) {
+                error = ex.getMessage();
+            }
+            UndoPlan result = plan;
+            String failure = error;
+            Minecraft.getMinecraft().addScheduledTask(() -> finishUndo(sender, batch, result, failure));
+        });
+    }
+
+    private void finishUndo(ICommandSender sender, UndoBatch batch, UndoPlan plan, String error) {
+        undoPlanning = false;
+        if (plan == null) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "[ProtoolsAutomation] Undo data is unusable: " + error));
+            return;
+        }
+        if (job != null) {
+            // Its changes are not in the plan; restoring over them would undo the wrong blocks.
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Undo cancelled: a job started while it was being prepared."));
+            return;
+        }
+        undoHistory.removeLastOccurrence(batch);
+
+        if (plan.cuboids.isEmpty()) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Last batch changed nothing that can be restored."));
+            return;
+        }
+        if (!transport.isAvailable()) return;
+
+        sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Undo restores " + plan.blocks + " blocks as "
+                + plan.cuboids.size() + " cuboids (~" + CuboidPlanner.estimateCommandCount(plan.cuboids) + " commands)"
+                + (plan.unknown > 0 ? "; " + plan.unknown + " blocks of unknown type are left as they are." : ".")));
+
+        java.util.List<Job> jobs = new java.util.ArrayList<>(plan.cuboids.size());
+        for (CuboidPlanner.Cuboid c : plan.cuboids) {
+            Job j = newJob(c.min, c.max, c.blockId, Operation.SET);
+            j.captureUndo = false;
+            jobs.add(j);
+        }
+        enqueueJobs(sender, jobs, "undo of " + jobs.size() + " cuboids", false);
+    }
+
+    /**
+     * Diffs a batch's captures against what it applied. Runs on the encoder thread, so every snapshot
+     * of the batch has already been encoded.
+     */
+    private static UndoPlan planUndo(UndoBatch batch) throws Exception {
+        // Newest entry first: the first applied id seen per position is what is there now, and older
+        // captures overwrite newer ones so the original state wins.
+        java.util.Map<BlockPos, String> original = new java.util.HashMap<>();
+        java.util.Map<BlockPos, String> current = new java.util.HashMap<>();
+        for (int i = batch.entries.size() - 1; i >= 0; i--) {
+            UndoEntry e = batch.entries.get(i);
+            RegionSnapshot snapshot = e.snapshot.get();
+            String applied = RegionSnapshot.normaliseBlockId(e.appliedBlockId);
+            snapshot.forEach((pos, blockId) -> {
+                if (!current.containsKey(pos)) current.put(pos, applied);
+                original.put(pos, blockId);
+            });
+        }
+
+        java.util.Map<BlockPos, String> targets = new java.util.LinkedHashMap<>();
+        int unknown = 0;
+        for (java.util.Map.Entry<BlockPos, String> e : original.entrySet()) {
+            if (e.getValue() == null) {
+                unknown++;
+                continue;
+            }
+            if (!RegionSnapshot.normaliseBlockId(e.getValue()).equals(current.get(e.getKey()))) {
+                targets.put(e.getKey(), e.getValue());
+            }
+        }
+        return new UndoPlan(targets.size(), unknown, targets.isEmpty() ? java.util.Collections.<CuboidPlanner.Cuboid>emptyList() : CuboidPlanner.plan(targets));
+    }
+
+    /**
+     * Jobs added while a batch is running share its return point, so the player is only sent back once.
+     */
+    private Job newJob(BlockPos pos1, BlockPos pos2, String blockId, Operation operation) {
+        Job j;
+        if (job != null) {
+            j = new Job(pos1, pos2, blockId, operation, job.returnX, job.returnY, job.returnZ, job.returnYaw, job.returnPitch);
+        } else {
+            j = new Job(
+                    pos1,
+                    pos2,
+                    blockId,
+                    operation,
+                    transport.getX(),
+                    transport.getY(),
+                    transport.getZ(),
+                    transport.getYaw(),
+                    transport.getPitch()
+            );
+        }
+        j.id = nextJobId++;
+        return j;
+    }
+
+    /**
+     * Restarts the remaining jobs of the checkpointed batch, skipping the ones already done.
+     */
+    boolean resumeBatch(ICommandSender sender) {
+        if (!transport.isAvailable()) return false;
+
+        if (job != null) {
+            if (sender != null) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] An automation job is already running."));
+            }
+            return false;
+        }
+        if (!checkpoint.hasPending()) {
+            if (sender != null) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] No unfinished batch to resume."));
+            }
+            return false;
+        }
+
+        nextJobId = Math.max(nextJobId, checkpoint.maxId() + 1);
+        java.util.List<Job> jobs = new java.util.ArrayList<>();
+        for (AutomationCheckpoint.Entry e : checkpoint.pendingEntries()) {
+            Operation op = "FILL".equals(e.operation) ? Operation.FILL : Operation.SET;
+            Job j = new Job(e.pos1, e.pos2, e.blockId, op,
+                    checkpoint.getReturnX(), checkpoint.getReturnY(), checkpoint.getReturnZ(),
+                    checkpoint.getReturnYaw(), checkpoint.getReturnPitch());
+            j.id = e.id;
+            jobs.add(j);
+        }
+        autoResume = false;
+        enqueueJobs(sender, jobs, "resumed batch (" + jobs.size() + " jobs left)", true);
+        return true;
+    }
+
+    private void discardCheckpoint(ICommandSender sender) {
+        boolean had = checkpoint.hasPending() && job == null;
+        if (had) {
+            checkpoint.clear();
+            autoResume = false;
+        }
+        if (sender != null) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] "
+                    + (had ? "Discarded unfinished batch." : "No suspended batch to discard.")));
+        }
+    }
+
+    /**
+     * The batch could not continue (player gone or world changed). Progress stays in the checkpoint.
+     */
+    private void suspend() {
+        job = null;
+        queuedJobs.clear();
+        batchWorld = null;
+        autoResume = checkpoint.hasPending();
+        resumeSettleSeconds = 0;
+        pacer.saveIfDirty();
+    }
+
+    private void tickResume() {
+        if (!checkpoint.hasPending()) return;
+        if (tickCounter % 20 != 0) return;
+
+        if (!transport.isAvailable() || !transport.isInHousing()) {
+            resumeSettleSeconds = 0;
+            return;
+        }
+
+        if (!autoResume) {
+            // Left over from an earlier session or a failed batch: never resume that on our own.
+            if (!resumeHintShown) {
+                resumeHintShown = true;
+                transport.feedback(new ChatComponentText(EnumChatFormatting.YELLOW + "[ProtoolsAutomation] Unfinished batch ("
+                        + checkpoint.pendingCount() + " jobs). //jobresume to continue, //jobresume discard to drop it."));
+            }
+            return;
+        }
+
+        if (++resumeSettleSeconds < RESUME_SETTLE_SECONDS) return;
+        transport.feedback(new ChatComponentText(EnumChatFormatting.GREEN + "[ProtoolsAutomation] Back in Housing, resuming unfinished batch..."));
+        resumeBatch(null);
+    }
+
+    private static java.util.List<AutomationCheckpoint.Entry> toCheckpointEntries(java.util.List<Job> jobs) {
+        java.util.List<AutomationCheckpoint.Entry> out = new java.util.ArrayList<>(jobs.size());
+        for (Job j : jobs) {
+            out.add(new AutomationCheckpoint.Entry(j.id, j.entry(), j.exit(), j.blockId, j.operation.name()));
+        }
+        return out;
+    }
+
+    /**
+     * Adds jobs to the pending tour. A fresh batch is planned from the player's position; jobs added
+     * to a running batch are inserted incrementally, starting from where the current job ends.
+     *
+     * @param resume whether these are the checkpointed jobs; otherwise a fresh batch is refused while
+     *               an unfinished one is checkpointed, rather than overwriting it
+     * @return false if nothing was queued
+     */
+    private boolean enqueueJobs(ICommandSender sender, java.util.List<Job> added, String label, boolean resume) {
+        if (job == null) {
+            if (!resume && refuseOverCheckpoint(sender)) return false;
+            queuedJobs.clear();
+            queuedJobs.addAll(added);
+            TravelPlanner.optimise(getPlayerBlockPos(), queuedJobs);
+            batchTotal = queuedJobs.size();
+            batchStartedAtMs = System.currentTimeMillis();
+            batchWorld = transport.worldToken();
+            currentUndo = null;
+            job = queuedJobs.remove(0);
+            updateReturnFlags();
+            checkpoint.begin(job.returnX, job.returnY, job.returnZ, job.returnYaw, job.returnPitch, toCheckpointEntries(added));
+
+            if (sender != null) {
+                sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[ProtoolsAutomation] Starting " + label + "..."));
+            }
+            return true;
+        }
+
+        BlockPos tourStart = job.exit();
+        if (added.size() == 1) {
+            TravelPlanner.insert(tourStart, queuedJobs, added.get(0));
+        } else {
+            queuedJobs.addAll(added);
+            TravelPlanner.optimise(tourStart, queuedJobs);
+        }
+        batchTotal += added.size();
+        updateReturnFlags();
+        checkpoint.add(toCheckpointEntries(added));
+
+        if (sender != null) {
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[ProtoolsAutomation] Queued " + label + " ("
+                    + queuedJobs.size() + " pending)."));
+        }
+        return true;
+    }
 
+    /**
+     * @return true (after telling the player) if an unfinished batch is checkpointed and no batch runs
+     */
+    private boolean refuseOverCheckpoint(ICommandSender sender) {
+        if (job != null || !checkpoint.hasPending()) return false;
         if (sender != null) {
-            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[ProtoolsAutomation] Starting //fillblocks automation..."));
+            sender.addChatMessage(new ChatComponentText(EnumChatFormatting.YELLOW + "[ProtoolsAutomation] An unfinished batch ("
+                    + checkpoint.pendingCount() + " jobs) is saved. //jobresume to continue it, or //jobresume discard to drop it first."));
         }
         return true;
     }
 
+    private void updateReturnFlags() {
+        // The running job keeps its return only if it is already on the way back.
+        if (job != null && job.step < 7) {
+            job.returnAfter = queuedJobs.isEmpty();
+        }
+        for (int i = 0; i < queuedJobs.size(); i++) {
+            queuedJobs.get(i).returnAfter = i == queuedJobs.size() - 1;
+        }
+    }
+
     @SubscribeEvent
     public void onClientTick(TickEvent.ClientTickEvent event) {
         if (event.phase != TickEvent.Phase.END) return;
-        if (job == null) return;
+        tick();
+    }
+
+    void tick() {
+        tickCounter++;
+        pacer.tick();
 
-        Minecraft mc = Minecraft.getMinecraft();
-        if (mc == null || mc.thePlayer == null) {
-            job = null;
+        if (job == null) {
+            tickResume();
             return;
         }
 
-        // Prevent accidental movement during the automation.
-        // This is client-side only (server can still nudge you), but it helps keep
-        // your position stable for the //pos commands.
-        freezeMovementInputs(mc);
-        mc.thePlayer.motionX = 0.0;
-        mc.thePlayer.motionY = 0.0;
-        mc.thePlayer.motionZ = 0.0;
-
-        if (job.waitTicks > 0) {
-            job.waitTicks--;
+        if (!transport.isAvailable() || transport.worldToken() != batchWorld) {
+            suspend();
             return;
         }
 
+        // Prevent accidental movement during the automation.
+        transport.holdStill();
+
+        activeTicks++;
+        long sentBefore = totalCommandsSent;
         try {
-            advance(job, mc);
+            if (job.waitTicks > 0) {
+                job.waitTicks--;
+            } else {
+                advance(job);
+            }
         } catch (Throwable t) {
-            mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "[ProtoolsAutomation] Automation failed: " + t.getClass().getSimpleName()));
-            job = null;
+            fail("Automation failed: " + t.getClass().getSimpleName());
         }
+        if (totalCommandsSent == sentBefore) idleActiveTicks++;
     }
 
-    @SubscribeEvent
-    public void onChatReceived(ClientChatReceivedEvent event) {
+    boolean isBusy() {
+        return job != null;
+    }
+
+    long getActiveTicks() {
+        return activeTicks;
+    }
+
+    long getIdleActiveTicks() {
+        return idleActiveTicks;
+    }
+
+    long getTotalCommandsSent() {
+        return totalCommandsSent;
+    }
+
+    int getJobsCompleted() {
+        return jobsCompleted;
+    }
+
+    int getPosRetries() {
+        return posRetries;
+    }
+
+    ProtoolsPacer getPacer() {
+        return pacer;
+    }
+
+    @Override
+    public boolean isListening() {
+        return job != null;
+    }
+
+    @Override
+    public void onChat(ChatDispatcher.Message message) {
         if (job == null) return;
-        if (event == null || event.message == null) return;
 
-        String msg;
-        try {
-            msg = event.message.getUnformattedText();
-        } catch (Throwable t) {
+        if (message.rateLimited) {
+            pacer.onRateLimited();
+            job.rateLimited = true;
+            // A dropped //set cannot simply be resent once the player or the selection has moved on
+            // (the return /tp, or the next job's //pos). Run that job again from its corners instead;
+            // a repeated //set is harmless.
+            if (job.step >= 7 && setMayBeDropped(job)) {
+                job.restart();
+                return;
+            }
+            Job prev = job.previous;
+            if (prev != null && setMayBeDropped(prev)) {
+                job.restart();
+                queuedJobs.add(0, job);
+                prev.restart();
+                jobsCompleted--;
+                job = prev;
+                updateReturnFlags();
+                return;
+            }
+            // With pipelining the dropped command need not be the last one sent. Every //pos still
+            // unconfirmed is sent again from its own target; a plain resend would run it wherever
+            // the player is now.
+            for (Selection sel : job.selections) {
+                if (sel.sent && !sel.confirmed && !sel.confirmOk && tickCounter - sel.posSentTick <= SLOW_DOWN_ATTRIBUTION_TICKS) {
+                    resetConfirm(sel);
+                    sel.sent = false;
+                }
+            }
+            if (job.lastCommand != null && !job.lastCommand.startsWith("//pos")
+                    && tickCounter - job.lastCommandTick <= SLOW_DOWN_ATTRIBUTION_TICKS) {
+                job.resendPending = true;
+            }
             return;
         }
-        if (msg == null || msg.isEmpty()) return;
-
-        PendingConfirm pending = job.pendingConfirm;
-        if (pending == PendingConfirm.NONE) return;
 
-        String lower = msg.toLowerCase(java.util.Locale.ROOT);
-        boolean isPos1 = pending == PendingConfirm.POS1 && (lower.contains("pos1") || lower.contains("first position") || lower.contains("position 1"));
-        boolean isPos2 = pending == PendingConfirm.POS2 && (lower.contains("pos2") || lower.contains("second position") || lower.contains("position 2"));
-        if (!isPos1 && !isPos2) return;
+        if (message.posIndex == 0) return;
+        Selection sel = job.selections[message.posIndex - 1];
+        if (!sel.sent || sel.confirmed) return;
 
-        BlockPos coords = parseCoordsFromMessage(msg);
+        BlockPos coords = message.coords();
         if (coords == null) return;
+        // Only a real reply to this job's //pos shows the previous //set went through.
+        if (job.previous != null) settlePrevious(job);
 
-        BlockPos expected = (pending == PendingConfirm.POS1) ? job.pos1Target : job.pos2Target;
+        BlockPos expected = sel.target;
 
         if (expected != null && coords.getX() == expected.getX() && coords.getY() == expected.getY() && coords.getZ() == expected.getZ()) {
-            job.confirmOk = true;
+            sel.confirmOk = true;
         } else {
-            job.confirmBad = true;
+            sel.confirmBad = true;
         }
     }
 
-    private void advance(Job j, Minecraft mc) {
-        switch (j.step) {
-            case 0: {
-                // TP to target (for pos1)
-                sendTpToBlockCenter(mc, j.pos1Target);
-                j.step = 1;
-                j.tpWaitTicks = 0;
-                // Start checking immediately; do not add extra buffer before //pos.
-                j.waitTicks = 0;
-                break;
-            }
+    /**
+     * Entry point for transports that do not go through the Forge chat event (the benchmark mock).
+     */
+    void handleServerMessage(String msg) {
+        if (job == null || msg == null || msg.isEmpty()) return;
+        onChat(ChatDispatcher.classify(msg));
+    }
 
-            case 1: {
-                // Wait until we're near the target (or timeout), then attempt //pos1.
-                j.tpWaitTicks++;
+    private void advance(Job j) {
+        if (j.startedAtMs == 0L) {
+            j.startedAtMs = System.currentTimeMillis();
+        }
 
-                if (isNearTarget(mc, j.pos1Target) || j.tpWaitTicks >= TP_TIMEOUT_TICKS) {
-                    j.step = 2;
-                    j.waitTicks = TP_TO_POS_DELAY_TICKS;
-                }
-                break;
-            }
+        if (j.previous != null && !setMayBeDropped(j.previous)) {
+            settlePrevious(j);
+        }
 
-            case 2: {
-                send(mc, "//pos1");
-                mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Executed //pos1"));
-                beginConfirm(j, PendingConfirm.POS1, mc);
-                j.step = 20;
-                j.waitTicks = 0;
-                break;
-            }
+        if (j.resendPending) {
+            // The server dropped our last command; repeat it once the pacer allows.
+            if (!pacer.tryAcquire()) return;
+            j.resendPending = false;
+            sendCommand(j, j.lastCommand, j.lastCommandSelection);
+            return;
+        }
 
-            case 20: {
-                // Wait for confirmation of pos1
-                if (tickConfirm(j, mc)) {
-                    // success
-                    mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[ProtoolsAutomation] //pos1 confirmed at target"));
-                    j.step = 3;
-                    j.waitTicks = PROTOOLS_STEP_DELAY_TICKS;
-                } else if (j.confirmBad || j.confirmTicksRemaining <= 0) {
-                    // failure -> retry
-                    if (j.retriesRemainingPos1 > 0) {
-                        j.retriesRemainingPos1--;
-                        mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Retrying pos1 (" + (j.retriesRemainingPos1 + 1) + " left)..."));
-                        resetConfirm(j);
-                        j.step = 0;
-                        j.waitTicks = TP_RETRY_DELAY_TICKS;
-                    } else {
-                        fail(mc, "//pos1 could not be set at the target block after retries.");
+        switch (j.step) {
+            case 0: {
+                // Pipelined selection: confirmations of already-sent corners are collected while the
+                // next corner is being teleported to, instead of waiting for each round trip in turn.
+                for (Selection sel : j.selections) {
+                    if (!sel.sent || sel.confirmed) continue;
+
+                    if (tickConfirm(sel, !j.rateLimited)) {
+                        sel.confirmed = true;
+                        transport.feedback(new ChatComponentText(EnumChatFormatting.GREEN + "[ProtoolsAutomation] //pos" + sel.index + " confirmed at target"));
+                        if (sel.lastConfirmLatencyTicks >= 0) pacer.onConfirmed(sel.lastConfirmLatencyTicks);
+                    } else if (sel.confirmBad || sel.confirmTicksRemaining <= 0) {
+                        // failure -> retry (re-queued for positioning)
+                        if (sel.retriesRemaining <= 0) {
+                            fail("//pos" + sel.index + " could not be set at the target block after retries.");
+                            return;
+                        }
+                        sel.retriesRemaining--;
+                        posRetries++;
+                        transport.feedback(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Retrying pos" + sel.index + " (" + (sel.retriesRemaining + 1) + " left)..."));
+                        resetConfirm(sel);
+                        sel.sent = false;
+                        if (j.moving < 0) j.waitTicks = TP_RETRY_DELAY_TICKS;
                     }
                 }
-                break;
-            }
 
-            case 3: {
-                // TP to target (for pos2)
-                sendTpToBlockCenter(mc, j.pos2Target);
-                j.step = 4;
-                j.tpWaitTicks = 0;
-                // Start checking immediately; do not add extra buffer before //pos.
-                j.waitTicks = 0;
-                break;
-            }
-
-            case 4: {
-                // Wait until we're near the target (or timeout), then attempt //pos2.
-                j.tpWaitTicks++;
-
-                if (isNearTarget(mc, j.pos2Target) || j.tpWaitTicks >= TP_TIMEOUT_TICKS) {
-                    j.step = 5;
-                    j.waitTicks = TP_TO_POS_DELAY_TICKS;
+                if (j.moving < 0) {
+                    for (int i = 0; i < j.selections.length; i++) {
+                        if (!j.selections[i].sent && !j.selections[i].confirmed) {
+                            j.moving = i;
+                            j.moveStep = 0;
+                            break;
+                        }
+                    }
                 }
-                break;
-            }
 
-            case 5: {
-                send(mc, "//pos2");
-                mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Executed //pos2"));
-                beginConfirm(j, PendingConfirm.POS2, mc);
-                j.step = 21;
-                j.waitTicks = 0;
-                break;
-            }
+                if (j.moving >= 0) {
+                    advanceMove(j, j.selections[j.moving]);
+                    break;
+                }
 
-            case 21: {
-                // Wait for confirmation of pos2
-                if (tickConfirm(j, mc)) {
-                    mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[ProtoolsAutomation] //pos2 confirmed at target"));
+                if (j.selections[0].confirmed && j.selections[1].confirmed) {
                     j.step = 6;
-                    j.waitTicks = PROTOOLS_STEP_DELAY_TICKS;
-                } else if (j.confirmBad || j.confirmTicksRemaining <= 0) {
-                    if (j.retriesRemainingPos2 > 0) {
-                        j.retriesRemainingPos2--;
-                        mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Retrying pos2 (" + (j.retriesRemainingPos2 + 1) + " left)..."));
-                        resetConfirm(j);
-                        j.step = 3;
-                        j.waitTicks = TP_RETRY_DELAY_TICKS;
-                    } else {
-                        fail(mc, "//pos2 could not be set at the target block after retries.");
-                    }
                 }
                 break;
             }
 
             case 6: {
+                if (!pacer.tryAcquire()) break;
+                if (j.captureUndo) recordUndo(j);
                 if (j.operation == Operation.FILL) {
-                    send(mc, "//fill " + j.blockId);
+                    sendCommand(j, "//fill " + j.blockId, null);
                 } else {
-                    send(mc, "//set " + j.blockId);
+                    sendCommand(j, "//set " + j.blockId, null);
                 }
-                j.step = 7;
-                j.waitTicks = PROTOOLS_STEP_DELAY_TICKS;
+                j.setSentTick = tickCounter;
+                // Mid-batch jobs go straight to the next cuboid; the next //pos1 replaces the selection.
+                j.step = j.returnAfter ? 7 : 9;
+                j.waitTicks = 0;
                 break;
             }
 
             case 7: {
                 // TP back to the player's original position (captured when //setblock was run)
-                send(mc, "/tp " + formatCoord(j.returnX) + " " + formatCoord(j.returnY) + " " + formatCoord(j.returnZ));
+                if (!pacer.tryAcquire()) break;
+                sendCommand(j, "/tp " + formatCoord(j.returnX) + " " + formatCoord(j.returnY) + " " + formatCoord(j.returnZ), null);
                 // Restore client-side rotation as best-effort.
-                mc.thePlayer.rotationYaw = j.returnYaw;
-                mc.thePlayer.rotationPitch = j.returnPitch;
+                transport.restoreRotation(j.returnYaw, j.returnPitch);
 
                 j.step = 8;
-                j.waitTicks = RETURN_TO_DESELECT_DELAY_TICKS;
+                j.waitTicks = 0;
                 break;
             }
 
             case 8: {
                 // Deselect the region after returning to avoid leaving a selection behind.
                 // (Command name per user request: //desel)
-                send(mc, "//desel");
+                if (!pacer.tryAcquire()) break;
+                sendCommand(j, "//desel", null);
                 j.step = 9;
-                j.waitTicks = DESELECT_DELAY_TICKS;
+                j.waitTicks = 0;
                 break;
             }
 
             case 9: {
+                // The batch (and its checkpoint) only ends once a "Slow down" for the last //set
+                // could no longer be on its way.
+                if (queuedJobs.isEmpty() && setMayBeDropped(j)) break;
+                jobsCompleted++;
+                long elapsedMs = System.currentTimeMillis() - j.startedAtMs;
+                Job next = queuedJobs.isEmpty() ? null : queuedJobs.remove(0);
+                if (next != null) {
+                    transport.feedback(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Job "
+                            + (batchTotal - queuedJobs.size() - 1) + "/" + batchTotal + " done in " + formatSeconds(elapsedMs) + "..."));
+                    // A late "Slow down" for our //set must not be mistaken for one about the next job.
+                    next.previous = j;
+                    job = next;
+                    break;
+                }
 
-                mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.GREEN + "[ProtoolsAutomation] Done."));
+                StringBuilder done = new StringBuilder("[ProtoolsAutomation] Done in ").append(formatSeconds(elapsedMs))
+                        .append(" (").append(j.commandsSent).append(" commands");
+                if (j.tpsSkipped > 0) done.append(", ").append(j.tpsSkipped).append(" tp skipped");
+                done.append(", pace ").append(String.format(java.util.Locale.ROOT, "%.1f", pacer.getRatePerSecond())).append(" cmd/s)");
+                if (batchTotal > 1) {
+                    done.append(" Batch of ").append(batchTotal).append(" took ").append(formatSeconds(System.currentTimeMillis() - batchStartedAtMs)).append('.');
+                }
+                transport.feedback(new ChatComponentText(EnumChatFormatting.GREEN + done.toString()));
                 job = null;
+                batchWorld = null;
+                checkpoint.clear();
+                pacer.saveIfDirty();
                 break;
             }
 
@@ -498,160 +1203,169 @@ public final class ProtoolsAutomation {
         }
     }
 
-    private static void beginConfirm(Job j, PendingConfirm pending, Minecraft mc) {
-        j.pendingConfirm = pending;
-        j.confirmTicksRemaining = POS_CONFIRM_TIMEOUT_TICKS;
-        j.confirmOk = false;
-        j.confirmBad = false;
-        j.playerBlockAtPosSend = getPlayerBlockPos(mc);
+    /**
+     * tp (unless already standing on the target block) -> wait until near -> //posN.
+     */
+    private void advanceMove(Job j, Selection sel) {
+        switch (j.moveStep) {
+            case 0: {
+                BlockPos here = getPlayerBlockPos();
+                if (here != null && here.equals(sel.target) && isNearTarget(sel.target)) {
+                    j.tpsSkipped++;
+                    j.moveStep = 2;
+                    break;
+                }
+                if (!pacer.tryAcquire()) break;
+                sendCommand(j, tpToBlockCenterCommand(sel.target), sel);
+                j.moveStep = 1;
+                j.tpWaitTicks = 0;
+                break;
+            }
+
+            case 1: {
+                // Wait until we're near the target (or timeout), then attempt //pos.
+                j.tpWaitTicks++;
+
+                if (isNearTarget(sel.target) || j.tpWaitTicks >= TP_TIMEOUT_TICKS) {
+                    j.moveStep = 2;
+                    j.waitTicks = TP_TO_POS_DELAY_TICKS;
+                }
+                break;
+            }
+
+            case 2: {
+                if (!pacer.tryAcquire()) break;
+                sendCommand(j, "//pos" + sel.index, sel);
+                transport.feedback(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] Executed //pos" + sel.index));
+                beginConfirm(sel);
+                sel.sent = true;
+                sel.posSentTick = tickCounter;
+                j.moving = -1;
+                break;
+            }
+
+            default:
+                j.moving = -1;
+                break;
+        }
+    }
+
+    private boolean setMayBeDropped(Job j) {
+        return tickCounter - j.setSentTick <= SLOW_DOWN_ATTRIBUTION_TICKS;
+    }
+
+    private void settlePrevious(Job j) {
+        checkpoint.markDone(j.previous.id);
+        j.previous = null;
     }
 
-    private static void resetConfirm(Job j) {
-        j.pendingConfirm = PendingConfirm.NONE;
-        j.confirmTicksRemaining = 0;
-        j.confirmOk = false;
-        j.confirmBad = false;
-        j.playerBlockAtPosSend = null;
+    private void beginConfirm(Selection sel) {
+        sel.confirmTicksRemaining = POS_CONFIRM_TIMEOUT_TICKS;
+        sel.confirmOk = false;
+        sel.confirmBad = false;
+        sel.playerBlockAtPosSend = getPlayerBlockPos();
+    }
+
+    private static void resetConfirm(Selection sel) {
+        sel.confirmTicksRemaining = 0;
+        sel.confirmOk = false;
+        sel.confirmBad = false;
+        sel.playerBlockAtPosSend = null;
     }
 
     /**
+     * @param allowFallback whether a timeout may be confirmed by where the player stood; off once
+     *                      the server has been dropping commands, since the //pos may be among them
      * @return true if confirmed OK, false if still waiting or failed.
      */
-    private static boolean tickConfirm(Job j, Minecraft mc) {
-        BlockPos expected = (j.pendingConfirm == PendingConfirm.POS1) ? j.pos1Target : j.pos2Target;
-        if (j.confirmOk) {
-            resetConfirm(j);
+    private static boolean tickConfirm(Selection sel, boolean allowFallback) {
+        BlockPos expected = sel.target;
+        if (sel.confirmOk) {
+            sel.lastConfirmLatencyTicks = POS_CONFIRM_TIMEOUT_TICKS - sel.confirmTicksRemaining;
+            resetConfirm(sel);
             return true;
         }
 
-        if (j.confirmBad) {
+        if (sel.confirmBad) {
             // Mismatch (confirmed)
             return false;
         }
 
-        if (j.confirmTicksRemaining > 0) {
-            j.confirmTicksRemaining--;
-            if (j.confirmTicksRemaining > 0) return false;
+        if (sel.confirmTicksRemaining > 0) {
+            sel.confirmTicksRemaining--;
+            if (sel.confirmTicksRemaining > 0) return false;
         }
 
         // Timeout: fallback to checking where we were standing when we sent //pos.
-        if (expected != null
-            && j.playerBlockAtPosSend != null
-            && j.playerBlockAtPosSend.getX() == expected.getX()
-            && j.playerBlockAtPosSend.getY() == expected.getY()
-            && j.playerBlockAtPosSend.getZ() == expected.getZ()) {
-            resetConfirm(j);
+        if (allowFallback
+            && expected != null
+            && sel.playerBlockAtPosSend != null
+            && sel.playerBlockAtPosSend.getX() == expected.getX()
+            && sel.playerBlockAtPosSend.getY() == expected.getY()
+            && sel.playerBlockAtPosSend.getZ() == expected.getZ()) {
+            sel.lastConfirmLatencyTicks = -1;
+            resetConfirm(sel);
             return true;
         }
 
         return false;
     }
 
-    private static BlockPos getPlayerBlockPos(Minecraft mc) {
-        if (mc == null || mc.thePlayer == null) return null;
+    private BlockPos getPlayerBlockPos() {
+        if (!transport.isAvailable()) return null;
         return new BlockPos(
-                (int) Math.floor(mc.thePlayer.posX),
-                (int) Math.floor(mc.thePlayer.posY),
-                (int) Math.floor(mc.thePlayer.posZ)
+                (int) Math.floor(transport.getX()),
+                (int) Math.floor(transport.getY()),
+                (int) Math.floor(transport.getZ())
         );
     }
 
-    private static boolean isNearTarget(Minecraft mc, BlockPos target) {
-        if (mc == null || mc.thePlayer == null || target == null) return false;
+    private boolean isNearTarget(BlockPos target) {
+        if (!transport.isAvailable() || target == null) return false;
         double tx = target.getX() + 0.5;
         double ty = target.getY();
         double tz = target.getZ() + 0.5;
 
-        double dx = Math.abs(mc.thePlayer.posX - tx);
-        double dy = Math.abs(mc.thePlayer.posY - ty);
-        double dz = Math.abs(mc.thePlayer.posZ - tz);
+        double dx = Math.abs(transport.getX() - tx);
+        double dy = Math.abs(transport.getY() - ty);
+        double dz = Math.abs(transport.getZ() - tz);
 
         return dx <= TP_NEAR_TOLERANCE_XZ && dz <= TP_NEAR_TOLERANCE_XZ && dy <= TP_NEAR_TOLERANCE_Y;
     }
 
-    private static BlockPos parseCoordsFromMessage(String msg) {
-        if (msg == null) return null;
-
-        // Common formats:
-        // - "(x, y, z)"
-        // - "x: 1 y: 2 z: 3"
-        // Keep this conservative to avoid false positives.
-        java.util.regex.Matcher m = java.util.regex.Pattern
-            .compile("\\((-?\\d+)\\s*,\\s*(-?\\d+)\\s*,\\s*(-?\\d+)\\)")
-                .matcher(msg);
-        if (m.find()) {
-            return toBlockPos(m);
-        }
-
-        m = java.util.regex.Pattern
-                .compile("x\\s*[:=]\\s*(-?\\d+).{0,24}y\\s*[:=]\\s*(-?\\d+).{0,24}z\\s*[:=]\\s*(-?\\d+)", java.util.regex.Pattern.CASE_INSENSITIVE)
-                .matcher(msg);
-        if (m.find()) {
-            return toBlockPos(m);
-        }
-
-        // Fallback: if the message contains "pos" and has "x,y,z" with commas.
-        m = java.util.regex.Pattern
-                .compile("(-?\\d+)\\s*,\\s*(-?\\d+)\\s*,\\s*(-?\\d+)")
-                .matcher(msg);
-        if (m.find()) {
-            return toBlockPos(m);
-        }
-
-        return null;
-    }
-
-    private static BlockPos toBlockPos(java.util.regex.Matcher m) {
-        try {
-            int x = Integer.parseInt(m.group(1));
-            int y = Integer.parseInt(m.group(2));
-            int z = Integer.parseInt(m.group(3));
-            return new BlockPos(x, y, z);
-        } catch (Throwable ignored) {
-            return null;
-        }
+    private void sendCommand(Job j, String message, Selection sel) {
+        j.lastCommand = message;
+        j.lastCommandTick = tickCounter;
+        j.lastCommandSelection = sel;
+        j.commandsSent++;
+        totalCommandsSent++;
+        transport.sendCommand(message);
     }
 
-    private static void send(Minecraft mc, String message) {
-        if (mc == null || mc.thePlayer == null) return;
-        mc.thePlayer.sendChatMessage(message);
-    }
-
-    private void fail(Minecraft mc, String reason) {
-        if (mc != null && mc.thePlayer != null) {
-            mc.thePlayer.addChatMessage(new ChatComponentText(EnumChatFormatting.RED + "[ProtoolsAutomation] " + reason));
+    private void fail(String reason) {
+        transport.feedback(new ChatComponentText(EnumChatFormatting.RED + "[ProtoolsAutomation] " + reason));
+        if (checkpoint.hasPending()) {
+            transport.feedback(new ChatComponentText(EnumChatFormatting.GRAY + "[ProtoolsAutomation] "
+                    + checkpoint.pendingCount() + " jobs left; //jobresume to retry them."));
         }
         job = null;
+        queuedJobs.clear();
+        batchWorld = null;
+        autoResume = false;
+        resumeHintShown = true;
+        pacer.saveIfDirty();
     }
 
-    private static void sendTpToBlockCenter(Minecraft mc, BlockPos pos) {
-        if (mc == null || mc.thePlayer == null || pos == null) return;
+    private static String tpToBlockCenterCommand(BlockPos pos) {
         // Teleport to the center of the block to avoid landing on edges/corners.
         double x = pos.getX() + 0.5;
         double y = pos.getY();
         double z = pos.getZ() + 0.5;
-        send(mc, "/tp " + formatCoord(x) + " " + formatCoord(y) + " " + formatCoord(z));
-    }
-
-    private static void freezeMovementInputs(Minecraft mc) {
-        if (mc == null || mc.gameSettings == null) return;
-        // Clear common movement keys.
-        setPressed(mc.gameSettings.keyBindForward, false);
-        setPressed(mc.gameSettings.keyBindBack, false);
-        setPressed(mc.gameSettings.keyBindLeft, false);
-        setPressed(mc.gameSettings.keyBindRight, false);
-        setPressed(mc.gameSettings.keyBindJump, false);
-        setPressed(mc.gameSettings.keyBindSneak, false);
-        setPressed(mc.gameSettings.keyBindSprint, false);
+        return "/tp " + formatCoord(x) + " " + formatCoord(y) + " " + formatCoord(z);
     }
 
-    private static void setPressed(KeyBinding binding, boolean pressed) {
-        if (binding == null) return;
-        try {
-            KeyBinding.setKeyBindState(binding.getKeyCode(), pressed);
-        } catch (Throwable ignored) {
-            // If this fails for any reason, just don't force key state.
-        }
+    private static String formatSeconds(long ms) {
+        return String.format(java.util.Locale.ROOT, "%.2fs", ms / 1000.0);
     }
 
     private static String formatCoord(double v) {
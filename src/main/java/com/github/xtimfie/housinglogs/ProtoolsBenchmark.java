@@ -0,0 +1,131 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.util.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the real Pro Tools job engine against {@link MockProtoolsServer} in simulated time, so pacing
+ * and pipelining changes can be compared without touching Hypixel. Nothing is written to disk: the
+ * engine gets its own pacer and checkpoint without files.
+ *
+ * Needs no running game: in game it runs on a background thread (//protoolsbench), and outside it
+ * {@link #main} runs it with only the mod and Minecraft classes on the class path
+ * (./gradlew protoolsBench --args="[jobs] [latencyTicks] [seed]").
+ */
+final class ProtoolsBenchmark {
+    // Server-side limit of the mock: about 3 commands/s with a small burst.
+    private static final double SERVER_RATE_PER_TICK = 0.15;
+    private static final double SERVER_BURST = 3.0;
+    private static final double NUDGE_CHANCE = 0.05;
+    // 30 simulated minutes; anything slower than that counts as stuck.
+    private static final long MAX_TICKS = 20L * 60L * 30L;
+
+    private ProtoolsBenchmark() {
+    }
+
+    static final class Result {
+        final int jobsRequested;
+        final int jobsCompleted;
+        final long ticks;
+        final long commandsSent;
+        final long idleTicks;
+        final int slowDowns;
+        final int posRetries;
+        final int nudges;
+        final long blocksChanged;
+        final double finalRatePerSecond;
+        final boolean timedOut;
+
+        Result(int jobsRequested, int jobsCompleted, long ticks, long commandsSent, long idleTicks, int slowDowns,
+               int posRetries, int nudges, long blocksChanged, double finalRatePerSecond, boolean timedOut) {
+            this.jobsRequested = jobsRequested;
+            this.jobsCompleted = jobsCompleted;
+            this.ticks = ticks;
+            this.commandsSent = commandsSent;
+            this.idleTicks = idleTicks;
+            this.slowDowns = slowDowns;
+            this.posRetries = posRetries;
+            this.nudges = nudges;
+            this.blocksChanged = blocksChanged;
+            this.finalRatePerSecond = finalRatePerSecond;
+            this.timedOut = timedOut;
+        }
+
+        double opsPerMinute() {
+            if (ticks <= 0) return 0.0;
+            return jobsCompleted * (20.0 * 60.0) / ticks;
+        }
+    }
+
+    /**
+     * @param jobs         number of random cuboid jobs
+     * @param latencyTicks one-way latency of the mock connection (jitter adds up to half of it)
+     * @param seed         seed for the job layout and the mock server
+     */
+    static Result run(int jobs, int latencyTicks, long seed) {
+        MockProtoolsServer server = new MockProtoolsServer(seed, latencyTicks, latencyTicks / 2,
+                NUDGE_CHANCE, SERVER_RATE_PER_TICK, SERVER_BURST);
+        ProtoolsAutomation engine = new ProtoolsAutomation(server, new ProtoolsPacer(), new AutomationCheckpoint());
+        server.attach(engine);
+        server.setPlayerPosition(0.5, 64.0, 0.5);
+
+        engine.startPlannedJobs(null, randomPlan(jobs, new Random(seed)));
+
+        // Until the server has also handled the last commands, so their blocks are counted.
+        long ticks = 0;
+        while ((engine.isBusy() || !server.isIdle()) && ticks < MAX_TICKS) {
+            server.tick();
+            engine.tick();
+            ticks++;
+        }
+
+        return new Result(
+                jobs,
+                engine.getJobsCompleted(),
+                ticks,
+                engine.getTotalCommandsSent(),
+                engine.getIdleActiveTicks(),
+                server.getSlowDowns(),
+                engine.getPosRetries(),
+                server.getNudges(),
+                server.getBlocksChanged(),
+                engine.getPacer().getRatePerSecond(),
+                engine.isBusy()
+        );
+    }
+
+    static String describe(Result r) {
+        return String.format(java.util.Locale.ROOT,
+                "Benchmark: %d/%d jobs in %.1fs simulated (%.1f ops/min), %d commands, %d slow-downs, %d pos retries (%d nudges), %d blocks, %d idle ticks, final pace %.1f cmd/s%s",
+                r.jobsCompleted, r.jobsRequested, r.ticks / 20.0, r.opsPerMinute(), r.commandsSent, r.slowDowns,
+                r.posRetries, r.nudges, r.blocksChanged, r.idleTicks, r.finalRatePerSecond, r.timedOut ? " (timed out)" : "");
+    }
+
+    /**
+     * Usage: ProtoolsBenchmark [jobs] [latencyTicks] [seed]
+     */
+    public static void main(String[] args) {
+        int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int latencyTicks = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+        Result r = run(jobs, latencyTicks, seed);
+        System.out.println(describe(r));
+        if (r.jobsCompleted != r.jobsRequested) System.exit(1);
+    }
+
+    private static List<CuboidPlanner.Cuboid> randomPlan(int jobs, Random random) {
+        List<CuboidPlanner.Cuboid> plan = new ArrayList<>(jobs);
+        for (int i = 0; i < jobs; i++) {
+            int x = random.nextInt(129) - 64;
+            int y = 60 + random.nextInt(20);
+            int z = random.nextInt(129) - 64;
+            BlockPos min = new BlockPos(x, y, z);
+            BlockPos max = new BlockPos(x + random.nextInt(6), y + random.nextInt(4), z + random.nextInt(6));
+            plan.add(new CuboidPlanner.Cuboid(min, max, "stone"));
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.xtimfie.housinglogs;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Token-bucket pacing for Pro Tools chat commands.
+ *
+ * Tokens refill every client tick at the learned rate; each command spends one token.
+ * The rate grows additively while the server keeps confirming promptly and is halved (with an
+ * exponentially growing cooldown) whenever Hypixel answers with "Slow down".
+ * The learned rate is persisted so the next session starts from what worked last time.
+ */
+final class ProtoolsPacer {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    // Rates are in commands per client tick (20 ticks = 1 second).
+    // The default roughly matches the old fixed 10-tick step delay.
+    private static final double DEFAULT_RATE = 0.10;
+    private static final double MIN_RATE = 0.03;
+    private static final double MAX_RATE = 0.50;
+    // Allows a /tp and the following //pos to go out back-to-back.
+    private static final double BURST = 2.0;
+
+    private static final double INCREASE_STEP = 0.01;
+    private static final double BACKOFF_FACTOR = 0.5;
+    private static final int BASE_COOLDOWN_TICKS = 20;
+    private static final int MAX_BACKOFF_LEVEL = 5;
+    // Clean confirmations needed before a previous backoff level is forgiven.
+    private static final int CLEAN_CONFIRMS_TO_FORGIVE = 8;
+
+    // Confirmations slower than this multiple of the running average do not raise the rate.
+    private static final double SLOW_CONFIRM_FACTOR = 1.5;
+    private static final double LATENCY_EWMA_ALPHA = 0.2;
+
+    // Where the learned rate is kept; null (nothing persisted, as in benchmarks) until load(File).
+    private File file;
+
+    private double rate = DEFAULT_RATE;
+    private double tokens = BURST;
+    private double latencyEwmaTicks = -1.0;
+
+    private int backoffLevel = 0;
+    private int cooldownTicks = 0;
+    private int cleanConfirms = 0;
+    private boolean dirty = false;
+
+    ProtoolsPacer() {
+    }
+
+    void tick() {
+        if (cooldownTicks > 0) {
+            cooldownTicks--;
+            return;
+        }
+        tokens = Math.min(BURST, tokens + rate);
+    }
+
+    /**
+     * @return true if a command may be sent now (and spends the token).
+     */
+    boolean tryAcquire() {
+        if (cooldownTicks > 0 || tokens < 1.0) return false;
+        tokens -= 1.0;
+        return true;
+    }
+
+    /**
+     * A //pos confirmation arrived after the given number of ticks.
+     */
+    void onConfirmed(int latencyTicks) {
+        boolean slow = latencyEwmaTicks > 0 && latencyTicks > latencyEwmaTicks * SLOW_CONFIRM_FACTOR;
+        latencyEwmaTicks = latencyEwmaTicks < 0
+                ? latencyTicks
+                : latencyEwmaTicks + LATENCY_EWMA_ALPHA * (latencyTicks - latencyEwmaTicks);
+
+        if (slow) {
+            cleanConfirms = 0;
+            return;
+        }
+
+        rate = Math.min(MAX_RATE, rate + INCREASE_STEP);
+        if (backoffLevel > 0 && ++cleanConfirms >= CLEAN_CONFIRMS_TO_FORGIVE) {
+            backoffLevel--;
+            cleanConfirms = 0;
+        }
+        dirty = true;
+    }
+
+    /**
+     * The server pushed back ("Slow down"): halve the rate, drain the bucket and pause.
+     */
+    void onRateLimited() {
+        rate = Math.max(MIN_RATE, rate * BACKOFF_FACTOR);
+        tokens = 0.0;
+        cooldownTicks = BASE_COOLDOWN_TICKS << backoffLevel;
+        backoffLevel = Math.min(MAX_BACKOFF_LEVEL, backoffLevel + 1);
+        cleanConfirms = 0;
+        dirty = true;
+    }
+
+    double getRatePerSecond() {
+        return rate * 20.0;
+    }
+
+    /**
+     * Starts persisting to the file, picking up the rate stored there.
+     */
+    void load(File file) {
+        this.file = file;
+        if (file == null || !file.exists()) return;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            JsonObject obj = GSON.fromJson(reader, JsonObject.class);
+            if (obj == null) return;
+            if (obj.has("ratePerTick")) {
+                rate = clamp(obj.get("ratePerTick").getAsDouble());
+            }
+            if (obj.has("latencyEwmaTicks")) {
+                latencyEwmaTicks = obj.get("latencyEwmaTicks").getAsDouble();
+            }
+        } catch (Exception e) {
+            System.err.println("[HousingLogs] Failed to load Pro Tools pacer state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the learned rate if it changed. Called when a job ends, not per command.
+     */
+    void saveIfDirty() {
+        if (!dirty) return;
+        dirty = false;
+        if (file == null) return;
+
+        JsonObject obj = new JsonObject();
+        obj.addProperty("ratePerTick", rate);
+        obj.addProperty("latencyEwmaTicks", latencyEwmaTicks);
+        try {
+            file.getParentFile().mkdirs();
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                GSON.toJson(obj, writer);
+            }
+        } catch (IOException e) {
+            System.err.println("[HousingLogs] Failed to save Pro Tools pacer state: " + e.getMessage());
+        }
+    }
+
+    private static double clamp(double r) {
+        if (Double.isNaN(r)) return DEFAULT_RATE;
+        return Math.max(MIN_RATE, Math.min(MAX_RATE, r));
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.settings.KeyBinding;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.IChatComponent;
+
+/**
+ * Everything the Pro Tools job engine needs from the outside world: where the player is, how to send
+ * a chat command and where to print feedback. Server replies come back through {@link ChatDispatcher}
+ * in game, or {@link ProtoolsAutomation#handleServerMessage(String)} for the mock.
+ *
+ * {@link Client} is the real game; {@link MockProtoolsServer} stands in for Hypixel when benchmarking.
+ */
+interface ProtoolsTransport {
+    boolean isAvailable();
+
+    /**
+     * Changes identity when the world changes (disconnect, server switch); compared by reference.
+     */
+    Object worldToken();
+
+    boolean isInHousing();
+
+    double getX();
+
+    double getY();
+
+    double getZ();
+
+    float getYaw();
+
+    float getPitch();
+
+    void sendCommand(String message);
+
+    void feedback(IChatComponent message);
+
+    /**
+     * Called every tick while a job runs, to keep the player from drifting off a //pos target.
+     */
+    void holdStill();
+
+    void restoreRotation(float yaw, float pitch);
+
+    /**
+     * Captures the client's view of a cuboid before it is overwritten, for //jobundo.
+     *
+     * @return the pending snapshot, or null when it cannot be captured
+     */
+    java.util.concurrent.Future<RegionSnapshot> captureRegion(BlockPos a, BlockPos b);
+
+    final class Client implements ProtoolsTransport {
+        @Override
+        public boolean isAvailable() {
+            Minecraft mc = Minecraft.getMinecraft();
+            return mc != null && mc.thePlayer != null;
+        }
+
+        @Override
+        public Object worldToken() {
+            Minecraft mc = Minecraft.getMinecraft();
+            return mc == null ? null : mc.theWorld;
+        }
+
+        @Override
+        public boolean isInHousing() {
+            return HousingContext.isInHousing();
+        }
+
+        @Override
+        public double getX() {
+            return Minecraft.getMinecraft().thePlayer.posX;
+        }
+
+        @Override
+        public double getY() {
+            return Minecraft.getMinecraft().thePlayer.posY;
+        }
+
+        @Override
+        public double getZ() {
+            return Minecraft.getMinecraft().thePlayer.posZ;
+        }
+
+        @Override
+        public float getYaw() {
+            return Minecraft.getMinecraft().thePlayer.rotationYaw;
+        }
+
+        @Override
+        public float getPitch() {
+            return Minecraft.getMinecraft().thePlayer.rotationPitch;
+        }
+
+        @Override
+        public void sendCommand(String message) {
+            Minecraft mc = Minecraft.getMinecraft();
+            if (mc == null || mc.thePlayer == null) return;
+            mc.thePlayer.sendChatMessage(message);
+        }
+
+        @Override
+        public void feedback(IChatComponent message) {
+            Minecraft mc = Minecraft.getMinecraft();
+            if (mc == null || mc.thePlayer == null) return;
+            mc.thePlayer.addChatMessage(message);
+        }
+
+        @Override
+        public void holdStill() {
+            Minecraft mc = Minecraft.getMinecraft();
+            if (mc == null || mc.thePlayer == null) return;
+            // This is client-side only (server can still nudge you), but it helps keep
+            // your position stable for the //pos commands.
+            freezeMovementInputs(mc);
+            mc.thePlayer.motionX = 0.0;
+            mc.thePlayer.motionY = 0.0;
+            mc.thePlayer.motionZ = 0.0;
+        }
+
+        @Override
+        public void restoreRotation(float yaw, float pitch) {
+            Minecraft mc = Minecraft.getMinecraft();
+            if (mc == null || mc.thePlayer == null) return;
+            mc.thePlayer.rotationYaw = yaw;
+            mc.thePlayer.rotationPitch = pitch;
+        }
+
+        @Override
+        public java.util.concurrent.Future<RegionSnapshot> captureRegion(BlockPos a, BlockPos b) {
+            Minecraft mc = Minecraft.getMinecraft();
+            if (mc == null) return null;
+            return RegionSnapshot.capture(mc.theWorld, a, b);
+        }
+
+        private static void freezeMovementInputs(Minecraft mc) {
+            if (mc.gameSettings == null) return;
+            // Clear common movement keys.
+            setPressed(mc.gameSettings.keyBindForward, false);
+            setPressed(mc.gameSettings.keyBindBack, false);
+            setPressed(mc.gameSettings.keyBindLeft, false);
+            setPressed(mc.gameSettings.keyBindRight, false);
+            setPressed(mc.gameSettings.keyBindJump, false);
+            setPressed(mc.gameSettings.keyBindSneak, false);
+            setPressed(mc.gameSettings.keyBindSprint, false);
+        }
+
+        private static void setPressed(KeyBinding binding, boolean pressed) {
+            if (binding == null) return;
+            try {
+                KeyBinding.setKeyBindState(binding.getKeyCode(), pressed);
+            } catch (Throwable ignored) {
+                // If this fails for any reason, just don't force key state.
+            }
+        }
+    }
+}
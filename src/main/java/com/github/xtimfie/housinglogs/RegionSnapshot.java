@@ -0,0 +1,226 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Block states of a cuboid as seen by the client, palette-encoded: each block is a bit-packed index
+ * into a small table of block state ids ({@link Block#BLOCK_STATE_IDS}).
+ *
+ * Capture copies the raw chunk section arrays that intersect the cuboid on the calling (client)
+ * thread, which is a handful of array copies rather than one getBlockState per block. Building the
+ * palette and packing happen on a background thread.
+ */
+final class RegionSnapshot {
+    // Bigger selections are not captured (copying them would stall the client).
+    static final int MAX_VOLUME = 4 * 1024 * 1024;
+
+    // Also runs //jobundo planning, which must see every snapshot submitted before it.
+    static final ExecutorService ENCODE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Hitlist-Protools-Undo");
+        t.setDaemon(true);
+        return t;
+    });
+
+    final BlockPos min;
+    final BlockPos max;
+    private final char[] palette;
+    private final int bits;
+    private final long[] data;
+
+    private RegionSnapshot(BlockPos min, BlockPos max, char[] palette, int bits, long[] data) {
+        this.min = min;
+        this.max = max;
+        this.palette = palette;
+        this.bits = bits;
+        this.data = data;
+    }
+
+    /**
+     * Raw copies of the chunk section arrays intersecting a cuboid (clamped to y 0..255). Taken on the
+     * client thread; safe to read from any thread afterwards.
+     */
+    static final class Sections {
+        final BlockPos min;
+        final BlockPos max;
+        final int cx0;
+        final int sy0;
+        final int cz0;
+        final int nx;
+        final int ny;
+        final int nz;
+        final long capturedMs = System.currentTimeMillis();
+        // null entries are empty (all air) sections.
+        private final char[][] data;
+
+        private Sections(BlockPos min, BlockPos max) {
+            this.min = min;
+            this.max = max;
+            this.cx0 = min.getX() >> 4;
+            this.sy0 = min.getY() >> 4;
+            this.cz0 = min.getZ() >> 4;
+            this.nx = (max.getX() >> 4) - cx0 + 1;
+            this.ny = (max.getY() >> 4) - sy0 + 1;
+            this.nz = (max.getZ() >> 4) - cz0 + 1;
+            this.data = new char[nx * ny * nz][];
+        }
+
+        int volume() {
+            return (max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1) * (max.getZ() - min.getZ() + 1);
+        }
+
+        /**
+         * Block state id at a world position inside the cuboid.
+         */
+        char stateAt(int x, int y, int z) {
+            char[] section = data[(((y >> 4) - sy0) * nz + ((z >> 4) - cz0)) * nx + ((x >> 4) - cx0)];
+            return section == null ? 0 : section[(y & 15) << 8 | (z & 15) << 4 | (x & 15)];
+        }
+    }
+
+    /**
+     * @return the copied sections, or null if the cuboid is larger than maxVolume or not fully loaded
+     */
+    static Sections copySections(World world, BlockPos a, BlockPos b, long maxVolume) {
+        if (world == null || a == null || b == null) return null;
+        BlockPos min = new BlockPos(Math.min(a.getX(), b.getX()), Math.max(0, Math.min(a.getY(), b.getY())), Math.min(a.getZ(), b.getZ()));
+        BlockPos max = new BlockPos(Math.max(a.getX(), b.getX()), Math.min(255, Math.max(a.getY(), b.getY())), Math.max(a.getZ(), b.getZ()));
+        if (min.getY() > max.getY()) return null;
+
+        long volume = (long) (max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1) * (max.getZ() - min.getZ() + 1);
+        if (volume > maxVolume) return null;
+
+        Sections out = new Sections(min, max);
+        for (int cx = 0; cx < out.nx; cx++) {
+            for (int cz = 0; cz < out.nz; cz++) {
+                Chunk chunk = world.getChunkFromChunkCoords(out.cx0 + cx, out.cz0 + cz);
+                if (chunk == null || chunk.isEmpty()) return null;
+                ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+                if (storage == null) continue;
+                for (int sy = 0; sy < out.ny; sy++) {
+                    ExtendedBlockStorage s = storage[out.sy0 + sy];
+                    if (s == null || s.getData() == null) continue;
+                    out.data[(sy * out.nz + cz) * out.nx + cx] = s.getData().clone();
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return the pending snapshot, or null if the cuboid is too large or not fully loaded
+     */
+    static Future<RegionSnapshot> capture(World world, BlockPos a, BlockPos b) {
+        Sections sections = copySections(world, a, b, MAX_VOLUME);
+        if (sections == null) return null;
+        return ENCODE_EXECUTOR.submit(() -> encode(sections));
+    }
+
+    private static RegionSnapshot encode(Sections sections) {
+        BlockPos min = sections.min;
+        BlockPos max = sections.max;
+        int volume = sections.volume();
+        char[] states = new char[volume];
+        int[] paletteIndex = new int[65536];
+        java.util.Arrays.fill(paletteIndex, -1);
+        char[] palette = new char[16];
+        int paletteSize = 0;
+
+        int i = 0;
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                for (int x = min.getX(); x <= max.getX(); x++) {
+                    char state = sections.stateAt(x, y, z);
+                    if (paletteIndex[state] < 0) {
+                        if (paletteSize == palette.length) palette = java.util.Arrays.copyOf(palette, paletteSize * 2);
+                        paletteIndex[state] = paletteSize;
+                        palette[paletteSize++] = state;
+                    }
+                    states[i++] = state;
+                }
+            }
+        }
+
+        // Entries never straddle two longs, so indexing is a divide and a shift.
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+        int perLong = 64 / bits;
+        long[] data = new long[(volume + perLong - 1) / perLong];
+        for (int k = 0; k < volume; k++) {
+            data[k / perLong] |= (long) paletteIndex[states[k]] << ((k % perLong) * bits);
+        }
+        return new RegionSnapshot(min, max, java.util.Arrays.copyOf(palette, paletteSize), bits, data);
+    }
+
+    int volume() {
+        return (max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1) * (max.getZ() - min.getZ() + 1);
+    }
+
+    /**
+     * Approximate heap use, for capping the undo history.
+     */
+    long sizeBytes() {
+        return data.length * 8L + palette.length * 2L;
+    }
+
+    /**
+     * Calls the consumer with every position and its Pro Tools block id (null if unknown), in y, z, x order.
+     */
+    void forEach(java.util.function.BiConsumer<BlockPos, String> consumer) {
+        String[] names = new String[palette.length];
+        for (int p = 0; p < palette.length; p++) {
+            names[p] = blockIdOf(palette[p]);
+        }
+
+        int perLong = 64 / bits;
+        long mask = (1L << bits) - 1;
+        int k = 0;
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                for (int x = min.getX(); x <= max.getX(); x++) {
+                    int p = (int) ((data[k / perLong] >>> ((k % perLong) * bits)) & mask);
+                    consumer.accept(new BlockPos(x, y, z), names[p]);
+                    k++;
+                }
+            }
+        }
+    }
+
+    /**
+     * "name" or "name:meta" without the minecraft: namespace, as typed after //set; null if unknown.
+     */
+    static String blockIdOf(int stateId) {
+        try {
+            if (stateId == 0) return "air";
+            IBlockState state = Block.getStateById(stateId);
+            if (state == null) return null;
+            Block block = state.getBlock();
+            ResourceLocation key = (ResourceLocation) Block.blockRegistry.getNameForObject(block);
+            if (key == null) return null;
+            String name = key.getResourcePath();
+            int meta = block.getMetaFromState(state);
+            return meta == 0 ? name : name + ":" + meta;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    /**
+     * Lower-cased, without the minecraft: namespace and without a :0 meta, for comparing user-typed
+     * ids ("minecraft:stone:0" and "stone" are the same block).
+     */
+    static String normaliseBlockId(String blockId) {
+        if (blockId == null) return "";
+        String s = blockId.trim().toLowerCase(java.util.Locale.ROOT);
+        if (s.startsWith("minecraft:")) s = s.substring("minecraft:".length());
+        return s.endsWith(":0") ? s.substring(0, s.length() - 2) : s;
+    }
+}
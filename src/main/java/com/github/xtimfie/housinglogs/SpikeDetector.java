@@ -0,0 +1,291 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Flags break bursts by a player or in an area without keeping per-player state.
+ *
+ * Break counts go into two sliding-window count-min sketches: one over the last second and one
+ * over the last minute as the baseline. A key whose last second is well above both a floor and its
+ * own baseline rate is flagged as the burst happens. Memory is fixed whatever the number of
+ * players; a small top-k heap remembers the heaviest breakers of the last minute for /hlog spikes.
+ * Fed from the log thread after attribution.
+ */
+final class SpikeDetector {
+    static final SpikeDetector INSTANCE = new SpikeDetector();
+
+    // Breaks in one second below this are never a spike, whatever the baseline.
+    private static final int MIN_BURST = 20;
+    // ...and the second must be this many times the key's per-second rate over the last minute.
+    private static final int BURST_FACTOR = 4;
+    private static final long FLAG_COOLDOWN_MS = 10_000L;
+    private static final int TOP_K = 10;
+
+    private static final int PLAYER_SALT = 0x5bd1e995;
+    private static final int AREA_SALT = 0x27d4eb2f;
+
+    /**
+     * Count-min sketch over a sliding window, kept as a ring of per-slot sketches plus their running
+     * sum. Estimates never undercount; collisions can only add.
+     */
+    static final class SlidingSketch {
+        private final int depth;
+        private final int mask;
+        private final long slotMs;
+        private final int[][] slots;
+        private final int[] sum;
+        private long currentSlot = Long.MIN_VALUE;
+
+        SlidingSketch(int depth, int width, int slotCount, long slotMs) {
+            this.depth = depth;
+            this.mask = width - 1;
+            this.slotMs = slotMs;
+            this.slots = new int[slotCount][depth * width];
+            this.sum = new int[depth * width];
+        }
+
+        long windowMs() {
+            return slotMs * slots.length;
+        }
+
+        /**
+         * Slot the window was last advanced to; estimates of keys not added to only drop when it moves.
+         */
+        long currentSlot() {
+            return currentSlot;
+        }
+
+        /**
+         * Moves the window forward to tsMs, dropping the slots that fell out of it.
+         */
+        void advance(long tsMs) {
+            long slot = Math.floorDiv(tsMs, slotMs);
+            if (slot <= currentSlot) return;
+            long steps = currentSlot == Long.MIN_VALUE ? slots.length : Math.min(slot - currentSlot, slots.length);
+            for (long s = slot - steps + 1; s <= slot; s++) {
+                int[] old = slots[(int) Math.floorMod(s, (long) slots.length)];
+                for (int i = 0; i < old.length; i++) {
+                    sum[i] -= old[i];
+                }
+                Arrays.fill(old, 0);
+            }
+            currentSlot = slot;
+        }
+
+        /**
+         * Counts one event for the key (advance first) and returns its new windowed estimate.
+         */
+        int add(int keyHash) {
+            int[] slot = slots[(int) Math.floorMod(currentSlot, (long) slots.length)];
+            int min = Integer.MAX_VALUE;
+            int width = mask + 1;
+            for (int d = 0; d < depth; d++) {
+                int i = d * width + (mix(keyHash, d) & mask);
+                slot[i]++;
+                min = Math.min(min, ++sum[i]);
+            }
+            return min;
+        }
+
+        int estimate(int keyHash) {
+            int min = Integer.MAX_VALUE;
+            int width = mask + 1;
+            for (int d = 0; d < depth; d++) {
+                min = Math.min(min, sum[d * width + (mix(keyHash, d) & mask)]);
+            }
+            return min;
+        }
+
+        private static int mix(int h, int row) {
+            h ^= row * 0x9E3779B9;
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private final SlidingSketch lastSecond = new SlidingSketch(4, 1024, 4, 250L);
+    private final SlidingSketch lastMinute = new SlidingSketch(4, 1024, 30, 2000L);
+
+    // Min-heap on lastMinute estimates: the heaviest keys seen, updated as they are hit and
+    // re-estimated whenever the window moves, so a burst that has aged out makes room.
+    private final String[] topKey = new String[TOP_K];
+    private final boolean[] topIsArea = new boolean[TOP_K];
+    private final int[] topCount = new int[TOP_K];
+    private int topSize = 0;
+    private long topSlot = Long.MIN_VALUE;
+
+    // Recently flagged keys, so a burst is reported once rather than on every break.
+    private final int[] flaggedHash = new int[16];
+    private final long[] flaggedAt = new long[16];
+    private int flaggedNext = 0;
+
+    private final ConcurrentLinkedQueue<String> messages = new ConcurrentLinkedQueue<>();
+
+    private SpikeDetector() {
+    }
+
+    /**
+     * Log thread: counts a logged change.
+     *
+     * @param areaNames every area the change is in
+     * @param playerName the attributed player, or null
+     */
+    synchronized void record(String action, List<String> areaNames, String playerName, long tsMs) {
+        if (!"BREAK".equals(action)) return;
+        lastSecond.advance(tsMs);
+        lastMinute.advance(tsMs);
+        refreshTop();
+        if (playerName != null) count(playerName, false, tsMs);
+        for (int i = 0; i < areaNames.size(); i++) {
+            count(areaNames.get(i), true, tsMs);
+        }
+    }
+
+    private static int hash(String key, boolean area) {
+        return key.hashCode() ^ (area ? AREA_SALT : PLAYER_SALT);
+    }
+
+    private void count(String key, boolean area, long tsMs) {
+        int h = hash(key, area);
+        int second = lastSecond.add(h);
+        int minute = lastMinute.add(h);
+        offerTop(key, area, minute);
+
+        if (second < MIN_BURST) return;
+        // Per-second rate over the minute, leaving out the burst itself.
+        long baselinePerSecond = (minute - second) * 1000L / (lastMinute.windowMs() - lastSecond.windowMs());
+        if (second < BURST_FACTOR * Math.max(1L, baselinePerSecond)) return;
+        if (recentlyFlagged(h, tsMs)) return;
+        messages.add(EnumChatFormatting.RED + "[HousingLogs] Break spike: " + (area ? "" + second + " blocks broken in " + key : key + " broke " + second + " blocks")
+                + " in the last second (usually ~" + baselinePerSecond + "/s).");
+    }
+
+    private boolean recentlyFlagged(int h, long tsMs) {
+        for (int i = 0; i < flaggedHash.length; i++) {
+            if (flaggedHash[i] == h && tsMs - flaggedAt[i] < FLAG_COOLDOWN_MS) return true;
+        }
+        flaggedHash[flaggedNext] = h;
+        flaggedAt[flaggedNext] = tsMs;
+        flaggedNext = (flaggedNext + 1) % flaggedHash.length;
+        return false;
+    }
+
+    /**
+     * Re-estimates the heap after the minute window moved, dropping keys that left it.
+     */
+    private void refreshTop() {
+        long slot = lastMinute.currentSlot();
+        if (slot == topSlot) return;
+        topSlot = slot;
+        int n = 0;
+        for (int i = 0; i < topSize; i++) {
+            int count = lastMinute.estimate(hash(topKey[i], topIsArea[i]));
+            if (count == 0) continue;
+            topKey[n] = topKey[i];
+            topIsArea[n] = topIsArea[i];
+            topCount[n] = count;
+            n++;
+        }
+        Arrays.fill(topKey, n, topSize, null);
+        topSize = n;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void offerTop(String key, boolean area, int count) {
+        for (int i = 0; i < topSize; i++) {
+            if (topIsArea[i] == area && topKey[i].equals(key)) {
+                topCount[i] = count;
+                siftDown(i);
+                return;
+            }
+        }
+        if (topSize < TOP_K) {
+            int i = topSize++;
+            topKey[i] = key;
+            topIsArea[i] = area;
+            topCount[i] = count;
+            siftUp(i);
+        } else if (count > topCount[0]) {
+            topKey[0] = key;
+            topIsArea[0] = area;
+            topCount[0] = count;
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (topCount[parent] <= topCount[i]) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int l = 2 * i + 1;
+            int smallest = i;
+            if (l < topSize && topCount[l] < topCount[smallest]) smallest = l;
+            if (l + 1 < topSize && topCount[l + 1] < topCount[smallest]) smallest = l + 1;
+            if (smallest == i) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String k = topKey[a];
+        topKey[a] = topKey[b];
+        topKey[b] = k;
+        boolean ar = topIsArea[a];
+        topIsArea[a] = topIsArea[b];
+        topIsArea[b] = ar;
+        int c = topCount[a];
+        topCount[a] = topCount[b];
+        topCount[b] = c;
+    }
+
+    /**
+     * @return the heaviest breakers and areas of the last minute, as "name: count" lines, most first
+     */
+    synchronized List<String> top() {
+        lastSecond.advance(System.currentTimeMillis());
+        lastMinute.advance(System.currentTimeMillis());
+        refreshTop();
+        List<int[]> order = new ArrayList<>();
+        for (int i = 0; i < topSize; i++) {
+            order.add(new int[]{topCount[i], i});
+        }
+        order.sort((x, y) -> Integer.compare(y[0], x[0]));
+        List<String> out = new ArrayList<>(order.size());
+        for (int[] o : order) {
+            out.add((topIsArea[o[1]] ? "area " : "") + topKey[o[1]] + ": " + o[0]);
+        }
+        return out;
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || messages.isEmpty()) return;
+        Minecraft mc = Minecraft.getMinecraft();
+        String msg;
+        while ((msg = messages.poll()) != null) {
+            if (mc.thePlayer != null) mc.thePlayer.addChatMessage(new ChatComponentText(msg));
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.github.xtimfie.housinglogs;
+
+import net.minecraft.util.BlockPos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Orders queued automation stops to cut down teleport distance.
+ *
+ * Each stop is a pair of points (//pos1 then //pos2) that can be walked in either direction, since a
+ * cuboid selection is the same whichever corner is set first. The tour starts at the player, visits
+ * every stop and returns to the start (the single return /tp at the end of a batch).
+ * A full plan is nearest-neighbour followed by 2-opt; single additions use cheapest insertion
+ * followed by a bounded 2-opt pass so the queue is refined incrementally.
+ *
+ * Stops whose cuboids intersect keep the order they are in: for overlapping //sets the last one
+ * wins, so swapping them would change the result. Only disjoint stops are reordered.
+ */
+final class TravelPlanner {
+    // 2-opt is O(n^2) per pass; cap the work done on the client thread.
+    private static final int MAX_TWO_OPT_PASSES = 8;
+    private static final int MAX_TWO_OPT_STOPS = 600;
+
+    private TravelPlanner() {
+    }
+
+    interface Stop {
+        BlockPos entry();
+
+        BlockPos exit();
+
+        /**
+         * Swap entry and exit.
+         */
+        void flip();
+    }
+
+    /**
+     * Reorders (and possibly flips) all stops in place.
+     */
+    static <T extends Stop> void optimise(BlockPos start, List<T> stops) {
+        if (start == null || stops == null || stops.size() < 2) return;
+
+        int n = stops.size();
+        int[][] conflicts = conflicts(stops);
+        // Earlier stops each one overlaps that are not in the tour yet; it is free once this is 0.
+        int[] blockedBy = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int c : conflicts[i]) {
+                if (c < i) blockedBy[i]++;
+            }
+        }
+
+        List<Integer> remaining = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) remaining.add(i);
+        List<T> tour = new ArrayList<>(n);
+        BlockPos here = start;
+        while (!remaining.isEmpty()) {
+            int best = -1;
+            boolean bestFlip = false;
+            double bestDist = Double.MAX_VALUE;
+            for (int i = 0; i < remaining.size(); i++) {
+                if (blockedBy[remaining.get(i)] > 0) continue;
+                T s = stops.get(remaining.get(i));
+                double dEntry = dist(here, s.entry());
+                if (dEntry < bestDist) {
+                    bestDist = dEntry;
+                    best = i;
+                    bestFlip = false;
+                }
+                double dExit = dist(here, s.exit());
+                if (dExit < bestDist) {
+                    bestDist = dExit;
+                    best = i;
+                    bestFlip = true;
+                }
+            }
+            int chosen = remaining.remove(best);
+            for (int c : conflicts[chosen]) {
+                if (c > chosen) blockedBy[c]--;
+            }
+            T next = stops.get(chosen);
+            if (bestFlip) next.flip();
+            tour.add(next);
+            here = next.exit();
+        }
+
+        twoOpt(start, tour);
+
+        stops.clear();
+        stops.addAll(tour);
+    }
+
+    /**
+     * Inserts one stop at its cheapest position/orientation after every stop it overlaps, then
+     * refines with 2-opt.
+     */
+    static <T extends Stop> void insert(BlockPos start, List<T> stops, T added) {
+        if (start == null || stops == null) return;
+
+        int first = 0;
+        for (int i = 0; i < stops.size(); i++) {
+            if (intersects(stops.get(i), added)) first = i + 1;
+        }
+
+        int bestIndex = stops.size();
+        boolean bestFlip = false;
+        double bestDelta = Double.MAX_VALUE;
+        for (int i = first; i <= stops.size(); i++) {
+            BlockPos prev = i == 0 ? start : stops.get(i - 1).exit();
+            BlockPos next = i == stops.size() ? start : stops.get(i).entry();
+            double base = dist(prev, next);
+
+            double forward = dist(prev, added.entry()) + dist(added.exit(), next) - base;
+            if (forward < bestDelta) {
+                bestDelta = forward;
+                bestIndex = i;
+                bestFlip = false;
+            }
+            double backward = dist(prev, added.exit()) + dist(added.entry(), next) - base;
+            if (backward < bestDelta) {
+                bestDelta = backward;
+                bestIndex = i;
+                bestFlip = true;
+            }
+        }
+
+        if (bestFlip) added.flip();
+        stops.add(bestIndex, added);
+        twoOpt(start, stops);
+    }
+
+    /**
+     * Reversing stops i..k also flips each of them, so only the two boundary edges change. A
+     * reversal swaps every pair inside it, so it is only tried while no two stops in i..k intersect.
+     */
+    private static <T extends Stop> void twoOpt(BlockPos start, List<T> tour) {
+        int n = tour.size();
+        if (n < 2 || n > MAX_TWO_OPT_STOPS) return;
+
+        // Conflicts are by the stop's index on entry; idAt[] and at[] map between that and its place.
+        int[][] conflicts = conflicts(tour);
+        int[] idAt = new int[n];
+        int[] at = new int[n];
+        for (int i = 0; i < n; i++) idAt[i] = at[i] = i;
+
+        for (int pass = 0; pass < MAX_TWO_OPT_PASSES; pass++) {
+            boolean improved = false;
+            for (int i = 0; i < n - 1; i++) {
+                BlockPos before = i == 0 ? start : tour.get(i - 1).exit();
+                BlockPos firstEntry = tour.get(i).entry();
+                for (int k = i + 1; k < n; k++) {
+                    if (conflictsWithin(conflicts[idAt[k]], at, i, k)) break;
+                    BlockPos lastExit = tour.get(k).exit();
+                    BlockPos after = k == n - 1 ? start : tour.get(k + 1).entry();
+
+                    double oldCost = dist(before, firstEntry) + dist(lastExit, after);
+                    double newCost = dist(before, lastExit) + dist(firstEntry, after);
+                    if (newCost + 1e-6 < oldCost) {
+                        reverse(tour, i, k);
+                        for (int lo = i, hi = k; lo < hi; lo++, hi--) {
+                            int t = idAt[lo];
+                            idAt[lo] = idAt[hi];
+                            idAt[hi] = t;
+                        }
+                        for (int m = i; m <= k; m++) at[idAt[m]] = m;
+                        firstEntry = tour.get(i).entry();
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved) break;
+        }
+    }
+
+    private static <T extends Stop> void reverse(List<T> tour, int i, int k) {
+        Collections.reverse(tour.subList(i, k + 1));
+        for (int m = i; m <= k; m++) {
+            tour.get(m).flip();
+        }
+    }
+
+    private static boolean conflictsWithin(int[] conflicts, int[] at, int from, int to) {
+        for (int c : conflicts) {
+            if (at[c] >= from && at[c] < to) return true;
+        }
+        return false;
+    }
+
+    /**
+     * For each stop, the indices of the other stops whose cuboids it intersects.
+     */
+    private static <T extends Stop> int[][] conflicts(List<T> stops) {
+        int n = stops.size();
+        List<List<Integer>> lists = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) lists.add(new ArrayList<>());
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (intersects(stops.get(i), stops.get(j))) {
+                    lists.get(i).add(j);
+                    lists.get(j).add(i);
+                }
+            }
+        }
+        int[][] out = new int[n][];
+        for (int i = 0; i < n; i++) {
+            List<Integer> l = lists.get(i);
+            out[i] = new int[l.size()];
+            for (int j = 0; j < l.size(); j++) out[i][j] = l.get(j);
+        }
+        return out;
+    }
+
+    /**
+     * Entry and exit are opposite corners of the stop's cuboid.
+     */
+    static boolean intersects(Stop a, Stop b) {
+        BlockPos a1 = a.entry(), a2 = a.exit(), b1 = b.entry(), b2 = b.exit();
+        return Math.max(a1.getX(), a2.getX()) >= Math.min(b1.getX(), b2.getX())
+                && Math.max(b1.getX(), b2.getX()) >= Math.min(a1.getX(), a2.getX())
+                && Math.max(a1.getY(), a2.getY()) >= Math.min(b1.getY(), b2.getY())
+                && Math.max(b1.getY(), b2.getY()) >= Math.min(a1.getY(), a2.getY())
+                && Math.max(a1.getZ(), a2.getZ()) >= Math.min(b1.getZ(), b2.getZ())
+                && Math.max(b1.getZ(), b2.getZ()) >= Math.min(a1.getZ(), a2.getZ());
+    }
+
+    private static double dist(BlockPos a, BlockPos b) {
+        double dx = a.getX() - b.getX();
+        double dy = a.getY() - b.getY();
+        double dz = a.getZ() - b.getZ();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
@@ -1,11 +1,21 @@
 package com.github.xtimfie.housinglogs.mixin;
 
 import com.github.xtimfie.housinglogs.BlockAuditManager;
+import com.github.xtimfie.housinglogs.PacketHooks;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.network.NetHandlerPlayClient;
+import net.minecraft.entity.Entity;
+import net.minecraft.network.play.server.S04PacketEntityEquipment;
+import net.minecraft.network.play.server.S0BPacketAnimation;
+import net.minecraft.network.play.server.S13PacketDestroyEntities;
+import net.minecraft.network.play.server.S14PacketEntity;
+import net.minecraft.network.play.server.S18PacketEntityTeleport;
+import net.minecraft.network.play.server.S19PacketEntityHeadLook;
 import net.minecraft.network.play.server.S22PacketMultiBlockChange;
 import net.minecraft.network.play.server.S23PacketBlockChange;
 import net.minecraft.network.play.server.S25PacketBlockBreakAnim;
+import net.minecraft.network.play.server.S28PacketEffect;
+import net.minecraft.network.play.server.S29PacketSoundEffect;
 import net.minecraft.util.BlockPos;
 import net.minecraft.block.state.IBlockState;
 import org.spongepowered.asm.mixin.Mixin;
@@ -27,6 +37,14 @@ public class MixinNetHandlerPlayClient_BlockAudit {
         }
     }
 
+    @Inject(method = "handleBlockBreakAnim", at = @At("RETURN"))
+    private void hitlist$blockBreakAnimCapture(S25PacketBlockBreakAnim packet, CallbackInfo ci) {
+        try {
+            PacketHooks.INSTANCE.onBreakAnim(packet.getBreakerId(), packet.getPosition(), packet.getProgress());
+        } catch (Throwable ignored) {
+        }
+    }
+
     @Inject(method = "handleBlockChange", at = @At("HEAD"))
     private void hitlist$blockChange(S23PacketBlockChange packet, CallbackInfo ci) {
         // Logging is handled in World#setBlockState to avoid packet-handler mapping issues and to prevent duplicates.
@@ -36,4 +54,80 @@ public class MixinNetHandlerPlayClient_BlockAudit {
     private void hitlist$multiBlockChange(S22PacketMultiBlockChange packet, CallbackInfo ci) {
         // Logging is handled in World#setBlockState to avoid packet-handler mapping issues and to prevent duplicates.
     }
+
+    // Attribution inputs. RETURN only: see PacketHooks.
+
+    @Inject(method = "handleEntityMovement", at = @At("RETURN"))
+    private void hitlist$entityMovement(S14PacketEntity packet, CallbackInfo ci) {
+        try {
+            Minecraft mc = Minecraft.getMinecraft();
+            if (mc.theWorld == null) return;
+            Entity e = packet.getEntity(mc.theWorld);
+            if (e != null) PacketHooks.INSTANCE.onMove(e, packet.func_149060_h(), packet.func_149066_f(), packet.func_149063_g());
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "handleEntityTeleport", at = @At("RETURN"))
+    private void hitlist$entityTeleport(S18PacketEntityTeleport packet, CallbackInfo ci) {
+        try {
+            Minecraft mc = Minecraft.getMinecraft();
+            if (mc.theWorld == null) return;
+            Entity e = mc.theWorld.getEntityByID(packet.getEntityId());
+            if (e != null) PacketHooks.INSTANCE.onTeleport(e, packet.getYaw(), packet.getPitch());
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "handleEntityHeadLook", at = @At("RETURN"))
+    private void hitlist$entityHeadLook(S19PacketEntityHeadLook packet, CallbackInfo ci) {
+        try {
+            Minecraft mc = Minecraft.getMinecraft();
+            if (mc.theWorld == null) return;
+            Entity e = packet.getEntity(mc.theWorld);
+            if (e != null) PacketHooks.INSTANCE.onHeadLook(e, packet.getYaw());
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "handleAnimation", at = @At("RETURN"))
+    private void hitlist$animation(S0BPacketAnimation packet, CallbackInfo ci) {
+        try {
+            PacketHooks.INSTANCE.onAnimation(packet.getEntityID(), packet.getAnimationType());
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "handleEntityEquipment", at = @At("RETURN"))
+    private void hitlist$entityEquipment(S04PacketEntityEquipment packet, CallbackInfo ci) {
+        try {
+            PacketHooks.INSTANCE.onEquipment(packet.getEntityID(), packet.getEquipmentSlot(), packet.getItemStack());
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "handleDestroyEntities", at = @At("RETURN"))
+    private void hitlist$destroyEntities(S13PacketDestroyEntities packet, CallbackInfo ci) {
+        try {
+            PacketHooks.INSTANCE.onDestroy(packet.getEntityIDs());
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "handleSoundEffect", at = @At("RETURN"))
+    private void hitlist$soundEffect(S29PacketSoundEffect packet, CallbackInfo ci) {
+        try {
+            PacketHooks.INSTANCE.onSound(packet.getSoundName(), packet.getX(), packet.getY(), packet.getZ());
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "handleEffect", at = @At("RETURN"))
+    private void hitlist$effect(S28PacketEffect packet, CallbackInfo ci) {
+        try {
+            BlockPos pos = packet.getSoundPos();
+            if (pos != null) PacketHooks.INSTANCE.onEffect(packet.getSoundType(), pos);
+        } catch (Throwable ignored) {
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.github.xtimfie.housinglogs.mixin;
+
+import com.github.xtimfie.housinglogs.BlockAuditManager;
+import net.minecraft.client.entity.EntityPlayerSP;
+import net.minecraft.client.multiplayer.PlayerControllerMP;
+import net.minecraft.client.multiplayer.WorldClient;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.Vec3;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+@Mixin(PlayerControllerMP.class)
+public class MixinPlayerControllerMP_BlockAudit {
+
+    // Block changes made while our own break/use runs are the client's prediction of it.
+    @Inject(method = "onPlayerDestroyBlock", at = @At("HEAD"))
+    private void hitlist$destroyBlockHead(BlockPos pos, EnumFacing side, CallbackInfoReturnable<Boolean> cir) {
+        try {
+            BlockAuditManager.beginLocalAction();
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "onPlayerDestroyBlock", at = @At("RETURN"))
+    private void hitlist$destroyBlockReturn(BlockPos pos, EnumFacing side, CallbackInfoReturnable<Boolean> cir) {
+        try {
+            BlockAuditManager.endLocalAction();
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "onPlayerRightClick", at = @At("HEAD"))
+    private void hitlist$rightClickHead(EntityPlayerSP player, WorldClient world, ItemStack stack, BlockPos pos, EnumFacing side, Vec3 hit, CallbackInfoReturnable<Boolean> cir) {
+        try {
+            BlockAuditManager.beginLocalAction();
+        } catch (Throwable ignored) {
+        }
+    }
+
+    @Inject(method = "onPlayerRightClick", at = @At("RETURN"))
+    private void hitlist$rightClickReturn(EntityPlayerSP player, WorldClient world, ItemStack stack, BlockPos pos, EnumFacing side, Vec3 hit, CallbackInfoReturnable<Boolean> cir) {
+        try {
+            BlockAuditManager.endLocalAction();
+        } catch (Throwable ignored) {
+        }
+    }
+}